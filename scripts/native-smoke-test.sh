@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+# Runs one conversion against the native binary built with mvn -Pnative package and checks
+# the downloaded result is a GenBank record. Prints startup time and resident memory.
+#
+# Usage: scripts/native-smoke-test.sh <sequence.fasta> <annotation-file> [binary]
+set -euo pipefail
+
+SEQUENCE=${1:?sequence file required}
+ANNOTATION=${2:?annotation file required}
+BINARY=${3:-target/genbankinator-backend}
+
+PORT=${PORT:-18081}
+BASE="http://localhost:${PORT}/api/v1"
+FORMAT="${ANNOTATION##*.}"
+REQUEST="{\"organism\":\"Smoke test\",\"moleculeType\":\"DNA\",\"topology\":\"linear\",\"annotationFormat\":\"${FORMAT}\"}"
+
+STORAGE=$(mktemp -d)
+"$BINARY" -Dserver.port="$PORT" -Dfile.storage.location="$STORAGE" >"$STORAGE/app.log" 2>&1 &
+PID=$!
+cleanup() {
+    kill "$PID" 2>/dev/null || true
+    wait "$PID" 2>/dev/null || true
+    rm -rf "$STORAGE"
+}
+trap cleanup EXIT
+
+fail() {
+    echo "FAIL: $*" >&2
+    tail -50 "$STORAGE/app.log" >&2
+    exit 1
+}
+
+for _ in $(seq 1 200); do
+    curl -sf "$BASE/health" >/dev/null && break
+    kill -0 "$PID" 2>/dev/null || fail "binary exited during startup"
+    sleep 0.05
+done
+curl -sf "$BASE/health" >/dev/null || fail "not healthy after 10s"
+
+RESPONSE=$(curl -s -w '\n%{http_code}' \
+    -F "sequenceFile=@${SEQUENCE}" -F "annotationFile=@${ANNOTATION}" \
+    -F "request=${REQUEST};type=application/json" "$BASE/convert")
+STATUS=$(tail -n1 <<<"$RESPONSE")
+BODY=$(head -n -1 <<<"$RESPONSE")
+[ "$STATUS" = 200 ] || [ "$STATUS" = 202 ] || fail "convert returned $STATUS: $BODY"
+
+UUID=$(sed -n 's/.*"uuid" *: *"\([^"]*\)".*/\1/p' <<<"$BODY")
+[ -n "$UUID" ] || fail "no uuid in response: $BODY"
+
+# Queued conversions (conversion.queue.enabled=true) finish asynchronously
+if [ "$STATUS" = 202 ]; then
+    for _ in $(seq 1 600); do
+        JOB=$(curl -s "$BASE/jobs/$UUID")
+        grep -q '"status" *: *"COMPLETED"' <<<"$JOB" && break
+        grep -q '"status" *: *"FAILED"' <<<"$JOB" && fail "job failed: $JOB"
+        sleep 0.1
+    done
+fi
+
+curl -sf -o "$STORAGE/result.gb" "$BASE/files/$UUID" || fail "download of $UUID failed"
+head -c 5 "$STORAGE/result.gb" | grep -q '^LOCUS' || fail "result is not a GenBank record"
+
+echo "OK: converted $(basename "$SEQUENCE") to $(wc -c <"$STORAGE/result.gb") bytes"
+echo "startup: $(curl -s "$BASE/admin/startup")"
+echo "rss: $(grep VmRSS "/proc/$PID/status" | awk '{print $2, $3}')"
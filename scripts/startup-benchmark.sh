@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+# Measures cold start: JVM start to ready and to the first successful conversion.
+#
+# Usage: scripts/startup-benchmark.sh <app.jar> <sequence.fasta> <annotation-file> [runs] [-- extra JVM args]
+# Example (AppCDS build from mvn -Pappcds package):
+#   scripts/startup-benchmark.sh target/application/genbankinator-backend-0.0.1-SNAPSHOT.jar seq.fasta ann.fasta 5 \
+#       -- -XX:SharedArchiveFile=target/application/application.jsa
+set -euo pipefail
+
+JAR=${1:?jar required}
+SEQUENCE=${2:?sequence file required}
+ANNOTATION=${3:?annotation file required}
+RUNS=${4:-3}
+shift $(( $# < 4 ? $# : 4 ))
+[ "${1:-}" = "--" ] && shift
+JVM_ARGS=("$@")
+
+PORT=${PORT:-18080}
+BASE="http://localhost:${PORT}/api/v1"
+FORMAT="${ANNOTATION##*.}"
+REQUEST="{\"organism\":\"Benchmark\",\"moleculeType\":\"DNA\",\"topology\":\"linear\",\"annotationFormat\":\"${FORMAT}\"}"
+
+now_ms() { date +%s%3N; }
+
+for run in $(seq 1 "$RUNS"); do
+    STORAGE=$(mktemp -d)
+    START=$(now_ms)
+    java "${JVM_ARGS[@]}" -Dserver.port="$PORT" -Dfile.storage.location="$STORAGE" -jar "$JAR" >"$STORAGE/app.log" 2>&1 &
+    PID=$!
+    trap 'kill $PID 2>/dev/null || true' EXIT
+
+    until curl -sf "$BASE/health" >/dev/null; do
+        kill -0 "$PID" 2>/dev/null || { echo "run $run: application exited, see $STORAGE/app.log" >&2; exit 1; }
+        sleep 0.05
+    done
+    HEALTHY=$(now_ms)
+
+    STATUS=$(curl -s -o /dev/null -w '%{http_code}' \
+        -F "sequenceFile=@${SEQUENCE}" -F "annotationFile=@${ANNOTATION}" \
+        -F "request=${REQUEST};type=application/json" "$BASE/convert")
+    CONVERTED=$(now_ms)
+
+    TIMES=$(curl -s "$BASE/admin/startup")
+    echo "{\"run\":$run,\"status\":$STATUS,\"wallToHealthyMs\":$((HEALTHY - START)),\"wallToFirstConversionMs\":$((CONVERTED - START)),\"jvm\":$TIMES}"
+
+    kill "$PID"
+    wait "$PID" 2>/dev/null || true
+    rm -rf "$STORAGE"
+done
@@ -0,0 +1,207 @@
+package xyz.mahmoudahmed.genbankinatorbackend.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import xyz.mahmoudahmed.converter.GenbankConverter;
+import xyz.mahmoudahmed.genbankinatorbackend.service.CodonTranslator;
+import xyz.mahmoudahmed.model.ConversionOptions;
+import xyz.mahmoudahmed.model.GenbankResult;
+import xyz.mahmoudahmed.model.TranslationOptions;
+import xyz.mahmoudahmed.parsers.FastaAnnotationParser;
+
+/**
+ * CDS translation: mvn -Pjmh verify
+ *
+ * stringCodons/tableCodons compare a substring-and-map translation with {@link CodonTranslator}
+ * over the same features. libraryConvert/tableConvert compare a whole conversion with the
+ * library translating the CDS features against one without library translation followed by
+ * {@link CodonTranslator}, which is what translation.engine=table does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslationBenchmark {
+
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+
+    @Param({"1000000"})
+    public int length;
+
+    @Param({"1000"})
+    public int featureSpacing;
+
+    private byte[] sequence;
+    private String sequenceText;
+    private final List<long[]> segments = new ArrayList<>();
+    private final List<Boolean> complements = new ArrayList<>();
+    private final Map<String, Character> codonMap = new HashMap<>();
+    private CodonTranslator translator;
+
+    private Path directory;
+    private File sequenceFile;
+    private File annotationFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        sequence = new byte[length];
+        for (int i = 0; i < length; i++) {
+            sequence[i] = (byte) BASES[random.nextInt(4)];
+        }
+        sequenceText = new String(sequence, StandardCharsets.US_ASCII);
+
+        // Every third feature is spliced in two exons, every other one on the reverse strand
+        for (int start = 1, i = 0; start + featureSpacing <= length; start += featureSpacing, i++) {
+            long end = start + (featureSpacing * 3L / 4) / 3 * 3 - 1;
+            segments.add(i % 3 == 2
+                    ? new long[] {start, start + 299, start + 400, end + 100}
+                    : new long[] {start, end});
+            complements.add(i % 2 == 1);
+        }
+
+        String aminoAcids = "FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG";
+        String order = "TCAG";
+        for (int i = 0; i < 64; i++) {
+            String codon = "" + order.charAt(i / 16) + order.charAt(i / 4 % 4) + order.charAt(i % 4);
+            codonMap.put(codon, aminoAcids.charAt(i));
+        }
+        translator = CodonTranslator.forTable(1);
+
+        directory = Files.createTempDirectory("translation-benchmark");
+        sequenceFile = directory.resolve("genome.fasta").toFile();
+        annotationFile = directory.resolve("annotation.fasta").toFile();
+        writeInputs();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sequenceFile.delete();
+        annotationFile.delete();
+        directory.toFile().delete();
+    }
+
+    @Benchmark
+    public void stringCodons(Blackhole blackhole) {
+        for (int f = 0; f < segments.size(); f++) {
+            StringBuilder bases = new StringBuilder();
+            long[] feature = segments.get(f);
+            for (int i = 0; i < feature.length; i += 2) {
+                bases.append(sequenceText, (int) feature[i] - 1, (int) feature[i + 1]);
+            }
+            String coding = complements.get(f) ? reverseComplement(bases.toString()) : bases.toString();
+            StringBuilder protein = new StringBuilder();
+            for (int i = 0; i + 3 <= coding.length(); i += 3) {
+                Character aminoAcid = codonMap.get(coding.substring(i, i + 3));
+                protein.append(aminoAcid != null ? aminoAcid : 'X');
+            }
+            blackhole.consume(protein.toString());
+        }
+    }
+
+    @Benchmark
+    public void tableCodons(Blackhole blackhole) {
+        byte[] out = new byte[featureSpacing];
+        for (int f = 0; f < segments.size(); f++) {
+            blackhole.consume(translator.translate(sequence, segments.get(f), complements.get(f), 1, false, false, out));
+        }
+    }
+
+    @Benchmark
+    public GenbankResult libraryConvert() {
+        return convert(true);
+    }
+
+    @Benchmark
+    public void tableConvert(Blackhole blackhole) {
+        blackhole.consume(convert(false));
+        tableCodons(blackhole);
+    }
+
+    private GenbankResult convert(boolean translate) {
+        GenbankConverter converter = GenbankConverter.builder()
+                .withAnnotationParser(new FastaAnnotationParser())
+                .build();
+        ConversionOptions options = ConversionOptions.builder()
+                .organism("Synthetic organism")
+                .moleculeType("DNA")
+                .topology("linear")
+                .annotationFormat("fasta")
+                .translationOptions(TranslationOptions.builder().translTableNumber(1).translateCDS(translate).build())
+                .build();
+        return converter.convert(sequenceFile, annotationFile, options);
+    }
+
+    private static String reverseComplement(String bases) {
+        StringBuilder result = new StringBuilder(bases.length());
+        for (int i = bases.length() - 1; i >= 0; i--) {
+            char base = bases.charAt(i);
+            result.append(switch (base) {
+                case 'A' -> 'T';
+                case 'T' -> 'A';
+                case 'G' -> 'C';
+                case 'C' -> 'G';
+                default -> base;
+            });
+        }
+        return result.toString();
+    }
+
+    private void writeInputs() throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(sequenceFile.toPath(), StandardCharsets.US_ASCII)) {
+            out.write(">genome synthetic benchmark sequence\n");
+            for (int i = 0; i < length; i += 70) {
+                out.write(sequenceText, i, Math.min(70, length - i));
+                out.write('\n');
+            }
+        }
+        try (BufferedWriter out = Files.newBufferedWriter(annotationFile.toPath(), StandardCharsets.US_ASCII)) {
+            for (int f = 0; f < segments.size(); f++) {
+                long[] feature = segments.get(f);
+                StringBuilder location = new StringBuilder();
+                StringBuilder bases = new StringBuilder();
+                for (int i = 0; i < feature.length; i += 2) {
+                    location.append(i > 0 ? "," : "").append(feature[i]).append("..").append(feature[i + 1]);
+                    bases.append(sequenceText, (int) feature[i] - 1, (int) feature[i + 1]);
+                }
+                String span = feature.length > 2 ? "join(" + location + ")" : location.toString();
+                boolean complement = complements.get(f);
+                out.write(">genome:" + feature[0] + "-" + feature[feature.length - 1] + " [gene=gene" + (f + 1) + "]"
+                        + " [location=" + (complement ? "complement(" + span + ")" : span) + "] [gbkey=CDS]\n");
+                String coding = complement ? reverseComplement(bases.toString()) : bases.toString();
+                for (int i = 0; i < coding.length(); i += 70) {
+                    out.write(coding, i, Math.min(70, coding.length() - i));
+                    out.write('\n');
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package xyz.mahmoudahmed.genbankinatorbackend.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of one endpoint. Each worker keeps its own instance so recording
+ * needs no synchronisation; instances are merged when the run ends.
+ */
+class EndpointStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    private long bytes;
+    private final Map<Integer, Long> statuses = new TreeMap<>();
+
+    void record(long latencyNanos, int status, long responseBytes) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        bytes += responseBytes;
+        statuses.merge(status, 1L, Long::sum);
+        // 0 stands for a request that failed without a response
+        if (status == 0 || status >= 400) {
+            errors++;
+        }
+    }
+
+    void merge(EndpointStats other) {
+        if (count + other.count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, count + other.count);
+        }
+        System.arraycopy(other.latencies, 0, latencies, count, other.count);
+        count += other.count;
+        errors += other.errors;
+        bytes += other.bytes;
+        other.statuses.forEach((status, n) -> statuses.merge(status, n, Long::sum));
+    }
+
+    long count() {
+        return count;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    /**
+     * Summary for the report; latencies in milliseconds
+     */
+    Map<String, Object> summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", millis(percentile(sorted, 0.50)));
+        latency.put("p90", millis(percentile(sorted, 0.90)));
+        latency.put("p99", millis(percentile(sorted, 0.99)));
+        latency.put("p999", millis(percentile(sorted, 0.999)));
+        latency.put("max", millis(count > 0 ? sorted[count - 1] : 0));
+        latency.put("mean", millis(count > 0 ? (long) Arrays.stream(sorted).average().orElse(0) : 0));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors);
+        summary.put("errorRate", count > 0 ? (double) errors / count : 0.0);
+        summary.put("throughputPerSecond", seconds > 0 ? count / seconds : 0.0);
+        summary.put("bytesReceived", bytes);
+        summary.put("latencyMillis", latency);
+        summary.put("statusCodes", statuses);
+        return summary;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
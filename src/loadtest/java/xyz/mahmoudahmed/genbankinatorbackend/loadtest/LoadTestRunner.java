@@ -0,0 +1,455 @@
+package xyz.mahmoudahmed.genbankinatorbackend.loadtest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import xyz.mahmoudahmed.genbankinatorbackend.Application;
+
+/**
+ * End-to-end load test: mvn -Ploadtest verify
+ *
+ * Boots the application on a random port (or targets loadtest.base-url), writes synthetic
+ * FASTA/annotation pairs, seeds some results and then drives a weighted mix of /convert,
+ * /files and /files/{uuid} from loadtest.concurrency threads. Latencies from the warm-up
+ * period are discarded. Per-endpoint throughput, latency percentiles and error rates are
+ * printed and written as JSON to loadtest.report, so runs can be compared between releases.
+ *
+ * All settings are system properties (see {@link Settings}); any other -D property is
+ * passed on to the application, e.g. -Dconversion.queue.enabled=true.
+ */
+public class LoadTestRunner {
+
+    enum Endpoint {
+        CONVERT("POST /api/v1/convert"),
+        LIST("GET /api/v1/files"),
+        DOWNLOAD("GET /api/v1/files/{uuid}");
+
+        final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient httpClient;
+
+    private final List<SyntheticGenome.Pair> inputs = new ArrayList<>();
+    private final List<Result> results = new CopyOnWriteArrayList<>();
+    private String baseUrl;
+
+    LoadTestRunner(Settings settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTestRunner(Settings.fromSystemProperties()).run();
+    }
+
+    void run() throws Exception {
+        prepareInputs();
+
+        ConfigurableApplicationContext application = null;
+        if (StringUtils.hasText(settings.baseUrl)) {
+            baseUrl = settings.baseUrl.replaceAll("/+$", "");
+        } else {
+            application = startApplication();
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) application).getWebServer().getPort();
+        }
+
+        try {
+            log("Target %s, %d workers, mix %s", baseUrl, settings.concurrency, settings.mix);
+            seedResults();
+
+            Instant measureFrom = Instant.now().plus(settings.warmup);
+            Instant until = measureFrom.plus(settings.duration);
+            log("Warming up for %s, then measuring for %s", settings.warmup, settings.duration);
+
+            List<Worker> workers = new ArrayList<>();
+            for (int i = 0; i < settings.concurrency; i++) {
+                workers.add(new Worker(i, measureFrom, until));
+            }
+            List<Thread> threads = new ArrayList<>();
+            for (Worker worker : workers) {
+                Thread thread = new Thread(worker, "loadtest-" + worker.index);
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            Map<Endpoint, EndpointStats> merged = new EnumMap<>(Endpoint.class);
+            for (Endpoint endpoint : Endpoint.values()) {
+                merged.put(endpoint, new EndpointStats());
+            }
+            for (Worker worker : workers) {
+                worker.stats.forEach((endpoint, stats) -> merged.get(endpoint).merge(stats));
+            }
+
+            writeReport(merged);
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    private void prepareInputs() throws IOException {
+        if (settings.sequence != null && settings.annotation != null) {
+            inputs.add(new SyntheticGenome.Pair(settings.sequence, settings.annotation, Files.size(settings.sequence)));
+            log("Using input files %s and %s", settings.sequence, settings.annotation);
+            return;
+        }
+
+        SyntheticGenome genome = new SyntheticGenome(settings.seed);
+        Path directory = settings.workDirectory.resolve("inputs");
+        for (DataSize size : settings.sequenceSizes) {
+            long length = size.toBytes();
+            int features = (int) Math.max(1, length / settings.featureSpacing);
+            inputs.add(genome.write(directory, "synthetic-" + size.toString().toLowerCase(), length, features));
+            log("Generated %s sequence with %d features", size, features);
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication() throws IOException {
+        Path storage = settings.workDirectory.resolve("storage-" + System.currentTimeMillis());
+        Files.createDirectories(storage);
+        log("Starting application with storage %s", storage);
+        // Passed as arguments so they win over application.properties
+        return new SpringApplicationBuilder(Application.class)
+                .run("--server.port=0", "--file.storage.location=" + storage.toAbsolutePath());
+    }
+
+    /**
+     * Converts a few inputs up front so downloads have something to fetch from the first request
+     */
+    private void seedResults() throws Exception {
+        Random random = new Random(settings.seed);
+        for (int i = 0; i < settings.seedResults; i++) {
+            Call call = convert(random);
+            if (call.status >= 400 || call.status == 0) {
+                throw new IllegalStateException("Seeding conversion failed with status " + call.status
+                        + ": " + call.body);
+            }
+        }
+        log("Seeded %d results", results.size());
+    }
+
+    private Call convert(Random random) throws IOException, InterruptedException {
+        SyntheticGenome.Pair input = inputs.get(random.nextInt(inputs.size()));
+        String clientId = clientId(random);
+        String request = "{\"organism\":\"Synthetic organism\",\"moleculeType\":\"DNA\",\"topology\":\"linear\","
+                + "\"annotationFormat\":\"fasta\",\"clientId\":\"" + clientId + "\"}";
+
+        String boundary = "loadtest-" + UUID.randomUUID();
+        List<HttpRequest.BodyPublisher> parts = List.of(
+                text(partHeader(boundary, "sequenceFile", input.sequence().getFileName().toString(), "text/plain")),
+                HttpRequest.BodyPublishers.ofFile(input.sequence()),
+                text("\r\n" + partHeader(boundary, "annotationFile", annotationName(input), "text/plain")),
+                HttpRequest.BodyPublishers.ofFile(input.annotation()),
+                text("\r\n" + partHeader(boundary, "request", null, "application/json") + request
+                        + "\r\n--" + boundary + "--\r\n"));
+
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/convert"))
+                .timeout(settings.requestTimeout)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.concat(parts.toArray(new HttpRequest.BodyPublisher[0])))
+                .build();
+
+        HttpResponse<String> response = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() < 300) {
+            JsonNode body = objectMapper.readTree(response.body());
+            if (body.hasNonNull("uuid")) {
+                results.add(new Result(body.get("uuid").asText(), clientId));
+            }
+        }
+        return new Call(response.statusCode(), response.body().length(), response.body());
+    }
+
+    private Call list(Random random) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/files?clientId=" + clientId(random)))
+                .timeout(settings.requestTimeout)
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        return new Call(response.statusCode(), response.body().length, null);
+    }
+
+    private Call download(Random random, byte[] buffer) throws IOException, InterruptedException {
+        Result result = results.get(random.nextInt(results.size()));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/files/" + result.uuid
+                        + "?clientId=" + result.clientId))
+                .timeout(settings.requestTimeout)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        long bytes = 0;
+        try (InputStream in = response.body()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes += read;
+            }
+        }
+        return new Call(response.statusCode(), bytes, null);
+    }
+
+    private String clientId(Random random) {
+        return "loadtest-client-" + random.nextInt(settings.clients);
+    }
+
+    private static String annotationName(SyntheticGenome.Pair input) {
+        // The service checks the extension against the annotation format
+        String name = input.annotation().getFileName().toString();
+        return name.endsWith(".fasta") ? name : name + ".fasta";
+    }
+
+    private static String partHeader(String boundary, String name, String filename, String contentType) {
+        return "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\""
+                + (filename != null ? "; filename=\"" + filename + "\"" : "") + "\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n";
+    }
+
+    private static HttpRequest.BodyPublisher text(String value) {
+        return HttpRequest.BodyPublishers.ofString(value, StandardCharsets.UTF_8);
+    }
+
+    private void writeReport(Map<Endpoint, EndpointStats> stats) throws IOException {
+        double seconds = settings.duration.toMillis() / 1000.0;
+
+        EndpointStats total = new EndpointStats();
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            endpoints.put(entry.getKey().label, entry.getValue().summarize(seconds));
+            total.merge(entry.getValue());
+        }
+
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("javaVersion", System.getProperty("java.version"));
+        environment.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        environment.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        environment.put("target", StringUtils.hasText(settings.baseUrl) ? settings.baseUrl : "embedded");
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", Instant.now().toString());
+        report.put("settings", settings.describe());
+        report.put("environment", environment);
+        report.put("inputs", inputs.stream().map(input -> Map.of(
+                "sequence", input.sequence().getFileName().toString(),
+                "sequenceBytes", input.length())).toList());
+        report.put("total", total.summarize(seconds));
+        report.put("endpoints", endpoints);
+
+        Files.createDirectories(settings.report.toAbsolutePath().getParent());
+        objectMapper.writeValue(settings.report.toFile(), report);
+
+        log("%-26s %9s %8s %9s %9s %9s %9s %7s", "endpoint", "requests", "req/s", "p50 ms", "p99 ms",
+                "p999 ms", "max ms", "errors");
+        for (Map.Entry<String, Object> entry : endpoints.entrySet()) {
+            printRow(entry.getKey(), entry.getValue());
+        }
+        printRow("total", report.get("total"));
+        log("Report written to %s", settings.report.toAbsolutePath());
+
+        double errorRate = total.count() > 0 ? (double) total.errors() / total.count() : 0.0;
+        if (settings.maxErrorRate != null && errorRate > settings.maxErrorRate) {
+            throw new IllegalStateException(String.format("Error rate %.4f exceeds loadtest.max-error-rate %.4f",
+                    errorRate, settings.maxErrorRate));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printRow(String name, Object summary) {
+        Map<String, Object> values = (Map<String, Object>) summary;
+        Map<String, Object> latency = (Map<String, Object>) values.get("latencyMillis");
+        log("%-26s %9d %8.1f %9.2f %9.2f %9.2f %9.2f %6.2f%%", name, values.get("requests"),
+                values.get("throughputPerSecond"), latency.get("p50"), latency.get("p99"), latency.get("p999"),
+                latency.get("max"), 100 * (double) values.get("errorRate"));
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.println("[loadtest] " + String.format(format, args));
+    }
+
+    /**
+     * One load generating thread with its own random stream and statistics
+     */
+    private class Worker implements Runnable {
+        final int index;
+        final Instant measureFrom;
+        final Instant until;
+        final Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        final Random random;
+        final byte[] buffer = new byte[64 * 1024];
+
+        Worker(int index, Instant measureFrom, Instant until) {
+            this.index = index;
+            this.measureFrom = measureFrom;
+            this.until = until;
+            this.random = new Random(settings.seed + 1 + index);
+            for (Endpoint endpoint : Endpoint.values()) {
+                stats.put(endpoint, new EndpointStats());
+            }
+        }
+
+        @Override
+        public void run() {
+            while (Instant.now().isBefore(until)) {
+                Endpoint endpoint = settings.pick(random);
+                Instant started = Instant.now();
+                long start = System.nanoTime();
+                Call call;
+                try {
+                    call = switch (endpoint) {
+                        case CONVERT -> convert(random);
+                        case LIST -> list(random);
+                        case DOWNLOAD -> download(random, buffer);
+                    };
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (IOException e) {
+                    call = new Call(0, 0, e.toString());
+                }
+                long latency = System.nanoTime() - start;
+                if (!started.isBefore(measureFrom)) {
+                    stats.get(endpoint).record(latency, call.status, call.bytes);
+                }
+            }
+        }
+    }
+
+    private record Call(int status, long bytes, String body) {
+    }
+
+    private record Result(String uuid, String clientId) {
+    }
+
+    /**
+     * Run settings, read from loadtest.* system properties
+     */
+    static final class Settings {
+        String baseUrl;
+        Duration duration;
+        Duration warmup;
+        Duration requestTimeout;
+        int concurrency;
+        Map<Endpoint, Integer> mix;
+        List<DataSize> sequenceSizes;
+        long featureSpacing;
+        Path sequence;
+        Path annotation;
+        int clients;
+        int seedResults;
+        long seed;
+        Path workDirectory;
+        Path report;
+        Double maxErrorRate;
+
+        private int totalWeight;
+
+        static Settings fromSystemProperties() {
+            Settings settings = new Settings();
+            settings.baseUrl = property("base-url", "");
+            settings.duration = Duration.parse(property("duration", "PT60S"));
+            settings.warmup = Duration.parse(property("warmup", "PT10S"));
+            settings.requestTimeout = Duration.parse(property("request-timeout", "PT120S"));
+            settings.concurrency = Integer.parseInt(property("concurrency", "16"));
+            settings.mix = parseMix(property("mix", "download:70,list:25,convert:5"));
+            settings.sequenceSizes = new ArrayList<>();
+            for (String size : property("sequence-sizes", "100KB,1MB,10MB").split(",")) {
+                settings.sequenceSizes.add(DataSize.parse(size.trim()));
+            }
+            settings.featureSpacing = Long.parseLong(property("feature-spacing", "1000"));
+            String sequence = property("sequence", "");
+            String annotation = property("annotation", "");
+            settings.sequence = sequence.isEmpty() ? null : Paths.get(sequence);
+            settings.annotation = annotation.isEmpty() ? null : Paths.get(annotation);
+            settings.clients = Integer.parseInt(property("clients", "20"));
+            settings.seedResults = Integer.parseInt(property("seed-results", "20"));
+            settings.seed = Long.parseLong(property("seed", "42"));
+            settings.workDirectory = Paths.get(property("work-directory", "target/loadtest"));
+            settings.report = Paths.get(property("report", "target/loadtest/report.json"));
+            String maxErrorRate = property("max-error-rate", "");
+            settings.maxErrorRate = maxErrorRate.isEmpty() ? null : Double.parseDouble(maxErrorRate);
+            settings.totalWeight = settings.mix.values().stream().mapToInt(Integer::intValue).sum();
+            if (settings.totalWeight <= 0) {
+                throw new IllegalArgumentException("loadtest.mix needs at least one positive weight");
+            }
+            return settings;
+        }
+
+        Endpoint pick(Random random) {
+            int roll = random.nextInt(totalWeight);
+            for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+                roll -= entry.getValue();
+                if (roll < 0) {
+                    return entry.getKey();
+                }
+            }
+            throw new IllegalStateException("Unreachable");
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("duration", duration.toString());
+            values.put("warmup", warmup.toString());
+            values.put("concurrency", concurrency);
+            values.put("mix", mix.toString());
+            values.put("sequenceSizes", sequenceSizes.stream().map(DataSize::toString).toList());
+            values.put("featureSpacing", featureSpacing);
+            values.put("clients", clients);
+            values.put("seedResults", seedResults);
+            values.put("seed", seed);
+            return values;
+        }
+
+        private static Map<Endpoint, Integer> parseMix(String value) {
+            Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+            for (String entry : value.split(",")) {
+                String[] parts = entry.trim().split(":");
+                mix.put(Endpoint.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+            }
+            return mix;
+        }
+
+        private static String property(String name, String defaultValue) {
+            return System.getProperty("loadtest." + name, defaultValue);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package xyz.mahmoudahmed.genbankinatorbackend.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Writes a reproducible FASTA sequence and matching FASTA annotation file.
+ *
+ * The sequence is a single record of random bases with a GC content around 40%. Features are
+ * spread evenly along it, alternate strands and each carry the bases they cover, so parsing
+ * and translation work scale with the input size like a real genome.
+ */
+class SyntheticGenome {
+
+    private static final int LINE_WIDTH = 70;
+    private static final char[] BASES = {'A', 'T', 'G', 'C'};
+
+    private final Random random;
+
+    SyntheticGenome(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Writes sequence.fasta and annotation.fasta into the given directory
+     *
+     * @param length   sequence length in bases
+     * @param features number of annotated features
+     */
+    Pair write(Path directory, String name, long length, int features) throws IOException {
+        Files.createDirectories(directory);
+        Path sequence = directory.resolve(name + ".fasta");
+        Path annotation = directory.resolve(name + "-annotation.fasta");
+
+        byte[] bases = new byte[(int) length];
+        for (int i = 0; i < bases.length; i++) {
+            // Roughly 60% AT, 40% GC
+            int pick = random.nextInt(10);
+            bases[i] = (byte) BASES[pick < 6 ? pick % 2 : 2 + pick % 2];
+        }
+
+        try (BufferedWriter out = Files.newBufferedWriter(sequence, StandardCharsets.US_ASCII)) {
+            out.write(">" + name + " synthetic load-test sequence\n");
+            writeWrapped(out, bases, 0, bases.length);
+        }
+
+        int span = (int) Math.max(3, length / Math.max(1, features));
+        try (BufferedWriter out = Files.newBufferedWriter(annotation, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < features; i++) {
+                int start = i * span;
+                // Whole codons, leaving a gap before the next feature
+                int end = Math.min(bases.length, start + (span * 3 / 4) / 3 * 3);
+                if (end - start < 3) {
+                    break;
+                }
+                boolean reverse = i % 2 == 1;
+                String location = reverse
+                        ? "complement(" + (start + 1) + ".." + end + ")"
+                        : (start + 1) + ".." + end;
+                out.write(">" + name + ":" + (start + 1) + "-" + end + " [gene=gene" + (i + 1) + "]"
+                        + " [location=" + location + "] [gbkey=CDS]\n");
+                writeWrapped(out, bases, start, end);
+            }
+        }
+        return new Pair(sequence, annotation, length);
+    }
+
+    private static void writeWrapped(BufferedWriter out, byte[] bases, int from, int to) throws IOException {
+        for (int i = from; i < to; i += LINE_WIDTH) {
+            out.write(new String(bases, i, Math.min(LINE_WIDTH, to - i), StandardCharsets.US_ASCII));
+            out.write('\n');
+        }
+    }
+
+    /**
+     * A sequence file and its annotation
+     */
+    record Pair(Path sequence, Path annotation, long length) {
+    }
+}
@@ -0,0 +1,38 @@
+package xyz.mahmoudahmed.genbankinatorbackend.cluster;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@Configuration
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterConfig {
+
+    @Bean
+    public SharedMetadataStore sharedMetadataStore(
+            @Value("${cluster.metadata-store:redis}") String storeType,
+            @Value("${cluster.memory-store.name:default}") String memoryStoreName,
+            ObjectProvider<StringRedisTemplate> redisTemplate) {
+
+        return switch (storeType) {
+            case "redis" -> new RedisSharedMetadataStore(redisTemplate.getObject());
+            case "memory" -> InMemorySharedMetadataStore.named(memoryStoreName);
+            default -> throw new IllegalArgumentException("Unknown cluster.metadata-store: " + storeType);
+        };
+    }
+
+    /**
+     * Redis auto-configuration is excluded in application.properties so single nodes do not
+     * set up a connection factory; it is brought back only for the Redis store
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "cluster.metadata-store", havingValue = "redis", matchIfMissing = true)
+    @Import(RedisAutoConfiguration.class)
+    static class RedisStoreConfig {
+    }
+}
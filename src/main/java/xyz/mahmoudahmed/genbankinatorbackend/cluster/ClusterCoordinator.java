@@ -0,0 +1,150 @@
+package xyz.mahmoudahmed.genbankinatorbackend.cluster;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+
+/**
+ * Node identity and coordination for cluster mode.
+ * With cluster.enabled=false every check answers as a single node would.
+ *
+ * cluster.storage.shared says whether all nodes see the same storage directory.
+ * If they do, any node can serve any download, and the expiry sweep runs on one
+ * leader that holds a lease. If they don't, downloads are redirected to the owning
+ * node, and each node sweeps only the files it wrote.
+ */
+@Service
+@Slf4j
+public class ClusterCoordinator {
+
+    @Value("${cluster.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cluster.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${cluster.advertised-url:}")
+    private String advertisedUrl;
+
+    @Value("${cluster.storage.shared:true}")
+    private boolean sharedStorage;
+
+    @Value("${cluster.lease.ttl:PT5M}")
+    private Duration leaseTtl;
+
+    @Value("${cluster.heartbeat.ttl:PT30S}")
+    private Duration heartbeatTtl;
+
+    private final ObjectProvider<SharedMetadataStore> storeProvider;
+
+    private SharedMetadataStore store;
+    private String nodeId;
+
+    public ClusterCoordinator(ObjectProvider<SharedMetadataStore> storeProvider) {
+        this.storeProvider = storeProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.nodeId = configuredNodeId.isBlank() ? defaultNodeId() : configuredNodeId;
+
+        if (!enabled) {
+            return;
+        }
+
+        this.store = storeProvider.getIfAvailable();
+        if (store == null) {
+            throw new IllegalStateException("cluster.enabled=true but no shared metadata store is configured");
+        }
+        if (!sharedStorage && advertisedUrl.isBlank()) {
+            throw new IllegalStateException("cluster.advertised-url is required when cluster storage is not shared");
+        }
+
+        heartbeat();
+        log.info("Cluster mode enabled: node {} (shared storage: {})", nodeId, sharedStorage);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * The shared store, or null when cluster mode is disabled
+     */
+    public SharedMetadataStore getSharedStore() {
+        return store;
+    }
+
+    public boolean isSharedStorage() {
+        return sharedStorage;
+    }
+
+    /**
+     * Whether this node should run a cluster-wide task such as the expiry sweep.
+     * Always true outside cluster mode, and on unshared storage where each node cleans up its own files.
+     */
+    public boolean acquireLeadership(String task) {
+        if (!enabled || !sharedStorage) {
+            return true;
+        }
+        return store.tryAcquireLease(task, nodeId, leaseTtl);
+    }
+
+    /**
+     * Whether the result file for this metadata can be read from this node's disk
+     */
+    public boolean isServedLocally(FileMetadata metadata) {
+        return !enabled || sharedStorage || isOwnedLocally(metadata);
+    }
+
+    /**
+     * Whether this node is responsible for deleting the file on expiry
+     */
+    public boolean isOwnedLocally(FileMetadata metadata) {
+        return metadata.getOwnerNode() == null || nodeId.equals(metadata.getOwnerNode());
+    }
+
+    /**
+     * Base URL of the live node owning a result, or null if it is unknown or down
+     */
+    public String findOwnerUrl(FileMetadata metadata) {
+        if (!enabled || metadata.getOwnerNode() == null) {
+            return null;
+        }
+        return store.findNodeUrl(metadata.getOwnerNode());
+    }
+
+    @Scheduled(fixedDelayString = "${cluster.heartbeat.interval:PT10S}")
+    public void heartbeat() {
+        if (!enabled || advertisedUrl.isBlank()) {
+            return;
+        }
+        try {
+            store.registerNode(nodeId, advertisedUrl, heartbeatTtl);
+        } catch (Exception e) {
+            log.warn("Cluster heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+}
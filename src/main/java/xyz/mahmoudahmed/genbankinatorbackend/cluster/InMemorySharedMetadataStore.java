@@ -0,0 +1,124 @@
+package xyz.mahmoudahmed.genbankinatorbackend.cluster;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadataCodec;
+
+/**
+ * Embedded store for running cluster mode on one machine (cluster.metadata-store=memory).
+ * Application contexts in the same JVM that name the same cluster.memory-store.name get the
+ * same instance from {@link #named}, so several nodes can run side by side in one process;
+ * separate processes need the Redis store.
+ */
+public class InMemorySharedMetadataStore implements SharedMetadataStore {
+
+    private static final Map<String, InMemorySharedMetadataStore> NAMED = new ConcurrentHashMap<>();
+
+    private final Map<String, byte[]> entries = new ConcurrentHashMap<>();
+    private final Map<String, Expiring> leases = new ConcurrentHashMap<>();
+    private final Map<String, Expiring> nodes = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * The store registered under a name, created on first use
+     */
+    public static InMemorySharedMetadataStore named(String name) {
+        return NAMED.computeIfAbsent(name, key -> new InMemorySharedMetadataStore());
+    }
+
+    @Override
+    public void put(FileMetadata metadata) {
+        // Stored encoded, so callers never share mutable instances
+        entries.put(metadata.getUuid(), FileMetadataCodec.encode(metadata));
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public FileMetadata get(String uuid) {
+        byte[] encoded = entries.get(uuid);
+        return encoded == null ? null : FileMetadataCodec.decode(encoded);
+    }
+
+    @Override
+    public FileMetadata remove(String uuid) {
+        byte[] encoded = entries.remove(uuid);
+        if (encoded == null) {
+            return null;
+        }
+        generation.incrementAndGet();
+        return FileMetadataCodec.decode(encoded);
+    }
+
+    @Override
+    public void removeAll(Collection<FileMetadata> removed) {
+        boolean changed = false;
+        for (FileMetadata metadata : removed) {
+            changed |= entries.remove(metadata.getUuid()) != null;
+        }
+        if (changed) {
+            generation.incrementAndGet();
+        }
+    }
+
+    @Override
+    public List<FileMetadata> findAll() {
+        return entries.values().stream()
+                .map(FileMetadataCodec::decode)
+                .toList();
+    }
+
+    @Override
+    public List<FileMetadata> findByClient(String clientId) {
+        return findAll().stream()
+                .filter(metadata -> clientId.equals(metadata.getClientId()))
+                .toList();
+    }
+
+    @Override
+    public List<FileMetadata> findExpired(LocalDateTime now) {
+        return findAll().stream()
+                .filter(metadata -> metadata.getExpiresAt().isBefore(now))
+                .toList();
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public long generation() {
+        return generation.get();
+    }
+
+    @Override
+    public boolean tryAcquireLease(String name, String holder, Duration ttl) {
+        long now = System.currentTimeMillis();
+        Expiring lease = leases.compute(name, (key, current) ->
+                current == null || current.expiresAt() <= now || current.value().equals(holder)
+                        ? new Expiring(holder, now + ttl.toMillis())
+                        : current);
+        return lease.value().equals(holder);
+    }
+
+    @Override
+    public void registerNode(String nodeId, String baseUrl, Duration ttl) {
+        nodes.put(nodeId, new Expiring(baseUrl, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public String findNodeUrl(String nodeId) {
+        Expiring node = nodes.get(nodeId);
+        return node != null && node.expiresAt() > System.currentTimeMillis() ? node.value() : null;
+    }
+
+    private record Expiring(String value, long expiresAt) {
+    }
+}
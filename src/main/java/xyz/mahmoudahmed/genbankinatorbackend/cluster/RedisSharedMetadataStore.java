@@ -0,0 +1,207 @@
+package xyz.mahmoudahmed.genbankinatorbackend.cluster;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadataCodec;
+
+/**
+ * Shared metadata on any Redis-compatible server (Redis, Valkey, KeyDB).
+ *
+ * Keys:
+ * <pre>
+ *   genbank:meta              hash   uuid -> base64 FileMetadataCodec record
+ *   genbank:expiry            zset   uuid scored by expiresAt epoch millis
+ *   genbank:client:{clientId} set    uuids owned by a client
+ *   genbank:generation        string change counter
+ *   genbank:lease:{name}      string lease holder, with TTL
+ *   genbank:node:{nodeId}     string node base URL, with TTL
+ * </pre>
+ */
+public class RedisSharedMetadataStore implements SharedMetadataStore {
+
+    private static final String PREFIX = "genbank:";
+    private static final String METADATA_KEY = PREFIX + "meta";
+    private static final String EXPIRY_KEY = PREFIX + "expiry";
+    private static final String CLIENT_KEY_PREFIX = PREFIX + "client:";
+    private static final String GENERATION_KEY = PREFIX + "generation";
+    private static final String LEASE_KEY_PREFIX = PREFIX + "lease:";
+    private static final String NODE_KEY_PREFIX = PREFIX + "node:";
+
+    // Renew when already held by the caller, otherwise take it only if free
+    private static final RedisScript<Long> ACQUIRE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('pexpire', KEYS[1], ARGV[2]) "
+                    + "elseif redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then "
+                    + "return 1 "
+                    + "else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redis;
+
+    public RedisSharedMetadataStore(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    @Override
+    public void put(FileMetadata metadata) {
+        String uuid = metadata.getUuid();
+        String encoded = encode(metadata);
+        double expiresAt = FileMetadataCodec.toEpochMillis(metadata.getExpiresAt());
+
+        inTransaction(ops -> {
+            ops.opsForHash().put(METADATA_KEY, uuid, encoded);
+            ops.opsForZSet().add(EXPIRY_KEY, uuid, expiresAt);
+            if (metadata.getClientId() != null) {
+                ops.opsForSet().add(CLIENT_KEY_PREFIX + metadata.getClientId(), uuid);
+            }
+            ops.opsForValue().increment(GENERATION_KEY);
+        });
+    }
+
+    @Override
+    public FileMetadata get(String uuid) {
+        return decode(hash().get(METADATA_KEY, uuid));
+    }
+
+    @Override
+    public FileMetadata remove(String uuid) {
+        FileMetadata existing = get(uuid);
+        if (existing == null) {
+            return null;
+        }
+
+        inTransaction(ops -> {
+            ops.opsForHash().delete(METADATA_KEY, uuid);
+            ops.opsForZSet().remove(EXPIRY_KEY, uuid);
+            if (existing.getClientId() != null) {
+                ops.opsForSet().remove(CLIENT_KEY_PREFIX + existing.getClientId(), uuid);
+            }
+            ops.opsForValue().increment(GENERATION_KEY);
+        });
+        return existing;
+    }
+
+    @Override
+    public void removeAll(Collection<FileMetadata> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Object[] uuids = entries.stream().map(FileMetadata::getUuid).toArray();
+        inTransaction(ops -> {
+            ops.opsForHash().delete(METADATA_KEY, uuids);
+            ops.opsForZSet().remove(EXPIRY_KEY, uuids);
+            for (FileMetadata metadata : entries) {
+                if (metadata.getClientId() != null) {
+                    ops.opsForSet().remove(CLIENT_KEY_PREFIX + metadata.getClientId(), metadata.getUuid());
+                }
+            }
+            ops.opsForValue().increment(GENERATION_KEY);
+        });
+    }
+
+    @Override
+    public List<FileMetadata> findAll() {
+        return decodeAll(hash().values(METADATA_KEY));
+    }
+
+    @Override
+    public List<FileMetadata> findByClient(String clientId) {
+        Set<String> uuids = redis.opsForSet().members(CLIENT_KEY_PREFIX + clientId);
+        return findByUuids(uuids);
+    }
+
+    @Override
+    public List<FileMetadata> findExpired(LocalDateTime now) {
+        // Scores are exact for epoch millis; "< now" is "<= now - 1"
+        long nowMillis = FileMetadataCodec.toEpochMillis(now);
+        Set<String> uuids = redis.opsForZSet().rangeByScore(EXPIRY_KEY, Double.NEGATIVE_INFINITY, nowMillis - 1);
+        return findByUuids(uuids);
+    }
+
+    @Override
+    public int size() {
+        return hash().size(METADATA_KEY).intValue();
+    }
+
+    @Override
+    public long generation() {
+        String value = redis.opsForValue().get(GENERATION_KEY);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    @Override
+    public boolean tryAcquireLease(String name, String holder, Duration ttl) {
+        Long acquired = redis.execute(ACQUIRE_LEASE, List.of(LEASE_KEY_PREFIX + name),
+                holder, String.valueOf(ttl.toMillis()));
+        return acquired != null && acquired == 1L;
+    }
+
+    @Override
+    public void registerNode(String nodeId, String baseUrl, Duration ttl) {
+        redis.opsForValue().set(NODE_KEY_PREFIX + nodeId, baseUrl, ttl);
+    }
+
+    @Override
+    public String findNodeUrl(String nodeId) {
+        return redis.opsForValue().get(NODE_KEY_PREFIX + nodeId);
+    }
+
+    private List<FileMetadata> findByUuids(Set<String> uuids) {
+        if (uuids == null || uuids.isEmpty()) {
+            return List.of();
+        }
+        return decodeAll(hash().multiGet(METADATA_KEY, uuids));
+    }
+
+    private List<FileMetadata> decodeAll(Collection<String> encoded) {
+        List<FileMetadata> result = new ArrayList<>(encoded.size());
+        encoded.stream()
+                .filter(Objects::nonNull)
+                .map(this::decode)
+                .forEach(result::add);
+        return result;
+    }
+
+    private HashOperations<String, String, String> hash() {
+        return redis.opsForHash();
+    }
+
+    private void inTransaction(Consumer<RedisOperations<String, String>> commands) {
+        redis.execute(new SessionCallback<List<Object>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> List<Object> execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.multi();
+                commands.accept(ops);
+                return ops.exec();
+            }
+        });
+    }
+
+    private String encode(FileMetadata metadata) {
+        return Base64.getEncoder().encodeToString(FileMetadataCodec.encode(metadata));
+    }
+
+    private FileMetadata decode(String encoded) {
+        return encoded == null ? null : FileMetadataCodec.decode(Base64.getDecoder().decode(encoded));
+    }
+}
@@ -0,0 +1,59 @@
+package xyz.mahmoudahmed.genbankinatorbackend.cluster;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+
+/**
+ * Metadata store shared by all nodes in cluster mode, plus the small coordination
+ * primitives (leases, node registry) the cluster needs.
+ */
+public interface SharedMetadataStore {
+
+    void put(FileMetadata metadata);
+
+    FileMetadata get(String uuid);
+
+    /**
+     * Removes an entry, returning the removed metadata or null if it was not present
+     */
+    FileMetadata remove(String uuid);
+
+    /**
+     * Removes a batch of entries as one change
+     */
+    void removeAll(Collection<FileMetadata> entries);
+
+    List<FileMetadata> findAll();
+
+    List<FileMetadata> findByClient(String clientId);
+
+    List<FileMetadata> findExpired(LocalDateTime now);
+
+    int size();
+
+    /**
+     * Counter bumped on every put and remove, so nodes can detect changes made elsewhere
+     */
+    long generation();
+
+    /**
+     * Acquires the named lease for holder, or renews it if holder already owns it
+     *
+     * @return true if holder owns the lease afterwards
+     */
+    boolean tryAcquireLease(String name, String holder, Duration ttl);
+
+    /**
+     * Announces a live node and the base URL it serves downloads on
+     */
+    void registerNode(String nodeId, String baseUrl, Duration ttl);
+
+    /**
+     * Base URL of a live node, or null if it has not sent a heartbeat within its TTL
+     */
+    String findNodeUrl(String nodeId);
+}
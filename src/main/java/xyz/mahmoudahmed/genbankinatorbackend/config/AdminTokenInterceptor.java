@@ -0,0 +1,64 @@
+package xyz.mahmoudahmed.genbankinatorbackend.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Requires an X-Admin-Token header equal to admin.token. Without a configured token the
+ * guarded endpoints are refused outright.
+ */
+@Component
+@Slf4j
+public class AdminTokenInterceptor implements HandlerInterceptor {
+
+    public static final String HEADER = "X-Admin-Token";
+
+    @Value("${admin.token:}")
+    private String token;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws Exception {
+        if (token == null || token.isBlank()) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "Admin endpoints are disabled (admin.token is not set)");
+            return false;
+        }
+        String presented = request.getHeader(HEADER);
+        // Constant-time comparison, so the token cannot be guessed byte by byte from response times
+        if (presented == null || !MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Rejected admin request to {} from {}", request.getRequestURI(), request.getRemoteAddr());
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "Missing or invalid " + HEADER);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The same check, applied only to requests with one of the given methods
+     */
+    public HandlerInterceptor forMethods(HttpMethod... methods) {
+        Set<String> guarded = Arrays.stream(methods).map(HttpMethod::name).collect(Collectors.toSet());
+        return new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                    throws Exception {
+                return !guarded.contains(request.getMethod())
+                        || AdminTokenInterceptor.this.preHandle(request, response, handler);
+            }
+        };
+    }
+}
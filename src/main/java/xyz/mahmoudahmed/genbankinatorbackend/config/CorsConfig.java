@@ -17,6 +17,15 @@ public class CorsConfig {
         config.addAllowedHeader("*");
         config.addAllowedMethod("*");
         config.addAllowedOriginPattern("*");
+        // Lets browser clients read the resumable upload protocol headers
+        config.addExposedHeader("Location");
+        config.addExposedHeader("Upload-Offset");
+        config.addExposedHeader("Upload-Length");
+        config.addExposedHeader("Tus-Resumable");
+        config.addExposedHeader("Tus-Version");
+        config.addExposedHeader("Tus-Extension");
+        config.addExposedHeader("Tus-Max-Size");
+        config.addExposedHeader("Tus-Checksum-Algorithm");
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
@@ -0,0 +1,182 @@
+package xyz.mahmoudahmed.genbankinatorbackend.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.controller.GenbankGrpcService;
+
+/**
+ * Runs the gRPC conversion API on its own port next to the servlet container
+ * (grpc.server.enabled=true). One HTTP/2 connection carries up to
+ * grpc.server.max-concurrent-calls-per-connection concurrent calls.
+ *
+ * With grpc.server.in-process-name set the service is bound to an in-process transport of
+ * that name instead of a port, for clients in the same JVM such as integration tests using
+ * InProcessChannelBuilder.forName(name).
+ */
+@Component
+@ConditionalOnProperty(name = "grpc.server.enabled", havingValue = "true")
+@Slf4j
+public class GrpcServer implements SmartLifecycle {
+
+    private final GenbankGrpcService grpcService;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${grpc.server.host:0.0.0.0}")
+    private String host;
+
+    @Value("${grpc.server.port:9090}")
+    private int port;
+
+    @Value("${grpc.server.in-process-name:}")
+    private String inProcessName;
+
+    @Value("${grpc.server.max-concurrent-calls-per-connection:100}")
+    private int maxConcurrentCallsPerConnection;
+
+    @Value("${grpc.server.max-inbound-message-size:4MB}")
+    private DataSize maxInboundMessageSize;
+
+    // Running calls are given as long as the conversion drain
+    @Value("${conversion.drain.timeout:25s}")
+    private Duration drainTimeout;
+
+    private volatile Server server;
+
+    public GrpcServer(GenbankGrpcService grpcService, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.grpcService = grpcService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void start() {
+        ServerBuilder<?> builder = inProcessName.isEmpty()
+                ? NettyServerBuilder.forAddress(new InetSocketAddress(host, port))
+                        .maxConcurrentCallsPerConnection(maxConcurrentCallsPerConnection)
+                : InProcessServerBuilder.forName(inProcessName);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        try {
+            this.server = builder
+                    .addService(registry != null
+                            ? ServerInterceptors.intercept(grpcService, new CallTimer(registry))
+                            : grpcService.bindService())
+                    .maxInboundMessageSize((int) maxInboundMessageSize.toBytes())
+                    .build()
+                    .start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the gRPC server", e);
+        }
+
+        if (inProcessName.isEmpty()) {
+            log.info("gRPC server started on port {}", server.getPort());
+        } else {
+            log.info("gRPC server started in-process as {}", inProcessName);
+        }
+    }
+
+    /**
+     * Refuses new calls and waits for running ones up to conversion.drain.timeout
+     */
+    @Override
+    public void stop() {
+        Server current = this.server;
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("gRPC calls still running after {}, cancelling them", drainTimeout);
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            current.shutdownNow();
+        }
+        this.server = null;
+        log.info("gRPC server stopped");
+    }
+
+    /**
+     * Refuses new calls at once and waits for running ones on another thread, so the wait
+     * overlaps with the conversion drain instead of following it
+     */
+    @Override
+    public void stop(Runnable callback) {
+        Server current = this.server;
+        if (current == null) {
+            callback.run();
+            return;
+        }
+        current.shutdown();
+        Thread drain = new Thread(() -> {
+            try {
+                stop();
+            } finally {
+                callback.run();
+            }
+        }, "grpc-server-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * Records grpc.server.calls per method and status code
+     */
+    private static final class CallTimer implements ServerInterceptor {
+        private final MeterRegistry registry;
+
+        private CallTimer(MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers,
+                                                          ServerCallHandler<Q, R> next) {
+            long start = System.nanoTime();
+            ServerCall<Q, R> timed = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+                @Override
+                public void close(Status status, Metadata trailers) {
+                    Timer.builder("grpc.server.calls")
+                            .tag("method", call.getMethodDescriptor().getBareMethodName())
+                            .tag("status", status.getCode().name())
+                            .description("gRPC calls by method and status")
+                            .register(registry)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    super.close(status, trailers);
+                }
+            };
+            return next.startCall(timed, headers);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package xyz.mahmoudahmed.genbankinatorbackend.config;
+
+import java.util.List;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Marks beans from non-critical packages (the springdoc UI and API docs by default) lazy,
+ * so they are created on first use instead of delaying startup.
+ * Configured with startup.lazy-packages; an empty list turns it off.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyPackagesPostProcessor(Environment environment) {
+        List<String> packages = Binder.get(environment)
+                .bind("startup.lazy-packages", Bindable.listOf(String.class))
+                .orElse(List.of("org.springdoc"));
+
+        return beanFactory -> {
+            if (packages.isEmpty()) {
+                return;
+            }
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (matches(declaringClass(beanFactory, definition), packages)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * The bean class, or for @Bean methods the class of the configuration declaring them
+     */
+    private static String declaringClass(ConfigurableListableBeanFactory beanFactory,
+                                         BeanDefinition definition) {
+        if (definition.getBeanClassName() != null) {
+            return definition.getBeanClassName();
+        }
+        String factoryBean = definition.getFactoryBeanName();
+        if (factoryBean != null && beanFactory.containsBeanDefinition(factoryBean)) {
+            return beanFactory.getBeanDefinition(factoryBean).getBeanClassName();
+        }
+        return null;
+    }
+
+    private static boolean matches(String className, List<String> packages) {
+        if (className == null) {
+            return false;
+        }
+        for (String prefix : packages) {
+            if (className.startsWith(prefix + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
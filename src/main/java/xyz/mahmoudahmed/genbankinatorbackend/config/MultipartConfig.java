@@ -2,28 +2,67 @@ package xyz.mahmoudahmed.genbankinatorbackend.config;
 
 
 
-import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.servlet.MultipartConfigElement;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.service.MemoryBudgetService;
 
 @Configuration
+@EnableConfigurationProperties(MultipartProperties.class)
+@Slf4j
 public class MultipartConfig {
 
+    // File parts per conversion request that may be held in memory
+    private static final int FILE_PARTS_PER_REQUEST = 2;
+
+    /**
+     * Parses multipart requests eagerly, inside a genbank.multipart.parse observation so the
+     * time spent receiving and spilling parts shows up as its own span.
+     */
     @Bean
-    public MultipartResolver multipartResolver() {
-        return new StandardServletMultipartResolver();
+    public MultipartResolver multipartResolver(ObservationRegistry observationRegistry) {
+        return new StandardServletMultipartResolver() {
+            @Override
+            public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) {
+                return Observation.createNotStarted("genbank.multipart.parse", observationRegistry)
+                        .contextualName("multipart parse")
+                        .highCardinalityKeyValue("content.length", Long.toString(request.getContentLengthLong()))
+                        .observe(() -> super.resolveMultipart(request));
+            }
+        };
     }
 
+    /**
+     * Limits come from spring.servlet.multipart.*, the same values FileStorageService checks.
+     * Larger files go through the resumable upload API instead.
+     *
+     * Parts below file-size-threshold stay on the heap. The threshold is lowered if needed so
+     * that every request thread holding in-memory parts at once still fits in the upload share
+     * of the memory budget; anything larger spills to disk.
+     */
     @Bean
-    public MultipartConfigElement multipartConfigElement() {
-        MultipartConfigFactory factory = new MultipartConfigFactory();
-        factory.setMaxFileSize(DataSize.ofMegabytes(50));
-        factory.setMaxRequestSize(DataSize.ofMegabytes(50));
-        return factory.createMultipartConfig();
+    public MultipartConfigElement multipartConfigElement(MultipartProperties multipartProperties,
+                                                         MemoryBudgetService memoryBudgetService,
+                                                         @Value("${server.tomcat.threads.max:200}") int maxThreads) {
+        long threshold = multipartProperties.getFileSizeThreshold().toBytes();
+        long cap = memoryBudgetService.getUploadReserve() / ((long) maxThreads * FILE_PARTS_PER_REQUEST);
+        if (threshold > cap) {
+            log.info("Lowering multipart file-size-threshold from {} to {} bytes to fit the memory budget",
+                    threshold, cap);
+            multipartProperties.setFileSizeThreshold(DataSize.ofBytes(cap));
+        }
+        return multipartProperties.createMultipartConfig();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package xyz.mahmoudahmed.genbankinatorbackend.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import xyz.mahmoudahmed.converter.GenbankConverter;
+import xyz.mahmoudahmed.genbankinatorbackend.controller.StorageAdminController;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.JobStatusResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ReferenceDto;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ValidationResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.GlobalExceptionHandler;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionProfileService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionScheduler;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.HotResultCache;
+import xyz.mahmoudahmed.genbankinatorbackend.service.MemoryBudgetService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ProfilingService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.StartupTimingService;
+import xyz.mahmoudahmed.model.ConversionOptions;
+import xyz.mahmoudahmed.model.GenbankResult;
+import xyz.mahmoudahmed.model.HeaderInfo;
+import xyz.mahmoudahmed.model.ReferenceInfo;
+import xyz.mahmoudahmed.model.TranslationOptions;
+import xyz.mahmoudahmed.parsers.FastaAnnotationParser;
+
+/**
+ * Reflection metadata for the native image (mvn -Pnative package).
+ *
+ * Types read or written with an ObjectMapper outside Spring MVC's own handling (the
+ * request part parsed from a string, FileMetadata in the shared store and listings, the
+ * admin reports) get Jackson binding hints covering their Lombok accessors. The
+ * GenBankinator model is kept whole because the library is not written with AOT in mind.
+ */
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeImageHints.Registrar.class)
+public class NativeImageHints {
+
+    static class Registrar implements RuntimeHintsRegistrar {
+
+        private static final Class<?>[] JSON_TYPES = {
+                ConversionRequest.class,
+                ConversionResponse.class,
+                JobStatusResponse.class,
+                ReferenceDto.class,
+                ValidationResponse.class,
+                FileMetadata.class,
+                GlobalExceptionHandler.ErrorResponse.class,
+                GlobalExceptionHandler.ValidationErrorResponse.class,
+                StorageAdminController.CleanupResult.class,
+                FileStorageService.StorageStats.class,
+                MemoryBudgetService.MemoryStats.class,
+                StartupTimingService.StartupTimes.class,
+                ConversionScheduler.SchedulerStats.class,
+                ProfilingService.RecordingStatus.class,
+                ProfilingService.ProfilingSummary.class,
+                HotResultCache.HotCacheStats.class,
+                ConversionProfileService.ConversionProfile.class
+        };
+
+        private static final Class<?>[] LIBRARY_TYPES = {
+                GenbankConverter.class,
+                FastaAnnotationParser.class,
+                GenbankResult.class,
+                ConversionOptions.class,
+                ConversionOptions.Builder.class,
+                HeaderInfo.class,
+                HeaderInfo.Builder.class,
+                ReferenceInfo.class,
+                ReferenceInfo.Builder.class,
+                TranslationOptions.class,
+                TranslationOptions.Builder.class
+        };
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON_TYPES);
+
+            for (Class<?> type : LIBRARY_TYPES) {
+                hints.reflection().registerType(type,
+                        MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_DECLARED_METHODS,
+                        MemberCategory.DECLARED_FIELDS);
+            }
+
+            // Data files the library may bundle next to its classes
+            hints.resources().registerPattern("xyz/mahmoudahmed/**/*.txt")
+                    .registerPattern("xyz/mahmoudahmed/**/*.properties");
+        }
+    }
+}
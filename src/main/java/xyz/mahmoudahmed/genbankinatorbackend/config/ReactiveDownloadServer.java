@@ -0,0 +1,97 @@
+package xyz.mahmoudahmed.genbankinatorbackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import xyz.mahmoudahmed.genbankinatorbackend.controller.ReactiveFileHandler;
+
+/**
+ * Runs the reactive listing/download surface on its own Netty server next to the
+ * servlet container, so I/O-bound downloads are served from event loops (one per core)
+ * instead of competing with conversions for Tomcat worker threads.
+ */
+@Component
+@Profile("reactive")
+@Slf4j
+public class ReactiveDownloadServer implements SmartLifecycle {
+
+    private final ReactiveFileHandler fileHandler;
+    private final ObjectMapper objectMapper;
+
+    @Value("${reactive.server.host:0.0.0.0}")
+    private String host;
+
+    @Value("${reactive.server.port:8081}")
+    private int port;
+
+    private volatile DisposableServer server;
+
+    public ReactiveDownloadServer(ReactiveFileHandler fileHandler, ObjectMapper objectMapper) {
+        this.fileHandler = fileHandler;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void start() {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs()
+                        .jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .webFilter(corsFilter())
+                .build();
+
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(fileHandler.routes(), strategies);
+
+        this.server = HttpServer.create()
+                .host(host)
+                .port(port)
+                .compress(false)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+
+        log.info("Reactive download server started on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer current = this.server;
+        if (current != null) {
+            current.disposeNow();
+            this.server = null;
+            log.info("Reactive download server stopped");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    // Mirrors the servlet CorsConfig
+    private CorsWebFilter corsFilter() {
+        CorsConfiguration config = new CorsConfiguration();
+
+        config.setAllowCredentials(true);
+        config.addAllowedHeader("*");
+        config.addAllowedMethod("*");
+        config.addAllowedOriginPattern("*");
+
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", config);
+        return new CorsWebFilter(source);
+    }
+}
@@ -0,0 +1,89 @@
+package xyz.mahmoudahmed.genbankinatorbackend.config;
+
+import java.util.UUID;
+
+import org.crac.CheckpointException;
+import org.crac.Core;
+import org.crac.RestoreException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionOptionsFactory;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankService;
+
+/**
+ * Runs a few conversions of a sample before the application reports ready, so the converter,
+ * parsers and JIT are warm when the readiness probe lets traffic in
+ * (startup.warmup.enabled=true with startup.warmup.sequence/annotation).
+ *
+ * With startup.warmup.checkpoint=true a CRaC checkpoint is taken afterwards; restoring it
+ * starts a warm process. On a JVM without CRaC support the request is logged and ignored.
+ */
+@Component
+@ConditionalOnProperty(name = "startup.warmup.enabled", havingValue = "true")
+@Slf4j
+public class StartupWarmupRunner implements ApplicationRunner {
+
+    @Value("${startup.warmup.sequence}")
+    private String sequencePath;
+
+    @Value("${startup.warmup.annotation}")
+    private String annotationPath;
+
+    @Value("${startup.warmup.iterations:3}")
+    private int iterations;
+
+    @Value("${startup.warmup.checkpoint:false}")
+    private boolean checkpoint;
+
+    @Autowired
+    private GenbankService genbankService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ConversionOptionsFactory conversionOptionsFactory;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ConversionRequest request = new ConversionRequest();
+        request.setOrganism("Warm-up");
+        request.setMoleculeType("DNA");
+        request.setTopology("linear");
+        request.setAnnotationFormat(StringUtils.getFilenameExtension(annotationPath));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            try {
+                String uuid = genbankService.convertStoredFiles(
+                        conversionOptionsFactory.prepare(request), sequencePath, annotationPath,
+                        "warmup.fasta", null, UUID.randomUUID().toString());
+                fileStorageService.deleteFile(uuid);
+            } catch (Exception e) {
+                log.warn("Warm-up conversion failed, skipping the rest: {}", e.getMessage());
+                break;
+            }
+        }
+        genbankService.getFileListing(null);
+        log.info("Warm-up finished in {} ms", (System.nanoTime() - start) / 1_000_000);
+
+        if (checkpoint) {
+            try {
+                log.info("Taking CRaC checkpoint after warm-up");
+                Core.checkpointRestore();
+                log.info("Restored from CRaC checkpoint");
+            } catch (CheckpointException | RestoreException | UnsupportedOperationException e) {
+                log.warn("CRaC checkpoint not taken: {}", e.getMessage());
+            }
+        }
+    }
+}
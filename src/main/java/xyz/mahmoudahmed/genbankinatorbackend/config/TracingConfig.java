@@ -0,0 +1,23 @@
+package xyz.mahmoudahmed.genbankinatorbackend.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Span export besides OTLP (which Spring Boot sets up when management.otlp.tracing.endpoint
+ * is set). With tracing.export.logs=true finished spans are also written to the log, which
+ * is enough to see where a slow conversion spent its time without running a collector.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "tracing.export.logs", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
@@ -2,9 +2,12 @@ package xyz.mahmoudahmed.genbankinatorbackend.config;
 
 
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -13,6 +16,18 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private AdminTokenInterceptor adminTokenInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Profiling can pause the JVM and exposes heap contents, so it is token protected
+        registry.addInterceptor(adminTokenInterceptor).addPathPatterns("/api/v1/admin/profiling/**");
+        // Profiles are shared by all clients, so only admins may change them
+        registry.addInterceptor(adminTokenInterceptor.forMethods(HttpMethod.PUT, HttpMethod.DELETE))
+                .addPathPatterns("/api/v1/profiles/**");
+    }
+
     @Bean
     public MappingJackson2HttpMessageConverter jsonConverter() {
         MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
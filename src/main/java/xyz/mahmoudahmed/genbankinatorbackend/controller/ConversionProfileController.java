@@ -0,0 +1,71 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionProfileService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionProfileService.ConversionProfile;
+
+/**
+ * Conversion option profiles, used by /convert requests that name one with profileId.
+ * Registering and deleting need the X-Admin-Token header.
+ */
+@RestController
+@RequestMapping("/api/v1/profiles")
+@Tag(name = "Conversion Profiles", description = "Named conversion options registered once and reused by id")
+@RequiredArgsConstructor
+public class ConversionProfileController {
+
+    private final ConversionProfileService conversionProfileService;
+
+    @PutMapping("/{profileId}")
+    @Operation(summary = "Register a profile",
+            description = "Validates the options and stores them under the id, replacing an existing profile")
+    @ApiResponse(responseCode = "201", description = "Profile registered")
+    @ApiResponse(responseCode = "200", description = "Profile replaced")
+    @ApiResponse(responseCode = "400", description = "Invalid id or options, or too many profiles")
+    @ApiResponse(responseCode = "401", description = "Missing or invalid admin token")
+    public ResponseEntity<ConversionProfile> registerProfile(@PathVariable String profileId,
+                                                             @Valid @RequestBody ConversionRequest request) {
+        boolean created = conversionProfileService.register(profileId, request);
+        return ResponseEntity.status(created ? HttpStatus.CREATED : HttpStatus.OK)
+                .body(conversionProfileService.getProfile(profileId));
+    }
+
+    @GetMapping
+    @Operation(summary = "List profiles")
+    public ResponseEntity<List<ConversionProfile>> listProfiles() {
+        return ResponseEntity.ok(conversionProfileService.getProfiles());
+    }
+
+    @GetMapping("/{profileId}")
+    @Operation(summary = "Get a profile")
+    @ApiResponse(responseCode = "404", description = "Unknown profile")
+    public ResponseEntity<ConversionProfile> getProfile(@PathVariable String profileId) {
+        return ResponseEntity.ok(conversionProfileService.getProfile(profileId));
+    }
+
+    @DeleteMapping("/{profileId}")
+    @Operation(summary = "Delete a profile", description = "Conversions already queued with it keep its options")
+    @ApiResponse(responseCode = "401", description = "Missing or invalid admin token")
+    @ApiResponse(responseCode = "404", description = "Unknown profile")
+    public ResponseEntity<Void> deleteProfile(@PathVariable String profileId) {
+        conversionProfileService.delete(profileId);
+        return ResponseEntity.noContent().build();
+    }
+}
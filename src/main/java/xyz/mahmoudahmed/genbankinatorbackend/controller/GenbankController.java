@@ -2,36 +2,57 @@ package xyz.mahmoudahmed.genbankinatorbackend.controller;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
 import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.JobStatusResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
 import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.service.BufferPool;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionOptionsFactory.PreparedOptions;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionProfileService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionQueue;
+import xyz.mahmoudahmed.genbankinatorbackend.service.DerivedFormatService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileBundleService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileBundleService.BundleEntry;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankRecordIndex;
+import xyz.mahmoudahmed.genbankinatorbackend.service.HotResultCache;
 import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileListingService.FileListing;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService.UploadStatus;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -39,12 +60,31 @@ import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankService;
 public class GenbankController {
 
     private final GenbankService genbankService;
-    private final ObjectMapper objectMapper;
+    private final ConversionQueue conversionQueue;
+    private final FileBundleService fileBundleService;
+    private final BufferPool bufferPool;
+    private final ObjectReader requestReader;
+    private final ConversionProfileService conversionProfileService;
+    private final HotResultCache hotResultCache;
+
+    // Request attributes of Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
     // Use constructor injection instead of @Autowired
-    public GenbankController(GenbankService genbankService, ObjectMapper objectMapper) {
+    public GenbankController(GenbankService genbankService, ConversionQueue conversionQueue,
+                             FileBundleService fileBundleService, BufferPool bufferPool,
+                             ObjectMapper objectMapper, HotResultCache hotResultCache,
+                             ConversionProfileService conversionProfileService) {
         this.genbankService = genbankService;
-        this.objectMapper = objectMapper;
+        this.conversionQueue = conversionQueue;
+        this.fileBundleService = fileBundleService;
+        this.bufferPool = bufferPool;
+        this.requestReader = objectMapper.readerFor(ConversionRequest.class);
+        this.hotResultCache = hotResultCache;
+        this.conversionProfileService = conversionProfileService;
     }
 
     // Reduced response size for health check
@@ -55,85 +95,212 @@ public class GenbankController {
     }
 
     @PostMapping(value = "/convert", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    @Operation(summary = "Convert FASTA to GenBank", description = "Upload and convert files")
+    @Operation(summary = "Convert FASTA to GenBank",
+            description = "Upload and convert files, or convert files sent earlier through /uploads")
     @ApiResponse(responseCode = "200", description = "Success",
             content = @Content(schema = @Schema(implementation = ConversionResponse.class)))
+    @ApiResponse(responseCode = "202", description = "Queued, poll statusUrl for the result",
+            content = @Content(schema = @Schema(implementation = ConversionResponse.class)))
     @ApiResponse(responseCode = "400", description = "Invalid request")
+    @ApiResponse(responseCode = "503", description = "Shutting down, retry on another instance")
     public ResponseEntity<ConversionResponse> convertFiles(
-            @RequestPart("sequenceFile") MultipartFile sequenceFile,
-            @RequestPart("annotationFile") MultipartFile annotationFile,
+            @RequestPart(value = "sequenceFile", required = false) MultipartFile sequenceFile,
+            @RequestPart(value = "annotationFile", required = false) MultipartFile annotationFile,
+            @RequestParam(required = false) String sequenceUploadId,
+            @RequestParam(required = false) String annotationUploadId,
             @RequestPart("request") String requestJson) {
 
-        ConversionRequest request;
-        String clientId = null;
+        // Each input is either a multipart part or a completed resumable upload
+        boolean fromUploads = sequenceFile == null && annotationFile == null;
+        if (fromUploads ? sequenceUploadId == null || annotationUploadId == null
+                : sequenceFile == null || annotationFile == null) {
+            return ResponseEntity.badRequest()
+                    .body(ConversionResponse.error("Both files or both upload ids are required"));
+        }
 
+        ConversionRequest request;
         try {
-            JsonNode requestNode = objectMapper.readTree(requestJson);
-            if (requestNode.has("clientId")) {
-                clientId = requestNode.get("clientId").asText();
-                ((ObjectNode) requestNode).remove("clientId");
-                request = objectMapper.treeToValue(requestNode, ConversionRequest.class);
-            } else {
-                request = objectMapper.readValue(requestJson, ConversionRequest.class);
-            }
+            // Parsed in one pass; clientId and profileId are fields of the request
+            request = requestReader.readValue(requestJson);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ConversionResponse.error("Invalid request format"));
         }
+        String clientId = request.getClientId();
+
+        // A profile's options are built once when it is registered
+        PreparedOptions options;
+        try {
+            options = conversionProfileService.resolve(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ConversionResponse.error(e.getMessage()));
+        }
+
+        String sequenceName;
+        String annotationName;
+        if (fromUploads) {
+            UploadStatus sequenceUpload = genbankService.getUpload(sequenceUploadId);
+            UploadStatus annotationUpload = genbankService.getUpload(annotationUploadId);
+            if (!sequenceUpload.isComplete() || !annotationUpload.isComplete()) {
+                return ResponseEntity.badRequest()
+                        .body(ConversionResponse.error("Upload not complete"));
+            }
+            sequenceName = sequenceUpload.filename();
+            annotationName = annotationUpload.filename();
+        } else {
+            sequenceName = sequenceFile.getOriginalFilename();
+            annotationName = annotationFile.getOriginalFilename();
+        }
 
         // Quick validation
-        if (!isValidFile(sequenceFile, "fasta") ||
-                !isValidFile(annotationFile, request.getAnnotationFormat().toLowerCase())) {
+        if (!isValidFile(sequenceName, "fasta") ||
+                !isValidFile(annotationName, options.annotationFormat().toLowerCase())) {
             return ResponseEntity.badRequest()
                     .body(ConversionResponse.error("Invalid file type"));
         }
 
         try {
-            ConversionResponse response = genbankService.convertFiles(
-                    request, sequenceFile, annotationFile, clientId);
+            if (conversionQueue.isEnabled()) {
+                String uuid = fromUploads
+                        ? conversionQueue.enqueueUploads(options, sequenceUploadId, annotationUploadId, clientId)
+                        : conversionQueue.enqueue(options, sequenceFile, annotationFile, clientId);
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(ConversionResponse.builder()
+                                .uuid(uuid)
+                                .downloadUrl("/api/v1/files/" + uuid)
+                                .statusUrl("/api/v1/jobs/" + uuid)
+                                .message("Conversion queued")
+                                .build());
+            }
+
+            ConversionResponse response = fromUploads
+                    ? genbankService.convertUploads(options, sequenceUploadId, annotationUploadId, clientId)
+                    : genbankService.convertFiles(options, sequenceFile, annotationFile, clientId);
             return ResponseEntity.ok(response);
+        } catch (ServiceUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ConversionResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ConversionResponse.error("Conversion failed"));
         }
     }
 
+    @GetMapping("/jobs/{uuid}")
+    @Operation(summary = "Job status", description = "Status of a queued conversion")
+    @ApiResponse(responseCode = "200", description = "Job found",
+            content = @Content(schema = @Schema(implementation = JobStatusResponse.class)))
+    @ApiResponse(responseCode = "404", description = "Unknown job")
+    public ResponseEntity<JobStatusResponse> getJobStatus(@PathVariable String uuid) {
+        ConversionQueue.Status status = conversionQueue.getStatus(uuid);
+
+        // Finished jobs are no longer tracked by the queue; their result is the record
+        if (status == null && genbankService.getFileMetadata(uuid) != null) {
+            status = ConversionQueue.Status.COMPLETED;
+        }
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(JobStatusResponse.builder()
+                .uuid(uuid)
+                .status(status.name())
+                .downloadUrl(status == ConversionQueue.Status.COMPLETED ? "/api/v1/files/" + uuid : null)
+                .error(conversionQueue.getFailureReason(uuid))
+                .enqueuedAt(conversionQueue.getEnqueuedAt(uuid))
+                .build());
+    }
+
     @GetMapping("/files")
     @Operation(summary = "List files", description = "Get available files for client")
-    public ResponseEntity<List<FileMetadata>> getAllFiles(
+    @ApiResponse(responseCode = "200", description = "Success",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    array = @ArraySchema(schema = @Schema(implementation = FileMetadata.class))))
+    @ApiResponse(responseCode = "304", description = "Listing unchanged since the given ETag")
+    public ResponseEntity<byte[]> getAllFiles(
+            @RequestParam(required = false) String clientId,
+            WebRequest webRequest) {
+
+        FileListing listing = genbankService.getFileListing(clientId);
+
+        // Pollers with a current ETag get 304 without a body
+        if (webRequest.checkNotModified(listing.etag())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .eTag(listing.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(listing.body());
+    }
+
+    @GetMapping("/files/bundle")
+    @Operation(summary = "Download bundle",
+            description = "Stream several GenBank files as one zip, by UUID list or for a whole client")
+    @ApiResponse(responseCode = "200", description = "Zip archive",
+            content = @Content(mediaType = "application/zip"))
+    @ApiResponse(responseCode = "400", description = "Neither uuids nor clientId given")
+    @ApiResponse(responseCode = "404", description = "No matching files")
+    public ResponseEntity<StreamingResponseBody> downloadBundle(
+            @RequestParam(required = false) List<String> uuids,
             @RequestParam(required = false) String clientId) {
 
-        List<FileMetadata> files = genbankService.getAllFiles();
+        String client = clientId != null && !clientId.isEmpty() ? clientId : null;
+        if ((uuids == null || uuids.isEmpty()) && client == null) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        if (clientId != null && !clientId.isEmpty()) {
-            files = files.stream()
-                    .filter(file -> clientId.equals(file.getClientId()))
-                    .collect(Collectors.toList());
+        List<BundleEntry> entries = fileBundleService.resolve(uuids, client);
+        if (entries.isEmpty()) {
+            return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok(files);
+        StreamingResponseBody body = out -> fileBundleService.write(entries, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"genbank-files.zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
     }
 
     @GetMapping("/files/{uuid}")
-    @Operation(summary = "Download file", description = "Download GenBank file by UUID")
+    @Operation(summary = "Download file",
+            description = "Download GenBank file by UUID, or a rendering of it with format=faa, gff3 or json")
     @ApiResponse(responseCode = "200", description = "File found")
+    @ApiResponse(responseCode = "400", description = "Unsupported format")
     @ApiResponse(responseCode = "404", description = "Not found")
     @ApiResponse(responseCode = "403", description = "Access denied")
-    public ResponseEntity<Resource> downloadFile(
+    @ApiResponse(responseCode = "307", description = "Served by the cluster node that owns the file")
+    public ResponseEntity<StreamingResponseBody> downloadFile(
             @PathVariable String uuid,
-            @RequestParam(required = false) String clientId) {
+            @RequestParam(required = false) String clientId,
+            @RequestParam(required = false) String format) {
+
+        // gb and genbank name the stored file itself
+        DerivedFormatService.Format derived = format == null || format.isBlank()
+                || format.equalsIgnoreCase("gb") || format.equalsIgnoreCase("genbank")
+                ? null : DerivedFormatService.Format.of(format);
 
         try {
-            FileMetadata metadata = genbankService.getFileMetadata(uuid);
+            // A result converted moments ago is served from memory, without touching metadata or disk
+            HotResultCache.Entry hot = derived == null && hotResultCache.isEnabled() ? hotResultCache.get(uuid) : null;
+            if (hot != null) {
+                if (clientId != null && !clientId.isEmpty() && !clientId.equals(hot.clientId())) {
+                    hotResultCache.release(hot, false);
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+                }
+                return downloadHot(hot);
+            }
 
-            if (metadata == null) {
-                return ResponseEntity.notFound().build();
+            FileMetadata metadata = genbankService.getFileMetadata(uuid);
+            ResponseEntity<StreamingResponseBody> rejected = rejectOrRedirect(metadata, clientId,
+                    derived != null ? "/api/v1/files/{uuid}?format=" + derived.getExtension() : "/api/v1/files/{uuid}",
+                    uuid);
+            if (rejected != null) {
+                return rejected;
             }
 
-            // Check client access
-            if (clientId != null && !clientId.isEmpty() &&
-                    !clientId.equals(metadata.getClientId())) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+            if (derived != null) {
+                return downloadDerived(uuid, derived);
             }
 
             File file = genbankService.getFileByUuid(uuid);
@@ -141,8 +308,13 @@ public class GenbankController {
                 return ResponseEntity.notFound().build();
             }
 
-            byte[] fileContent = Files.readAllBytes(file.toPath());
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
+            // Streamed through a pooled buffer instead of reading the whole file onto the heap
+            long length = Files.size(file.toPath());
+            StreamingResponseBody body = out -> {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    bufferPool.copy(channel, out);
+                }
+            };
 
             String filename = extractFilename(file.getName());
 
@@ -150,18 +322,179 @@ public class GenbankController {
                     .header(HttpHeaders.CONTENT_DISPOSITION,
                             String.format("attachment; filename=\"%s\"", filename))
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .contentLength(fileContent.length)
-                    .body(resource);
+                    .contentLength(length)
+                    .body(body);
 
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Streams a cached result from its blocks; the entry stays pinned until the body is written
+     */
+    private ResponseEntity<StreamingResponseBody> downloadHot(HotResultCache.Entry hot) {
+        StreamingResponseBody body = out -> {
+            boolean complete = false;
+            try {
+                WritableByteChannel channel = Channels.newChannel(out);
+                for (ByteBuffer chunk : hot.chunks()) {
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                }
+                complete = true;
+            } finally {
+                hotResultCache.release(hot, complete);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        String.format("attachment; filename=\"%s\"", extractFilename(hot.storedName())))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(hot.length())
+                .body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> downloadDerived(String uuid, DerivedFormatService.Format format)
+            throws IOException {
+        Path path = genbankService.getDerivedFile(uuid, format);
+
+        // Opened now so a cache eviction before the body is written cannot remove it underneath
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        long length = channel.size();
+        StreamingResponseBody body = out -> {
+            try (channel) {
+                bufferPool.copy(channel, out);
+            }
+        };
+
+        String filename = extractFilename(genbankService.getFileByUuid(uuid).getName());
+        int extension = filename.lastIndexOf('.');
+        filename = (extension > 0 ? filename.substring(0, extension) : filename) + "." + format.getExtension();
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        String.format("attachment; filename=\"%s\"", filename))
+                .contentType(format.getMediaType())
+                .contentLength(length)
+                .body(body);
+    }
+
+    @GetMapping("/files/{uuid}/records")
+    @Operation(summary = "List records", description = "LOCUS names and byte sizes of the records in a result")
+    @ApiResponse(responseCode = "200", description = "File found")
+    @ApiResponse(responseCode = "404", description = "Not found")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @ApiResponse(responseCode = "307", description = "Served by the cluster node that owns the file")
+    public ResponseEntity<List<GenbankRecordIndex.Entry>> listRecords(
+            @PathVariable String uuid,
+            @RequestParam(required = false) String clientId) {
+        FileMetadata metadata = genbankService.getFileMetadata(uuid);
+        ResponseEntity<List<GenbankRecordIndex.Entry>> rejected = rejectOrRedirect(metadata, clientId,
+                "/api/v1/files/{uuid}/records", uuid);
+        if (rejected != null) {
+            return rejected;
+        }
+        return ResponseEntity.ok(genbankService.listRecords(uuid));
+    }
+
+    @GetMapping("/files/{uuid}/records/{locus}")
+    @Operation(summary = "Download record", description = "Download a single record of a GenBank file by LOCUS name")
+    @ApiResponse(responseCode = "200", description = "Record found")
+    @ApiResponse(responseCode = "404", description = "Not found")
+    @ApiResponse(responseCode = "403", description = "Access denied")
+    @ApiResponse(responseCode = "307", description = "Served by the cluster node that owns the file")
+    public ResponseEntity<StreamingResponseBody> downloadRecord(
+            @PathVariable String uuid,
+            @PathVariable String locus,
+            @RequestParam(required = false) String clientId,
+            HttpServletRequest request) {
+        FileMetadata metadata = genbankService.getFileMetadata(uuid);
+        ResponseEntity<StreamingResponseBody> rejected = rejectOrRedirect(metadata, clientId,
+                "/api/v1/files/{uuid}/records/{locus}", uuid, locus);
+        if (rejected != null) {
+            return rejected;
+        }
+
+        GenbankRecordIndex.Entry record = genbankService.findRecord(uuid, locus);
+        if (record == null) {
+            return ResponseEntity.notFound().build();
+        }
+        File file = genbankService.getFileByUuid(uuid);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        String.format("attachment; filename=\"%s.gb\"", record.locus()))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(record.length());
+
+        // Tomcat sends the range with sendfile (FileChannel.transferTo to the socket) after
+        // the headers; other containers get a positional transferTo into the response stream
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, record.offset());
+            request.setAttribute(SENDFILE_END, record.offset() + record.length());
+            return response.build();
+        }
+        return response.body(out -> {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = record.offset();
+                long end = record.offset() + record.length();
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, target);
+                }
+            }
+        });
+    }
+
+    /**
+     * The response for a result that is not served from here: 404 when unknown, 403 for
+     * another client's file, or a redirect to the owning node in cluster mode without shared
+     * storage. Null when the result can be served locally.
+     */
+    private <T> ResponseEntity<T> rejectOrRedirect(FileMetadata metadata, String clientId,
+                                                   String path, Object... uriVariables) {
+        if (metadata == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Check client access
+        if (clientId != null && !clientId.isEmpty() &&
+                !clientId.equals(metadata.getClientId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        // In cluster mode without shared storage the result lives on the node that wrote it
+        if (!genbankService.isServedLocally(metadata)) {
+            String ownerUrl = genbankService.findOwnerUrl(metadata);
+            if (ownerUrl == null) {
+                return ResponseEntity.notFound().build();
+            }
+            // The path may carry a query, such as the format of a derived download
+            int query = path.indexOf('?');
+            return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                    .location(UriComponentsBuilder.fromUriString(ownerUrl)
+                            .path(query < 0 ? path : path.substring(0, query))
+                            .query(query < 0 ? null : path.substring(query + 1))
+                            .queryParamIfPresent("clientId", Optional.ofNullable(clientId))
+                            .buildAndExpand(uriVariables)
+                            .toUri())
+                    .build();
+        }
+        return null;
+    }
+
     // Simplified file validation
-    private boolean isValidFile(MultipartFile file, String expectedType) {
-        String filename = file.getOriginalFilename();
-        return filename != null && filename.toLowerCase().endsWith("." + expectedType);
+    private boolean isValidFile(String filename, String expectedType) {
+        if (filename == null) {
+            return false;
+        }
+        String name = filename.toLowerCase();
+        // GFF3 files commonly use the plain .gff extension
+        return name.endsWith("." + expectedType) || (expectedType.equals("gff3") && name.endsWith(".gff"));
     }
 
     // Extract filename helper
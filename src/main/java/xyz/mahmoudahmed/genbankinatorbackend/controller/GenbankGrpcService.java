@@ -0,0 +1,480 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ReferenceDto;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ConversionException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileNotFoundException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.ConversionOptions;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.ConvertHeader;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.ConvertRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.ConvertResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.DownloadChunk;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.DownloadRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.Entry;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.GenbankConverterGrpc;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.Reference;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionOptionsFactory.PreparedOptions;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionProfileService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.DerivedFormatService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.HotResultCache;
+
+/**
+ * gRPC counterpart of the convert and download endpoints, served by
+ * {@link xyz.mahmoudahmed.genbankinatorbackend.config.GrpcServer}.
+ *
+ * Both directions use manual flow control: Convert asks for the next message only once the
+ * previous chunk is on disk, and Download sends while the transport is ready, so neither
+ * side buffers more than a few chunks however large the files are. Conversions run
+ * synchronously; the queue stays with the REST API.
+ */
+@Component
+@ConditionalOnProperty(name = "grpc.server.enabled", havingValue = "true")
+@Slf4j
+public class GenbankGrpcService extends GenbankConverterGrpc.GenbankConverterImplBase {
+
+    private static final String DEFAULT_SEQUENCE_FILENAME = "sequence.fasta";
+
+    private final GenbankService genbankService;
+    private final FileStorageService fileStorageService;
+    private final ConversionProfileService conversionProfileService;
+    private final HotResultCache hotResultCache;
+
+    // Streamed inputs bypass the multipart limit, so they get the resumable upload limit
+    @Value("${file.upload.max-size:2GB}")
+    private DataSize maxInputSize;
+
+    @Value("${grpc.download.chunk-size:64KB}")
+    private DataSize chunkSize;
+
+    public GenbankGrpcService(GenbankService genbankService, FileStorageService fileStorageService,
+                              ConversionProfileService conversionProfileService, HotResultCache hotResultCache) {
+        this.genbankService = genbankService;
+        this.fileStorageService = fileStorageService;
+        this.conversionProfileService = conversionProfileService;
+        this.hotResultCache = hotResultCache;
+    }
+
+    @Override
+    public StreamObserver<ConvertRequest> convert(StreamObserver<ConvertResponse> responseObserver) {
+        ServerCallStreamObserver<ConvertResponse> call = (ServerCallStreamObserver<ConvertResponse>) responseObserver;
+        ConvertCall convert = new ConvertCall(call);
+        call.setOnCancelHandler(convert::cleanUp);
+        call.disableAutoRequest();
+        call.request(1);
+        return convert;
+    }
+
+    @Override
+    public void download(DownloadRequest request, StreamObserver<DownloadChunk> responseObserver) {
+        ServerCallStreamObserver<DownloadChunk> call = (ServerCallStreamObserver<DownloadChunk>) responseObserver;
+        String uuid = request.getUuid();
+        String clientId = request.hasClientId() && !request.getClientId().isEmpty() ? request.getClientId() : null;
+
+        DownloadCall download;
+        try {
+            String format = request.hasFormat() ? request.getFormat() : null;
+            DerivedFormatService.Format derived = format == null || format.isBlank()
+                    || format.equalsIgnoreCase("gb") || format.equalsIgnoreCase("genbank")
+                    ? null : DerivedFormatService.Format.of(format);
+
+            // A result converted moments ago is sent from memory
+            HotResultCache.Entry hot = derived == null && hotResultCache.isEnabled() ? hotResultCache.get(uuid) : null;
+            if (hot != null) {
+                if (clientId != null && !clientId.equals(hot.clientId())) {
+                    hotResultCache.release(hot, false);
+                    throw Status.PERMISSION_DENIED.withDescription("Access denied").asRuntimeException();
+                }
+                download = new DownloadCall(call, extractFilename(hot.storedName()), hot, null);
+            } else {
+                download = openDownload(call, uuid, clientId, derived);
+            }
+        } catch (RuntimeException | IOException e) {
+            call.onError(statusOf(e).asRuntimeException());
+            return;
+        }
+
+        call.setOnReadyHandler(download);
+        call.setOnCancelHandler(() -> download.close(false));
+        // Send what the transport takes now; the ready handler continues from there
+        download.run();
+    }
+
+    private DownloadCall openDownload(ServerCallStreamObserver<DownloadChunk> call, String uuid, String clientId,
+                                      DerivedFormatService.Format derived) throws IOException {
+        FileMetadata metadata = genbankService.getFileMetadata(uuid);
+        if (metadata == null) {
+            throw new FileNotFoundException("File not found: " + uuid);
+        }
+        if (clientId != null && !clientId.equals(metadata.getClientId())) {
+            throw Status.PERMISSION_DENIED.withDescription("Access denied").asRuntimeException();
+        }
+        // In cluster mode without shared storage the result lives on the node that wrote it
+        if (!genbankService.isServedLocally(metadata)) {
+            String ownerUrl = genbankService.findOwnerUrl(metadata);
+            if (ownerUrl == null) {
+                throw new FileNotFoundException("File not found: " + uuid);
+            }
+            throw Status.UNAVAILABLE.withDescription("Served by " + ownerUrl).asRuntimeException();
+        }
+
+        File file = genbankService.getFileByUuid(uuid);
+        String filename = extractFilename(file.getName());
+        Path path = file.toPath();
+        if (derived != null) {
+            path = genbankService.getDerivedFile(uuid, derived);
+            int extension = filename.lastIndexOf('.');
+            filename = (extension > 0 ? filename.substring(0, extension) : filename) + "." + derived.getExtension();
+        }
+        // Opened now so a cache eviction or cleanup meanwhile cannot remove it underneath
+        return new DownloadCall(call, filename, null, FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * Receives one Convert stream: the header, then chunks appended to the two inputs
+     */
+    private final class ConvertCall implements StreamObserver<ConvertRequest> {
+        private final ServerCallStreamObserver<ConvertResponse> call;
+
+        private PreparedOptions options;
+        private String clientId;
+        private String filename;
+        private Path sequencePath;
+        private Path annotationPath;
+        private FileChannel sequenceOut;
+        private FileChannel annotationOut;
+        private long received;
+        private boolean failed;
+
+        private ConvertCall(ServerCallStreamObserver<ConvertResponse> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void onNext(ConvertRequest request) {
+            if (failed) {
+                return;
+            }
+            try {
+                switch (request.getPayloadCase()) {
+                    case HEADER -> begin(request.getHeader());
+                    case SEQUENCE_CHUNK -> append(sequenceOut, request.getSequenceChunk());
+                    case ANNOTATION_CHUNK -> append(annotationOut, request.getAnnotationChunk());
+                    default -> {
+                        // Nothing to do for an empty message
+                    }
+                }
+                call.request(1);
+            } catch (RuntimeException | IOException e) {
+                fail(statusOf(e));
+            }
+        }
+
+        private void begin(ConvertHeader header) {
+            if (options != null) {
+                throw new IllegalArgumentException("The header may only be sent once");
+            }
+            ConversionRequest request = toConversionRequest(header);
+            PreparedOptions prepared = conversionProfileService.resolve(request);
+            if (prepared.annotationFormat() == null) {
+                throw new IllegalArgumentException("annotation_format is required");
+            }
+
+            this.clientId = request.getClientId();
+            this.filename = header.hasSequenceFilename() && !header.getSequenceFilename().isBlank()
+                    ? header.getSequenceFilename() : DEFAULT_SEQUENCE_FILENAME;
+            try {
+                this.sequencePath = fileStorageService.createIncomingFile(filename);
+                this.annotationPath = fileStorageService.createIncomingFile("annotation." + prepared.annotationFormat());
+                this.sequenceOut = FileChannel.open(sequencePath, StandardOpenOption.WRITE);
+                this.annotationOut = FileChannel.open(annotationPath, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                cleanUp();
+                throw new ConversionException("Could not store the inputs", e);
+            }
+            this.options = prepared;
+        }
+
+        private void append(FileChannel out, ByteString chunk) throws IOException {
+            if (options == null) {
+                throw new IllegalStateException("The header must be sent before any chunk");
+            }
+            received += chunk.size();
+            if (received > 2 * maxInputSize.toBytes()) {
+                throw Status.RESOURCE_EXHAUSTED
+                        .withDescription("Inputs larger than " + maxInputSize + " each are not accepted")
+                        .asRuntimeException();
+            }
+            for (ByteBuffer buffer : chunk.asReadOnlyByteBufferList()) {
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            cleanUp();
+        }
+
+        @Override
+        public void onCompleted() {
+            if (failed) {
+                return;
+            }
+            if (options == null) {
+                fail(Status.INVALID_ARGUMENT.withDescription("No header received"));
+                return;
+            }
+            try {
+                closeInputs();
+                if (Files.size(sequencePath) == 0 || Files.size(annotationPath) == 0) {
+                    throw new IllegalArgumentException("Both sequence and annotation chunks are required");
+                }
+                if (Files.size(sequencePath) > maxInputSize.toBytes() || Files.size(annotationPath) > maxInputSize.toBytes()) {
+                    throw Status.RESOURCE_EXHAUSTED
+                            .withDescription("Inputs larger than " + maxInputSize + " each are not accepted")
+                            .asRuntimeException();
+                }
+
+                ConversionResponse response = genbankService.convertIncoming(options, sequencePath.toString(),
+                        annotationPath.toString(), filename, clientId);
+                call.onNext(ConvertResponse.newBuilder()
+                        .setUuid(response.getUuid())
+                        .setDownloadUrl(response.getDownloadUrl())
+                        .setMessage(response.getMessage())
+                        .build());
+                call.onCompleted();
+            } catch (RuntimeException | IOException e) {
+                failed = true;
+                call.onError(statusOf(e).asRuntimeException());
+            } finally {
+                // Already gone when the conversion ran; not when it was refused first
+                cleanUp();
+            }
+        }
+
+        private void fail(Status status) {
+            failed = true;
+            cleanUp();
+            call.onError(status.asRuntimeException());
+        }
+
+        private void closeInputs() throws IOException {
+            try (FileChannel sequence = sequenceOut; FileChannel annotation = annotationOut) {
+                sequenceOut = null;
+                annotationOut = null;
+            }
+        }
+
+        private void cleanUp() {
+            try {
+                closeInputs();
+            } catch (IOException e) {
+                log.debug("Could not close streamed input: {}", e.getMessage());
+            }
+            fileStorageService.deleteStoredFile(sequencePath != null ? sequencePath.toString() : null);
+            fileStorageService.deleteStoredFile(annotationPath != null ? annotationPath.toString() : null);
+        }
+    }
+
+    /**
+     * Sends one result in chunks whenever the call is ready, from the hot cache or a file
+     */
+    private final class DownloadCall implements Runnable {
+        private final ServerCallStreamObserver<DownloadChunk> call;
+        private final String filename;
+        private final HotResultCache.Entry hot;
+        private final Iterator<ByteBuffer> chunks;
+        private final FileChannel channel;
+        private final long length;
+
+        private ByteBuffer current;
+        private boolean started;
+        private boolean done;
+
+        private DownloadCall(ServerCallStreamObserver<DownloadChunk> call, String filename,
+                             HotResultCache.Entry hot, FileChannel channel) throws IOException {
+            this.call = call;
+            this.filename = filename;
+            this.hot = hot;
+            this.chunks = hot != null ? hot.chunks().iterator() : null;
+            this.channel = channel;
+            this.length = hot != null ? hot.length() : channel.size();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!done && call.isReady()) {
+                    ByteString data = next();
+                    if (data == null && !started) {
+                        // An empty result still gets the chunk carrying its name and size
+                        data = ByteString.EMPTY;
+                    } else if (data == null) {
+                        close(true);
+                        call.onCompleted();
+                        return;
+                    }
+                    DownloadChunk.Builder chunk = DownloadChunk.newBuilder().setData(data);
+                    if (!started) {
+                        chunk.setFilename(filename).setTotalBytes(length);
+                        started = true;
+                    }
+                    call.onNext(chunk.build());
+                }
+            } catch (IOException e) {
+                close(false);
+                call.onError(Status.INTERNAL.withDescription("Could not read the result").withCause(e)
+                        .asRuntimeException());
+            }
+        }
+
+        /**
+         * The next chunk, or null at the end
+         */
+        private ByteString next() throws IOException {
+            int size = (int) chunkSize.toBytes();
+            if (hot != null) {
+                while (current == null || !current.hasRemaining()) {
+                    if (!chunks.hasNext()) {
+                        return null;
+                    }
+                    current = chunks.next();
+                }
+                int n = Math.min(size, current.remaining());
+                // Copied: the cache reuses the block once the entry is released, and the
+                // in-process transport hands messages over without serializing them
+                ByteString data = ByteString.copyFrom(current.slice(current.position(), n));
+                current.position(current.position() + n);
+                return data;
+            }
+            // A fresh array per chunk, since the message keeps a reference to it
+            byte[] bytes = new byte[size];
+            ByteBuffer target = ByteBuffer.wrap(bytes);
+            while (target.hasRemaining() && channel.read(target) >= 0) {
+                // Fill the chunk unless the file ends first
+            }
+            return target.position() == 0 ? null : UnsafeByteOperations.unsafeWrap(bytes, 0, target.position());
+        }
+
+        /**
+         * Ends the download once, handing a cached entry back or closing the file
+         */
+        private void close(boolean complete) {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (hot != null) {
+                hotResultCache.release(hot, complete);
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Could not close result channel: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static ConversionRequest toConversionRequest(ConvertHeader header) {
+        ConversionOptions options = header.getOptions();
+        ConversionRequest request = new ConversionRequest();
+        request.setClientId(header.hasClientId() && !header.getClientId().isEmpty() ? header.getClientId() : null);
+        request.setProfileId(header.hasProfileId() && !header.getProfileId().isEmpty() ? header.getProfileId() : null);
+        request.setOrganism(options.hasOrganism() ? options.getOrganism() : null);
+        request.setMoleculeType(options.hasMoleculeType() ? options.getMoleculeType() : null);
+        request.setTopology(options.hasTopology() ? options.getTopology() : null);
+        request.setDivision(options.hasDivision() ? options.getDivision() : null);
+        request.setAnnotationFormat(options.hasAnnotationFormat() ? options.getAnnotationFormat() : null);
+        request.setDefinition(options.hasDefinition() ? options.getDefinition() : null);
+        request.setAccessionNumber(options.hasAccessionNumber() ? options.getAccessionNumber() : null);
+        request.setVersion(options.hasVersion() ? options.getVersion() : null);
+        request.setKeywords(options.hasKeywords() ? options.getKeywords() : null);
+        request.setTaxonomy(options.getTaxonomyCount() > 0 ? options.getTaxonomyList() : null);
+        request.setDbLinks(options.getDbLinksCount() > 0 ? toMap(options.getDbLinksList()) : null);
+        request.setComment(options.hasComment() ? options.getComment() : null);
+        request.setAssemblyData(options.getAssemblyDataCount() > 0 ? toMap(options.getAssemblyDataList()) : null);
+        if (options.getReferencesCount() > 0) {
+            request.setReferences(options.getReferencesList().stream().map(GenbankGrpcService::toReference).toList());
+        }
+        request.setTranslTableNumber(options.hasTranslTableNumber() ? options.getTranslTableNumber() : null);
+        request.setTranslateCDS(options.hasTranslateCds() ? options.getTranslateCds() : null);
+        request.setIncludeStopCodon(options.hasIncludeStopCodon() ? options.getIncludeStopCodon() : null);
+        return request;
+    }
+
+    private static Map<String, String> toMap(List<Entry> entries) {
+        Map<String, String> map = new LinkedHashMap<>();
+        entries.forEach(entry -> map.put(entry.getKey(), entry.getValue()));
+        return map;
+    }
+
+    private static ReferenceDto toReference(Reference reference) {
+        ReferenceDto dto = new ReferenceDto();
+        dto.setAuthors(reference.getAuthorsList());
+        dto.setTitle(reference.getTitle());
+        dto.setJournal(reference.getJournal());
+        dto.setPubStatus(reference.getPubStatus());
+        return dto;
+    }
+
+    /**
+     * The status a failure is reported with, matching the REST API's status codes
+     */
+    private static Status statusOf(Exception e) {
+        if (e instanceof StatusRuntimeException statusException) {
+            return statusException.getStatus();
+        }
+        if (e instanceof IllegalArgumentException) {
+            return Status.INVALID_ARGUMENT.withDescription(e.getMessage());
+        }
+        if (e instanceof IllegalStateException) {
+            return Status.FAILED_PRECONDITION.withDescription(e.getMessage());
+        }
+        if (e instanceof FileNotFoundException) {
+            return Status.NOT_FOUND.withDescription(e.getMessage());
+        }
+        if (e instanceof ServiceUnavailableException) {
+            return Status.UNAVAILABLE.withDescription(e.getMessage());
+        }
+        log.error("gRPC call failed", e);
+        return Status.INTERNAL.withDescription(e instanceof ConversionException ? e.getMessage() : "Conversion failed");
+    }
+
+    private static String extractFilename(String fullName) {
+        int underscoreIndex = fullName.indexOf("_");
+        return underscoreIndex >= 0 ? fullName.substring(underscoreIndex + 1) : fullName;
+    }
+}
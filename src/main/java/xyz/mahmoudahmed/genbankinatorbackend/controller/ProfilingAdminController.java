@@ -0,0 +1,125 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import xyz.mahmoudahmed.genbankinatorbackend.config.AdminTokenInterceptor;
+import xyz.mahmoudahmed.genbankinatorbackend.service.BufferPool;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ProfilingService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ProfilingService.ProfilingSummary;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ProfilingService.RecordingStatus;
+
+/**
+ * Flight recordings and heap dumps; every request needs the {@link AdminTokenInterceptor#HEADER} header
+ */
+@RestController
+@RequestMapping("/api/v1/admin/profiling")
+@Tag(name = "Profiling Admin", description = "JFR recordings and heap dumps (X-Admin-Token required)")
+@RequiredArgsConstructor
+public class ProfilingAdminController {
+
+    private final ProfilingService profilingService;
+    private final BufferPool bufferPool;
+
+    @PostMapping("/recordings")
+    @Operation(summary = "Start a recording",
+            description = "Starts a JFR recording that stops by itself after the duration")
+    @ApiResponse(responseCode = "201", description = "Recording started")
+    @ApiResponse(responseCode = "400", description = "Unknown profile or duration out of range")
+    @ApiResponse(responseCode = "409", description = "A recording is already running")
+    public ResponseEntity<RecordingStatus> startRecording(
+            @Parameter(description = "JFR settings: default (low overhead) or profile")
+            @RequestParam(defaultValue = "default") String profile,
+            @Parameter(description = "Duration such as 60s, 5m or PT60S")
+            @RequestParam(defaultValue = "60s") String duration) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(profilingService.start(profile, DurationStyle.detectAndParse(duration)));
+    }
+
+    @GetMapping("/recordings/current")
+    @Operation(summary = "Current recording", description = "State of the running or last recording")
+    public ResponseEntity<RecordingStatus> currentRecording() {
+        return ResponseEntity.ok(profilingService.current());
+    }
+
+    @GetMapping("/recordings/{id}/status")
+    @Operation(summary = "Recording status")
+    public ResponseEntity<RecordingStatus> recordingStatus(@PathVariable long id) {
+        return ResponseEntity.ok(profilingService.status(id));
+    }
+
+    @PostMapping("/recordings/{id}/stop")
+    @Operation(summary = "Stop a recording", description = "Ends a running recording before its duration is up")
+    public ResponseEntity<RecordingStatus> stopRecording(@PathVariable long id) {
+        return ResponseEntity.ok(profilingService.stop(id));
+    }
+
+    @GetMapping("/recordings/{id}")
+    @Operation(summary = "Download a recording", description = "The .jfr file of a finished recording")
+    @ApiResponse(responseCode = "409", description = "Still running")
+    public ResponseEntity<StreamingResponseBody> downloadRecording(@PathVariable long id) throws IOException {
+        return stream(profilingService.recordingFile(id), "recording-" + id + ".jfr", false);
+    }
+
+    @GetMapping("/recordings/{id}/summary")
+    @Operation(summary = "Recording summary",
+            description = "Top allocating frames overall and within conversions, lock contention and GC pauses")
+    @ApiResponse(responseCode = "409", description = "Still running")
+    public ResponseEntity<ProfilingSummary> recordingSummary(@PathVariable long id) {
+        return ResponseEntity.ok(profilingService.summary(id));
+    }
+
+    @PostMapping("/heap-dump")
+    @Operation(summary = "Heap dump",
+            description = "Writes and streams an .hprof heap dump; pauses the JVM while it is written")
+    @ApiResponse(responseCode = "409", description = "A heap dump is already being written")
+    @ApiResponse(responseCode = "503", description = "Heap dumps are disabled")
+    public ResponseEntity<StreamingResponseBody> heapDump(
+            @Parameter(description = "Only reachable objects (runs a full GC first)")
+            @RequestParam(defaultValue = "true") boolean live) throws IOException {
+        return stream(profilingService.dumpHeap(live), "heap.hprof", true);
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(Path file, String filename, boolean deleteAfter)
+            throws IOException {
+        // Opened now, so a recording replaced meanwhile is still sent whole
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        long length = channel.size();
+        StreamingResponseBody body = out -> {
+            try (channel) {
+                bufferPool.copy(channel, out);
+            } finally {
+                if (deleteAfter) {
+                    Files.deleteIfExists(file);
+                    Files.deleteIfExists(file.getParent());
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, String.format("attachment; filename=\"%s\"", filename))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(length)
+                .body(body);
+    }
+}
@@ -0,0 +1,210 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+import java.nio.file.Path;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileNotFoundException;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.service.DerivedFormatService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankRecordIndex;
+import xyz.mahmoudahmed.genbankinatorbackend.service.HotResultCache;
+
+/**
+ * Reactive counterpart of the listing and download endpoints in {@link GenbankController}.
+ * Served by the Netty server started with the "reactive" profile; file bodies are written
+ * as zero-copy file regions instead of being read into the heap.
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveFileHandler {
+
+    private final FileStorageService fileStorageService;
+    private final GenbankService genbankService;
+    private final HotResultCache hotResultCache;
+
+    public RouterFunction<ServerResponse> routes() {
+        return route(GET("/api/v1/files"), this::listFiles)
+                .andRoute(GET("/api/v1/files/{uuid}"), this::downloadFile)
+                .andRoute(GET("/api/v1/files/{uuid}/records/{locus}"), this::downloadRecord);
+    }
+
+    /**
+     * The cached listing snapshot shared with GET /files, with the same ETag
+     */
+    public Mono<ServerResponse> listFiles(ServerRequest request) {
+        String clientId = request.queryParam("clientId").orElse(null);
+
+        // A stale snapshot is re-rendered from storage, so it is fetched off the event loop
+        return Mono.fromCallable(() -> genbankService.getFileListing(clientId))
+                .subscribeOn(Schedulers.boundedElastic())
+                // Pollers with a current ETag get 304 without a body
+                .flatMap(listing -> request.checkNotModified(listing.etag())
+                        .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                                .eTag(listing.etag())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(listing.body()))));
+    }
+
+    public Mono<ServerResponse> downloadFile(ServerRequest request) {
+        String uuid = request.pathVariable("uuid");
+        String clientId = request.queryParam("clientId").orElse(null);
+        String format = request.queryParam("format").orElse(null);
+
+        // gb and genbank name the stored file itself
+        DerivedFormatService.Format derived;
+        try {
+            derived = format == null || format.isBlank()
+                    || format.equalsIgnoreCase("gb") || format.equalsIgnoreCase("genbank")
+                    ? null : DerivedFormatService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            return ServerResponse.badRequest().contentType(MediaType.TEXT_PLAIN).bodyValue(e.getMessage());
+        }
+
+        HotResultCache.Entry hot = derived == null && hotResultCache.isEnabled() ? hotResultCache.get(uuid) : null;
+        if (hot != null) {
+            if (clientId != null && !clientId.isEmpty() && !clientId.equals(hot.clientId())) {
+                hotResultCache.release(hot, false);
+                return ServerResponse.status(HttpStatus.FORBIDDEN).build();
+            }
+            // Netty wraps the cache's blocks as they are, without copying them; the entry
+            // stays pinned until the write ends
+            return ServerResponse.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            String.format("attachment; filename=\"%s\"", extractFilename(hot.storedName())))
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .contentLength(hot.length())
+                    .body((message, context) -> message.writeWith(Flux.fromIterable(hot.chunks())
+                                    .map(chunk -> message.bufferFactory().wrap(chunk)))
+                            .doFinally(signal -> hotResultCache.release(hot, signal == SignalType.ON_COMPLETE)));
+        }
+
+        return fileStorageService.getFileMetadataAsync(uuid)
+                .flatMap(metadata -> rejectOrRedirect(metadata, clientId, request)
+                        .switchIfEmpty(Mono.defer(() -> derived != null
+                                ? downloadDerived(uuid, derived)
+                                : fileStorageService.resolveFileAsync(uuid)
+                                        .flatMap(path -> ServerResponse.ok()
+                                                .header(HttpHeaders.CONTENT_DISPOSITION,
+                                                        String.format("attachment; filename=\"%s\"",
+                                                                extractFilename(path.getFileName().toString())))
+                                                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                                                .body(BodyInserters.fromResource(new FileSystemResource(path)))))))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    /**
+     * A rendering of a stored result; empty when the result does not exist
+     */
+    private Mono<ServerResponse> downloadDerived(String uuid, DerivedFormatService.Format format) {
+        // Rendering reads the whole result on a cache miss, so it runs off the event loop
+        Mono<Path> derived = Mono.fromCallable(() -> genbankService.getDerivedFile(uuid, format))
+                .subscribeOn(Schedulers.boundedElastic());
+
+        return Mono.zip(fileStorageService.resolveFileAsync(uuid), derived)
+                .flatMap(found -> {
+                    String filename = extractFilename(found.getT1().getFileName().toString());
+                    int extension = filename.lastIndexOf('.');
+                    filename = (extension > 0 ? filename.substring(0, extension) : filename)
+                            + "." + format.getExtension();
+
+                    return ServerResponse.ok()
+                            .header(HttpHeaders.CONTENT_DISPOSITION,
+                                    String.format("attachment; filename=\"%s\"", filename))
+                            .contentType(format.getMediaType())
+                            .body(BodyInserters.fromResource(new FileSystemResource(found.getT2())));
+                })
+                .onErrorResume(FileNotFoundException.class, e -> Mono.empty());
+    }
+
+    public Mono<ServerResponse> downloadRecord(ServerRequest request) {
+        String uuid = request.pathVariable("uuid");
+        String locus = request.pathVariable("locus");
+        String clientId = request.queryParam("clientId").orElse(null);
+
+        return fileStorageService.getFileMetadataAsync(uuid)
+                .flatMap(metadata -> rejectOrRedirect(metadata, clientId, request)
+                        .switchIfEmpty(Mono.defer(() -> Mono.zip(fileStorageService.resolveFileAsync(uuid),
+                                        fileStorageService.findRecordAsync(uuid, locus))
+                                .flatMap(found -> ServerResponse.ok()
+                                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                                String.format("attachment; filename=\"%s.gb\"", locus))
+                                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                                        .contentLength(found.getT2().length())
+                                        .body(fileRegion(found.getT1(), found.getT2()))))))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    /**
+     * 403 for another client's file, or a redirect to the owning node in cluster mode without
+     * shared storage, as in {@link GenbankController}. Empty when the result can be served here.
+     */
+    private Mono<ServerResponse> rejectOrRedirect(FileMetadata metadata, String clientId, ServerRequest request) {
+        // Check client access
+        if (clientId != null && !clientId.isEmpty() &&
+                !clientId.equals(metadata.getClientId())) {
+            return ServerResponse.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        if (genbankService.isServedLocally(metadata)) {
+            return Mono.empty();
+        }
+        // The owner is looked up in the shared metadata store; the request's own path and
+        // query, clientId included, are kept
+        return Mono.fromCallable(() -> genbankService.findOwnerUrl(metadata))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(ownerUrl -> ServerResponse.temporaryRedirect(UriComponentsBuilder.fromUriString(ownerUrl)
+                                .path(request.path())
+                                .query(request.uri().getRawQuery())
+                                .build(true)
+                                .toUri())
+                        .build())
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    /**
+     * Writes a byte range of a file, as a zero-copy file region when the server supports it
+     */
+    private BodyInserter<Void, ReactiveHttpOutputMessage> fileRegion(Path path, GenbankRecordIndex.Entry record) {
+        return (message, context) -> {
+            if (message instanceof ZeroCopyHttpOutputMessage zeroCopy) {
+                return zeroCopy.writeWith(path, record.offset(), record.length());
+            }
+            Flux<DataBuffer> file = DataBufferUtils.read(path, message.bufferFactory(), 64 * 1024);
+            return message.writeWith(DataBufferUtils.takeUntilByteCount(
+                    DataBufferUtils.skipUntilByteCount(file, record.offset()), record.length()));
+        };
+    }
+
+    // Extract filename helper
+    private String extractFilename(String fullName) {
+        int underscoreIndex = fullName.indexOf("_");
+        return underscoreIndex >= 0 ? fullName.substring(underscoreIndex + 1) : fullName;
+    }
+}
@@ -6,8 +6,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import lombok.RequiredArgsConstructor;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionScheduler;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionScheduler.SchedulerStats;
 import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
 import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService.StorageStats;
+import xyz.mahmoudahmed.genbankinatorbackend.service.HotResultCache;
+import xyz.mahmoudahmed.genbankinatorbackend.service.HotResultCache.HotCacheStats;
+import xyz.mahmoudahmed.genbankinatorbackend.service.MemoryBudgetService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.MemoryBudgetService.MemoryStats;
+import xyz.mahmoudahmed.genbankinatorbackend.service.StartupTimingService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.StartupTimingService.StartupTimes;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,6 +27,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 public class StorageAdminController {
 
     private final FileStorageService fileStorageService;
+    private final MemoryBudgetService memoryBudgetService;
+    private final ConversionScheduler conversionScheduler;
+    private final HotResultCache hotResultCache;
+    private final StartupTimingService startupTimingService;
 
     @GetMapping("/storage/stats")
     @Operation(summary = "Get storage statistics",
@@ -28,6 +40,34 @@ public class StorageAdminController {
         return ResponseEntity.ok(stats);
     }
 
+    @GetMapping("/memory/stats")
+    @Operation(summary = "Get memory budget statistics",
+            description = "Returns the heap budget split, reserved and peak bytes, waiting conversions and actual heap use")
+    public ResponseEntity<MemoryStats> getMemoryStats() {
+        return ResponseEntity.ok(memoryBudgetService.getStats());
+    }
+
+    @GetMapping("/scheduler/stats")
+    @Operation(summary = "Get conversion scheduler statistics",
+            description = "Returns slot counts, running conversions, waiting conversions per lane and timeouts")
+    public ResponseEntity<SchedulerStats> getSchedulerStats() {
+        return ResponseEntity.ok(conversionScheduler.getStats());
+    }
+
+    @GetMapping("/hot-cache/stats")
+    @Operation(summary = "Get hot result cache statistics",
+            description = "Returns cached results, direct memory held, hits, misses and bytes served from memory")
+    public ResponseEntity<HotCacheStats> getHotCacheStats() {
+        return ResponseEntity.ok(hotResultCache.getStats());
+    }
+
+    @GetMapping("/startup")
+    @Operation(summary = "Get startup timings",
+            description = "Milliseconds from JVM start to application ready and to the first successful conversion")
+    public ResponseEntity<StartupTimes> getStartupTimes() {
+        return ResponseEntity.ok(startupTimingService.getTimes());
+    }
+
     @GetMapping("/storage/cleanup")
     @Operation(summary = "Manual cleanup",
             description = "Manually trigger cleanup of orphaned files")
@@ -0,0 +1,209 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService.UploadStatus;
+
+/**
+ * Resumable uploads following the tus 1.0.0 protocol (core, creation, checksum and
+ * termination). Large inputs are sent in chunks that are written straight to a staging
+ * file, and an interrupted upload resumes from the offset reported by HEAD.
+ * A completed upload is converted by passing its id to /convert.
+ */
+@RestController
+@RequestMapping("/api/v1/uploads")
+@Tag(name = "Resumable Uploads", description = "Chunked, resumable uploads of large input files (tus 1.0.0)")
+@RequiredArgsConstructor
+public class UploadController {
+
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String TUS_EXTENSIONS = "creation,checksum,termination";
+    private static final String CHECKSUM_ALGORITHMS = "sha1,md5,sha256";
+    private static final String OFFSET_CONTENT_TYPE = "application/offset+octet-stream";
+
+    private static final Map<String, String> DIGEST_NAMES = Map.of(
+            "sha1", "SHA-1",
+            "md5", "MD5",
+            "sha256", "SHA-256");
+
+    private final FileStorageService fileStorageService;
+
+    @Value("${file.upload.max-size:2GB}")
+    private DataSize maxUploadSize;
+
+    @RequestMapping(method = RequestMethod.OPTIONS)
+    @Operation(summary = "Upload capabilities", description = "Supported protocol version, extensions and limits")
+    public ResponseEntity<Void> options() {
+        return ResponseEntity.noContent()
+                .header("Tus-Resumable", TUS_VERSION)
+                .header("Tus-Version", TUS_VERSION)
+                .header("Tus-Extension", TUS_EXTENSIONS)
+                .header("Tus-Max-Size", Long.toString(maxUploadSize.toBytes()))
+                .header("Tus-Checksum-Algorithm", CHECKSUM_ALGORITHMS)
+                .build();
+    }
+
+    @PostMapping
+    @Operation(summary = "Create upload",
+            description = "Declare the total length and file name (Upload-Metadata: filename <base64>)")
+    @ApiResponse(responseCode = "201", description = "Created, Location holds the upload URL")
+    @ApiResponse(responseCode = "413", description = "Upload-Length exceeds Tus-Max-Size")
+    public ResponseEntity<Void> create(
+            @RequestHeader(value = "Tus-Resumable", required = false) String tusResumable,
+            @RequestHeader("Upload-Length") long uploadLength,
+            @RequestHeader(value = "Upload-Metadata", required = false) String uploadMetadata) {
+
+        if (!TUS_VERSION.equals(tusResumable)) {
+            return versionMismatch();
+        }
+        if (uploadLength < 0) {
+            return ResponseEntity.badRequest().header("Tus-Resumable", TUS_VERSION).build();
+        }
+        if (uploadLength > maxUploadSize.toBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).header("Tus-Resumable", TUS_VERSION).build();
+        }
+
+        String filename = parseMetadata(uploadMetadata).get("filename");
+        if (filename == null) {
+            return ResponseEntity.badRequest().header("Tus-Resumable", TUS_VERSION).build();
+        }
+
+        String id = fileStorageService.createUpload(uploadLength, filename);
+        return ResponseEntity.created(URI.create("/api/v1/uploads/" + id))
+                .header("Tus-Resumable", TUS_VERSION)
+                .build();
+    }
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    @Operation(summary = "Upload offset", description = "Bytes received so far; resume from Upload-Offset")
+    @ApiResponse(responseCode = "200", description = "Upload found")
+    @ApiResponse(responseCode = "404", description = "Not found")
+    public ResponseEntity<Void> head(
+            @PathVariable String id,
+            @RequestHeader(value = "Tus-Resumable", required = false) String tusResumable) {
+
+        if (!TUS_VERSION.equals(tusResumable)) {
+            return versionMismatch();
+        }
+
+        UploadStatus status = fileStorageService.getUploadStatus(id);
+        return ResponseEntity.ok()
+                .header("Tus-Resumable", TUS_VERSION)
+                .header("Upload-Offset", Long.toString(status.offset()))
+                .header("Upload-Length", Long.toString(status.length()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .build();
+    }
+
+    @PatchMapping(value = "/{id}", consumes = OFFSET_CONTENT_TYPE)
+    @Operation(summary = "Upload chunk",
+            description = "Append bytes at Upload-Offset, optionally verified by Upload-Checksum")
+    @ApiResponse(responseCode = "204", description = "Chunk stored, Upload-Offset holds the new offset")
+    @ApiResponse(responseCode = "409", description = "Upload-Offset does not match, or a chunk is already in progress")
+    @ApiResponse(responseCode = "460", description = "Checksum mismatch, chunk discarded")
+    public ResponseEntity<Void> patch(
+            @PathVariable String id,
+            @RequestHeader(value = "Tus-Resumable", required = false) String tusResumable,
+            @RequestHeader("Upload-Offset") long uploadOffset,
+            @RequestHeader(value = "Upload-Checksum", required = false) String uploadChecksum,
+            HttpServletRequest request) throws IOException {
+
+        if (!TUS_VERSION.equals(tusResumable)) {
+            return versionMismatch();
+        }
+
+        MessageDigest digest = null;
+        byte[] expected = null;
+        if (uploadChecksum != null) {
+            String[] parts = uploadChecksum.trim().split(" ", 2);
+            String algorithm = DIGEST_NAMES.get(parts[0]);
+            if (algorithm == null || parts.length != 2) {
+                return ResponseEntity.badRequest().header("Tus-Resumable", TUS_VERSION).build();
+            }
+            try {
+                digest = MessageDigest.getInstance(algorithm);
+                expected = Base64.getDecoder().decode(parts[1]);
+            } catch (NoSuchAlgorithmException | IllegalArgumentException e) {
+                return ResponseEntity.badRequest().header("Tus-Resumable", TUS_VERSION).build();
+            }
+        }
+
+        long offset = fileStorageService.appendUpload(id, uploadOffset, request.getInputStream(), digest, expected);
+        return ResponseEntity.noContent()
+                .header("Tus-Resumable", TUS_VERSION)
+                .header("Upload-Offset", Long.toString(offset))
+                .build();
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancel upload", description = "Discard an upload and its staged data")
+    @ApiResponse(responseCode = "204", description = "Deleted")
+    @ApiResponse(responseCode = "404", description = "Not found")
+    public ResponseEntity<Void> delete(
+            @PathVariable String id,
+            @RequestHeader(value = "Tus-Resumable", required = false) String tusResumable) {
+
+        if (!TUS_VERSION.equals(tusResumable)) {
+            return versionMismatch();
+        }
+        if (!fileStorageService.deleteUpload(id)) {
+            return ResponseEntity.notFound().header("Tus-Resumable", TUS_VERSION).build();
+        }
+        return ResponseEntity.noContent().header("Tus-Resumable", TUS_VERSION).build();
+    }
+
+    private ResponseEntity<Void> versionMismatch() {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .header("Tus-Version", TUS_VERSION)
+                .build();
+    }
+
+    /**
+     * Parses "key base64value,key2 base64value2"; keys without a value map to ""
+     */
+    private static Map<String, String> parseMetadata(String header) {
+        Map<String, String> metadata = new HashMap<>();
+        if (header == null || header.isBlank()) {
+            return metadata;
+        }
+        for (String pair : header.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            try {
+                String value = parts.length == 2
+                        ? new String(Base64.getDecoder().decode(parts[1]), StandardCharsets.UTF_8)
+                        : "";
+                metadata.put(parts[0], value);
+            } catch (IllegalArgumentException e) {
+                // Skip values that are not valid base64
+            }
+        }
+        return metadata;
+    }
+}
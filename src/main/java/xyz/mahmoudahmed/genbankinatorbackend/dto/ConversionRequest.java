@@ -11,6 +11,11 @@ import lombok.Data;
 @Data
 public class ConversionRequest {
 
+    // Not conversion options: who the result belongs to, and the registered profile the
+    // other fields override (see ConversionProfileService)
+    private String clientId;
+    private String profileId;
+
     @NotBlank(message = "Organism name is required")
     private String organism;
 
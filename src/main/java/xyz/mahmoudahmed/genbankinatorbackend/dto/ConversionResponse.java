@@ -20,6 +20,9 @@ public class ConversionResponse {
     @JsonProperty("downloadUrl")
     private String downloadUrl;
 
+    @JsonProperty("statusUrl")
+    private String statusUrl;
+
     @JsonProperty("message")
     private String message;
 
@@ -0,0 +1,34 @@
+package xyz.mahmoudahmed.genbankinatorbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO representing the state of a queued conversion.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Status of a queued conversion job")
+public class JobStatusResponse {
+
+    @Schema(description = "Job UUID, also the UUID of the resulting file")
+    private String uuid;
+
+    @Schema(description = "Job status", example = "QUEUED",
+            allowableValues = {"QUEUED", "RUNNING", "COMPLETED", "FAILED"})
+    private String status;
+
+    @Schema(description = "Download URL, set once the job has completed")
+    private String downloadUrl;
+
+    @Schema(description = "Failure reason, set when the job has failed")
+    private String error;
+
+    @Schema(description = "When the job was accepted")
+    private LocalDateTime enqueuedAt;
+}
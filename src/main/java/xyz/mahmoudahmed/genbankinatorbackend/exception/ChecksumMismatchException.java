@@ -0,0 +1,14 @@
+package xyz.mahmoudahmed.genbankinatorbackend.exception;
+
+public class ChecksumMismatchException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ChecksumMismatchException(String message) {
+        super(message);
+    }
+
+    public ChecksumMismatchException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
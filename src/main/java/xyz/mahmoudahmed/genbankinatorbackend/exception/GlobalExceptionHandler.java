@@ -43,6 +43,45 @@ public class GlobalExceptionHandler {
                 request.getDescription(false));
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleServiceUnavailableException(ServiceUnavailableException ex, WebRequest request) {
+        return createErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE,
+                "Service Unavailable",
+                ex.getMessage(),
+                request.getDescription(false));
+    }
+
+    @ExceptionHandler(UploadConflictException.class)
+    public ResponseEntity<ErrorResponse> handleUploadConflictException(UploadConflictException ex, WebRequest request) {
+        return createErrorResponse(
+                HttpStatus.CONFLICT,
+                "Upload Conflict",
+                ex.getMessage(),
+                request.getDescription(false));
+    }
+
+    @ExceptionHandler(ProfilingConflictException.class)
+    public ResponseEntity<ErrorResponse> handleProfilingConflictException(ProfilingConflictException ex, WebRequest request) {
+        return createErrorResponse(
+                HttpStatus.CONFLICT,
+                "Profiling Conflict",
+                ex.getMessage(),
+                request.getDescription(false));
+    }
+
+    // 460 Checksum Mismatch is defined by the tus checksum extension, not by HttpStatus
+    @ExceptionHandler(ChecksumMismatchException.class)
+    public ResponseEntity<ErrorResponse> handleChecksumMismatchException(ChecksumMismatchException ex, WebRequest request) {
+        ErrorResponse errorResponse = new ErrorResponse(
+                "Checksum Mismatch",
+                460,
+                LocalDateTime.now(),
+                ex.getMessage(),
+                request.getDescription(false));
+        return ResponseEntity.status(460).body(errorResponse);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgumentException(IllegalArgumentException ex, WebRequest request) {
         return createErrorResponse(
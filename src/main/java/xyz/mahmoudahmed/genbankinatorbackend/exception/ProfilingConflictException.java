@@ -0,0 +1,14 @@
+package xyz.mahmoudahmed.genbankinatorbackend.exception;
+
+public class ProfilingConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ProfilingConflictException(String message) {
+        super(message);
+    }
+
+    public ProfilingConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,14 @@
+package xyz.mahmoudahmed.genbankinatorbackend.exception;
+
+public class UploadConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UploadConflictException(String message) {
+        super(message);
+    }
+
+    public UploadConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -34,6 +34,10 @@ public class FileMetadata {
     @JsonIgnore
     private String filePath;
 
+    // Cluster node that wrote the result; used to route downloads when storage is not shared
+    @JsonIgnore
+    private String ownerNode;
+
     @JsonProperty("downloadUrl")
     public String getDownloadUrl() {
         return "/api/v1/files/" + uuid;
@@ -53,14 +57,10 @@ public class FileMetadata {
         return hours + " hours";
     }
 
-    public String toJson() {
-        try {
-            return mapper.writeValueAsString(this);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Error converting metadata to JSON", e);
-        }
-    }
-
+    /**
+     * Reads the legacy JSON .meta format. Metadata is now persisted with {@link FileMetadataCodec};
+     * JSON remains the API representation only.
+     */
     public static FileMetadata fromJson(String json) {
         try {
             return mapper.readValue(json, FileMetadata.class);
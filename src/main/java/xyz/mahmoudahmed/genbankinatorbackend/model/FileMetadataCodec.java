@@ -0,0 +1,151 @@
+package xyz.mahmoudahmed.genbankinatorbackend.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Binary encoding of {@link FileMetadata} for the persisted .meta files.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   int    magic  "GBMD"
+ *   byte   version
+ *   byte   flags (reserved)
+ *   long   uuid most significant bits
+ *   long   uuid least significant bits
+ *   long   createdAt, epoch millis
+ *   long   expiresAt, epoch millis
+ *   string clientId
+ *   string originalFilename
+ *   string filePath
+ *   string ownerNode (version 2+)
+ * </pre>
+ * Strings are an int byte length (-1 for null) followed by UTF-8 bytes.
+ * Timestamps are the LocalDateTime wall-clock value read as UTC, so they round-trip exactly
+ * to millisecond precision. Files in the legacy JSON format are still decoded.
+ */
+public final class FileMetadataCodec {
+
+    private static final int MAGIC = 0x47424D44; // "GBMD"
+    private static final byte VERSION = 2;
+
+    private static final int HEADER_SIZE = 4 + 1 + 1;
+    private static final int FIXED_SIZE = HEADER_SIZE + 8 + 8 + 8 + 8;
+
+    private static final long NULL_TIMESTAMP = Long.MIN_VALUE;
+
+    private FileMetadataCodec() {
+    }
+
+    public static byte[] encode(FileMetadata metadata) {
+        UUID uuid = UUID.fromString(metadata.getUuid());
+        byte[] clientId = bytesOf(metadata.getClientId());
+        byte[] originalFilename = bytesOf(metadata.getOriginalFilename());
+        byte[] filePath = bytesOf(metadata.getFilePath());
+        byte[] ownerNode = bytesOf(metadata.getOwnerNode());
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE
+                + sizeOf(clientId) + sizeOf(originalFilename) + sizeOf(filePath) + sizeOf(ownerNode));
+
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) 0);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        buffer.putLong(toEpochMillis(metadata.getCreatedAt()));
+        buffer.putLong(toEpochMillis(metadata.getExpiresAt()));
+        putString(buffer, clientId);
+        putString(buffer, originalFilename);
+        putString(buffer, filePath);
+        putString(buffer, ownerNode);
+
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a .meta file's contents, accepting both the binary and the legacy JSON format
+     *
+     * @throws IllegalArgumentException if the content is truncated or of an unknown version
+     */
+    public static FileMetadata decode(byte[] content) {
+        if (!isBinary(content)) {
+            return FileMetadata.fromJson(new String(content, StandardCharsets.UTF_8));
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            buffer.getInt(); // magic
+            byte version = buffer.get();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("Unsupported metadata version: " + version);
+            }
+            buffer.get(); // flags
+
+            FileMetadata metadata = new FileMetadata();
+            metadata.setUuid(new UUID(buffer.getLong(), buffer.getLong()).toString());
+            metadata.setCreatedAt(fromEpochMillis(buffer.getLong()));
+            metadata.setExpiresAt(fromEpochMillis(buffer.getLong()));
+            metadata.setClientId(getString(buffer));
+            metadata.setOriginalFilename(getString(buffer));
+            metadata.setFilePath(getString(buffer));
+            if (version >= 2) {
+                metadata.setOwnerNode(getString(buffer));
+            }
+            return metadata;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated metadata record", e);
+        }
+    }
+
+    public static boolean isBinary(byte[] content) {
+        return content.length >= HEADER_SIZE && ByteBuffer.wrap(content).getInt() == MAGIC;
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Truncated metadata record");
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Wall-clock value of a LocalDateTime as UTC epoch millis, {@link Long#MIN_VALUE} for null
+     */
+    public static long toEpochMillis(LocalDateTime time) {
+        return time == null ? NULL_TIMESTAMP : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static LocalDateTime fromEpochMillis(long millis) {
+        return millis == NULL_TIMESTAMP
+                ? null
+                : LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                        (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+}
@@ -1,15 +1,20 @@
 package xyz.mahmoudahmed.genbankinatorbackend.scheduler;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.cluster.ClusterCoordinator;
 import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileDeletionPipeline;
 import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
 
 @Component
@@ -18,6 +23,12 @@ import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
 public class FileCleanupScheduler {
 
     private final FileStorageService fileStorageService;
+    private final ClusterCoordinator clusterCoordinator;
+    private final FileDeletionPipeline fileDeletionPipeline;
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${file.upload.expiry:PT24H}")
+    private Duration uploadExpiry;
 
     /**
      * Cleanup expired files every 4 hours instead of every hour
@@ -25,33 +36,39 @@ public class FileCleanupScheduler {
      */
     @Scheduled(cron = "0 0 2,6,10,14,18,22 * * *")
     public void cleanupExpiredFiles() {
+        // In cluster mode only the lease holder sweeps shared storage
+        if (!clusterCoordinator.acquireLeadership("cleanup")) {
+            log.debug("Skipping expired file cleanup, another node holds the cleanup lease");
+            return;
+        }
+
+        Observation observation = cleanupObservation("expired");
+        observation.observe(() -> sweepExpiredFiles(observation));
+    }
+
+    private void sweepExpiredFiles(Observation observation) {
         log.info("Starting cleanup of expired files");
 
+        int staleUploads = fileStorageService.cleanupStaleUploads(uploadExpiry);
+        observation.highCardinalityKeyValue("uploads.removed", Integer.toString(staleUploads));
+        if (staleUploads > 0) {
+            log.info("Removed {} abandoned uploads", staleUploads);
+        }
+
         try {
             List<FileMetadata> expiredFiles = fileStorageService.getExpiredFiles(LocalDateTime.now());
+            observation.highCardinalityKeyValue("files.expired", Integer.toString(expiredFiles.size()));
 
             if (expiredFiles.isEmpty()) {
                 log.info("No expired files found");
                 return;
             }
 
-            AtomicInteger deletedCount = new AtomicInteger(0);
-
-            // Process files in batches to avoid memory issues
-            expiredFiles.parallelStream()
-                    .forEach(file -> {
-                        try {
-                            fileStorageService.deleteFile(file.getUuid());
-                            deletedCount.incrementAndGet();
-                            log.debug("Deleted expired file: {} (UUID: {})",
-                                    file.getOriginalFilename(), file.getUuid());
-                        } catch (Exception e) {
-                            log.error("Failed to delete file {}: {}",
-                                    file.getUuid(), e.getMessage());
-                        }
-                    });
+            // Batched: one metadata update and at most one directory pass per batch
+            int deletedCount = fileDeletionPipeline.deleteAll(expiredFiles);
+            observation.highCardinalityKeyValue("files.deleted", Integer.toString(deletedCount));
 
-            log.info("Cleanup completed. Deleted {} expired files", deletedCount.get());
+            log.info("Cleanup completed. Deleted {} expired files", deletedCount);
 
         } catch (Exception e) {
             log.error("Error during file cleanup: {}", e.getMessage(), e);
@@ -64,13 +81,28 @@ public class FileCleanupScheduler {
      */
     @Scheduled(cron = "0 0 3 * * SUN")
     public void weeklyMaintenance() {
+        if (!clusterCoordinator.acquireLeadership("maintenance")) {
+            log.debug("Skipping weekly maintenance, another node holds the maintenance lease");
+            return;
+        }
+
         log.info("Starting weekly maintenance");
 
-        try {
-            int orphanedFiles = fileStorageService.cleanupOrphanedFiles();
-            log.info("Weekly maintenance completed. Cleaned {} orphaned files", orphanedFiles);
-        } catch (Exception e) {
-            log.error("Error during weekly maintenance: {}", e.getMessage(), e);
-        }
+        Observation observation = cleanupObservation("orphans");
+        observation.observe(() -> {
+            try {
+                int orphanedFiles = fileStorageService.cleanupOrphanedFiles();
+                observation.highCardinalityKeyValue("files.deleted", Integer.toString(orphanedFiles));
+                log.info("Weekly maintenance completed. Cleaned {} orphaned files", orphanedFiles);
+            } catch (Exception e) {
+                log.error("Error during weekly maintenance: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    private Observation cleanupObservation(String task) {
+        return Observation.createNotStarted("genbank.cleanup", observationRegistry)
+                .contextualName("cleanup " + task)
+                .lowCardinalityKeyValue("task", task);
     }
 }
\ No newline at end of file
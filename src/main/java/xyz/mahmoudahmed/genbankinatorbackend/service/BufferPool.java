@@ -0,0 +1,141 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Reusable direct buffers for the upload, download and bundle copy loops.
+ *
+ * A thread first takes the buffer it returned last (a one-slot per-thread cache), then one
+ * from a shared bounded pool, and only allocates when both are empty. Buffers returned to
+ * a full pool are dropped and left to the GC, so the pool never holds more than
+ * io.buffer.pool-size buffers plus one per active thread.
+ */
+@Service
+public class BufferPool {
+
+    @Value("${io.buffer.size:64KB}")
+    private DataSize bufferSize;
+
+    @Value("${io.buffer.pool-size:64}")
+    private int poolSize;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final ThreadLocal<ByteBuffer> threadCache = new ThreadLocal<>();
+    private BlockingQueue<ByteBuffer> shared;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder allocated = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.shared = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        meterRegistry.ifAvailable(registry -> {
+            FunctionCounter.builder("io.buffer.pool.acquired", acquired, LongAdder::sum)
+                    .description("Buffers handed out")
+                    .register(registry);
+            FunctionCounter.builder("io.buffer.pool.allocated", allocated, LongAdder::sum)
+                    .description("Buffers allocated because none was free")
+                    .register(registry);
+            Gauge.builder("io.buffer.pool.idle", shared, BlockingQueue::size)
+                    .description("Buffers waiting in the shared pool")
+                    .register(registry);
+        });
+    }
+
+    public Lease acquire() {
+        acquired.increment();
+        ByteBuffer buffer = threadCache.get();
+        if (buffer != null) {
+            threadCache.remove();
+        } else {
+            buffer = shared.poll();
+        }
+        if (buffer == null) {
+            allocated.increment();
+            buffer = ByteBuffer.allocateDirect((int) bufferSize.toBytes());
+        }
+        return new Lease(buffer.clear());
+    }
+
+    private void release(ByteBuffer buffer) {
+        if (threadCache.get() == null) {
+            threadCache.set(buffer);
+        } else {
+            shared.offer(buffer);
+        }
+    }
+
+    /**
+     * Copies a file to a stream through a pooled buffer
+     *
+     * @return the number of bytes copied
+     */
+    public long copy(FileChannel source, OutputStream out) throws IOException {
+        return copy(source, Channels.newChannel(out));
+    }
+
+    /**
+     * Copies until the source is exhausted
+     *
+     * @return the number of bytes copied
+     */
+    public long copy(ReadableByteChannel source, WritableByteChannel target) throws IOException {
+        long copied = 0;
+        try (Lease lease = acquire()) {
+            ByteBuffer buffer = lease.buffer();
+            while (source.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    copied += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * A buffer on loan, returned to the pool on close
+     */
+    public final class Lease implements AutoCloseable {
+        private ByteBuffer buffer;
+
+        private Lease(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            if (buffer != null) {
+                release(buffer);
+                buffer = null;
+            }
+        }
+    }
+}
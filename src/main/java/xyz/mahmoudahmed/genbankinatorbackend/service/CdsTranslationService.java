@@ -0,0 +1,328 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adds /translation qualifiers to the CDS features of a written GenBank file.
+ *
+ * With translation.engine=table conversions ask the library for untranslated CDS features
+ * and this service translates them with {@link CodonTranslator} instead. The file is read
+ * twice: once to find where each record's FEATURES and ORIGIN sections start, then once to
+ * copy it, reading each record's bases from ORIGIN, translating its CDS features (in
+ * parallel above translation.parallel-threshold features) and inserting the qualifiers.
+ * Everything outside the feature table is copied byte for byte.
+ *
+ * A CDS this service cannot translate itself (a location form {@link GenbankLocation} does
+ * not cover, a /transl_table that is not an NCBI code, an invalid /codon_start or a range past
+ * the record) makes the whole pass give up, so the caller can have the library translate
+ * the conversion instead of storing a result with a /translation missing.
+ */
+@Service
+@Slf4j
+public class CdsTranslationService {
+
+    private static final String QUALIFIER_INDENT = " ".repeat(21);
+    private static final int LINE_CONTENT = 58;
+
+    // Returned by translate() for a CDS that needs the library; compared by identity
+    private static final String UNTRANSLATABLE = new String("untranslatable");
+
+    @Value("${translation.engine:library}")
+    private String engine;
+
+    @Value("${translation.parallel-threshold:64}")
+    private int parallelThreshold;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    /**
+     * Whether CDS translation for this genetic code should be done here rather than by the library
+     */
+    public boolean handles(Integer translTable) {
+        return "table".equalsIgnoreCase(engine) && CodonTranslator.supports(translTable != null ? translTable : 1);
+    }
+
+    /**
+     * Rewrites the file in place with a /translation qualifier on every translatable CDS
+     *
+     * @param defaultTable genetic code for features without /transl_table
+     * @return false, leaving the file untouched, if a CDS has to be translated by the library
+     */
+    public boolean addTranslations(File genbank, int defaultTable, boolean includeStop) throws IOException {
+        List<RecordLayout> records = scan(genbank);
+        File output = fileStorageService.createResultTempFile();
+        try (FileChannel in = FileChannel.open(genbank.toPath(), StandardOpenOption.READ);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(output.toPath()))) {
+            long position = 0;
+            int translated = 0;
+            for (RecordLayout record : records) {
+                copy(in, position, record.features - position, out);
+                byte[] bases = readBases(in, record.origin, record.end);
+                String features = new String(read(in, record.features, record.origin), StandardCharsets.ISO_8859_1);
+                int written = writeFeatures(features, bases, defaultTable, includeStop, out);
+                if (written < 0) {
+                    log.debug("{} has a CDS that needs the library's translation", genbank.getName());
+                    output.delete();
+                    return false;
+                }
+                translated += written;
+                position = record.origin;
+            }
+            copy(in, position, in.size() - position, out);
+            log.debug("Added {} translations to {}", translated, genbank.getName());
+        } catch (IOException | RuntimeException e) {
+            output.delete();
+            throw e;
+        }
+        Files.move(output.toPath(), genbank.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * Offsets of the FEATURES line, the ORIGIN line and the end of each record
+     */
+    private record RecordLayout(long features, long origin, long end) {
+    }
+
+    private static List<RecordLayout> scan(File genbank) throws IOException {
+        List<RecordLayout> records = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(genbank.toPath()), 64 * 1024)) {
+            long offset = 0;
+            long features = -1;
+            long origin = -1;
+            StringBuilder prefix = new StringBuilder(8);
+            long lineStart = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    String start = prefix.toString();
+                    if (start.startsWith("FEATURES")) {
+                        features = lineStart;
+                    } else if (start.startsWith("ORIGIN")) {
+                        origin = lineStart;
+                    } else if (start.startsWith("//")) {
+                        if (features >= 0 && origin > features) {
+                            records.add(new RecordLayout(features, origin, offset + 1));
+                        }
+                        features = -1;
+                        origin = -1;
+                    }
+                    prefix.setLength(0);
+                    lineStart = offset + 1;
+                } else if (prefix.length() < 8) {
+                    prefix.append((char) b);
+                }
+                offset++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Writes one record's feature table with translations added
+     *
+     * @return the number of translations written, or -1 before writing anything if a CDS
+     *         cannot be translated here
+     */
+    private int writeFeatures(String table, byte[] bases, int defaultTable, boolean includeStop,
+                              OutputStream out) throws IOException {
+        // Split into the FEATURES header line and one block of lines per feature
+        String[] lines = table.split("\n", -1);
+        List<List<String>> blocks = new ArrayList<>();
+        List<String> header = new ArrayList<>();
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (i == lines.length - 1 && line.isEmpty()) {
+                break;
+            }
+            if (isFeatureKeyLine(line)) {
+                blocks.add(new ArrayList<>());
+            }
+            (blocks.isEmpty() ? header : blocks.get(blocks.size() - 1)).add(line);
+        }
+
+        String[] translations = new String[blocks.size()];
+        List<Integer> cds = new ArrayList<>();
+        for (int i = 0; i < blocks.size(); i++) {
+            String keyLine = blocks.get(i).get(0);
+            if (keyLine.substring(5, Math.min(21, keyLine.length())).trim().equals("CDS")) {
+                cds.add(i);
+            }
+        }
+        IntStream indexes = cds.stream().mapToInt(Integer::intValue);
+        if (cds.size() >= parallelThreshold) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> translations[i] = translate(blocks.get(i), bases, defaultTable, includeStop));
+        for (String translation : translations) {
+            if (translation == UNTRANSLATABLE) {
+                return -1;
+            }
+        }
+
+        int written = 0;
+        for (String line : header) {
+            writeLine(out, line);
+        }
+        for (int i = 0; i < blocks.size(); i++) {
+            List<String> block = blocks.get(i);
+            boolean skipping = false;
+            for (String line : block) {
+                if (translations[i] != null && line.startsWith(QUALIFIER_INDENT)) {
+                    String content = line.substring(21);
+                    if (content.startsWith("/")) {
+                        // Drop an existing /translation, including its continuation lines
+                        skipping = content.startsWith("/translation=");
+                    }
+                    if (skipping) {
+                        continue;
+                    }
+                }
+                writeLine(out, line);
+            }
+            if (translations[i] != null) {
+                writeQualifier(out, "/translation=\"" + translations[i] + "\"");
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * The translation of one CDS block, null when it is pseudo or translates to nothing, or
+     * {@link #UNTRANSLATABLE} when its location, genetic code or codon start is not handled here
+     */
+    private static String translate(List<String> block, byte[] bases, int defaultTable, boolean includeStop) {
+        StringBuilder location = new StringBuilder(block.get(0).length() > 21 ? block.get(0).substring(21).trim() : "");
+        int codonStart = 1;
+        int table = defaultTable;
+        boolean inLocation = true;
+        for (int i = 1; i < block.size(); i++) {
+            String content = block.get(i).trim();
+            if (content.startsWith("/")) {
+                inLocation = false;
+                if (content.equals("/pseudo") || content.startsWith("/pseudogene")) {
+                    return null;
+                }
+                if (content.startsWith("/codon_start=")) {
+                    codonStart = parseInt(content.substring(13), 0);
+                } else if (content.startsWith("/transl_table=")) {
+                    table = parseInt(content.substring(14), -1);
+                }
+            } else if (inLocation) {
+                location.append(content);
+            }
+        }
+
+        CodonTranslator translator = CodonTranslator.forTable(table);
+        GenbankLocation parsed = GenbankLocation.parse(location.toString());
+        if (translator == null || parsed == null || codonStart < 1 || codonStart > 3) {
+            return UNTRANSLATABLE;
+        }
+        for (int i = 1; i < parsed.segments().length; i += 2) {
+            if (parsed.segments()[i] > bases.length) {
+                return UNTRANSLATABLE;
+            }
+        }
+        String protein = translator.translate(bases, parsed.segments(), parsed.complement(), codonStart,
+                parsed.partialStart(), includeStop);
+        return protein.isEmpty() ? null : protein;
+    }
+
+    private static boolean isFeatureKeyLine(String line) {
+        return line.length() > 5 && line.startsWith("     ") && line.charAt(5) != ' ';
+    }
+
+    private static int parseInt(String value, int fallback) {
+        try {
+            return Integer.parseInt(value.replace("\"", "").trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static void writeQualifier(OutputStream out, String qualifier) throws IOException {
+        for (int i = 0; i < qualifier.length(); i += LINE_CONTENT) {
+            writeLine(out, QUALIFIER_INDENT + qualifier.substring(i, Math.min(qualifier.length(), i + LINE_CONTENT)));
+        }
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.ISO_8859_1));
+        out.write('\n');
+    }
+
+    private void copy(FileChannel in, long position, long length, OutputStream out) throws IOException {
+        try (BufferPool.Lease lease = bufferPool.acquire()) {
+            ByteBuffer buffer = lease.buffer();
+            var target = Channels.newChannel(out);
+            long end = position + length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = in.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            }
+        }
+    }
+
+    private static byte[] read(FileChannel in, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        while (buffer.hasRemaining() && in.read(buffer, from + buffer.position()) >= 0) {
+            // keep reading
+        }
+        return buffer.array();
+    }
+
+    /**
+     * The bases of an ORIGIN section, without positions and spaces
+     */
+    private static byte[] readBases(FileChannel in, long from, long to) throws IOException {
+        byte[] origin = read(in, from, to);
+        int start = 0;
+        while (start < origin.length && origin[start] != '\n') {
+            start++;
+        }
+        // Compact the letters to the front of the same array
+        int length = 0;
+        for (int i = start; i < origin.length; i++) {
+            byte b = origin[i];
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')) {
+                origin[length++] = b;
+            }
+        }
+        return Arrays.copyOf(origin, length);
+    }
+}
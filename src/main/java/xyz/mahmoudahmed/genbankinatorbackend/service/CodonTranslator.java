@@ -0,0 +1,211 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Translates coding sequences with one NCBI genetic code; every code NCBI defines (1-6, 9-16
+ * and 21-33) is tabulated.
+ *
+ * Bases are mapped to 2-bit codes (T=0, C=1, A=2, G=3, the order of the NCBI tables) through
+ * a 256-entry lookup, so a codon is an index into a 64-entry amino acid table. The bases of
+ * a feature are read straight from the record in feature orientation: segments of a join
+ * are walked in order and complement locations backwards with each code flipped (x ^ 2), so
+ * no spliced or reverse-complemented copy and no codon strings are made.
+ */
+public final class CodonTranslator {
+
+    private static final byte[] CODES = new byte[256];
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        CODES['T'] = 0;
+        CODES['t'] = 0;
+        CODES['U'] = 0;
+        CODES['u'] = 0;
+        CODES['C'] = 1;
+        CODES['c'] = 1;
+        CODES['A'] = 2;
+        CODES['a'] = 2;
+        CODES['G'] = 3;
+        CODES['g'] = 3;
+    }
+
+    // NCBI genetic codes: amino acids and start codons, codons ordered TTT, TTC, TTA, TTG, TCT, ...
+    private static final Map<Integer, CodonTranslator> TABLES = new HashMap<>();
+
+    static {
+        define(1, "FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "---M------**--*----M---------------M----------------------------");
+        define(2, "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIMMTTTTNNKKSS**VVVVAAAADDEEGGGG",
+                "----------**--------------------MMMM----------**---M------------");
+        define(3, "FFLLSSSSYY**CCWWTTTTPPPPHHQQRRRRIIMMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "----------**----------------------MM---------------M------------");
+        define(4, "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "--MM------**-------M------------MMMM---------------M------------");
+        define(5, "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIMMTTTTNNKKSSSSVVVVAAAADDEEGGGG",
+                "---M------**--------------------MMMM---------------M------------");
+        define(6, "FFLLSSSSYYQQCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(9, "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNNKSSSSVVVVAAAADDEEGGGG",
+                "-----------------------------------M---------------M------------");
+        define(10, "FFLLSSSSYY**CCCWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(11, "FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "---M------**--*----M------------MMMM---------------M------------");
+        define(12, "FFLLSSSSYY**CC*WLLLSPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-------------------M---------------M----------------------------");
+        define(13, "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIMMTTTTNNKKSSGGVVVVAAAADDEEGGGG",
+                "---M------------------------------MM---------------M------------");
+        define(14, "FFLLSSSSYYY*CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNNKSSSSVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(15, "FFLLSSSSYY*QCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(16, "FFLLSSSSYY*LCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(21, "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIMMTTTTNNNKSSSSVVVVAAAADDEEGGGG",
+                "-----------------------------------M---------------M------------");
+        define(22, "FFLLSS*SYY*LCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(23, "FF*LSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "--------------------------------M--M---------------M------------");
+        define(24, "FFLLSSSSYY**CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSSKVVVVAAAADDEEGGGG",
+                "---M---------------M---------------M---------------M------------");
+        define(25, "FFLLSSSSYY**CCGWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "---M-------------------------------M---------------M------------");
+        define(26, "FFLLSSSSYY**CC*WLLLAPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-------------------M---------------M----------------------------");
+        // 27, 28 and 31 read TAA/TAG/TGA as stops only at the end of a gene; like NCBI, the
+        // table gives the amino acid and a terminal stop is not told apart
+        define(27, "FFLLSSSSYYQQCCWWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(28, "FFLLSSSSYYQQCCWWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(29, "FFLLSSSSYYYYCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(30, "FFLLSSSSYYEECC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(31, "FFLLSSSSYYEECCWWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "-----------------------------------M----------------------------");
+        define(32, "FFLLSSSSYY*WCC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG",
+                "---M---------------M------------MMMM---------------M------------");
+        define(33, "FFLLSSSSYYY*CCWWLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSSKVVVVAAAADDEEGGGG",
+                "---M-------------------------------M---------------M------------");
+    }
+
+    private final int table;
+    private final byte[] aminoAcids;
+    private final boolean[] starts = new boolean[64];
+
+    private CodonTranslator(int table, String aminoAcids, String starts) {
+        this.table = table;
+        this.aminoAcids = aminoAcids.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < 64; i++) {
+            this.starts[i] = starts.charAt(i) == 'M';
+        }
+    }
+
+    private static void define(int table, String aminoAcids, String starts) {
+        TABLES.put(table, new CodonTranslator(table, aminoAcids, starts));
+    }
+
+    public static boolean supports(int table) {
+        return TABLES.containsKey(table);
+    }
+
+    /**
+     * The translator for an NCBI genetic code, or null if the code is not tabulated here
+     */
+    public static CodonTranslator forTable(int table) {
+        return TABLES.get(table);
+    }
+
+    public int table() {
+        return table;
+    }
+
+    /**
+     * Upper bound of the residues {@link #translate} writes for the given segments
+     */
+    public static int maxLength(long[] segments) {
+        long bases = 0;
+        for (int i = 0; i < segments.length; i += 2) {
+            bases += segments[i + 1] - segments[i] + 1;
+        }
+        return (int) (bases / 3);
+    }
+
+    /**
+     * Translates a feature into the given buffer.
+     *
+     * @param sequence     record bases
+     * @param segments     1-based inclusive start/end pairs in location order
+     * @param complement   whether the feature is on the reverse strand
+     * @param codonStart   1, 2 or 3 as in /codon_start
+     * @param partialStart whether the 5' end is partial, in which case the first codon is not
+     *                     treated as a start codon
+     * @param includeStop  whether to keep a terminal stop as '*'
+     * @param out          receives the residues, at least {@link #maxLength} long
+     * @return the number of residues written
+     */
+    public int translate(byte[] sequence, long[] segments, boolean complement, int codonStart,
+                         boolean partialStart, boolean includeStop, byte[] out) {
+        int skip = codonStart - 1;
+        int codon = 0;
+        int filled = 0;
+        boolean ambiguous = false;
+        int written = 0;
+
+        int pairs = segments.length / 2;
+        for (int s = 0; s < pairs; s++) {
+            int pair = complement ? pairs - 1 - s : s;
+            int first = (int) segments[2 * pair] - 1;
+            int last = (int) segments[2 * pair + 1] - 1;
+            int step = complement ? -1 : 1;
+            int position = complement ? last : first;
+            int remaining = last - first + 1;
+            for (; remaining > 0; remaining--, position += step) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                int code = CODES[sequence[position] & 0xff];
+                if (code < 0) {
+                    ambiguous = true;
+                } else {
+                    codon = (codon << 2) | (complement ? code ^ 2 : code);
+                }
+                if (++filled == 3) {
+                    if (ambiguous) {
+                        out[written] = 'X';
+                    } else if (written == 0 && !partialStart && starts[codon]) {
+                        out[written] = 'M';
+                    } else {
+                        out[written] = aminoAcids[codon];
+                    }
+                    written++;
+                    codon = 0;
+                    filled = 0;
+                    ambiguous = false;
+                }
+            }
+        }
+
+        if (!includeStop && written > 0 && out[written - 1] == '*') {
+            written--;
+        }
+        return written;
+    }
+
+    /**
+     * Convenience form of {@link #translate(byte[], long[], boolean, int, boolean, boolean, byte[])}
+     */
+    public String translate(byte[] sequence, long[] segments, boolean complement, int codonStart,
+                            boolean partialStart, boolean includeStop) {
+        byte[] out = new byte[maxLength(segments)];
+        int length = translate(sequence, segments, complement, codonStart, partialStart, includeStop, out);
+        return new String(out, 0, length, StandardCharsets.US_ASCII);
+    }
+}
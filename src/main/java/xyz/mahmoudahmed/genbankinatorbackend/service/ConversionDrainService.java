@@ -0,0 +1,115 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks in-flight conversions and drains them on shutdown.
+ * Stops before the web server's graceful shutdown phase: new conversions are refused
+ * straight away while running ones get up to conversion.drain.timeout to finish.
+ * spring.lifecycle.timeout-per-shutdown-phase must leave room for that timeout.
+ */
+@Service
+@Slf4j
+public class ConversionDrainService implements SmartLifecycle {
+
+    @Value("${conversion.drain.timeout:25s}")
+    private Duration drainTimeout;
+
+    private final Object monitor = new Object();
+
+    private int inFlight;
+    private boolean accepting;
+
+    /**
+     * Registers a conversion. Returns false once draining has started.
+     */
+    public boolean tryBegin() {
+        synchronized (monitor) {
+            if (!accepting) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+    }
+
+    public void end() {
+        synchronized (monitor) {
+            inFlight--;
+            if (inFlight == 0) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    public int getInFlightCount() {
+        synchronized (monitor) {
+            return inFlight;
+        }
+    }
+
+    @Override
+    public void start() {
+        synchronized (monitor) {
+            accepting = true;
+        }
+    }
+
+    @Override
+    public void stop() {
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+
+        synchronized (monitor) {
+            accepting = false;
+            if (inFlight > 0) {
+                log.info("Draining {} in-flight conversions (timeout {})", inFlight, drainTimeout);
+            }
+
+            try {
+                long remaining;
+                while (inFlight > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                    monitor.wait(Math.max(1, remaining / 1_000_000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (inFlight > 0) {
+                log.warn("Drain timeout reached with {} conversions still running", inFlight);
+            }
+        }
+    }
+
+    /**
+     * Refuses new conversions at once and drains on its own thread, so the conversion queue
+     * and the gRPC server in the same shutdown phase are drained alongside instead of after it
+     */
+    @Override
+    public void stop(Runnable callback) {
+        synchronized (monitor) {
+            accepting = false;
+        }
+        Thread drain = new Thread(() -> {
+            try {
+                stop();
+            } finally {
+                callback.run();
+            }
+        }, "conversion-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @Override
+    public boolean isRunning() {
+        synchronized (monitor) {
+            return accepting;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ReferenceDto;
+import xyz.mahmoudahmed.model.ConversionOptions;
+import xyz.mahmoudahmed.model.HeaderInfo;
+import xyz.mahmoudahmed.model.ReferenceInfo;
+import xyz.mahmoudahmed.model.TranslationOptions;
+
+/**
+ * Builds the library's option objects from a conversion request.
+ *
+ * The result is immutable and holds everything a conversion reads from its request, so
+ * option profiles build it once at registration and share it between conversions.
+ */
+@Service
+public class ConversionOptionsFactory {
+
+    @Autowired
+    private GffAnnotationService gffAnnotationService;
+
+    @Autowired
+    private CdsTranslationService cdsTranslationService;
+
+    @Autowired
+    private Validator validator;
+
+    /**
+     * Checks the request's constraints and annotation format
+     *
+     * @throws IllegalArgumentException listing every problem found
+     */
+    public void validate(ConversionRequest request) {
+        Set<ConstraintViolation<ConversionRequest>> violations = validator.validate(request);
+        List<String> problems = violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.toCollection(ArrayList::new));
+        String format = request.getAnnotationFormat();
+        if (format != null && !format.isBlank() && !"fasta".equalsIgnoreCase(format)
+                && !gffAnnotationService.supports(format)) {
+            problems.add("annotationFormat: unsupported format " + format);
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException("Invalid conversion options: " + String.join("; ", problems));
+        }
+    }
+
+    public PreparedOptions prepare(ConversionRequest request) {
+        return prepare(request, true);
+    }
+
+    /**
+     * The same options with CDS translation left to the library, for a result
+     * {@link CdsTranslationService} could not translate
+     */
+    public PreparedOptions withLibraryTranslation(PreparedOptions prepared) {
+        return prepare(prepared.request(), false);
+    }
+
+    private PreparedOptions prepare(ConversionRequest request, boolean allowTableTranslation) {
+        // Create reference information if provided
+        List<ReferenceInfo> references = new ArrayList<>();
+        if (request.getReferences() != null) {
+            for (int i = 0; i < request.getReferences().size(); i++) {
+                ReferenceDto ref = request.getReferences().get(i);
+                references.add(ReferenceInfo.builder()
+                        .number(i + 1)
+                        .authors(ref.getAuthors())
+                        .title(ref.getTitle())
+                        .journal(ref.getJournal())
+                        .pubStatus(ref.getPubStatus())
+                        .build());
+            }
+        }
+
+        HeaderInfo.Builder headerBuilder = HeaderInfo.builder();
+        if (request.getDefinition() != null) {
+            headerBuilder.definition(request.getDefinition());
+        }
+        if (request.getAccessionNumber() != null) {
+            headerBuilder.accessionNumber(request.getAccessionNumber());
+        }
+        if (request.getVersion() != null) {
+            headerBuilder.version(request.getVersion());
+        }
+        if (request.getKeywords() != null) {
+            headerBuilder.keywords(request.getKeywords());
+        }
+        if (request.getTaxonomy() != null) {
+            headerBuilder.taxonomy(request.getTaxonomy());
+        }
+        if (request.getDbLinks() != null) {
+            headerBuilder.dbLinks(request.getDbLinks());
+        }
+        if (!references.isEmpty()) {
+            headerBuilder.references(references);
+        }
+        if (request.getComment() != null) {
+            headerBuilder.comment(request.getComment());
+        }
+        if (request.getAssemblyData() != null) {
+            headerBuilder.assemblyData(request.getAssemblyData());
+        }
+
+        // With the table engine CDS features are translated after the library has written the file
+        boolean tableTranslation = allowTableTranslation && Boolean.TRUE.equals(request.getTranslateCDS())
+                && cdsTranslationService.handles(request.getTranslTableNumber());
+        TranslationOptions.Builder translationBuilder = TranslationOptions.builder();
+        if (request.getTranslTableNumber() != null) {
+            translationBuilder.translTableNumber(request.getTranslTableNumber());
+        }
+        if (request.getTranslateCDS() != null) {
+            translationBuilder.translateCDS(request.getTranslateCDS() && !tableTranslation);
+        }
+        if (request.getIncludeStopCodon() != null) {
+            translationBuilder.includeStopCodon(request.getIncludeStopCodon());
+        }
+
+        // GFF3/GTF annotations are converted to the FASTA annotation layout first
+        boolean gff = gffAnnotationService.supports(request.getAnnotationFormat());
+        ConversionOptions options = ConversionOptions.builder()
+                .organism(request.getOrganism())
+                .moleculeType(request.getMoleculeType())
+                .topology(request.getTopology())
+                .division(request.getDivision())
+                .annotationFormat(gff ? "fasta" : request.getAnnotationFormat())
+                .headerInfo(headerBuilder.build())
+                .translationOptions(translationBuilder.build())
+                .build();
+
+        return new PreparedOptions(request, options, gff, tableTranslation,
+                request.getTranslTableNumber() != null ? request.getTranslTableNumber() : 1,
+                Boolean.TRUE.equals(request.getIncludeStopCodon()));
+    }
+
+    /**
+     * A copy of the request whose collections cannot be changed, for keeping as a profile.
+     * The routing fields clientId and profileId are dropped.
+     */
+    public ConversionRequest freeze(ConversionRequest request) {
+        ConversionRequest frozen = merge(request, new ConversionRequest());
+        if (request.getTaxonomy() != null) {
+            frozen.setTaxonomy(Collections.unmodifiableList(new ArrayList<>(request.getTaxonomy())));
+        }
+        if (request.getDbLinks() != null) {
+            // Kept in the given order, which is the order they are written in
+            frozen.setDbLinks(Collections.unmodifiableMap(new LinkedHashMap<>(request.getDbLinks())));
+        }
+        if (request.getAssemblyData() != null) {
+            frozen.setAssemblyData(Collections.unmodifiableMap(new LinkedHashMap<>(request.getAssemblyData())));
+        }
+        if (request.getReferences() != null) {
+            List<ReferenceDto> references = new ArrayList<>();
+            for (ReferenceDto ref : request.getReferences()) {
+                ReferenceDto copy = new ReferenceDto();
+                copy.setAuthors(ref.getAuthors() != null
+                        ? Collections.unmodifiableList(new ArrayList<>(ref.getAuthors())) : null);
+                copy.setTitle(ref.getTitle());
+                copy.setJournal(ref.getJournal());
+                copy.setPubStatus(ref.getPubStatus());
+                references.add(copy);
+            }
+            frozen.setReferences(Collections.unmodifiableList(references));
+        }
+        return frozen;
+    }
+
+    /**
+     * The base request with every field set in the overrides replaced; collections are shared
+     */
+    public ConversionRequest merge(ConversionRequest base, ConversionRequest overrides) {
+        ConversionRequest merged = new ConversionRequest();
+        merged.setOrganism(pick(overrides.getOrganism(), base.getOrganism()));
+        merged.setMoleculeType(pick(overrides.getMoleculeType(), base.getMoleculeType()));
+        merged.setTopology(pick(overrides.getTopology(), base.getTopology()));
+        merged.setDivision(pick(overrides.getDivision(), base.getDivision()));
+        merged.setAnnotationFormat(pick(overrides.getAnnotationFormat(), base.getAnnotationFormat()));
+        merged.setDefinition(pick(overrides.getDefinition(), base.getDefinition()));
+        merged.setAccessionNumber(pick(overrides.getAccessionNumber(), base.getAccessionNumber()));
+        merged.setVersion(pick(overrides.getVersion(), base.getVersion()));
+        merged.setKeywords(pick(overrides.getKeywords(), base.getKeywords()));
+        merged.setTaxonomy(pick(overrides.getTaxonomy(), base.getTaxonomy()));
+        merged.setDbLinks(pick(overrides.getDbLinks(), base.getDbLinks()));
+        merged.setReferences(pick(overrides.getReferences(), base.getReferences()));
+        merged.setComment(pick(overrides.getComment(), base.getComment()));
+        merged.setAssemblyData(pick(overrides.getAssemblyData(), base.getAssemblyData()));
+        merged.setTranslTableNumber(pick(overrides.getTranslTableNumber(), base.getTranslTableNumber()));
+        merged.setTranslateCDS(pick(overrides.getTranslateCDS(), base.getTranslateCDS()));
+        merged.setIncludeStopCodon(pick(overrides.getIncludeStopCodon(), base.getIncludeStopCodon()));
+        return merged;
+    }
+
+    private static <T> T pick(T override, T base) {
+        return override != null ? override : base;
+    }
+
+    /**
+     * Library options and the settings the service applies around the library call
+     *
+     * @param request          the request the options were built from
+     * @param gff              whether the annotation is GFF3/GTF and converted to FASTA annotations first
+     * @param tableTranslation whether CDS features are translated by {@link CdsTranslationService}
+     */
+    public record PreparedOptions(ConversionRequest request, ConversionOptions options, boolean gff,
+                                  boolean tableTranslation, int translTable, boolean includeStopCodon) {
+
+        public String annotationFormat() {
+            return request.getAnnotationFormat();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileNotFoundException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileStorageException;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionOptionsFactory.PreparedOptions;
+
+/**
+ * Named conversion option profiles.
+ *
+ * A profile is validated once when it is registered and kept with its library options
+ * already built, so a conversion naming it with profileId neither sends nor parses the
+ * header data again. Fields set next to profileId override the profile's for that
+ * conversion only; the options are then rebuilt for it. Profiles are saved to
+ * profiles.json in the storage directory and loaded at startup. In cluster mode other
+ * nodes write the same file. Each save replaces it with a new file carrying the next
+ * version number. Lookups reload it when its modification time, size or file key differ
+ * from the loaded one. Changes always read it under the lock before saving, so a save
+ * never drops another node's write, even where timestamps are coarse (NFS).
+ */
+@Service
+@Slf4j
+public class ConversionProfileService {
+
+    private static final String PROFILES_FILE = "profiles.json";
+    private static final Pattern PROFILE_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+    private static final TypeReference<List<ConversionProfile>> PROFILE_LIST = new TypeReference<>() {
+    };
+
+    @Value("${conversion.profiles.max-count:1000}")
+    private int maxCount;
+
+    @Autowired
+    private ConversionOptionsFactory conversionOptionsFactory;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final Map<String, Registered> profiles = new ConcurrentHashMap<>();
+
+    private Path profilesFile;
+    private volatile FileSignature loadedSignature;
+    private long loadedVersion = -1;
+
+    private Counter prebuilt;
+    private Counter rebuilt;
+
+    @PostConstruct
+    public void init() {
+        this.profilesFile = fileStorageService.getStoragePath().resolve(PROFILES_FILE);
+        load(false);
+        meterRegistry.ifAvailable(registry -> {
+            prebuilt = Counter.builder("conversion.profiles.requests")
+                    .tag("options", "prebuilt")
+                    .description("Conversions using a profile's options as registered")
+                    .register(registry);
+            rebuilt = Counter.builder("conversion.profiles.requests")
+                    .tag("options", "rebuilt")
+                    .description("Conversions overriding fields of a profile")
+                    .register(registry);
+            Gauge.builder("conversion.profiles.count", profiles, Map::size)
+                    .description("Registered conversion option profiles")
+                    .register(registry);
+        });
+    }
+
+    /**
+     * Registers or replaces a profile
+     *
+     * @return true if the profile is new
+     * @throws IllegalArgumentException if the id or the options are invalid, or the profile limit is reached
+     */
+    public synchronized boolean register(String profileId, ConversionRequest request) {
+        if (!PROFILE_ID.matcher(profileId).matches()) {
+            throw new IllegalArgumentException("Profile ids are 1 to 64 letters, digits, '.', '_' or '-'");
+        }
+        // The save below must not drop profiles other nodes have written since
+        load(true);
+        if (!profiles.containsKey(profileId) && profiles.size() >= maxCount) {
+            throw new IllegalArgumentException("At most " + maxCount + " profiles can be registered");
+        }
+        ConversionRequest frozen = conversionOptionsFactory.freeze(request);
+        conversionOptionsFactory.validate(frozen);
+
+        ConversionProfile profile = new ConversionProfile(profileId, frozen, LocalDateTime.now());
+        boolean created = profiles.put(profileId, new Registered(profile,
+                conversionOptionsFactory.prepare(frozen))) == null;
+        save();
+        log.info("{} conversion profile {}", created ? "Registered" : "Replaced", profileId);
+        return created;
+    }
+
+    public ConversionProfile getProfile(String profileId) {
+        Registered registered = find(profileId);
+        if (registered == null) {
+            throw new FileNotFoundException("Profile not found: " + profileId);
+        }
+        return registered.profile();
+    }
+
+    public List<ConversionProfile> getProfiles() {
+        reloadIfChanged();
+        return sortedProfiles();
+    }
+
+    public synchronized void delete(String profileId) {
+        load(true);
+        if (profiles.remove(profileId) == null) {
+            throw new FileNotFoundException("Profile not found: " + profileId);
+        }
+        save();
+    }
+
+    private List<ConversionProfile> sortedProfiles() {
+        return profiles.values().stream()
+                .map(Registered::profile)
+                .sorted(Comparator.comparing(ConversionProfile::id))
+                .toList();
+    }
+
+    /**
+     * Options for a conversion request: the profile's prepared options when the request
+     * names a profile and sets no other option, otherwise options built for the request
+     *
+     * @throws IllegalArgumentException if the profile is unknown or the options are invalid
+     */
+    public PreparedOptions resolve(ConversionRequest request) {
+        if (request.getProfileId() == null) {
+            return conversionOptionsFactory.prepare(request);
+        }
+        Registered registered = find(request.getProfileId());
+        if (registered == null) {
+            throw new IllegalArgumentException("Unknown profile: " + request.getProfileId());
+        }
+
+        ConversionRequest base = registered.profile().request();
+        ConversionRequest merged = conversionOptionsFactory.merge(base, request);
+        // Unset fields take the profile's values, collections included, so this is cheap
+        if (merged.equals(base)) {
+            increment(prebuilt);
+            return registered.options();
+        }
+        conversionOptionsFactory.validate(merged);
+        increment(rebuilt);
+        return conversionOptionsFactory.prepare(merged);
+    }
+
+    private Registered find(String profileId) {
+        // Another node may have registered, replaced or deleted it
+        reloadIfChanged();
+        return profiles.get(profileId);
+    }
+
+    private static void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Loads the profiles file when another node has written it since. The check is a stat
+     * and takes no lock, so lookups only contend while a changed file is being loaded.
+     */
+    private void reloadIfChanged() {
+        try {
+            if (FileSignature.of(profilesFile).equals(loadedSignature)) {
+                return;
+            }
+        } catch (IOException e) {
+            return;
+        }
+        load(false);
+    }
+
+    /**
+     * @param force read the file even if its attributes look unchanged, as before a save
+     */
+    private synchronized void load(boolean force) {
+        FileSignature signature;
+        long version;
+        List<ConversionProfile> saved;
+        try {
+            signature = FileSignature.of(profilesFile);
+            // Loaded by a concurrent caller
+            if (!force && signature.equals(loadedSignature)) {
+                return;
+            }
+            JsonNode root = objectMapper.readTree(profilesFile.toFile());
+            // Files written before versions were added hold just the list
+            version = root.path("version").asLong(0);
+            if (version == loadedVersion) {
+                loadedSignature = signature;
+                return;
+            }
+            saved = objectMapper.convertValue(root.isArray() ? root : root.path("profiles"), PROFILE_LIST);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not read conversion profiles from {}: {}", profilesFile, e.getMessage());
+            return;
+        }
+
+        Map<String, Registered> loaded = new HashMap<>();
+        for (ConversionProfile profile : saved) {
+            try {
+                ConversionRequest frozen = conversionOptionsFactory.freeze(profile.request());
+                conversionOptionsFactory.validate(frozen);
+                loaded.put(profile.id(), new Registered(
+                        new ConversionProfile(profile.id(), frozen, profile.registeredAt()),
+                        conversionOptionsFactory.prepare(frozen)));
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping conversion profile {}: {}", profile.id(), e.getMessage());
+            }
+        }
+        // Replaced in place rather than cleared first, so concurrent lookups never see an empty map
+        profiles.keySet().retainAll(loaded.keySet());
+        profiles.putAll(loaded);
+        loadedVersion = version;
+        loadedSignature = signature;
+        log.info("Loaded version {} of the conversion profiles ({} profiles)", version, profiles.size());
+    }
+
+    private void save() {
+        long version = Math.max(loadedVersion, 0) + 1;
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("version", version);
+        root.set("profiles", objectMapper.valueToTree(sortedProfiles()));
+        try {
+            Path temp = Files.createTempFile(profilesFile.getParent(), PROFILES_FILE, ".tmp");
+            try {
+                objectMapper.writeValue(temp.toFile(), root);
+                // Taken before the rename, which keeps them: afterwards the file may already be another node's
+                FileSignature signature = FileSignature.of(temp);
+                Files.move(temp, profilesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                loadedVersion = version;
+                loadedSignature = signature;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Could not save conversion profiles", e);
+        }
+    }
+
+    /**
+     * A registered profile as listed and saved
+     */
+    public record ConversionProfile(String id, ConversionRequest request, LocalDateTime registeredAt) {
+    }
+
+    private record Registered(ConversionProfile profile, PreparedOptions options) {
+    }
+
+    /**
+     * What a stat tells about the profiles file. Every save is a new file, so the file key
+     * changes even when the modification time is too coarse to.
+     */
+    private record FileSignature(FileTime modified, long size, Object fileKey) {
+
+        static FileSignature of(Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileSignature(attributes.lastModifiedTime(), attributes.size(), attributes.fileKey());
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileStorageException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionOptionsFactory.PreparedOptions;
+
+/**
+ * File-backed work queue in front of the converter (conversion.queue.enabled=true).
+ *
+ * Uploads are stored once under storage/queue and an ENQUEUE record is appended to
+ * journal.log and forced to disk before the job is acknowledged. A fixed pool of workers,
+ * one per CPU by default, drains the queue; a DONE record is appended when a job finishes.
+ * On startup every ENQUEUE without a DONE is replayed. The journal is rewritten with only
+ * the pending jobs at startup and truncated whenever the queue runs empty.
+ *
+ * A job keeps the UUID it was acknowledged with, so its result is published under the
+ * download URL handed out at enqueue time.
+ */
+@Service
+@Slf4j
+@RegisterReflectionForBinding(ConversionQueue.JournalEntry.class)
+public class ConversionQueue implements SmartLifecycle {
+
+    private static final String JOURNAL_FILE = "journal.log";
+
+    // Failed jobs remembered for status queries
+    private static final int MAX_FAILED_JOBS = 1000;
+
+    @Value("${conversion.queue.enabled:false}")
+    private boolean enabled;
+
+    @Value("${conversion.queue.workers:0}")
+    private int configuredWorkers;
+
+    @Value("${conversion.drain.timeout:25s}")
+    private Duration drainTimeout;
+
+    @Autowired
+    private GenbankService genbankService;
+
+    @Autowired
+    private ConversionOptionsFactory conversionOptionsFactory;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ConversionDrainService conversionDrainService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final BlockingQueue<QueuedJob> pending = new LinkedBlockingQueue<>();
+
+    // Jobs that are queued or running, by uuid
+    private final ConcurrentHashMap<String, JobState> jobs = new ConcurrentHashMap<>();
+
+    private final Map<String, String> failedJobs = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_FAILED_JOBS;
+                }
+            });
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    // Guards journal appends and truncation; separate from the lifecycle monitor so
+    // stop() can wait for workers that are still appending
+    private final Object journalLock = new Object();
+
+    private FileChannel journal;
+
+    private volatile boolean running;
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Persists the uploads and the job, then returns the UUID the result will be stored under.
+     * The job is durable once this returns.
+     */
+    public String enqueue(PreparedOptions options,
+                          MultipartFile sequenceFile,
+                          MultipartFile annotationFile,
+                          String clientId) {
+        return enqueue(options,
+                () -> fileStorageService.storeQueuedFile(sequenceFile),
+                () -> fileStorageService.storeQueuedFile(annotationFile),
+                sequenceFile.getOriginalFilename(), clientId);
+    }
+
+    /**
+     * Queues a conversion of inputs received through the resumable upload API
+     */
+    public String enqueueUploads(PreparedOptions options,
+                                 String sequenceUploadId,
+                                 String annotationUploadId,
+                                 String clientId) {
+        return enqueue(options,
+                () -> fileStorageService.promoteUpload(sequenceUploadId, true),
+                () -> fileStorageService.promoteUpload(annotationUploadId, true),
+                fileStorageService.getUploadStatus(sequenceUploadId).filename(), clientId);
+    }
+
+    private String enqueue(PreparedOptions options,
+                           Supplier<String> sequenceInput,
+                           Supplier<String> annotationInput,
+                           String originalFilename,
+                           String clientId) {
+        if (!running) {
+            throw new ServiceUnavailableException("Conversion queue is not accepting jobs");
+        }
+
+        QueuedJob job = new QueuedJob();
+        job.setUuid(UUID.randomUUID().toString());
+        job.setClientId(clientId);
+        job.setOriginalFilename(originalFilename);
+        job.setRequest(options.request());
+        job.setOptions(options);
+        job.setEnqueuedAt(LocalDateTime.now());
+
+        // Registered before the append so an idle compaction cannot truncate the new record
+        jobs.put(job.getUuid(), new JobState(job, Status.QUEUED));
+        try {
+            job.setSequencePath(sequenceInput.get());
+            job.setAnnotationPath(annotationInput.get());
+            append(JournalEntry.enqueue(job), true);
+        } catch (IOException | RuntimeException e) {
+            jobs.remove(job.getUuid());
+            deleteInputs(job);
+            throw new FileStorageException("Could not enqueue conversion", e);
+        }
+
+        pending.add(job);
+        log.debug("Queued conversion {} ({} pending)", job.getUuid(), pending.size());
+        return job.getUuid();
+    }
+
+    /**
+     * Status of a queued or running job, FAILED for a recently failed one, null otherwise
+     */
+    public Status getStatus(String uuid) {
+        JobState state = jobs.get(uuid);
+        if (state != null) {
+            return state.status;
+        }
+        return failedJobs.containsKey(uuid) ? Status.FAILED : null;
+    }
+
+    public String getFailureReason(String uuid) {
+        return failedJobs.get(uuid);
+    }
+
+    public LocalDateTime getEnqueuedAt(String uuid) {
+        JobState state = jobs.get(uuid);
+        return state != null ? state.job.getEnqueuedAt() : null;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+
+        // Anything left from a previous start in this JVM is replayed from the journal
+        pending.clear();
+        jobs.clear();
+
+        try {
+            Path journalPath = fileStorageService.getQueuePath().resolve(JOURNAL_FILE);
+            List<QueuedJob> replayed = replay(journalPath);
+
+            // Compact into a new file and swap it in, so a crash here keeps the old journal
+            Path compacted = fileStorageService.getQueuePath().resolve(JOURNAL_FILE + ".tmp");
+            this.journal = FileChannel.open(compacted,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            for (QueuedJob job : replayed) {
+                append(JournalEntry.enqueue(job), false);
+                jobs.put(job.getUuid(), new JobState(job, Status.QUEUED));
+                pending.add(job);
+            }
+            journal.force(false);
+            Files.move(compacted, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            if (!replayed.isEmpty()) {
+                log.info("Replayed {} pending conversions from the queue journal", replayed.size());
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Could not open conversion queue journal", e);
+        }
+
+        int workerCount = configuredWorkers > 0 ? configuredWorkers : Runtime.getRuntime().availableProcessors();
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "conversion-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Conversion queue started with {} workers", workerCount);
+    }
+
+    /**
+     * Stops taking jobs and waits for running ones. Jobs still queued stay in the journal
+     * and are picked up on the next start.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        drain();
+    }
+
+    /**
+     * Stops taking jobs at once and waits for running ones on another thread, alongside the
+     * other beans of the shutdown phase
+     */
+    @Override
+    public synchronized void stop(Runnable callback) {
+        if (!running) {
+            callback.run();
+            return;
+        }
+        running = false;
+        Thread drain = new Thread(() -> {
+            try {
+                drain();
+            } finally {
+                callback.run();
+            }
+        }, "conversion-queue-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    // Workers never take this monitor, so holding it while joining them cannot deadlock
+    private synchronized void drain() {
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        for (Thread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+
+        if (!pending.isEmpty()) {
+            log.info("Conversion queue stopped with {} jobs pending", pending.size());
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Could not close queue journal: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void work() {
+        while (running) {
+            QueuedJob job;
+            try {
+                job = pending.poll(500, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (job == null) {
+                continue;
+            }
+
+            // Draining - leave the job in the journal for the next start
+            if (!conversionDrainService.tryBegin()) {
+                return;
+            }
+            try {
+                process(job);
+            } finally {
+                conversionDrainService.end();
+            }
+        }
+    }
+
+    private void process(QueuedJob job) {
+        String uuid = job.getUuid();
+        jobs.get(uuid).status = Status.RUNNING;
+
+        String error = null;
+        try {
+            // Already published before a crash lost the DONE record
+            if (genbankService.getFileMetadata(uuid) == null) {
+                // Jobs replayed from the journal have only the request
+                PreparedOptions options = job.getOptions() != null
+                        ? job.getOptions() : conversionOptionsFactory.prepare(job.getRequest());
+                genbankService.convertStoredFiles(options, job.getSequencePath(),
+                        job.getAnnotationPath(), job.getOriginalFilename(), job.getClientId(), uuid);
+            }
+        } catch (ServiceUnavailableException e) {
+            // No memory budget in time - the job is still good, put it back at the end
+            log.debug("Requeueing conversion {}: {}", uuid, e.getMessage());
+            jobs.get(uuid).status = Status.QUEUED;
+            pending.add(job);
+            return;
+        } catch (Exception e) {
+            log.error("Queued conversion {} failed", uuid, e);
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+
+        if (error != null) {
+            failedJobs.put(uuid, error);
+        }
+        try {
+            append(JournalEntry.done(uuid, error), false);
+        } catch (IOException e) {
+            log.warn("Could not record completion of {}: {}", uuid, e.getMessage());
+        }
+        jobs.remove(uuid);
+        deleteInputs(job);
+
+        compactIfIdle();
+    }
+
+    /**
+     * Reads the journal and returns the jobs with no DONE record, in enqueue order
+     */
+    private List<QueuedJob> replay(Path journalPath) throws IOException {
+        if (!Files.exists(journalPath)) {
+            return List.of();
+        }
+
+        Map<String, QueuedJob> outstanding = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JournalEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, JournalEntry.class);
+                } catch (IOException e) {
+                    // A torn final line from a crash mid-append; it was never acknowledged
+                    log.warn("Skipping unreadable queue journal entry");
+                    continue;
+                }
+
+                if (JournalEntry.ENQUEUE.equals(entry.getType())) {
+                    outstanding.put(entry.getJob().getUuid(), entry.getJob());
+                } else if (JournalEntry.DONE.equals(entry.getType())) {
+                    outstanding.remove(entry.getUuid());
+                    if (entry.getError() != null) {
+                        failedJobs.put(entry.getUuid(), entry.getError());
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(outstanding.values());
+    }
+
+    private void append(JournalEntry entry, boolean force) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        synchronized (journalLock) {
+            long position = journal.size();
+            while (buffer.hasRemaining()) {
+                position += journal.write(buffer, position);
+            }
+            if (force) {
+                journal.force(false);
+            }
+        }
+    }
+
+    /**
+     * Truncates the journal once nothing is queued or running, so it never grows unbounded
+     */
+    private void compactIfIdle() {
+        synchronized (journalLock) {
+            if (!jobs.isEmpty() || !pending.isEmpty()) {
+                return;
+            }
+            try {
+                journal.truncate(0);
+                journal.force(false);
+            } catch (IOException e) {
+                log.warn("Could not compact queue journal: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void deleteInputs(QueuedJob job) {
+        fileStorageService.deleteStoredFile(job.getSequencePath());
+        fileStorageService.deleteStoredFile(job.getAnnotationPath());
+    }
+
+    private static final class JobState {
+        private final QueuedJob job;
+        private volatile Status status;
+
+        private JobState(QueuedJob job, Status status) {
+            this.job = job;
+            this.status = status;
+        }
+    }
+
+    /**
+     * A conversion waiting in the queue, as written to the journal
+     */
+    @Data
+    @NoArgsConstructor
+    public static class QueuedJob {
+        private String uuid;
+        private String clientId;
+        private String originalFilename;
+        private String sequencePath;
+        private String annotationPath;
+        private ConversionRequest request;
+        private LocalDateTime enqueuedAt;
+
+        // Built when the job was queued, or from the request after a restart
+        @JsonIgnore
+        private PreparedOptions options;
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class JournalEntry {
+        static final String ENQUEUE = "ENQUEUE";
+        static final String DONE = "DONE";
+
+        private String type;
+        private String uuid;
+        private QueuedJob job;
+        private String error;
+
+        static JournalEntry enqueue(QueuedJob job) {
+            JournalEntry entry = new JournalEntry();
+            entry.setType(ENQUEUE);
+            entry.setUuid(job.getUuid());
+            entry.setJob(job);
+            return entry;
+        }
+
+        static JournalEntry done(String uuid, String error) {
+            JournalEntry entry = new JournalEntry();
+            entry.setType(DONE);
+            entry.setUuid(uuid);
+            entry.setError(error);
+            return entry;
+        }
+    }
+}
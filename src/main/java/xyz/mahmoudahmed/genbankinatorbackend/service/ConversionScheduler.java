@@ -0,0 +1,341 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
+
+/**
+ * Admission of conversions to a fixed number of running slots, smallest expected job first.
+ *
+ * A conversion's cost is its input bytes plus conversion.scheduler.record-cost per sequence
+ * record, and puts it in the small, medium or large lane. When a slot frees up the waiting
+ * conversion with the lowest score goes next; the score is the cost less
+ * conversion.scheduler.aging per second waited, so a large job overtakes newer small ones
+ * once it has waited long enough. Large conversions may hold at most
+ * conversion.scheduler.large-share of the slots, leaving the rest to smaller ones. With
+ * conversion.scheduler.fair-share each conversion a client already has running adds the
+ * large-lane threshold to the scores of that client's waiting conversions.
+ *
+ * Admission also takes the conversion's reservation from the {@link MemoryBudgetService}.
+ * A conversion whose reservation does not fit is passed over for ones that do, until it has
+ * aged to a score of zero; from then on nothing scoring worse is admitted, so the budget
+ * drains for it.
+ */
+@Service
+@Slf4j
+public class ConversionScheduler {
+
+    public enum Lane {
+        SMALL, MEDIUM, LARGE
+    }
+
+    @Value("${conversion.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${conversion.scheduler.concurrency:0}")
+    private int configuredConcurrency;
+
+    @Value("${conversion.scheduler.small-lane-limit:1MB}")
+    private DataSize smallLaneLimit;
+
+    @Value("${conversion.scheduler.large-lane-limit:8MB}")
+    private DataSize largeLaneLimit;
+
+    @Value("${conversion.scheduler.large-share:0.5}")
+    private double largeShare;
+
+    @Value("${conversion.scheduler.record-cost:16KB}")
+    private DataSize recordCost;
+
+    @Value("${conversion.scheduler.aging:1MB}")
+    private DataSize agingPerSecond;
+
+    @Value("${conversion.scheduler.fair-share:false}")
+    private boolean fairShare;
+
+    @Value("${conversion.scheduler.wait-timeout:120s}")
+    private Duration waitTimeout;
+
+    @Autowired
+    private MemoryBudgetService memoryBudgetService;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private LongSupplier clock = System::nanoTime;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private final List<Waiter> waiters = new ArrayList<>();
+    private final Map<String, Integer> runningByClient = new HashMap<>();
+    private final Map<Lane, Timer> queueTimers = new EnumMap<>(Lane.class);
+
+    private int concurrency;
+    private int largeSlots;
+    private int running;
+    private int runningLarge;
+    private long timeouts;
+
+    @PostConstruct
+    public void init() {
+        this.concurrency = configuredConcurrency > 0
+                ? configuredConcurrency
+                : Runtime.getRuntime().availableProcessors();
+        this.largeSlots = Math.max(1, Math.min(concurrency, (int) Math.floor(concurrency * largeShare)));
+        meterRegistry.ifAvailable(registry -> {
+            for (Lane lane : Lane.values()) {
+                String tag = lane.name().toLowerCase();
+                queueTimers.put(lane, Timer.builder("conversion.scheduler.queue")
+                        .tag("lane", tag)
+                        .description("Time conversions waited for a slot")
+                        .publishPercentileHistogram()
+                        .register(registry));
+                Gauge.builder("conversion.scheduler.waiting", this, scheduler -> scheduler.waiting(lane))
+                        .tag("lane", tag)
+                        .description("Conversions waiting for a slot")
+                        .register(registry);
+            }
+            Gauge.builder("conversion.scheduler.running", this, scheduler -> scheduler.running)
+                    .description("Conversions holding a slot")
+                    .register(registry);
+        });
+        if (enabled) {
+            log.info("Conversion scheduler: {} slots, at most {} for large conversions{}",
+                    concurrency, largeSlots, fairShare ? ", fair share between clients" : "");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Lane laneOf(long cost) {
+        if (cost < smallLaneLimit.toBytes()) {
+            return Lane.SMALL;
+        }
+        return cost < largeLaneLimit.toBytes() ? Lane.MEDIUM : Lane.LARGE;
+    }
+
+    /**
+     * Waits for a slot and the memory reservation for a conversion of the given inputs
+     *
+     * @param records sequence records in the input, or a negative value if unknown
+     * @throws ServiceUnavailableException if no slot frees up within conversion.scheduler.wait-timeout
+     */
+    public Permit admit(long inputBytes, long records, String clientId) {
+        if (!enabled) {
+            return new Permit(null, null, null);
+        }
+        long cost = inputBytes + Math.max(records, 0) * recordCost.toBytes();
+        Waiter self = new Waiter(cost, laneOf(cost), clientId != null ? clientId : "",
+                memoryBudgetService.estimateForConversion(inputBytes), clock.getAsLong());
+        long remainingNanos = waitTimeout.toNanos();
+        MemoryBudgetService.Reservation reservation = null;
+
+        lock.lock();
+        try {
+            waiters.add(self);
+            try {
+                while (next() != self
+                        || (reservation = memoryBudgetService.tryAcquire(self.memory, this::signalReleased)) == null) {
+                    if (remainingNanos <= 0) {
+                        timeouts++;
+                        throw new ServiceUnavailableException("No conversion slot available, retry later");
+                    }
+                    // Scores change as waiters age, so re-evaluate at least once a second
+                    long wait = Math.min(remainingNanos, TimeUnit.SECONDS.toNanos(1));
+                    remainingNanos -= wait - released.awaitNanos(wait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException("Interrupted while waiting for a conversion slot", e);
+            } finally {
+                waiters.remove(self);
+                released.signalAll();
+            }
+
+            running++;
+            if (self.lane == Lane.LARGE) {
+                runningLarge++;
+            }
+            runningByClient.merge(self.clientId, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+
+        Timer timer = queueTimers.get(self.lane);
+        if (timer != null) {
+            timer.record(clock.getAsLong() - self.enqueued, TimeUnit.NANOSECONDS);
+        }
+        return new Permit(self.lane, self.clientId, reservation);
+    }
+
+    /**
+     * The waiter to admit next, or null when no slot is free for any of them. Called with the lock held.
+     */
+    private Waiter next() {
+        if (running >= concurrency) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        Waiter best = null;
+        double bestScore = Double.MAX_VALUE;
+        double blockedScore = Double.MAX_VALUE;
+        for (Waiter waiter : waiters) {
+            if (waiter.lane == Lane.LARGE && runningLarge >= largeSlots) {
+                continue;
+            }
+            double score = score(waiter, now);
+            if (!memoryBudgetService.fits(waiter.memory)) {
+                if (score <= 0) {
+                    blockedScore = Math.min(blockedScore, score);
+                }
+                continue;
+            }
+            if (score < bestScore) {
+                best = waiter;
+                bestScore = score;
+            }
+        }
+        // An aged conversion waiting for memory holds back everything that scores worse
+        return blockedScore < bestScore ? null : best;
+    }
+
+    private double score(Waiter waiter, long now) {
+        double waitedSeconds = (now - waiter.enqueued) / 1e9;
+        double score = waiter.cost - waitedSeconds * agingPerSecond.toBytes();
+        if (fairShare) {
+            score += (double) runningByClient.getOrDefault(waiter.clientId, 0) * largeLaneLimit.toBytes();
+        }
+        return score;
+    }
+
+    private void signalReleased() {
+        lock.lock();
+        try {
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Lane lane, String clientId) {
+        lock.lock();
+        try {
+            running--;
+            if (lane == Lane.LARGE) {
+                runningLarge--;
+            }
+            runningByClient.computeIfPresent(clientId, (client, count) -> count > 1 ? count - 1 : null);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int waiting(Lane lane) {
+        lock.lock();
+        try {
+            return (int) waiters.stream().filter(waiter -> waiter.lane == lane).count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SchedulerStats getStats() {
+        lock.lock();
+        try {
+            Map<Lane, Integer> waiting = new EnumMap<>(Lane.class);
+            for (Lane lane : Lane.values()) {
+                waiting.put(lane, 0);
+            }
+            waiters.forEach(waiter -> waiting.merge(waiter.lane, 1, Integer::sum));
+            return new SchedulerStats(enabled, concurrency, largeSlots, running, runningLarge, waiting,
+                    runningByClient.size(), timeouts);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A running slot and its memory reservation, both returned on close
+     */
+    public final class Permit implements AutoCloseable {
+        private final Lane lane;
+        private final String clientId;
+        private final MemoryBudgetService.Reservation reservation;
+        private boolean closed;
+
+        private Permit(Lane lane, String clientId, MemoryBudgetService.Reservation reservation) {
+            this.lane = lane;
+            this.clientId = clientId;
+            this.reservation = reservation;
+        }
+
+        /**
+         * The memory reserved at admission, which may be returned before the slot; null when
+         * the scheduler is disabled
+         */
+        public MemoryBudgetService.Reservation getReservation() {
+            return reservation;
+        }
+
+        /**
+         * The lane the conversion was admitted through, null when the scheduler is disabled
+         */
+        public Lane getLane() {
+            return lane;
+        }
+
+        @Override
+        public void close() {
+            if (!closed && lane != null) {
+                closed = true;
+                reservation.close();
+                release(lane, clientId);
+            }
+        }
+    }
+
+    // Compared by identity, so equal-cost waiters stay distinct
+    private static final class Waiter {
+        private final long cost;
+        private final Lane lane;
+        private final String clientId;
+        private final long memory;
+        private final long enqueued;
+
+        private Waiter(long cost, Lane lane, String clientId, long memory, long enqueued) {
+            this.cost = cost;
+            this.lane = lane;
+            this.clientId = clientId;
+            this.memory = memory;
+            this.enqueued = enqueued;
+        }
+    }
+
+    public record SchedulerStats(boolean enabled, int slots, int largeSlots, int running, int runningLarge,
+                                 Map<Lane, Integer> waiting, int activeClients, long timeouts) {
+    }
+}
@@ -0,0 +1,465 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileStorageException;
+
+/**
+ * Protein FASTA, GFF3 and JSON renderings of stored GenBank results.
+ *
+ * A variant is rendered on first request by streaming the result through
+ * {@link GenbankFeatureReader} into a file in the derived cache directory, and is then served
+ * from there. Concurrent requests for the same variant share one rendering. The cache is
+ * bounded by file.derived.cache-size and evicts the least recently served variants; variants
+ * are also deleted together with their result, so none outlives its parent.
+ */
+@Service
+@Slf4j
+public class DerivedFormatService {
+
+    public enum Format {
+        FAA("faa", "text/x-fasta"),
+        GFF3("gff3", "text/x-gff3"),
+        JSON("json", "application/json");
+
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String extension, String mediaType) {
+            this.extension = extension;
+            this.mediaType = MediaType.parseMediaType(mediaType);
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * The format for a format request parameter
+         *
+         * @throws IllegalArgumentException for unknown formats
+         */
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported format: " + name + " (expected faa, gff3 or json)");
+        }
+    }
+
+    private static final String GFF_SOURCE = "GenBankinator";
+
+    // Qualifiers already carried by other GFF3 columns or too bulky for an attribute
+    private static final Set<String> GFF_SKIPPED_QUALIFIERS = Set.of("translation", "codon_start");
+
+    @Value("${file.derived.cache-size:1GB}")
+    private DataSize cacheSize;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final ConcurrentHashMap<Path, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.ifAvailable(registry -> {
+            FunctionCounter.builder("derived.cache.requests", hits, LongAdder::sum)
+                    .tag("result", "hit")
+                    .description("Derived format requests served from the cache")
+                    .register(registry);
+            FunctionCounter.builder("derived.cache.requests", misses, LongAdder::sum)
+                    .tag("result", "miss")
+                    .description("Derived format requests that rendered the variant")
+                    .register(registry);
+            FunctionCounter.builder("derived.cache.evictions", evictions, AtomicLong::get)
+                    .description("Derived variants evicted to stay within the cache size")
+                    .register(registry);
+            Gauge.builder("derived.cache.size", this, DerivedFormatService::cachedBytes)
+                    .baseUnit("bytes")
+                    .description("Bytes held by the derived format cache")
+                    .register(registry);
+        });
+    }
+
+    /**
+     * The rendered variant of a stored result, rendering it if it is not cached
+     */
+    public Path getDerivedFile(String uuid, Format format) {
+        Path cached = fileStorageService.getDerivedPath().resolve(uuid + "." + format.getExtension());
+        if (touch(cached)) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> existing = rendering.putIfAbsent(cached, created);
+        if (existing != null) {
+            hits.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            // Another request may have finished rendering between the check and the claim
+            if (!Files.exists(cached)) {
+                misses.increment();
+                render(uuid, format, cached);
+                evict(cached);
+            }
+            created.complete(cached);
+            return cached;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            rendering.remove(cached, created);
+        }
+    }
+
+    private void render(String uuid, Format format, Path target) {
+        Path source = fileStorageService.getFileAsResource(uuid).toPath();
+        Path partial = fileStorageService.createDerivedTempFile().toPath();
+        long started = System.nanoTime();
+        try {
+            try (Writer out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                switch (format) {
+                    case FAA -> renderFasta(source, out);
+                    case GFF3 -> renderGff(source, out);
+                    case JSON -> renderJson(uuid, source, out);
+                }
+            }
+            fileStorageService.moveAtomically(partial, target);
+            log.debug("Rendered {} of {} in {} ms", format.getExtension(), uuid, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException ignored) {
+                // Removed by recovery on the next start
+            }
+            throw new FileStorageException("Could not render " + format.getExtension() + " for " + uuid, e);
+        }
+    }
+
+    /**
+     * Marks a cached variant as recently used; false if it is not cached
+     */
+    private static boolean touch(Path cached) {
+        try {
+            Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the least recently served variants until the cache fits, keeping the one just rendered
+     */
+    private void evict(Path keep) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(fileStorageService.getDerivedPath())) {
+            files = listing.filter(path -> !path.getFileName().toString().endsWith(".part")).toList();
+        } catch (IOException e) {
+            log.warn("Could not list the derived format cache", e);
+            return;
+        }
+
+        record Cached(Path path, long size, long lastUsed) {
+        }
+        List<Cached> entries = new ArrayList<>(files.size());
+        long total = 0;
+        for (Path file : files) {
+            try {
+                long size = Files.size(file);
+                entries.add(new Cached(file, size, Files.getLastModifiedTime(file).toMillis()));
+                total += size;
+            } catch (IOException e) {
+                // Deleted meanwhile
+            }
+        }
+        if (total <= cacheSize.toBytes()) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(Cached::lastUsed));
+        for (Cached entry : entries) {
+            if (total <= cacheSize.toBytes()) {
+                break;
+            }
+            if (entry.path().equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(entry.path());
+                total -= entry.size();
+                evictions.incrementAndGet();
+            } catch (IOException e) {
+                log.warn("Could not evict {}", entry.path().getFileName(), e);
+            }
+        }
+    }
+
+    private long cachedBytes() {
+        try (Stream<Path> listing = Files.list(fileStorageService.getDerivedPath())) {
+            return listing.mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * One FASTA entry per CDS, headed like NCBI's protein FASTA downloads. CDS features
+     * without /translation are translated from the record's bases.
+     */
+    private static void renderFasta(Path source, Writer out) throws IOException {
+        GenbankFeatureReader.read(source, true, record -> {
+            int index = 0;
+            for (GenbankFeatureReader.Feature feature : record.features()) {
+                if (!feature.key().equals("CDS") || feature.has("pseudo") || feature.has("pseudogene")) {
+                    continue;
+                }
+                String protein = feature.first("translation");
+                if (protein == null) {
+                    protein = translate(feature, record.bases());
+                }
+                if (protein == null || protein.isEmpty()) {
+                    continue;
+                }
+
+                out.write(">lcl|" + record.locus() + "_prot_" + (++index));
+                writeTag(out, "gene", feature.first("gene"));
+                writeTag(out, "locus_tag", feature.first("locus_tag"));
+                writeTag(out, "protein", feature.first("product"));
+                writeTag(out, "protein_id", feature.first("protein_id"));
+                writeTag(out, "location", feature.location());
+                out.write('\n');
+                for (int i = 0; i < protein.length(); i += 80) {
+                    out.write(protein, i, Math.min(80, protein.length() - i));
+                    out.write('\n');
+                }
+            }
+        });
+    }
+
+    private static void writeTag(Writer out, String name, String value) throws IOException {
+        if (value != null) {
+            out.write(" [" + name + "=" + value + "]");
+        }
+    }
+
+    private static String translate(GenbankFeatureReader.Feature feature, byte[] bases) {
+        GenbankLocation location = GenbankLocation.parse(feature.location());
+        CodonTranslator translator = CodonTranslator.forTable(parseInt(feature.first("transl_table"), 1));
+        int codonStart = parseInt(feature.first("codon_start"), 1);
+        if (location == null || translator == null || codonStart < 1 || codonStart > 3 || location.end() > bases.length) {
+            return null;
+        }
+        return translator.translate(bases, location.segments(), location.complement(), codonStart,
+                location.partialStart(), false);
+    }
+
+    /**
+     * GFF3 with the LOCUS name as seqid. Multi-range features get one line per range sharing
+     * an ID; CDS phases follow from /codon_start and the lengths of the preceding ranges.
+     */
+    private static void renderGff(Path source, Writer out) throws IOException {
+        out.write("##gff-version 3\n");
+        GenbankFeatureReader.read(source, false, record -> {
+            String seqId = escapeGff(record.locus());
+            if (record.length() > 0) {
+                out.write("##sequence-region " + seqId + " 1 " + record.length() + "\n");
+            }
+            int index = 0;
+            for (GenbankFeatureReader.Feature feature : record.features()) {
+                GenbankLocation location = GenbankLocation.parse(feature.location());
+                if (location == null) {
+                    log.debug("Skipping {} at {} in {}: location not representable in GFF3",
+                            feature.key(), feature.location(), record.locus());
+                    continue;
+                }
+                String type = feature.key().equals("source") ? "region" : feature.key();
+                String attributes = gffAttributes(record.locus() + "-" + (++index), feature);
+                boolean cds = feature.key().equals("CDS");
+                long[] segments = location.segments();
+                int ranges = segments.length / 2;
+
+                // Phase of each range in transcript order, which runs backwards on the reverse strand
+                long[] phases = new long[ranges];
+                long offset = Math.floorMod(parseInt(feature.first("codon_start"), 1) - 1, 3);
+                long before = 0;
+                for (int r = 0; r < ranges; r++) {
+                    int i = location.complement() ? ranges - 1 - r : r;
+                    phases[i] = r == 0 ? offset : Math.floorMod(-(before - offset), 3);
+                    before += segments[2 * i + 1] - segments[2 * i] + 1;
+                }
+
+                for (int i = 0; i < ranges; i++) {
+                    out.write(seqId + "\t" + GFF_SOURCE + "\t" + escapeGff(type) + "\t"
+                            + segments[2 * i] + "\t" + segments[2 * i + 1] + "\t.\t"
+                            + (location.complement() ? '-' : '+') + "\t"
+                            + (cds ? Long.toString(phases[i]) : ".") + "\t" + attributes + "\n");
+                }
+            }
+        });
+    }
+
+    private static String gffAttributes(String id, GenbankFeatureReader.Feature feature) {
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        for (GenbankFeatureReader.Qualifier qualifier : feature.qualifiers()) {
+            if (!GFF_SKIPPED_QUALIFIERS.contains(qualifier.name())) {
+                values.computeIfAbsent(qualifier.name(), name -> new ArrayList<>())
+                        .add(qualifier.value() != null ? qualifier.value() : "true");
+            }
+        }
+
+        StringBuilder attributes = new StringBuilder("ID=").append(escapeGff(id));
+        String name = feature.first("gene") != null ? feature.first("gene") : feature.first("locus_tag");
+        if (name != null) {
+            attributes.append(";Name=").append(escapeGff(name));
+        }
+        attributes.append(";gbkey=").append(escapeGff(feature.key()));
+        values.forEach((key, list) -> {
+            attributes.append(';').append(escapeGff(key)).append('=');
+            for (int i = 0; i < list.size(); i++) {
+                attributes.append(i > 0 ? "," : "").append(escapeGff(list.get(i)));
+            }
+        });
+        return attributes.toString();
+    }
+
+    /**
+     * Percent-encodes the characters GFF3 reserves in columns and attributes
+     */
+    private static String escapeGff(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean reserved = c < 0x20 || c == 0x7f || c == ';' || c == '=' || c == '&' || c == ',' || c == '%';
+            if (reserved && escaped == null) {
+                escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (reserved) {
+                    escaped.append('%').append(String.format(Locale.ROOT, "%02X", (int) c));
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return escaped != null ? escaped.toString() : value;
+    }
+
+    /**
+     * The feature table as JSON: records with their features, qualifiers grouped by name.
+     * Flags such as /pseudo map to an empty list.
+     */
+    private void renderJson(String uuid, Path source, Writer out) throws IOException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("uuid", uuid);
+            json.writeArrayFieldStart("records");
+            GenbankFeatureReader.read(source, false, record -> {
+                json.writeStartObject();
+                json.writeStringField("locus", record.locus());
+                json.writeNumberField("length", record.length());
+                json.writeStringField("definition", record.definition());
+                json.writeArrayFieldStart("features");
+                for (GenbankFeatureReader.Feature feature : record.features()) {
+                    json.writeStartObject();
+                    json.writeStringField("type", feature.key());
+                    json.writeStringField("location", feature.location());
+                    GenbankLocation location = GenbankLocation.parse(feature.location());
+                    if (location != null) {
+                        json.writeNumberField("start", location.start());
+                        json.writeNumberField("end", location.end());
+                        json.writeStringField("strand", location.complement() ? "-" : "+");
+                    }
+                    json.writeObjectFieldStart("qualifiers");
+                    Map<String, List<String>> values = new LinkedHashMap<>();
+                    for (GenbankFeatureReader.Qualifier qualifier : feature.qualifiers()) {
+                        List<String> list = values.computeIfAbsent(qualifier.name(), name -> new ArrayList<>());
+                        if (qualifier.value() != null) {
+                            list.add(qualifier.value());
+                        }
+                    }
+                    for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+                        json.writeArrayFieldStart(entry.getKey());
+                        for (String value : entry.getValue()) {
+                            json.writeString(value);
+                        }
+                        json.writeEndArray();
+                    }
+                    json.writeEndObject();
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            });
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private static int parseInt(String value, int fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation features grouped by sequence id, for ordered output and bounds checks.
+ *
+ * Each sequence id gets its features sorted by start plus a running maximum of the
+ * feature ends. Bounds checks binary-search the first position where the running maximum
+ * passes the sequence length, so they are O(log n) plus the number of features reported.
+ */
+public class FeatureIntervalIndex {
+
+    /**
+     * One feature; a multi-segment feature (for example a spliced CDS) has several segments
+     * and spans from the first segment start to the last segment end. Coordinates are
+     * 1-based and inclusive as in GFF3/GTF.
+     */
+    public record Feature(String seqId, String type, long start, long end, char strand,
+                          long[] segments, Map<String, String> qualifiers, long line) {
+    }
+
+    private static final class Track {
+        final Feature[] features;
+        final long[] maxEnds;
+
+        Track(List<Feature> unsorted) {
+            features = unsorted.toArray(new Feature[0]);
+            Arrays.sort(features, Comparator.comparingLong(Feature::start).thenComparingLong(Feature::end));
+            maxEnds = new long[features.length];
+            long maxEnd = Long.MIN_VALUE;
+            for (int i = 0; i < features.length; i++) {
+                maxEnd = Math.max(maxEnd, features[i].end());
+                maxEnds[i] = maxEnd;
+            }
+        }
+    }
+
+    private final Map<String, Track> tracks;
+    private final int size;
+
+    private FeatureIntervalIndex(Map<String, Track> tracks, int size) {
+        this.tracks = tracks;
+        this.size = size;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Set<String> seqIds() {
+        return Collections.unmodifiableSet(tracks.keySet());
+    }
+
+    /**
+     * Features of a sequence ordered by start
+     */
+    public List<Feature> features(String seqId) {
+        Track track = tracks.get(seqId);
+        return track != null ? Arrays.asList(track.features) : List.of();
+    }
+
+    /**
+     * Features of a sequence that end past its length
+     */
+    public List<Feature> outOfBounds(String seqId, long length) {
+        Track track = tracks.get(seqId);
+        if (track == null) {
+            return List.of();
+        }
+        List<Feature> result = new ArrayList<>();
+        for (int i = firstAbove(track.maxEnds, length); i < track.features.length; i++) {
+            if (track.features[i].end() > length) {
+                result.add(track.features[i]);
+            }
+        }
+        return result;
+    }
+
+    private static int firstAbove(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] > value) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Collects features in any order; {@link #build()} sorts each sequence once
+     */
+    public static final class Builder {
+        private final Map<String, List<Feature>> features = new LinkedHashMap<>();
+        private int size;
+
+        public Builder add(Feature feature) {
+            features.computeIfAbsent(feature.seqId(), id -> new ArrayList<>()).add(feature);
+            size++;
+            return this;
+        }
+
+        public FeatureIntervalIndex build() {
+            Map<String, Track> tracks = new LinkedHashMap<>();
+            features.forEach((seqId, list) -> tracks.put(seqId, new Track(list)));
+            return new FeatureIntervalIndex(tracks, size);
+        }
+    }
+}
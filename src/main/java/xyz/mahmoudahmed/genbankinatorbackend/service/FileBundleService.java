@@ -0,0 +1,170 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.cluster.ClusterCoordinator;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+
+/**
+ * Streams several results as one zip archive, straight from storage to the response.
+ *
+ * With file.bundle.compression=stored (the default) entries are written uncompressed:
+ * size and CRC are taken with a read-ahead pass over each file, which is far cheaper than
+ * deflating and lets clients extract entries without inflating. "deflate" trades CPU for
+ * a smaller transfer.
+ */
+@Service
+@Slf4j
+public class FileBundleService {
+
+    @Value("${file.bundle.compression:stored}")
+    private String compression;
+
+    @Value("${file.bundle.max-files:500}")
+    private int maxFiles;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    /**
+     * Selects the bundle contents: the given UUIDs (restricted to clientId when set),
+     * or every file of clientId. Expired, foreign and unreadable results are left out.
+     */
+    public List<BundleEntry> resolve(List<String> uuids, String clientId) {
+        List<FileMetadata> candidates = new ArrayList<>();
+        if (uuids != null && !uuids.isEmpty()) {
+            for (String uuid : new HashSet<>(uuids)) {
+                FileMetadata metadata = fileStorageService.getFileMetadata(uuid);
+                if (metadata != null && (clientId == null || clientId.equals(metadata.getClientId()))) {
+                    candidates.add(metadata);
+                }
+            }
+        } else if (clientId != null) {
+            candidates.addAll(fileStorageService.getFilesForClient(clientId));
+        }
+
+        List<FileMetadata> servable = candidates.stream()
+                .filter(metadata -> !metadata.isExpired())
+                .filter(clusterCoordinator::isServedLocally)
+                .limit(maxFiles)
+                .toList();
+
+        // One directory pass for the whole bundle instead of one per file
+        Map<String, Path> paths = fileStorageService.resolveFilePaths(
+                servable.stream().map(FileMetadata::getUuid).toList());
+
+        Set<String> names = new HashSet<>();
+        List<BundleEntry> entries = new ArrayList<>(paths.size());
+        for (FileMetadata metadata : servable) {
+            Path path = paths.get(metadata.getUuid());
+            if (path != null) {
+                entries.add(new BundleEntry(entryName(metadata, path, names), path, metadata.getCreatedAt()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the archive to the given stream. A file deleted between resolve() and
+     * this call is skipped rather than failing the whole bundle.
+     */
+    public void write(List<BundleEntry> entries, OutputStream out) throws IOException {
+        boolean stored = !"deflate".equalsIgnoreCase(compression);
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(stored ? 0 : 6);
+        WritableByteChannel target = Channels.newChannel(zip);
+
+        for (BundleEntry entry : entries) {
+            try (FileChannel in = FileChannel.open(entry.path(), StandardOpenOption.READ)) {
+                ZipEntry zipEntry = new ZipEntry(entry.name());
+                if (entry.createdAt() != null) {
+                    zipEntry.setTimeLocal(entry.createdAt());
+                }
+                if (stored) {
+                    long size = in.size();
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(size);
+                    zipEntry.setCompressedSize(size);
+                    zipEntry.setCrc(crc32(in));
+                    in.position(0);
+                } else {
+                    zipEntry.setMethod(ZipEntry.DEFLATED);
+                }
+
+                zip.putNextEntry(zipEntry);
+                bufferPool.copy(in, target);
+                zip.closeEntry();
+            } catch (NoSuchFileException e) {
+                log.debug("Bundle entry disappeared before streaming: {}", entry.name());
+            }
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private long crc32(FileChannel channel) throws IOException {
+        CRC32 crc = new CRC32();
+        try (BufferPool.Lease lease = bufferPool.acquire()) {
+            ByteBuffer buffer = lease.buffer();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * The stored file name without its UUID prefix, made unique within the archive
+     */
+    private static String entryName(FileMetadata metadata, Path path, Set<String> used) {
+        String fileName = path.getFileName().toString();
+        String name = fileName.substring(fileName.indexOf('_') + 1);
+        if (used.add(name)) {
+            return name;
+        }
+
+        String extension = StringUtils.getFilenameExtension(name);
+        String unique = StringUtils.stripFilenameExtension(name) + "-" + metadata.getUuid()
+                + (extension != null ? "." + extension : "");
+        used.add(unique);
+        return unique;
+    }
+
+    /**
+     * One file of a bundle
+     */
+    public record BundleEntry(String name, Path path, LocalDateTime createdAt) {
+    }
+}
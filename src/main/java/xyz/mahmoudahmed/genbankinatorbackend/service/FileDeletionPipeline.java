@@ -0,0 +1,109 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+
+/**
+ * Deletes expired files in batches on a small dedicated I/O pool.
+ *
+ * Each batch is unregistered in one step (metadata store, caches, listings) and its paths
+ * are taken from the metadata or resolved with a single directory pass, so a sweep costs
+ * one pass per batch rather than one per file. The unlinks are then spread over the pool,
+ * which keeps blocking file system calls off the common fork-join pool.
+ */
+@Service
+@Slf4j
+public class FileDeletionPipeline {
+
+    @Value("${file.cleanup.batch-size:500}")
+    private int batchSize;
+
+    @Value("${file.cleanup.io-threads:2}")
+    private int ioThreads;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "file-delete-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newFixedThreadPool(ioThreads, threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Removes the given files and their metadata
+     *
+     * @return the number of files unregistered
+     */
+    public int deleteAll(List<FileMetadata> files) {
+        int removed = 0;
+        int unlinked = 0;
+
+        for (int start = 0; start < files.size(); start += batchSize) {
+            List<FileMetadata> batch = files.subList(start, Math.min(start + batchSize, files.size()));
+            try {
+                List<Path> paths = fileStorageService.unregisterFiles(batch);
+                removed += batch.size();
+                unlinked += unlink(paths);
+            } catch (RuntimeException e) {
+                log.error("Failed to delete batch of {} files: {}", batch.size(), e.getMessage());
+            }
+        }
+
+        log.debug("Deletion pipeline removed {} entries and {} files", removed, unlinked);
+        return removed;
+    }
+
+    private int unlink(List<Path> paths) {
+        AtomicInteger deleted = new AtomicInteger();
+        int chunkSize = Math.max(1, (paths.size() + ioThreads - 1) / ioThreads);
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < paths.size(); start += chunkSize) {
+            List<Path> chunk = paths.subList(start, Math.min(start + chunkSize, paths.size()));
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (Path path : chunk) {
+                    try {
+                        if (Files.deleteIfExists(path)) {
+                            deleted.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        log.warn("Could not delete {}: {}", path.getFileName(), e.getMessage());
+                    }
+                }
+            }, executor));
+        }
+
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        return deleted.get();
+    }
+}
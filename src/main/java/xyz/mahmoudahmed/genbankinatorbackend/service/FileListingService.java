@@ -0,0 +1,220 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+
+/**
+ * Serves GET /files from cached per-client snapshots.
+ * Each snapshot keeps the static part of every entry pre-serialised; only the
+ * time-dependent fields (expired, timeToExpiry) are appended at render time, using a
+ * single "now" per response. A rendered body is reused until one of those fields would
+ * change, so repeated polls cost a map lookup and an ETag comparison.
+ */
+@Service
+@Slf4j
+public class FileListingService {
+
+    // Snapshot key for the unfiltered listing
+    private static final String ALL_CLIENTS = "";
+
+    // Upper bound on cached snapshots to keep memory predictable
+    private static final int MAX_SNAPSHOTS = 256;
+
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentHashMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so snapshots built from stale data are discarded
+    private final AtomicLong generation = new AtomicLong();
+
+    public FileListingService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the listing for a client (or all files when clientId is empty),
+     * loading and caching a new snapshot if none is current.
+     *
+     * @param sourceVersion change counter of the metadata source; a snapshot taken at
+     *                      another version is rebuilt (changes made by other cluster nodes)
+     */
+    public FileListing getListing(String clientId, long sourceVersion, Supplier<List<FileMetadata>> loader) {
+        String key = clientId == null ? ALL_CLIENTS : clientId;
+
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot == null || snapshot.sourceVersion != sourceVersion) {
+            long startGeneration = generation.get();
+            snapshot = buildSnapshot(key, loader.get(), startGeneration, sourceVersion);
+
+            if (snapshots.size() >= MAX_SNAPSHOTS) {
+                snapshots.clear();
+            }
+            snapshots.put(key, snapshot);
+
+            // An invalidation raced with the load - serve it once, but don't keep it
+            if (generation.get() != startGeneration) {
+                snapshots.remove(key, snapshot);
+            }
+        }
+
+        return snapshot.render(LocalDateTime.now());
+    }
+
+    /**
+     * Drops the snapshots affected by a change to one client's files.
+     * A null clientId means the owner is unknown, so every snapshot is dropped.
+     */
+    public void invalidate(String clientId) {
+        generation.incrementAndGet();
+        if (clientId == null || clientId.isEmpty()) {
+            snapshots.clear();
+            return;
+        }
+        snapshots.remove(clientId);
+        snapshots.remove(ALL_CLIENTS);
+    }
+
+    public void invalidateAll() {
+        invalidate(null);
+    }
+
+    private Snapshot buildSnapshot(String key, List<FileMetadata> files, long snapshotGeneration, long sourceVersion) {
+        List<FileMetadata> entries = ALL_CLIENTS.equals(key)
+                ? files
+                : files.stream().filter(file -> key.equals(file.getClientId())).toList();
+
+        byte[][] fragments = new byte[entries.size()][];
+        LocalDateTime[] expiries = new LocalDateTime[entries.size()];
+
+        for (int i = 0; i < entries.size(); i++) {
+            FileMetadata metadata = entries.get(i);
+            fragments[i] = serializeStaticFields(metadata);
+            expiries[i] = metadata.getExpiresAt();
+        }
+
+        return new Snapshot(snapshotGeneration, sourceVersion, fragments, expiries);
+    }
+
+    /**
+     * Serialises everything except the computed fields, leaving the object open
+     * so render() can append them.
+     */
+    private byte[] serializeStaticFields(FileMetadata metadata) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("clientId", metadata.getClientId());
+        fields.put("uuid", metadata.getUuid());
+        fields.put("originalFilename", metadata.getOriginalFilename());
+        fields.put("createdAt", metadata.getCreatedAt());
+        fields.put("expiresAt", metadata.getExpiresAt());
+        fields.put("downloadUrl", metadata.getDownloadUrl());
+
+        try {
+            String json = objectMapper.writeValueAsString(fields);
+            return json.substring(0, json.length() - 1).getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serialising listing entry " + metadata.getUuid(), e);
+        }
+    }
+
+    /**
+     * Rendered listing body with its entity tag
+     */
+    public record FileListing(byte[] body, String etag) {
+    }
+
+    private static final class Snapshot {
+        private final long generation;
+        private final long sourceVersion;
+        private final byte[][] fragments;
+        private final LocalDateTime[] expiries;
+
+        private volatile Rendered rendered;
+
+        private Snapshot(long generation, long sourceVersion, byte[][] fragments, LocalDateTime[] expiries) {
+            this.generation = generation;
+            this.sourceVersion = sourceVersion;
+            this.fragments = fragments;
+            this.expiries = expiries;
+        }
+
+        FileListing render(LocalDateTime now) {
+            Rendered current = this.rendered;
+            if (current != null && current.isValidAt(now)) {
+                return current.listing();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(estimateSize());
+            LocalDateTime validUntil = null;
+
+            out.write('[');
+            for (int i = 0; i < fragments.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.writeBytes(fragments[i]);
+
+                // Same semantics as FileMetadata.isExpired() / getTimeToExpiry()
+                LocalDateTime expiresAt = expiries[i];
+                boolean expired = now.isAfter(expiresAt);
+                String timeToExpiry;
+                if (expired) {
+                    timeToExpiry = "Expired";
+                } else {
+                    long hours = Duration.between(now, expiresAt).toHours();
+                    timeToExpiry = hours + " hours";
+
+                    // The computed fields stay the same until the next whole hour boundary
+                    LocalDateTime changesAt = expiresAt.minusHours(hours);
+                    if (validUntil == null || changesAt.isBefore(validUntil)) {
+                        validUntil = changesAt;
+                    }
+                }
+
+                out.writeBytes((",\"expired\":" + expired + ",\"timeToExpiry\":\"" + timeToExpiry + "\"}")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            out.write(']');
+
+            byte[] body = out.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            String etag = "\"" + Long.toHexString(generation) + "-" + Long.toHexString(sourceVersion)
+                    + "-" + Long.toHexString(crc.getValue()) + "\"";
+
+            Rendered fresh = new Rendered(new FileListing(body, etag), validUntil);
+            this.rendered = fresh;
+            return fresh.listing();
+        }
+
+        private int estimateSize() {
+            int size = 2;
+            for (byte[] fragment : fragments) {
+                size += fragment.length + 48;
+            }
+            return size;
+        }
+    }
+
+    private record Rendered(FileListing listing, LocalDateTime validUntil) {
+        boolean isValidAt(LocalDateTime now) {
+            return validUntil == null || now.isBefore(validUntil);
+        }
+    }
+}
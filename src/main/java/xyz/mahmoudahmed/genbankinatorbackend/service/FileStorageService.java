@@ -2,28 +2,66 @@ package xyz.mahmoudahmed.genbankinatorbackend.service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import xyz.mahmoudahmed.genbankinatorbackend.cluster.ClusterCoordinator;
+import xyz.mahmoudahmed.genbankinatorbackend.cluster.SharedMetadataStore;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ChecksumMismatchException;
 import xyz.mahmoudahmed.genbankinatorbackend.exception.FileNotFoundException;
 import xyz.mahmoudahmed.genbankinatorbackend.exception.FileStorageException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.UploadConflictException;
 import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadataCodec;
 
 @Service
 @Slf4j
@@ -35,26 +73,168 @@ public class FileStorageService {
     @Value("${file.retention.hours:24}")
     private int fileRetentionHours;
 
+    @Value("${file.recovery.enabled:true}")
+    private boolean recoveryEnabled;
+
+    // Same limit the multipart resolver enforces, so both checks agree
+    @Value("${spring.servlet.multipart.max-file-size:20MB}")
+    private DataSize maxFileSize;
+
+    @Value("${file.metadata.off-heap.enabled:false}")
+    private boolean offHeapMetadataEnabled;
+
+    @Value("${file.metadata.off-heap.initial-capacity:65536}")
+    private int offHeapInitialCapacity;
+
     private Path fileStoragePath;
 
+    // Uploaded conversion inputs, kept apart from results so recovery can tell them apart
+    private Path incomingPath;
+
+    // Inputs of queued conversions; survive restarts and are not touched by recovery
+    private Path queuePath;
+
+    // Resumable uploads being received; shared by all nodes so any node can take the next chunk
+    private Path uploadsPath;
+
+    // Rendered derived formats of results, a per-node cache; see DerivedFormatService
+    private Path derivedPath;
+
+    // Off-heap metadata index, only set when file.metadata.off-heap.enabled=true
+    private OffHeapMetadataTable metadataTable;
+
+    @Autowired
+    private FileListingService fileListingService;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    // Present only when caching is enabled; batch removals evict "metadata" entries through it
+    @Autowired
+    private ObjectProvider<CacheManager> cacheManager;
+
+    @Autowired
+    private BufferPool bufferPool;
+
+    @Autowired
+    private HotResultCache hotResultCache;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    // Shared metadata store in cluster mode, null on a single node
+    private SharedMetadataStore sharedStore;
+
+    // Marks this node's partial files, so recovery on shared storage leaves other nodes' writes alone
+    private String partialSuffix;
+
     // In-memory cache for frequently accessed metadata
     private final ConcurrentHashMap<String, FileMetadata> metadataCache = new ConcurrentHashMap<>();
 
     // Maximum cache size to prevent memory issues
     private static final int MAX_CACHE_SIZE = 1000;
 
+    // Suffix of files that are still being written; renamed atomically once complete
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private static final String INCOMING_DIRECTORY = "incoming";
+
+    private static final String QUEUE_DIRECTORY = "queue";
+
+    private static final String UPLOADS_DIRECTORY = "uploads";
+
+    private static final String DERIVED_DIRECTORY = "derived";
+
+    // Staged upload data and its sidecar holding the declared length and file name
+    private static final String UPLOAD_DATA_SUFFIX = ".upload";
+    private static final String UPLOAD_INFO_SUFFIX = ".info";
+
+    // Record offset index written next to each result, see GenbankRecordIndex
+    private static final String INDEX_SUFFIX = ".idx";
+
     @PostConstruct
     public void init() {
         this.fileStoragePath = Paths.get(fileStorageLocation).toAbsolutePath().normalize();
+        this.sharedStore = clusterCoordinator.getSharedStore();
+
+        String nodeTag = clusterCoordinator.getNodeId().replaceAll("[^A-Za-z0-9-]", "-");
+        this.partialSuffix = "." + nodeTag + PARTIAL_SUFFIX;
+        this.incomingPath = clusterCoordinator.isEnabled()
+                ? this.fileStoragePath.resolve(INCOMING_DIRECTORY).resolve(nodeTag)
+                : this.fileStoragePath.resolve(INCOMING_DIRECTORY);
+        this.queuePath = clusterCoordinator.isEnabled()
+                ? this.fileStoragePath.resolve(QUEUE_DIRECTORY).resolve(nodeTag)
+                : this.fileStoragePath.resolve(QUEUE_DIRECTORY);
+        this.uploadsPath = this.fileStoragePath.resolve(UPLOADS_DIRECTORY);
+        this.derivedPath = clusterCoordinator.isEnabled()
+                ? this.fileStoragePath.resolve(DERIVED_DIRECTORY).resolve(nodeTag)
+                : this.fileStoragePath.resolve(DERIVED_DIRECTORY);
         try {
             Files.createDirectories(this.fileStoragePath);
+            Files.createDirectories(this.incomingPath);
+            Files.createDirectories(this.queuePath);
+            Files.createDirectories(this.uploadsPath);
+            Files.createDirectories(this.derivedPath);
             log.info("Initialized file storage at: {}", this.fileStoragePath);
         } catch (Exception ex) {
             throw new FileStorageException("Could not create file storage directory", ex);
         }
+
+        if (recoveryEnabled) {
+            recoverStorage();
+        }
+
+        // Cache usage is not tracked across restarts, so start the derived cache empty
+        clearDerivedCache();
+
+        if (offHeapMetadataEnabled && sharedStore == null) {
+            loadMetadataTable();
+        }
+    }
+
+    /**
+     * Whether per-uuid metadata may be kept in the Spring cache. Not when metadata lives
+     * off-heap, nor in cluster mode where other nodes can delete entries.
+     */
+    public boolean isMetadataCacheable() {
+        return !offHeapMetadataEnabled && sharedStore == null;
+    }
+
+    /**
+     * Change counter of the shared metadata store; constant on a single node,
+     * where local stores and deletes invalidate the listing cache directly
+     */
+    public long getMetadataVersion() {
+        return sharedStore != null ? sharedStore.generation() : 0;
     }
 
     public String storeFile(MultipartFile file) {
+        return storeFile(file, this.incomingPath);
+    }
+
+    /**
+     * Stores an input of a queued conversion. Unlike {@link #storeFile(MultipartFile)},
+     * the file is kept across restarts until the queue deletes it.
+     */
+    public String storeQueuedFile(MultipartFile file) {
+        return storeFile(file, this.queuePath);
+    }
+
+    /**
+     * Root of the storage directory, shared by all nodes in cluster mode
+     */
+    public Path getStoragePath() {
+        return this.fileStoragePath;
+    }
+
+    /**
+     * Directory holding queued inputs and the queue journal
+     */
+    public Path getQueuePath() {
+        return this.queuePath;
+    }
+
+    private String storeFile(MultipartFile file, Path directory) {
         String fileName = StringUtils.cleanPath(file.getOriginalFilename());
 
         // Quick validation
@@ -63,18 +243,344 @@ public class FileStorageService {
         }
 
         // Check file size before processing
-        if (file.getSize() > 20 * 1024 * 1024) { // 20MB limit
+        if (file.getSize() > maxFileSize.toBytes()) {
             throw new FileStorageException("File too large: " + file.getSize());
         }
 
+        return storageObservation("store", file.getSize()).observe(() -> {
+            try {
+                String fileId = UUID.randomUUID().toString();
+                Path targetLocation = directory.resolve(fileId + "_" + fileName);
+
+                // Parts Tomcat spilled to disk are moved rather than copied; in-memory parts are
+                // written straight from their byte array
+                file.transferTo(targetLocation.toFile());
+                return targetLocation.toString();
+            } catch (IOException ex) {
+                throw new FileStorageException("Could not store file " + fileName, ex);
+            }
+        });
+    }
+
+    /**
+     * New empty file for a conversion input that arrives as a stream (the gRPC API), named
+     * like the inputs stored by {@link #storeFile(MultipartFile)}
+     */
+    public Path createIncomingFile(String originalFilename) {
+        String fileName = StringUtils.cleanPath(originalFilename);
+        if (fileName.contains("..") || fileName.contains("/")) {
+            throw new FileStorageException("Invalid filename: " + fileName);
+        }
         try {
-            String fileId = UUID.randomUUID().toString();
-            Path targetLocation = this.fileStoragePath.resolve(fileId + "_" + fileName);
+            return Files.createFile(this.incomingPath.resolve(UUID.randomUUID() + "_" + fileName));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not create file " + fileName, ex);
+        }
+    }
+
+    /**
+     * Removes a conversion input stored by {@link #storeFile} once it is no longer needed
+     */
+    public void deleteStoredFile(String path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(path));
+        } catch (IOException e) {
+            log.warn("Could not delete stored input {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Number of FASTA records (header lines) in a stored input, -1 if it cannot be read
+     */
+    public long countFastaRecords(String path) {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+             BufferPool.Lease lease = bufferPool.acquire()) {
+            ByteBuffer buffer = lease.buffer();
+            long records = 0;
+            byte previous = '\n';
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte current = buffer.get();
+                    if (current == '>' && previous == '\n') {
+                        records++;
+                    }
+                    previous = current;
+                }
+                buffer.clear();
+            }
+            return records;
+        } catch (IOException e) {
+            log.debug("Could not count records in {}: {}", path, e.getMessage());
+            return -1;
+        }
+    }
 
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-            return targetLocation.toString();
+    /**
+     * Starts a resumable upload of the given total length and returns its id
+     */
+    public String createUpload(long length, String filename) {
+        String fileName = StringUtils.cleanPath(filename);
+        if (fileName.isEmpty() || fileName.contains("..") || fileName.contains("/")) {
+            throw new IllegalArgumentException("Invalid filename: " + filename);
+        }
+
+        String id = UUID.randomUUID().toString();
+        Properties info = new Properties();
+        info.setProperty("length", Long.toString(length));
+        info.setProperty("filename", fileName);
+
+        try {
+            // Data first: a crash in between leaves only data, which the stale-upload sweep removes
+            Files.createFile(this.uploadsPath.resolve(id + UPLOAD_DATA_SUFFIX));
+
+            Path infoPath = this.uploadsPath.resolve(id + UPLOAD_INFO_SUFFIX);
+            Path partialPath = this.uploadsPath.resolve(id + UPLOAD_INFO_SUFFIX + partialSuffix);
+            try (OutputStream out = Files.newOutputStream(partialPath)) {
+                info.store(out, null);
+            }
+            moveAtomically(partialPath, infoPath);
+            return id;
         } catch (IOException ex) {
-            throw new FileStorageException("Could not store file " + fileName, ex);
+            throw new FileStorageException("Could not create upload", ex);
+        }
+    }
+
+    /**
+     * Current state of a resumable upload. The offset is the size of the staged data,
+     * which only ever holds verified bytes.
+     */
+    public UploadStatus getUploadStatus(String id) {
+        Path infoPath = uploadPath(id, UPLOAD_INFO_SUFFIX);
+        Properties info = new Properties();
+        try (InputStream in = Files.newInputStream(infoPath)) {
+            info.load(in);
+            long offset = Files.size(uploadPath(id, UPLOAD_DATA_SUFFIX));
+            return new UploadStatus(id, offset, Long.parseLong(info.getProperty("length")),
+                    info.getProperty("filename"));
+        } catch (NoSuchFileException ex) {
+            throw new FileNotFoundException("Upload not found: " + id);
+        } catch (IOException | RuntimeException ex) {
+            throw new FileStorageException("Could not read upload " + id, ex);
+        }
+    }
+
+    /**
+     * Appends a chunk at the given offset with positional writes through a pooled buffer.
+     * The staged file is locked for the duration, so concurrent chunks for one upload are
+     * refused rather than interleaved, also across nodes sharing the storage.
+     *
+     * Without a checksum, bytes received before a dropped connection are kept and the
+     * client resumes from there. With one, the chunk is kept only if it matches.
+     *
+     * @param digest   digest to verify the chunk with, or null
+     * @param expected expected digest value, or null
+     * @return the new offset
+     */
+    public long appendUpload(String id, long offset, InputStream data, MessageDigest digest, byte[] expected) {
+        UploadStatus status = getUploadStatus(id);
+        Path dataPath = uploadPath(id, UPLOAD_DATA_SUFFIX);
+
+        Observation observation = storageObservation("append", -1)
+                .highCardinalityKeyValue("upload.id", id)
+                .highCardinalityKeyValue("offset", Long.toString(offset));
+        return observation.observe(() -> {
+            try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.WRITE)) {
+                FileLock lock = tryLock(channel);
+                if (lock == null) {
+                    throw new UploadConflictException("Upload " + id + " is receiving another chunk");
+                }
+                try {
+                    long current = channel.size();
+                    if (current != offset) {
+                        throw new UploadConflictException("Upload-Offset " + offset + " does not match " + current);
+                    }
+
+                    long position = offset;
+                    try (BufferPool.Lease lease = bufferPool.acquire()) {
+                        ByteBuffer buffer = lease.buffer();
+                        ReadableByteChannel source = Channels.newChannel(data);
+                        IOException interrupted = null;
+                        boolean more = true;
+                        while (more) {
+                            // Fill the buffer so each positional write covers a full buffer
+                            while (more && buffer.hasRemaining()) {
+                                try {
+                                    more = source.read(buffer) != -1;
+                                } catch (IOException ex) {
+                                    // Connection dropped: what arrived so far is still written
+                                    interrupted = ex;
+                                    more = false;
+                                }
+                            }
+                            buffer.flip();
+                            if (position + buffer.remaining() > status.length()) {
+                                channel.truncate(offset);
+                                throw new IllegalArgumentException("Chunk exceeds the declared Upload-Length");
+                            }
+                            if (digest != null) {
+                                digest.update(buffer.duplicate());
+                            }
+                            while (buffer.hasRemaining()) {
+                                position += channel.write(buffer, position);
+                            }
+                            buffer.clear();
+                        }
+                        if (interrupted != null) {
+                            throw interrupted;
+                        }
+                    } catch (IOException ex) {
+                        // A partial chunk cannot be verified against its checksum
+                        if (expected != null) {
+                            channel.truncate(offset);
+                        }
+                        throw ex;
+                    }
+
+                    if (expected != null && !MessageDigest.isEqual(digest.digest(), expected)) {
+                        channel.truncate(offset);
+                        throw new ChecksumMismatchException("Checksum mismatch for chunk at offset " + offset);
+                    }
+                    observation.highCardinalityKeyValue("bytes", Long.toString(position - offset));
+                    return position;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException ex) {
+                throw new FileStorageException("Could not write upload " + id, ex);
+            }
+        });
+    }
+
+    /**
+     * Moves a completed upload into place as a conversion input and returns its path.
+     *
+     * @param queued whether the input belongs to a queued conversion (see {@link #storeQueuedFile})
+     */
+    public String promoteUpload(String id, boolean queued) {
+        UploadStatus status = getUploadStatus(id);
+        if (status.offset() != status.length()) {
+            throw new IllegalArgumentException("Upload " + id + " is incomplete: "
+                    + status.offset() + " of " + status.length() + " bytes");
+        }
+
+        Path directory = queued ? this.queuePath : this.incomingPath;
+        Path targetLocation = directory.resolve(UUID.randomUUID() + "_" + status.filename());
+        return storageObservation("promote", status.length()).observe(() -> {
+            try {
+                moveAtomically(uploadPath(id, UPLOAD_DATA_SUFFIX), targetLocation);
+                Files.deleteIfExists(uploadPath(id, UPLOAD_INFO_SUFFIX));
+                return targetLocation.toString();
+            } catch (NoSuchFileException ex) {
+                throw new FileNotFoundException("Upload not found: " + id);
+            } catch (IOException ex) {
+                throw new FileStorageException("Could not promote upload " + id, ex);
+            }
+        });
+    }
+
+    public boolean deleteUpload(String id) {
+        try {
+            boolean existed = Files.deleteIfExists(uploadPath(id, UPLOAD_INFO_SUFFIX));
+            Files.deleteIfExists(uploadPath(id, UPLOAD_DATA_SUFFIX));
+            return existed;
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not delete upload " + id, ex);
+        }
+    }
+
+    /**
+     * Removes uploads that have not received data for longer than maxAge
+     */
+    public int cleanupStaleUploads(Duration maxAge) {
+        long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+        AtomicInteger removed = new AtomicInteger();
+
+        try (Stream<Path> files = Files.list(this.uploadsPath)) {
+            files.filter(path -> path.getFileName().toString().endsWith(UPLOAD_DATA_SUFFIX))
+                    .forEach(path -> {
+                        try {
+                            if (Files.getLastModifiedTime(path).toMillis() < cutoff) {
+                                String name = path.getFileName().toString();
+                                if (deleteUpload(name.substring(0, name.length() - UPLOAD_DATA_SUFFIX.length()))) {
+                                    removed.incrementAndGet();
+                                }
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            log.warn("Could not clean up upload {}: {}", path.getFileName(), e.getMessage());
+                        }
+                    });
+        } catch (IOException e) {
+            log.error("Error cleaning up stale uploads", e);
+        }
+        return removed.get();
+    }
+
+    private Path uploadPath(String id, String suffix) {
+        // Ids are server-generated UUIDs; anything else must not reach the file system
+        try {
+            return this.uploadsPath.resolve(UUID.fromString(id) + suffix);
+        } catch (IllegalArgumentException ex) {
+            throw new FileNotFoundException("Upload not found: " + id);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another request in this JVM
+            return null;
+        }
+    }
+
+    /**
+     * Creates the file a conversion result is written to. It lives in the storage directory
+     * so {@link #storeGenbankResult} can publish it with an atomic rename, and carries the
+     * partial suffix so an interrupted write is removed by the startup recovery pass.
+     */
+    public File createResultTempFile() {
+        try {
+            return Files.createTempFile(this.fileStoragePath, "result-", partialSuffix).toFile();
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not create result file", ex);
+        }
+    }
+
+    public Path getDerivedPath() {
+        return derivedPath;
+    }
+
+    public File createDerivedTempFile() {
+        try {
+            return Files.createTempFile(this.derivedPath, "derived-", partialSuffix).toFile();
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not create derived file", ex);
+        }
+    }
+
+    private List<Path> derivedFiles(String uuid) {
+        List<Path> paths = new ArrayList<>();
+        for (DerivedFormatService.Format format : DerivedFormatService.Format.values()) {
+            paths.add(this.derivedPath.resolve(uuid + "." + format.getExtension()));
+        }
+        return paths;
+    }
+
+    private void clearDerivedCache() {
+        try (Stream<Path> files = Files.list(this.derivedPath)) {
+            files.filter(Files::isRegularFile).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Could not remove derived file {}", path.getFileName(), e);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Error clearing the derived format cache", e);
         }
     }
 
@@ -94,38 +600,127 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Resolves the result files of many UUIDs with a single directory pass.
+     * UUIDs without a result on disk are absent from the returned map.
+     */
+    public Map<String, Path> resolveFilePaths(Collection<String> uuids) {
+        Set<String> wanted = new HashSet<>(uuids);
+        Map<String, Path> resolved = new HashMap<>();
+        if (wanted.isEmpty()) {
+            return resolved;
+        }
+
+        try (Stream<Path> files = Files.list(this.fileStoragePath)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                int separator = name.indexOf('_');
+                if (separator > 0 && !name.endsWith(".meta") && !name.endsWith(PARTIAL_SUFFIX)) {
+                    String uuid = name.substring(0, separator);
+                    if (wanted.contains(uuid) && Files.isRegularFile(file)) {
+                        resolved.put(uuid, file);
+                    }
+                }
+            });
+        } catch (IOException e) {
+            throw new FileStorageException("Could not list storage directory", e);
+        }
+        return resolved;
+    }
+
+    /**
+     * The record with the given LOCUS name in a stored result, or null. Results stored
+     * without an index get one on first use.
+     */
+    public GenbankRecordIndex.Entry findRecord(String uuid, String locus) {
+        try {
+            return GenbankRecordIndex.find(recordIndex(uuid), locus);
+        } catch (IOException e) {
+            throw new FileStorageException("Could not read record index of " + uuid, e);
+        }
+    }
+
+    /**
+     * All records of a stored result, ordered by LOCUS name
+     */
+    public List<GenbankRecordIndex.Entry> listRecords(String uuid) {
+        try {
+            return GenbankRecordIndex.list(recordIndex(uuid));
+        } catch (IOException e) {
+            throw new FileStorageException("Could not read record index of " + uuid, e);
+        }
+    }
+
+    private Path recordIndex(String uuid) throws IOException {
+        Path index = this.fileStoragePath.resolve(uuid + INDEX_SUFFIX);
+        if (!Files.exists(index)) {
+            writeRecordIndex(uuid, findFileByUuid(uuid));
+        }
+        return index;
+    }
+
+    private void writeRecordIndex(String uuid, Path result) throws IOException {
+        Path partialPath = this.fileStoragePath.resolve(uuid + INDEX_SUFFIX + partialSuffix);
+        GenbankRecordIndex.write(GenbankRecordIndex.scan(result), partialPath);
+        moveAtomically(partialPath, this.fileStoragePath.resolve(uuid + INDEX_SUFFIX));
+    }
+
     /**
      * Optimized method to store GenBank results with efficient metadata handling
      */
     public String storeGenbankResult(File file, String originalFilename, String clientId) {
-        try {
-            String uuid = UUID.randomUUID().toString();
-            String cleanFilename = StringUtils.stripFilenameExtension(originalFilename) + ".gb";
-            Path targetLocation = this.fileStoragePath.resolve(uuid + "_" + cleanFilename);
+        return storeGenbankResult(file, originalFilename, clientId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Stores a result under a UUID chosen up front, e.g. one already handed out for a queued job
+     */
+    public String storeGenbankResult(File file, String originalFilename, String clientId, String uuid) {
+        return storageObservation("publish", file.length()).observe(() -> {
+            try {
+                String cleanFilename = StringUtils.stripFilenameExtension(originalFilename) + ".gb";
+                Path targetLocation = this.fileStoragePath.resolve(uuid + "_" + cleanFilename);
 
-            // Use move instead of copy for better performance
-            Files.move(file.toPath(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+                // Index the records before publishing, while the file is still in the page cache
+                writeRecordIndex(uuid, file.toPath());
 
-            // Create metadata
-            FileMetadata metadata = createFileMetadata(uuid, originalFilename,
-                    targetLocation.toString(), clientId);
+                // Publish the finished result with a rename; the metadata is written after it,
+                // so a .meta file always points at a complete result
+                moveAtomically(file.toPath(), targetLocation);
 
-            // Store metadata efficiently
-            storeMetadata(uuid, metadata);
+                // Create metadata
+                FileMetadata metadata = createFileMetadata(uuid, originalFilename,
+                        targetLocation.toString(), clientId);
 
-            log.debug("Stored GenBank result: {} for client: {}", uuid, clientId);
-            return uuid;
+                // Store metadata efficiently
+                storeMetadata(uuid, metadata);
+                fileListingService.invalidate(clientId);
 
-        } catch (IOException ex) {
-            throw new FileStorageException("Could not store result file", ex);
-        }
+                // Keep it in memory for the download that usually follows
+                hotResultCache.put(uuid, targetLocation, clientId);
+
+                log.debug("Stored GenBank result: {} for client: {}", uuid, clientId);
+                return uuid;
+
+            } catch (IOException ex) {
+                throw new FileStorageException("Could not store result file", ex);
+            }
+        });
     }
 
     /**
      * Cached metadata retrieval for better performance
      */
-    @Cacheable(value = "metadata", key = "#uuid")
+    @Cacheable(value = "metadata", key = "#uuid", condition = "#root.target.metadataCacheable")
     public FileMetadata getFileMetadata(String uuid) {
+        if (sharedStore != null) {
+            return sharedStore.get(uuid);
+        }
+
+        if (metadataTable != null) {
+            return metadataTable.get(uuid);
+        }
+
         // Check in-memory cache first
         FileMetadata cached = metadataCache.get(uuid);
         if (cached != null) {
@@ -135,8 +730,7 @@ public class FileStorageService {
         try {
             Path metadataPath = this.fileStoragePath.resolve(uuid + ".meta");
             if (Files.exists(metadataPath)) {
-                String content = Files.readString(metadataPath);
-                FileMetadata metadata = FileMetadata.fromJson(content);
+                FileMetadata metadata = FileMetadataCodec.decode(Files.readAllBytes(metadataPath));
 
                 // Add to cache if not full
                 if (metadataCache.size() < MAX_CACHE_SIZE) {
@@ -156,6 +750,18 @@ public class FileStorageService {
      * Optimized method to get only expired files
      */
     public List<FileMetadata> getExpiredFiles(LocalDateTime now) {
+        if (sharedStore != null) {
+            // Without shared storage each node can only delete the files it wrote
+            return sharedStore.findExpired(now).stream()
+                    .filter(metadata -> clusterCoordinator.isSharedStorage()
+                            || clusterCoordinator.isOwnedLocally(metadata))
+                    .toList();
+        }
+
+        if (metadataTable != null) {
+            return metadataTable.findExpired(now);
+        }
+
         try (Stream<Path> files = Files.list(this.fileStoragePath)) {
             return files
                     .filter(file -> file.toString().endsWith(".meta"))
@@ -173,6 +779,14 @@ public class FileStorageService {
      * Optimized file listing with streaming
      */
     public List<FileMetadata> getAllFiles() {
+        if (sharedStore != null) {
+            return sharedStore.findAll();
+        }
+
+        if (metadataTable != null) {
+            return metadataTable.findAll();
+        }
+
         try (Stream<Path> files = Files.list(this.fileStoragePath)) {
             return files
                     .filter(file -> file.toString().endsWith(".meta"))
@@ -186,6 +800,23 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Files belonging to one client; served from the metadata table when enabled
+     */
+    public List<FileMetadata> getFilesForClient(String clientId) {
+        if (sharedStore != null) {
+            return sharedStore.findByClient(clientId);
+        }
+
+        if (metadataTable != null) {
+            return metadataTable.findByClient(clientId);
+        }
+
+        return getAllFiles().stream()
+                .filter(metadata -> clientId.equals(metadata.getClientId()))
+                .toList();
+    }
+
     /**
      * Enhanced delete with cache cleanup
      */
@@ -193,15 +824,23 @@ public class FileStorageService {
     public void deleteFile(String uuid) {
         try {
             // Remove from cache first
-            metadataCache.remove(uuid);
+            FileMetadata cached = sharedStore != null ? sharedStore.remove(uuid)
+                    : metadataTable != null ? metadataTable.remove(uuid)
+                    : metadataCache.remove(uuid);
+            fileListingService.invalidate(cached != null ? cached.getClientId() : null);
+            hotResultCache.invalidate(uuid);
 
             // Delete the actual file
             Path filePath = findFileByUuid(uuid);
             Files.deleteIfExists(filePath);
 
-            // Delete the metadata file
+            // Delete the metadata file, the record index and any rendered formats
             Path metadataPath = this.fileStoragePath.resolve(uuid + ".meta");
             Files.deleteIfExists(metadataPath);
+            Files.deleteIfExists(this.fileStoragePath.resolve(uuid + INDEX_SUFFIX));
+            for (Path derived : derivedFiles(uuid)) {
+                Files.deleteIfExists(derived);
+            }
 
             log.debug("Deleted file: {}", uuid);
         } catch (IOException e) {
@@ -209,6 +848,60 @@ public class FileStorageService {
         }
     }
 
+    /**
+     * Batch counterpart of {@link #deleteFile} for the expiry sweep. Removes the metadata of
+     * all given files in one store operation, invalidates each affected listing once and
+     * returns the files to delete: results, .meta and .idx files and rendered formats, resolved in at most one
+     * directory pass. Deleting them is left to the caller.
+     */
+    public List<Path> unregisterFiles(Collection<FileMetadata> files) {
+        Observation observation = storageObservation("unregister", -1)
+                .highCardinalityKeyValue("files", Integer.toString(files.size()));
+        return observation.observe(() -> {
+            List<String> uuids = files.stream().map(FileMetadata::getUuid).toList();
+
+            if (sharedStore != null) {
+                sharedStore.removeAll(files);
+            } else if (metadataTable != null) {
+                metadataTable.removeAll(uuids);
+            } else {
+                uuids.forEach(metadataCache::remove);
+            }
+
+            CacheManager manager = cacheManager.getIfAvailable();
+            Cache springCache = manager != null ? manager.getCache("metadata") : null;
+            if (springCache != null) {
+                uuids.forEach(springCache::evict);
+            }
+
+            files.stream()
+                    .map(FileMetadata::getClientId)
+                    .distinct()
+                    .forEach(fileListingService::invalidate);
+            uuids.forEach(hotResultCache::invalidate);
+
+            List<Path> paths = new ArrayList<>(files.size() * 6);
+            List<String> unresolved = new ArrayList<>();
+            for (FileMetadata metadata : files) {
+                paths.add(this.fileStoragePath.resolve(metadata.getUuid() + ".meta"));
+                paths.add(this.fileStoragePath.resolve(metadata.getUuid() + INDEX_SUFFIX));
+                paths.addAll(derivedFiles(metadata.getUuid()));
+                // The recorded path avoids a directory scan, but only if it points into this
+                // node's storage directory (shared storage may be mounted elsewhere on the writer)
+                Path recorded = metadata.getFilePath() != null ? Paths.get(metadata.getFilePath()) : null;
+                if (recorded != null && this.fileStoragePath.equals(recorded.getParent())) {
+                    paths.add(recorded);
+                } else {
+                    unresolved.add(metadata.getUuid());
+                }
+            }
+            if (!unresolved.isEmpty()) {
+                paths.addAll(resolveFilePaths(unresolved).values());
+            }
+            return paths;
+        });
+    }
+
     /**
      * New method to cleanup orphaned files
      */
@@ -221,8 +914,11 @@ public class FileStorageService {
                 String fileName = file.getFileName().toString();
 
                 // Check for files without corresponding metadata
-                if (!fileName.endsWith(".meta") && fileName.contains("_")) {
-                    String uuid = fileName.substring(0, fileName.indexOf("_"));
+                boolean index = fileName.endsWith(INDEX_SUFFIX);
+                if (!fileName.endsWith(".meta") && (index || fileName.contains("_"))) {
+                    String uuid = index
+                            ? fileName.substring(0, fileName.length() - INDEX_SUFFIX.length())
+                            : fileName.substring(0, fileName.indexOf("_"));
                     Path metadataPath = this.fileStoragePath.resolve(uuid + ".meta");
 
                     if (!Files.exists(metadataPath)) {
@@ -243,14 +939,14 @@ public class FileStorageService {
      */
     public StorageStats getStorageStats() {
         try (Stream<Path> files = Files.list(this.fileStoragePath)) {
-            List<Path> allFiles = files.toList();
+            List<Path> allFiles = files.filter(Files::isRegularFile).toList();
 
             long totalFiles = allFiles.stream()
-                    .filter(file -> !file.toString().endsWith(".meta"))
+                    .filter(file -> !file.toString().endsWith(".meta") && !file.toString().endsWith(INDEX_SUFFIX))
                     .count();
 
             long totalSize = allFiles.stream()
-                    .filter(file -> !file.toString().endsWith(".meta"))
+                    .filter(file -> !file.toString().endsWith(".meta") && !file.toString().endsWith(INDEX_SUFFIX))
                     .mapToLong(file -> {
                         try {
                             return Files.size(file);
@@ -260,11 +956,56 @@ public class FileStorageService {
                     })
                     .sum();
 
-            return new StorageStats(totalFiles, totalSize, metadataCache.size());
+            return new StorageStats(totalFiles, totalSize, cachedMetadataCount());
         } catch (IOException e) {
             log.error("Error getting storage stats", e);
-            return new StorageStats(0, 0, metadataCache.size());
+            return new StorageStats(0, 0, cachedMetadataCount());
+        }
+    }
+
+    /**
+     * Non-blocking metadata lookup for the reactive download path.
+     * Cache hits complete immediately, misses read the .meta file through an async channel.
+     */
+    public Mono<FileMetadata> getFileMetadataAsync(String uuid) {
+        if (sharedStore != null) {
+            return Mono.fromCallable(() -> sharedStore.get(uuid))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        if (metadataTable != null) {
+            return Mono.justOrEmpty(metadataTable.get(uuid));
         }
+
+        FileMetadata cached = metadataCache.get(uuid);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+
+        return readMetadataAsync(this.fileStoragePath.resolve(uuid + ".meta"))
+                .doOnNext(metadata -> {
+                    if (metadataCache.size() < MAX_CACHE_SIZE) {
+                        metadataCache.put(uuid, metadata);
+                    }
+                });
+    }
+
+    /**
+     * Resolves the stored file for a UUID without blocking the calling event loop
+     */
+    public Mono<Path> resolveFileAsync(String uuid) {
+        return Mono.fromCallable(() -> findFileByUuid(uuid))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(FileNotFoundException.class, e -> Mono.empty());
+    }
+
+    /**
+     * Non-blocking {@link #findRecord}; empty when the result or the record does not exist
+     */
+    public Mono<GenbankRecordIndex.Entry> findRecordAsync(String uuid, String locus) {
+        return Mono.fromCallable(() -> findRecord(uuid, locus))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(FileNotFoundException.class, e -> Mono.empty());
     }
 
     // Helper methods
@@ -287,12 +1028,27 @@ public class FileStorageService {
         metadata.setExpiresAt(LocalDateTime.now().plusHours(fileRetentionHours));
         metadata.setFilePath(filePath);
         metadata.setClientId(clientId);
+        if (clusterCoordinator.isEnabled()) {
+            metadata.setOwnerNode(clusterCoordinator.getNodeId());
+        }
         return metadata;
     }
 
     private void storeMetadata(String uuid, FileMetadata metadata) throws IOException {
         Path metadataPath = this.fileStoragePath.resolve(uuid + ".meta");
-        Files.writeString(metadataPath, metadata.toJson());
+        Path partialPath = this.fileStoragePath.resolve(uuid + ".meta" + partialSuffix);
+        Files.write(partialPath, FileMetadataCodec.encode(metadata));
+        moveAtomically(partialPath, metadataPath);
+
+        if (sharedStore != null) {
+            sharedStore.put(metadata);
+            return;
+        }
+
+        if (metadataTable != null) {
+            metadataTable.put(metadata);
+            return;
+        }
 
         // Add to cache if not full
         if (metadataCache.size() < MAX_CACHE_SIZE) {
@@ -300,16 +1056,167 @@ public class FileStorageService {
         }
     }
 
-    private FileMetadata loadMetadataFromPath(Path metaPath) {
+    /**
+     * Startup reconciliation after an unclean shutdown. Removes partially written files,
+     * leftover conversion inputs, results without metadata and metadata without a result.
+     * On storage shared by a cluster only this node's partial files and inputs are touched,
+     * since other nodes may be writing; orphans are then left to the leader's maintenance.
+     */
+    private void recoverStorage() {
+        AtomicInteger removed = new AtomicInteger();
+        boolean sharedWithOtherNodes = clusterCoordinator.isEnabled() && clusterCoordinator.isSharedStorage();
+
+        try (Stream<Path> incoming = Files.list(this.incomingPath)) {
+            incoming.parallel().forEach(path -> deleteDuringRecovery(path, removed));
+        } catch (IOException e) {
+            log.error("Error recovering incoming files", e);
+        }
+
+        try (Stream<Path> files = Files.list(this.fileStoragePath)) {
+            List<Path> entries = files.filter(Files::isRegularFile).toList();
+
+            Set<String> metadataIds = entries.stream()
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(".meta"))
+                    .map(name -> name.substring(0, name.length() - ".meta".length()))
+                    .collect(Collectors.toSet());
+
+            Set<String> resultIds = entries.stream()
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> !name.endsWith(".meta") && !name.endsWith(PARTIAL_SUFFIX) && name.contains("_"))
+                    .map(name -> name.substring(0, name.indexOf("_")))
+                    .collect(Collectors.toSet());
+
+            entries.parallelStream().forEach(path -> {
+                String name = path.getFileName().toString();
+                boolean stale;
+                if (name.endsWith(PARTIAL_SUFFIX)) {
+                    stale = !sharedWithOtherNodes || name.endsWith(partialSuffix);
+                } else if (sharedWithOtherNodes) {
+                    stale = false;
+                } else if (name.endsWith(".meta")) {
+                    stale = !resultIds.contains(name.substring(0, name.length() - ".meta".length()));
+                } else if (name.endsWith(INDEX_SUFFIX)) {
+                    stale = !resultIds.contains(name.substring(0, name.length() - INDEX_SUFFIX.length()));
+                } else if (name.contains("_")) {
+                    stale = !metadataIds.contains(name.substring(0, name.indexOf("_")));
+                } else {
+                    stale = false;
+                }
+
+                if (stale) {
+                    deleteDuringRecovery(path, removed);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Error during storage recovery", e);
+        }
+
+        if (removed.get() > 0) {
+            log.info("Storage recovery removed {} partial or orphaned files", removed.get());
+        }
+    }
+
+    private void deleteDuringRecovery(Path path, AtomicInteger removed) {
         try {
-            String content = Files.readString(metaPath);
-            return FileMetadata.fromJson(content);
+            if (Files.deleteIfExists(path)) {
+                removed.incrementAndGet();
+                log.debug("Recovery removed: {}", path.getFileName());
+            }
         } catch (IOException e) {
+            log.warn("Recovery could not remove {}: {}", path.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Observation (a span when tracing is on) for one storage operation; bytes below zero are left out
+     */
+    private Observation storageObservation(String operation, long bytes) {
+        Observation observation = Observation.createNotStarted("genbank.storage", observationRegistry)
+                .contextualName("storage " + operation)
+                .lowCardinalityKeyValue("operation", operation);
+        if (bytes >= 0) {
+            observation.highCardinalityKeyValue("bytes", Long.toString(bytes));
+        }
+        return observation;
+    }
+
+    void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void loadMetadataTable() {
+        OffHeapMetadataTable table = new OffHeapMetadataTable(this.fileStoragePath, offHeapInitialCapacity);
+        try {
+            List<FileMetadata> existing = listMetadataPaths().parallelStream()
+                    .map(this::loadMetadataFromPath)
+                    .filter(metadata -> metadata != null)
+                    .toList();
+            existing.forEach(table::put);
+        } catch (IOException e) {
+            throw new FileStorageException("Could not load metadata into off-heap table", e);
+        }
+
+        this.metadataTable = table;
+        log.info("Loaded {} metadata entries into off-heap table ({} bytes reserved)",
+                table.size(), table.offHeapBytes());
+    }
+
+    private int cachedMetadataCount() {
+        if (sharedStore != null) {
+            return sharedStore.size();
+        }
+        return metadataTable != null ? metadataTable.size() : metadataCache.size();
+    }
+
+    private List<Path> listMetadataPaths() throws IOException {
+        try (Stream<Path> files = Files.list(this.fileStoragePath)) {
+            return files
+                    .filter(file -> file.toString().endsWith(".meta"))
+                    .toList();
+        }
+    }
+
+    private Mono<FileMetadata> readMetadataAsync(Path metaPath) {
+        return DataBufferUtils.join(DataBufferUtils.read(metaPath, DefaultDataBufferFactory.sharedInstance, 4096))
+                .map(buffer -> {
+                    try {
+                        byte[] content = new byte[buffer.readableByteCount()];
+                        buffer.read(content);
+                        return FileMetadataCodec.decode(content);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .onErrorResume(NoSuchFileException.class, e -> Mono.empty())
+                .onErrorResume(e -> {
+                    log.warn("Failed to read metadata: {}", metaPath.getFileName());
+                    return Mono.empty();
+                });
+    }
+
+    private FileMetadata loadMetadataFromPath(Path metaPath) {
+        try {
+            return FileMetadataCodec.decode(Files.readAllBytes(metaPath));
+        } catch (IOException | RuntimeException e) {
             log.warn("Failed to read metadata: {}", metaPath.getFileName());
             return null;
         }
     }
 
+    /**
+     * Progress of a resumable upload
+     */
+    public record UploadStatus(String id, long offset, long length, String filename) {
+        public boolean isComplete() {
+            return offset == length;
+        }
+    }
+
     // Storage statistics inner class
     public static class StorageStats {
         private final long fileCount;
@@ -0,0 +1,232 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming reader for the feature tables of a GenBank file.
+ *
+ * Records are handed to the caller one at a time, so memory is bounded by the largest
+ * record rather than the file. Bases are only collected when asked for.
+ */
+public final class GenbankFeatureReader {
+
+    /**
+     * A qualifier; the value is null for flags such as /pseudo
+     */
+    public record Qualifier(String name, String value) {
+    }
+
+    public record Feature(String key, String location, List<Qualifier> qualifiers) {
+
+        /**
+         * The first value of a qualifier, or null
+         */
+        public String first(String name) {
+            for (Qualifier qualifier : qualifiers) {
+                if (qualifier.name().equals(name)) {
+                    return qualifier.value();
+                }
+            }
+            return null;
+        }
+
+        public boolean has(String name) {
+            for (Qualifier qualifier : qualifiers) {
+                if (qualifier.name().equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * One record; bases is null unless requested
+     */
+    public record Record(String locus, long length, String definition, List<Feature> features, byte[] bases) {
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(Record record) throws IOException;
+    }
+
+    private GenbankFeatureReader() {
+    }
+
+    public static void read(Path genbank, boolean withBases, RecordHandler handler) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(genbank, StandardCharsets.ISO_8859_1)) {
+            RecordBuilder record = null;
+            String section = "";
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("//")) {
+                    if (record != null) {
+                        handler.accept(record.build());
+                    }
+                    record = null;
+                    section = "";
+                    continue;
+                }
+                if (!line.isEmpty() && line.charAt(0) != ' ') {
+                    // A new top-level keyword
+                    section = line.length() >= 12 ? line.substring(0, 12).trim() : line.trim();
+                    if (section.equals("LOCUS")) {
+                        record = new RecordBuilder(line, withBases);
+                    } else if (record != null && section.equals("DEFINITION")) {
+                        record.definition.append(line.substring(Math.min(12, line.length())).trim());
+                    }
+                    continue;
+                }
+                if (record == null) {
+                    continue;
+                }
+                switch (section) {
+                    case "DEFINITION" -> record.definition.append(' ').append(line.trim());
+                    case "FEATURES" -> record.featureLine(line);
+                    case "ORIGIN" -> record.originLine(line);
+                    default -> {
+                    }
+                }
+            }
+            // A final record without its terminator
+            if (record != null) {
+                handler.accept(record.build());
+            }
+        }
+    }
+
+    private static final class RecordBuilder {
+        final String locus;
+        final long length;
+        final StringBuilder definition = new StringBuilder();
+        final List<Feature> features = new ArrayList<>();
+        final boolean withBases;
+        byte[] bases;
+        int baseCount;
+
+        // Feature being read
+        String key;
+        StringBuilder location;
+        List<Qualifier> qualifiers;
+        String qualifierName;
+        StringBuilder qualifierValue;
+        boolean openQuote;
+
+        RecordBuilder(String locusLine, boolean withBases) {
+            String[] tokens = locusLine.trim().split("\\s+");
+            this.locus = tokens.length > 1 ? tokens[1] : "";
+            long parsed = 0;
+            if (tokens.length > 2) {
+                try {
+                    parsed = Long.parseLong(tokens[2]);
+                } catch (NumberFormatException e) {
+                    // Leave unknown
+                }
+            }
+            this.length = parsed;
+            this.withBases = withBases;
+            this.bases = withBases ? new byte[(int) Math.max(1024, Math.min(parsed, Integer.MAX_VALUE - 8))] : null;
+        }
+
+        void featureLine(String line) {
+            if (line.length() > 5 && line.startsWith("     ") && line.charAt(5) != ' ') {
+                finishFeature();
+                key = line.substring(5, Math.min(21, line.length())).trim();
+                location = new StringBuilder(line.length() > 21 ? line.substring(21).trim() : "");
+                qualifiers = new ArrayList<>();
+                return;
+            }
+            if (key == null) {
+                return;
+            }
+            String content = line.trim();
+            if (content.startsWith("/") && !openQuote) {
+                finishQualifier();
+                int equals = content.indexOf('=');
+                if (equals < 0) {
+                    qualifiers.add(new Qualifier(content.substring(1), null));
+                    return;
+                }
+                qualifierName = content.substring(1, equals);
+                String value = content.substring(equals + 1);
+                openQuote = value.startsWith("\"") && !closesQuote(value, 1);
+                qualifierValue = new StringBuilder(value);
+            } else if (qualifierName != null) {
+                // Translations wrap without spaces, free text wraps at word boundaries
+                if (!qualifierName.equals("translation")) {
+                    qualifierValue.append(' ');
+                }
+                qualifierValue.append(content);
+                if (openQuote && closesQuote(content, 0)) {
+                    openQuote = false;
+                }
+            } else if (qualifiers.isEmpty()) {
+                location.append(content);
+            }
+        }
+
+        void originLine(String line) {
+            if (!withBases) {
+                return;
+            }
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    if (baseCount == bases.length) {
+                        bases = Arrays.copyOf(bases, bases.length * 2);
+                    }
+                    bases[baseCount++] = (byte) c;
+                }
+            }
+        }
+
+        Record build() {
+            finishFeature();
+            return new Record(locus, length, definition.toString(), features,
+                    withBases ? Arrays.copyOf(bases, baseCount) : null);
+        }
+
+        private void finishFeature() {
+            if (key != null) {
+                finishQualifier();
+                features.add(new Feature(key, location.toString(), qualifiers));
+            }
+            key = null;
+        }
+
+        private void finishQualifier() {
+            if (qualifierName != null) {
+                qualifiers.add(new Qualifier(qualifierName, unquote(qualifierValue.toString())));
+            }
+            qualifierName = null;
+            qualifierValue = null;
+            openQuote = false;
+        }
+
+        /**
+         * Whether the text ends a quoted value: a closing quote not part of an escaped ""
+         */
+        private static boolean closesQuote(String text, int from) {
+            int quotes = 0;
+            for (int i = text.length() - 1; i >= from && text.charAt(i) == '"'; i--) {
+                quotes++;
+            }
+            return quotes % 2 == 1;
+        }
+
+        private static String unquote(String value) {
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                return value.substring(1, value.length() - 1).replace("\"\"", "\"");
+            }
+            return value;
+        }
+    }
+}
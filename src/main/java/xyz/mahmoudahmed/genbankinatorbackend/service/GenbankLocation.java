@@ -0,0 +1,103 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+/**
+ * A simple GenBank feature location: a position, a range, or a join() or order() of them,
+ * optionally complemented as a whole or range by range on the same strand.
+ *
+ * Segments are 1-based inclusive start/end pairs in ascending order for complemented
+ * locations and in listed order otherwise; partial flags refer to the feature's own 5' and
+ * 3' ends, so they already account for the strand.
+ */
+public record GenbankLocation(long[] segments, boolean complement, boolean partialStart, boolean partialEnd) {
+
+    /**
+     * Parses a location, or returns null for forms not covered here (remote entries,
+     * between-base sites, mixed strands)
+     */
+    public static GenbankLocation parse(String text) {
+        String value = text.replace(" ", "");
+        boolean complement = false;
+        if (value.startsWith("complement(") && value.endsWith(")")) {
+            complement = true;
+            value = value.substring(11, value.length() - 1);
+        }
+        if ((value.startsWith("join(") || value.startsWith("order(")) && value.endsWith(")")) {
+            value = value.substring(value.indexOf('(') + 1, value.length() - 1);
+        }
+
+        String[] parts = value.split(",");
+        long[] segments = new long[parts.length * 2];
+        boolean lowPartial = false;
+        boolean highPartial = false;
+        int innerComplements = 0;
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            if (part.startsWith("complement(") && part.endsWith(")")) {
+                innerComplements++;
+                part = part.substring(11, part.length() - 1);
+            }
+            if (part.indexOf(':') >= 0 || part.indexOf('^') >= 0) {
+                return null;
+            }
+            int dots = part.indexOf("..");
+            String from = dots < 0 ? part : part.substring(0, dots);
+            String to = dots < 0 ? part : part.substring(dots + 2);
+            if (from.startsWith("<")) {
+                lowPartial |= i == 0;
+                from = from.substring(1);
+            }
+            if (to.startsWith(">")) {
+                highPartial |= i == parts.length - 1;
+                to = to.substring(1);
+            }
+            try {
+                segments[2 * i] = Long.parseLong(from);
+                segments[2 * i + 1] = Long.parseLong(to);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (segments[2 * i] < 1 || segments[2 * i] > segments[2 * i + 1]) {
+                return null;
+            }
+        }
+
+        if (innerComplements > 0) {
+            if (complement || innerComplements != parts.length) {
+                return null;
+            }
+            // join(complement(b),complement(a)) lists ranges 5' to 3' on the reverse strand
+            long[] ascending = new long[segments.length];
+            for (int i = 0; i < parts.length; i++) {
+                ascending[2 * i] = segments[2 * (parts.length - 1 - i)];
+                ascending[2 * i + 1] = segments[2 * (parts.length - 1 - i) + 1];
+            }
+            return new GenbankLocation(ascending, true, parts[0].contains(">"),
+                    parts[parts.length - 1].contains("<"));
+        }
+        return complement
+                ? new GenbankLocation(segments, true, highPartial, lowPartial)
+                : new GenbankLocation(segments, false, lowPartial, highPartial);
+    }
+
+    /**
+     * Lowest position covered
+     */
+    public long start() {
+        long start = Long.MAX_VALUE;
+        for (int i = 0; i < segments.length; i += 2) {
+            start = Math.min(start, segments[i]);
+        }
+        return start;
+    }
+
+    /**
+     * Highest position covered
+     */
+    public long end() {
+        long end = 0;
+        for (int i = 1; i < segments.length; i += 2) {
+            end = Math.max(end, segments[i]);
+        }
+        return end;
+    }
+}
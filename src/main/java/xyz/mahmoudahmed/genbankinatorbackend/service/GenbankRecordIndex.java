@@ -0,0 +1,215 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Byte ranges of the records in a GenBank file, keyed on LOCUS name.
+ *
+ * Written next to a stored result as &lt;uuid&gt;.idx so a single record can be served without
+ * reading the rest of the file. Entries are sorted by name and have a fixed width, so a
+ * lookup is a binary search of positional reads on the index file.
+ *
+ * Layout:
+ * <pre>
+ *   int magic, int version, int count
+ *   count x (long offset, long length, int name offset, int name length)
+ *   UTF-8 names
+ * </pre>
+ */
+public final class GenbankRecordIndex {
+
+    private static final int MAGIC = 0x47425249; // "GBRI"
+    private static final int VERSION = 1;
+    private static final int HEADER = 12;
+    private static final int SLOT = 24;
+
+    public record Entry(String locus, long offset, long length) {
+    }
+
+    private GenbankRecordIndex() {
+    }
+
+    /**
+     * Scans a GenBank file for its records; a name seen twice keeps its first record
+     */
+    public static List<Entry> scan(Path genbank) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(genbank), 64 * 1024)) {
+            long offset = 0;
+            long lineStart = 0;
+            long recordStart = -1;
+            String locus = null;
+            // LOCUS lines are short; the rest only needs its first bytes
+            byte[] line = new byte[80];
+            int lineLength = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    if (lineLength < line.length) {
+                        line[lineLength++] = (byte) b;
+                    }
+                    continue;
+                }
+                if (startsWith(line, lineLength, "LOCUS")) {
+                    // The previous record lost its terminator; it ends where this one starts
+                    if (recordStart >= 0 && locus != null && names.add(locus)) {
+                        entries.add(new Entry(locus, recordStart, lineStart - recordStart));
+                    }
+                    recordStart = lineStart;
+                    locus = locusName(new String(line, 0, lineLength, StandardCharsets.UTF_8));
+                } else if (startsWith(line, lineLength, "//") && recordStart >= 0) {
+                    if (locus != null && names.add(locus)) {
+                        entries.add(new Entry(locus, recordStart, offset - recordStart));
+                    }
+                    recordStart = -1;
+                }
+                lineLength = 0;
+                lineStart = offset;
+            }
+            // A final record without its terminator
+            if (recordStart >= 0 && locus != null && names.add(locus)) {
+                entries.add(new Entry(locus, recordStart, offset - recordStart));
+            }
+        }
+        return entries;
+    }
+
+    public static void write(List<Entry> entries, Path index) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(Entry::locus));
+
+        List<byte[]> names = new ArrayList<>(sorted.size());
+        for (Entry entry : sorted) {
+            names.add(entry.locus().getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(index)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sorted.size());
+            int nameOffset = 0;
+            for (int i = 0; i < sorted.size(); i++) {
+                out.writeLong(sorted.get(i).offset());
+                out.writeLong(sorted.get(i).length());
+                out.writeInt(nameOffset);
+                out.writeInt(names.get(i).length);
+                nameOffset += names.get(i).length;
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+        }
+    }
+
+    /**
+     * The record with the given LOCUS name, or null
+     */
+    public static Entry find(Path index, String locus) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            int count = readHeader(channel);
+            long names = HEADER + (long) count * SLOT;
+            ByteBuffer slot = ByteBuffer.allocate(SLOT);
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                readFully(channel, slot.clear(), HEADER + (long) mid * SLOT);
+                slot.flip();
+                long offset = slot.getLong();
+                long length = slot.getLong();
+                String name = readName(channel, names + slot.getInt(), slot.getInt());
+                int comparison = name.compareTo(locus);
+                if (comparison == 0) {
+                    return new Entry(name, offset, length);
+                } else if (comparison < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * All records, ordered by name
+     */
+    public static List<Entry> list(Path index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            int count = readHeader(channel);
+            ByteBuffer all = ByteBuffer.allocate((int) (channel.size() - HEADER));
+            readFully(channel, all, HEADER);
+            all.flip();
+            int names = count * SLOT;
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long offset = all.getLong();
+                long length = all.getLong();
+                int nameOffset = all.getInt();
+                int nameLength = all.getInt();
+                entries.add(new Entry(new String(all.array(), names + nameOffset, nameLength, StandardCharsets.UTF_8),
+                        offset, length));
+            }
+            return entries;
+        }
+    }
+
+    private static int readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a record index");
+        }
+        return header.getInt();
+    }
+
+    private static String readName(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer name = ByteBuffer.allocate(length);
+        readFully(channel, name, position);
+        return new String(name.array(), StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated record index");
+            }
+        }
+    }
+
+    private static boolean startsWith(byte[] line, int length, String prefix) {
+        if (length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String locusName(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        return tokens.length > 1 ? tokens[1] : null;
+    }
+}
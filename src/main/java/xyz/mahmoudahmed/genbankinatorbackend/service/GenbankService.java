@@ -4,12 +4,14 @@ package xyz.mahmoudahmed.genbankinatorbackend.service;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -17,12 +19,18 @@ import org.springframework.web.multipart.MultipartFile;
 
 
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import lombok.extern.slf4j.Slf4j;
 import xyz.mahmoudahmed.converter.GenbankConverter;
 import xyz.mahmoudahmed.exception.ConversionException;
-import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.cluster.ClusterCoordinator;
 import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
 import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionOptionsFactory.PreparedOptions;
 import xyz.mahmoudahmed.model.*;
 import xyz.mahmoudahmed.parsers.FastaAnnotationParser;
 
@@ -33,134 +41,290 @@ public class GenbankService {
     @Autowired
     private FileStorageService fileStorageService;
 
-    public ConversionResponse convertFiles(ConversionRequest request,
+    @Autowired
+    private FileListingService fileListingService;
+
+    @Autowired
+    private ConversionDrainService conversionDrainService;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private MemoryBudgetService memoryBudgetService;
+
+    @Autowired
+    private ConversionScheduler conversionScheduler;
+
+    @Autowired
+    private StartupTimingService startupTimingService;
+
+    @Autowired
+    private GffAnnotationService gffAnnotationService;
+
+    @Autowired
+    private CdsTranslationService cdsTranslationService;
+
+    @Autowired
+    private ConversionOptionsFactory conversionOptionsFactory;
+
+    @Autowired
+    private DerivedFormatService derivedFormatService;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Autowired
+    private ObjectProvider<Tracer> tracer;
+
+    public ConversionResponse convertFiles(PreparedOptions options,
                                            MultipartFile sequenceFile,
                                            MultipartFile annotationFile,
                                            String clientId) {
-        try {
-            // Store uploaded files
-            String sequencePath = fileStorageService.storeFile(sequenceFile);
-            String annotationPath = fileStorageService.storeFile(annotationFile);
-
-            // Create converter instance using builder
-            GenbankConverter converter = GenbankConverter.builder()
-                    .withAnnotationParser(new FastaAnnotationParser())
-                    .build();
-
-            // Create reference information if provided
-            List<ReferenceInfo> references = new ArrayList<>();
-            if (request.getReferences() != null && !request.getReferences().isEmpty()) {
-                for (int i = 0; i < request.getReferences().size(); i++) {
-                    var ref = request.getReferences().get(i);
-                    ReferenceInfo reference = ReferenceInfo.builder()
-                            .number(i + 1)
-                            .authors(ref.getAuthors())
-                            .title(ref.getTitle())
-                            .journal(ref.getJournal())
-                            .pubStatus(ref.getPubStatus())
-                            .build();
-                    references.add(reference);
-                }
-            }
+        return convertInputs(options,
+                () -> fileStorageService.storeFile(sequenceFile),
+                () -> fileStorageService.storeFile(annotationFile),
+                sequenceFile.getOriginalFilename(), clientId);
+    }
 
-            // Create header info using data from request
-            HeaderInfo.Builder headerBuilder = HeaderInfo.builder();
-            if (request.getDefinition() != null) {
-                headerBuilder.definition(request.getDefinition());
-            }
-            if (request.getAccessionNumber() != null) {
-                headerBuilder.accessionNumber(request.getAccessionNumber());
-            }
-            if (request.getVersion() != null) {
-                headerBuilder.version(request.getVersion());
-            }
-            if (request.getKeywords() != null) {
-                headerBuilder.keywords(request.getKeywords());
-            }
-            if (request.getTaxonomy() != null) {
-                headerBuilder.taxonomy(request.getTaxonomy());
-            }
-            if (request.getDbLinks() != null) {
-                headerBuilder.dbLinks(request.getDbLinks());
-            }
-            if (!references.isEmpty()) {
-                headerBuilder.references(references);
-            }
-            if (request.getComment() != null) {
-                headerBuilder.comment(request.getComment());
-            }
-            if (request.getAssemblyData() != null) {
-                headerBuilder.assemblyData(request.getAssemblyData());
+    /**
+     * Converts inputs received through the resumable upload API
+     */
+    public ConversionResponse convertUploads(PreparedOptions options,
+                                             String sequenceUploadId,
+                                             String annotationUploadId,
+                                             String clientId) {
+        return convertInputs(options,
+                () -> fileStorageService.promoteUpload(sequenceUploadId, false),
+                () -> fileStorageService.promoteUpload(annotationUploadId, false),
+                fileStorageService.getUploadStatus(sequenceUploadId).filename(), clientId);
+    }
+
+    /**
+     * Converts inputs a streaming client wrote with {@link FileStorageService#createIncomingFile};
+     * they are deleted afterwards
+     */
+    public ConversionResponse convertIncoming(PreparedOptions options,
+                                              String sequencePath,
+                                              String annotationPath,
+                                              String originalFilename,
+                                              String clientId) {
+        return convertInputs(options, () -> sequencePath, () -> annotationPath, originalFilename, clientId);
+    }
+
+    public FileStorageService.UploadStatus getUpload(String uploadId) {
+        return fileStorageService.getUploadStatus(uploadId);
+    }
+
+    private ConversionResponse convertInputs(PreparedOptions options,
+                                             Supplier<String> sequenceInput,
+                                             Supplier<String> annotationInput,
+                                             String originalFilename,
+                                             String clientId) {
+        Observation observation = Observation.createNotStarted("genbank.conversion", observationRegistry)
+                .contextualName("conversion")
+                .highCardinalityKeyValue("client.id", valueOf(clientId))
+                .highCardinalityKeyValue("filename", valueOf(originalFilename));
+        return observation.observe(() -> {
+            if (!conversionDrainService.tryBegin()) {
+                throw new ServiceUnavailableException("Service is shutting down, conversion not accepted");
             }
 
-            HeaderInfo headerInfo = headerBuilder.build();
+            String sequencePath = null;
+            String annotationPath = null;
+            try {
+                // Store uploaded files
+                sequencePath = sequenceInput.get();
+                annotationPath = annotationInput.get();
 
-            // Set up translation options
-            TranslationOptions.Builder translationBuilder = TranslationOptions.builder();
-            if (request.getTranslTableNumber() != null) {
-                translationBuilder.translTableNumber(request.getTranslTableNumber());
+                String uuid = convertStoredFiles(options, sequencePath, annotationPath,
+                        originalFilename, clientId, UUID.randomUUID().toString());
+
+                // Return response with file UUID and download URL
+                return ConversionResponse.builder()
+                        .uuid(uuid)
+                        .downloadUrl("/api/v1/files/" + uuid)
+                        .message("Conversion successful. File will be available for 24 hours.")
+                        .build();
+            } catch (ServiceUnavailableException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("Error during conversion", e);
+                throw new ConversionException("Failed to convert files: " + e.getMessage(), e);
+            } finally {
+                // Clean up temporary files
+                fileStorageService.deleteStoredFile(sequencePath);
+                fileStorageService.deleteStoredFile(annotationPath);
+                conversionDrainService.end();
             }
-            if (request.getTranslateCDS() != null) {
-                translationBuilder.translateCDS(request.getTranslateCDS());
+        });
+    }
+
+    /**
+     * Converts inputs that are already in storage and publishes the result under the given UUID.
+     * Shared by the synchronous endpoint and the conversion queue workers.
+     */
+    public String convertStoredFiles(PreparedOptions options,
+                                     String sequencePath,
+                                     String annotationPath,
+                                     String originalFilename,
+                                     String clientId,
+                                     String uuid) throws IOException {
+        Observation observation = Observation.createNotStarted("genbank.convert", observationRegistry)
+                .contextualName("convert")
+                .lowCardinalityKeyValue("annotation.format", valueOf(options.annotationFormat()))
+                .highCardinalityKeyValue("client.id", valueOf(clientId))
+                .highCardinalityKeyValue("result.uuid", uuid);
+        return observation.observeChecked(() -> {
+            // Wait for a slot; smaller conversions are admitted ahead of larger ones
+            long sequenceRecords = conversionScheduler.isEnabled() || isTracing()
+                    ? fileStorageService.countFastaRecords(sequencePath) : -1;
+            long uploadedBytes = new File(sequencePath).length() + new File(annotationPath).length();
+            ConversionScheduler.Permit permit = stage("queue")
+                    .observe(() -> conversionScheduler.admit(uploadedBytes, sequenceRecords, clientId));
+            if (permit.getLane() != null) {
+                observation.lowCardinalityKeyValue("scheduler.lane", permit.getLane().name().toLowerCase());
             }
-            if (request.getIncludeStopCodon() != null) {
-                translationBuilder.includeStopCodon(request.getIncludeStopCodon());
+
+            File outputFile = null;
+            File convertedAnnotation = null;
+            try {
+                // Create converter instance using builder
+                GenbankConverter converter = GenbankConverter.builder()
+                        .withAnnotationParser(new FastaAnnotationParser())
+                        .build();
+
+                // GFF3/GTF annotations are converted to the FASTA annotation layout first
+                if (options.gff()) {
+                    convertedAnnotation = stage("annotation").observeChecked(() -> gffAnnotationService
+                            .toFastaAnnotation(sequencePath, annotationPath, options.annotationFormat()));
+                }
+
+                File sequence = new File(sequencePath);
+                File annotation = options.gff() ? convertedAnnotation : new File(annotationPath);
+                observation.highCardinalityKeyValue("sequence.bytes", Long.toString(sequence.length()))
+                        .highCardinalityKeyValue("annotation.bytes", Long.toString(annotation.length()));
+                if (isTracing()) {
+                    observation.highCardinalityKeyValue("sequence.records", Long.toString(sequenceRecords));
+                }
+
+                // Heap budget covering the parsed inputs and the result, taken at admission by the
+                // scheduler or waited for here before parsing
+                long inputBytes = sequence.length() + annotation.length();
+                try (MemoryBudgetService.Reservation reservation = permit.getReservation() != null
+                        ? permit.getReservation()
+                        : stage("reserve").observe(() -> memoryBudgetService.reserveForConversion(inputBytes))) {
+
+                    // Write the result next to its final location so it can be published atomically
+                    File output = fileStorageService.createResultTempFile();
+                    outputFile = output;
+                    convert(converter, sequence, annotation, options.options(), output);
+                    if (options.tableTranslation() && !stage("translate").observeChecked(() -> cdsTranslationService
+                            .addTranslations(output, options.translTable(), options.includeStopCodon()))) {
+                        // A CDS the table engine does not handle: let the library translate them all.
+                        // The first result is already unreachable, so only one is held within the reservation
+                        ConversionOptions libraryOptions =
+                                conversionOptionsFactory.withLibraryTranslation(options).options();
+                        convert(converter, sequence, annotation, libraryOptions, output);
+                    }
+                    observation.highCardinalityKeyValue("output.bytes", Long.toString(output.length()));
+                }
+
+                // Store the file for 24 hours under the requested UUID
+                String stored = fileStorageService.storeGenbankResult(outputFile, originalFilename, clientId, uuid);
+                startupTimingService.recordConversion();
+                return stored;
+            } finally {
+                // Clean up temporary files
+                if (outputFile != null) {
+                    outputFile.delete();
+                }
+                if (convertedAnnotation != null) {
+                    convertedAnnotation.delete();
+                }
+                permit.close();
             }
+        });
+    }
+
+    /**
+     * Parses the inputs and writes the result (parsing, annotation and translation all happen
+     * inside the library). The GenbankResult does not outlive the call.
+     */
+    private void convert(GenbankConverter converter, File sequence, File annotation, ConversionOptions options,
+                         File output) throws IOException {
+        GenbankResult result = stage("parse").observe(() -> converter.convert(sequence, annotation, options));
+        stage("write").observeChecked(() -> result.writeToFile(output));
+    }
 
-            TranslationOptions translationOptions = translationBuilder.build();
-
-            // Configure conversion options
-            ConversionOptions options = ConversionOptions.builder()
-                    .organism(request.getOrganism())
-                    .moleculeType(request.getMoleculeType())
-                    .topology(request.getTopology())
-                    .division(request.getDivision())
-                    .annotationFormat(request.getAnnotationFormat())
-                    .headerInfo(headerInfo)
-                    .translationOptions(translationOptions)
-                    .build();
-
-            // Convert files
-            GenbankResult result = converter.convert(
-                    new File(sequencePath),
-                    new File(annotationPath),
-                    options);
-
-            // Create a temporary file for the result
-            File outputFile = File.createTempFile("genbank-result-", ".gb");
-            result.writeToFile(outputFile);
-
-            // Store the file for 24 hours
-            String uuid = fileStorageService.storeGenbankResult(
-                    outputFile,
-                    sequenceFile.getOriginalFilename(),
-                    clientId   // Include the client ID
-            );
-
-
-            // Clean up temporary files
-            outputFile.delete();
-
-            // Return response with file UUID and download URL
-            return ConversionResponse.builder()
-                    .uuid(uuid)
-                    .downloadUrl("/api/v1/files/" + uuid)
-                    .message("Conversion successful. File will be available for 24 hours.")
-                    .build();
-        } catch (Exception e) {
-            log.error("Error during conversion", e);
-            throw new ConversionException("Failed to convert files: " + e.getMessage(), e);
-        }
+    /**
+     * Child observation for one step of a conversion
+     */
+    private Observation stage(String name) {
+        return Observation.createNotStarted("genbank.convert." + name, observationRegistry)
+                .contextualName("convert " + name);
+    }
+
+    /**
+     * Whether the current span is sampled and recorded
+     */
+    private boolean isTracing() {
+        Tracer current = tracer.getIfAvailable();
+        Span span = current != null ? current.currentSpan() : null;
+        return span != null && !span.isNoop();
+    }
+
+    private static String valueOf(String value) {
+        return value != null ? value : "";
     }
 
     public List<FileMetadata> getAllFiles() {
         return fileStorageService.getAllFiles();
     }
 
+    /**
+     * Cached, pre-serialised listing for a client (all files when clientId is empty)
+     */
+    public FileListingService.FileListing getFileListing(String clientId) {
+        String key = clientId != null && !clientId.isEmpty() ? clientId : null;
+        return fileListingService.getListing(key, fileStorageService.getMetadataVersion(), () -> key == null
+                ? fileStorageService.getAllFiles()
+                : fileStorageService.getFilesForClient(key));
+    }
+
+    /**
+     * Whether this node can read the result from its own storage
+     */
+    public boolean isServedLocally(FileMetadata metadata) {
+        return clusterCoordinator.isServedLocally(metadata);
+    }
+
+    /**
+     * Base URL of the node owning a result when it is not readable here, null if unavailable
+     */
+    public String findOwnerUrl(FileMetadata metadata) {
+        return clusterCoordinator.findOwnerUrl(metadata);
+    }
+
     public File getFileByUuid(String uuid) {
         return fileStorageService.getFileAsResource(uuid);
     }
 
+    /**
+     * Byte range of one record of a stored result, null if it has no record with that name
+     */
+    public GenbankRecordIndex.Entry findRecord(String uuid, String locus) {
+        return fileStorageService.findRecord(uuid, locus);
+    }
+
+    public List<GenbankRecordIndex.Entry> listRecords(String uuid) {
+        return fileStorageService.listRecords(uuid);
+    }
+
+    public Path getDerivedFile(String uuid, DerivedFormatService.Format format) {
+        return derivedFormatService.getDerivedFile(uuid, format);
+    }
+
     /**
      * New method to get file metadata
      */
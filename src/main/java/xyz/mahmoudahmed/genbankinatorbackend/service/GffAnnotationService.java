@@ -0,0 +1,491 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * GFF3 and GTF annotation support.
+ *
+ * The converter library only reads FASTA annotations, so GFF3/GTF uploads are read line by
+ * line into a {@link FeatureIntervalIndex} (memory grows with the number of features, not
+ * the file size), checked against the sequence records and written out as a FASTA
+ * annotation file holding each feature's bases, which then goes through the usual parser.
+ */
+@Service
+@Slf4j
+public class GffAnnotationService {
+
+    public enum Format { GFF3, GTF }
+
+    private static final int LINE_WIDTH = 70;
+
+    @Value("${annotation.gff.feature-types:gene,CDS,tRNA,rRNA,ncRNA}")
+    private Set<String> featureTypes;
+
+    @Value("${annotation.gff.max-reported-issues:20}")
+    private int maxReportedIssues;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    /**
+     * The GFF flavour named by a request's annotationFormat, null for other formats
+     */
+    public static Format formatOf(String annotationFormat) {
+        if (annotationFormat == null) {
+            return null;
+        }
+        return switch (annotationFormat.toLowerCase(Locale.ROOT)) {
+            case "gff", "gff3" -> Format.GFF3;
+            case "gtf", "gff2" -> Format.GTF;
+            default -> null;
+        };
+    }
+
+    public boolean supports(String annotationFormat) {
+        return formatOf(annotationFormat) != null;
+    }
+
+    /**
+     * Converts a GFF3/GTF file into a FASTA annotation file for the given sequence file.
+     * Fails with the first issues found when features refer to unknown sequences or run
+     * past the end of their sequence.
+     *
+     * @return a temporary file the caller deletes
+     */
+    public File toFastaAnnotation(String sequencePath, String annotationPath, String annotationFormat)
+            throws IOException {
+        FeatureIntervalIndex index = readFeatures(Paths.get(annotationPath), formatOf(annotationFormat));
+
+        File output = fileStorageService.createResultTempFile();
+        List<String> issues = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(sequencePath), StandardCharsets.ISO_8859_1);
+             BufferedWriter out = Files.newBufferedWriter(output.toPath(), StandardCharsets.ISO_8859_1)) {
+            String id = null;
+            Bases bases = new Bases();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(">")) {
+                    if (id != null) {
+                        writeRecord(id, bases, index, out, issues);
+                    }
+                    id = recordId(line);
+                    seen.add(id);
+                    bases.clear();
+                } else {
+                    bases.append(line);
+                }
+            }
+            if (id != null) {
+                writeRecord(id, bases, index, out, issues);
+            }
+        } catch (IOException | RuntimeException e) {
+            output.delete();
+            throw e;
+        }
+
+        for (String seqId : index.seqIds()) {
+            if (!seen.contains(seqId)) {
+                issues.add(index.features(seqId).size() + " features refer to sequence '" + seqId
+                        + "' which is not in the sequence file");
+            }
+        }
+        if (!issues.isEmpty()) {
+            output.delete();
+            throw new IllegalArgumentException("Annotation does not match the sequence file: "
+                    + String.join("; ", issues.subList(0, Math.min(issues.size(), maxReportedIssues)))
+                    + (issues.size() > maxReportedIssues ? " (" + issues.size() + " issues in total)" : ""));
+        }
+        log.debug("Converted {} {} features for {} sequences", index.size(), annotationFormat, seen.size());
+        return output.getAbsoluteFile();
+    }
+
+    /**
+     * Reads the features of the configured types, joining the lines of multi-segment
+     * features (same GFF3 ID, or same GTF transcript for exons and CDS)
+     */
+    public FeatureIntervalIndex readFeatures(Path path, Format format) throws IOException {
+        Map<String, Pending> pending = new LinkedHashMap<>();
+        // GFF3 only: gene names and parents by ID, to name CDS and RNA features after their gene
+        Map<String, String> names = new HashMap<>();
+        Map<String, String> parents = new HashMap<>();
+
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.startsWith("##FASTA") || line.startsWith(">")) {
+                    break;
+                }
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] columns = line.split("\t", -1);
+                if (columns.length < 9) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": expected 9 tab-separated columns, found "
+                            + columns.length);
+                }
+                String seqId = columns[0];
+                String type = columns[2];
+                long start = parsePosition(columns[3], lineNumber);
+                long end = parsePosition(columns[4], lineNumber);
+                if (start > end) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": start " + start + " is after end " + end);
+                }
+                char strand = columns[6].isEmpty() ? '.' : columns[6].charAt(0);
+                Map<String, String> attributes = format == Format.GFF3
+                        ? gff3Attributes(columns[8])
+                        : gtfAttributes(columns[8]);
+
+                String key;
+                if (format == Format.GFF3) {
+                    String id = attributes.get("ID");
+                    if (id != null) {
+                        String name = firstOf(attributes, "gene", "Name");
+                        if (name != null) {
+                            names.putIfAbsent(id, name);
+                        }
+                        if (attributes.containsKey("Parent")) {
+                            parents.putIfAbsent(id, attributes.get("Parent"));
+                        }
+                    }
+                    key = id != null ? "ID:" + id
+                            : attributes.containsKey("Parent") ? type + ":" + attributes.get("Parent")
+                            : "line:" + lineNumber;
+                } else {
+                    key = switch (type) {
+                        case "gene" -> "gene:" + attributes.get("gene_id");
+                        case "transcript" -> "transcript:" + attributes.get("transcript_id");
+                        case "exon", "CDS" -> type + ":" + attributes.get("transcript_id");
+                        default -> "line:" + lineNumber;
+                    };
+                }
+
+                if (!featureTypes.contains(type)) {
+                    continue;
+                }
+                Pending feature = pending.get(key);
+                if (feature == null) {
+                    pending.put(key, new Pending(seqId, type, strand, attributes, lineNumber, start, end));
+                } else if (!feature.seqId.equals(seqId) || feature.strand != strand) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": segments of one feature must share"
+                            + " sequence and strand");
+                } else {
+                    feature.addSegment(start, end);
+                }
+            }
+        }
+
+        FeatureIntervalIndex.Builder index = FeatureIntervalIndex.builder();
+        for (Pending feature : pending.values()) {
+            index.add(feature.toFeature(qualifiers(feature.attributes, format, names, parents)));
+        }
+        return index.build();
+    }
+
+    private static Map<String, String> qualifiers(Map<String, String> attributes, Format format,
+                                                  Map<String, String> names, Map<String, String> parents) {
+        Map<String, String> qualifiers = new LinkedHashMap<>();
+        String gene;
+        if (format == Format.GFF3) {
+            gene = firstOf(attributes, "gene", "Name");
+            String parent = attributes.get("Parent");
+            // Walk up a few levels (CDS -> mRNA -> gene)
+            for (int depth = 0; gene == null && parent != null && depth < 4; depth++) {
+                String first = parent.split(",")[0];
+                gene = names.get(first);
+                parent = parents.get(first);
+            }
+        } else {
+            gene = firstOf(attributes, "gene_name", "gene_id");
+        }
+        if (gene != null) {
+            qualifiers.put("gene", gene);
+        }
+        putIfPresent(qualifiers, "locus_tag", attributes.get("locus_tag"));
+        putIfPresent(qualifiers, "product", attributes.get("product"));
+        putIfPresent(qualifiers, "note", attributes.get("Note"));
+        return qualifiers;
+    }
+
+    private void writeRecord(String id, Bases bases, FeatureIntervalIndex index, BufferedWriter out,
+                             List<String> issues) throws IOException {
+        for (FeatureIntervalIndex.Feature feature : index.outOfBounds(id, bases.length)) {
+            issues.add("line " + feature.line() + ": " + feature.type() + " " + feature.start() + ".."
+                    + feature.end() + " runs past the end of '" + id + "' (" + bases.length + " bp)");
+        }
+        if (!issues.isEmpty()) {
+            // Keep checking the remaining records but stop writing
+            return;
+        }
+
+        for (FeatureIntervalIndex.Feature feature : index.features(id)) {
+            StringBuilder header = new StringBuilder(">").append(id).append(':')
+                    .append(feature.start()).append('-').append(feature.end());
+            feature.qualifiers().forEach((key, value) -> header.append(" [").append(key).append('=')
+                    .append(value).append(']'));
+            header.append(" [location=").append(location(feature)).append("] [gbkey=")
+                    .append(feature.type()).append("]\n");
+            out.write(header.toString());
+            writeWrapped(out, featureBases(feature, bases));
+        }
+    }
+
+    /**
+     * The feature's bases in its own orientation
+     */
+    private static byte[] featureBases(FeatureIntervalIndex.Feature feature, Bases bases) {
+        long[] segments = feature.segments();
+        int length = 0;
+        for (int i = 0; i < segments.length; i += 2) {
+            length += (int) (segments[i + 1] - segments[i] + 1);
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < segments.length; i += 2) {
+            int from = (int) segments[i] - 1;
+            int count = (int) (segments[i + 1] - segments[i] + 1);
+            System.arraycopy(bases.data, from, result, offset, count);
+            offset += count;
+        }
+        if (feature.strand() == '-') {
+            for (int i = 0, j = result.length - 1; i <= j; i++, j--) {
+                byte left = complement(result[i]);
+                result[i] = complement(result[j]);
+                result[j] = left;
+            }
+        }
+        return result;
+    }
+
+    private static byte complement(byte base) {
+        return switch (base) {
+            case 'A' -> 'T';
+            case 'T' -> 'A';
+            case 'G' -> 'C';
+            case 'C' -> 'G';
+            case 'a' -> 't';
+            case 't' -> 'a';
+            case 'g' -> 'c';
+            case 'c' -> 'g';
+            default -> base;
+        };
+    }
+
+    private static String location(FeatureIntervalIndex.Feature feature) {
+        long[] segments = feature.segments();
+        StringBuilder location = new StringBuilder();
+        for (int i = 0; i < segments.length; i += 2) {
+            if (i > 0) {
+                location.append(',');
+            }
+            location.append(segments[i]).append("..").append(segments[i + 1]);
+        }
+        String span = segments.length > 2 ? "join(" + location + ")" : location.toString();
+        return feature.strand() == '-' ? "complement(" + span + ")" : span;
+    }
+
+    private static void writeWrapped(BufferedWriter out, byte[] bases) throws IOException {
+        for (int i = 0; i < bases.length; i += LINE_WIDTH) {
+            out.write(new String(bases, i, Math.min(LINE_WIDTH, bases.length - i), StandardCharsets.ISO_8859_1));
+            out.write('\n');
+        }
+    }
+
+    private static String recordId(String header) {
+        String id = header.substring(1).trim();
+        int space = id.indexOf(' ');
+        int tab = id.indexOf('\t');
+        int end = space < 0 ? tab : tab < 0 ? space : Math.min(space, tab);
+        return end < 0 ? id : id.substring(0, end);
+    }
+
+    private static long parsePosition(String value, long lineNumber) {
+        try {
+            long position = Long.parseLong(value.trim());
+            if (position < 1 || position > Integer.MAX_VALUE) {
+                throw new NumberFormatException();
+            }
+            return position;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": invalid position '" + value + "'");
+        }
+    }
+
+    /**
+     * GFF3 column 9: key=value pairs separated by ';', values percent-encoded
+     */
+    private static Map<String, String> gff3Attributes(String column) {
+        Map<String, String> attributes = new HashMap<>();
+        for (String pair : column.split(";")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                attributes.put(pair.substring(0, equals).trim(), percentDecode(pair.substring(equals + 1).trim()));
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * GTF column 9: key "value"; pairs
+     */
+    private static Map<String, String> gtfAttributes(String column) {
+        Map<String, String> attributes = new HashMap<>();
+        for (String pair : column.split(";")) {
+            String trimmed = pair.trim();
+            int space = trimmed.indexOf(' ');
+            if (space > 0) {
+                String value = trimmed.substring(space + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                attributes.putIfAbsent(trimmed.substring(0, space), value);
+            }
+        }
+        return attributes;
+    }
+
+    private static String percentDecode(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        StringBuilder decoded = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' && i + 2 < value.length()) {
+                int high = Character.digit(value.charAt(i + 1), 16);
+                int low = Character.digit(value.charAt(i + 2), 16);
+                if (high >= 0 && low >= 0) {
+                    decoded.append((char) (high * 16 + low));
+                    i += 2;
+                    continue;
+                }
+            }
+            decoded.append(c);
+        }
+        return decoded.toString();
+    }
+
+    private static String firstOf(Map<String, String> attributes, String... keys) {
+        for (String key : keys) {
+            String value = attributes.get(key);
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static void putIfPresent(Map<String, String> map, String key, String value) {
+        if (value != null && !value.isEmpty()) {
+            map.put(key, value);
+        }
+    }
+
+    /**
+     * A feature while its lines are being collected; segments as start/end pairs
+     */
+    private static final class Pending {
+        final String seqId;
+        final String type;
+        final char strand;
+        final Map<String, String> attributes;
+        final long line;
+        long[] segments;
+        int count;
+
+        Pending(String seqId, String type, char strand, Map<String, String> attributes, long line,
+                long start, long end) {
+            this.seqId = seqId;
+            this.type = type;
+            this.strand = strand;
+            this.attributes = attributes;
+            this.line = line;
+            this.segments = new long[] {start, end};
+            this.count = 2;
+        }
+
+        void addSegment(long start, long end) {
+            if (count == segments.length) {
+                segments = Arrays.copyOf(segments, count * 2);
+            }
+            segments[count++] = start;
+            segments[count++] = end;
+        }
+
+        FeatureIntervalIndex.Feature toFeature(Map<String, String> qualifiers) {
+            long[] sorted = Arrays.copyOf(segments, count);
+            if (count > 2) {
+                // Order segment pairs by start
+                long[][] pairs = new long[count / 2][];
+                for (int i = 0; i < pairs.length; i++) {
+                    pairs[i] = new long[] {sorted[2 * i], sorted[2 * i + 1]};
+                }
+                Arrays.sort(pairs, (a, b) -> Long.compare(a[0], b[0]));
+                for (int i = 0; i < pairs.length; i++) {
+                    sorted[2 * i] = pairs[i][0];
+                    sorted[2 * i + 1] = pairs[i][1];
+                }
+            }
+            return new FeatureIntervalIndex.Feature(seqId, type, sorted[0], maxEnd(sorted), strand, sorted,
+                    qualifiers, line);
+        }
+
+        private static long maxEnd(long[] segments) {
+            long end = 0;
+            for (int i = 1; i < segments.length; i += 2) {
+                end = Math.max(end, segments[i]);
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Growable byte array for the bases of one sequence record
+     */
+    private static final class Bases {
+        byte[] data = new byte[64 * 1024];
+        int length;
+
+        void clear() {
+            length = 0;
+        }
+
+        void append(String line) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+                data[length++] = (byte) c;
+            }
+        }
+    }
+}
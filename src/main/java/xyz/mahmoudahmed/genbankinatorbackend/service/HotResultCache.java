@@ -0,0 +1,354 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recently converted results held in direct memory, for the download that usually follows
+ * a conversion within seconds.
+ *
+ * A result is copied in when it is published, while it is still in the page cache, and
+ * served from memory without a metadata lookup, directory scan or disk read. All entries
+ * live in one direct region of file.hot-cache.size bytes allocated at startup and split into
+ * 64KB blocks, so the cache never holds more native memory than that however many results
+ * pass through it. Results are evicted oldest first when blocks run out, after
+ * file.hot-cache.ttl, on their first complete download (file.hot-cache.evict-on-download)
+ * and when the result is deleted.
+ *
+ * {@link #get} pins an entry; its blocks are only reused after the reader hands it back with
+ * {@link #release}, so an eviction during a download never overwrites bytes being sent.
+ */
+@Service
+@Slf4j
+public class HotResultCache {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    @Value("${file.hot-cache.size:64MB}")
+    private DataSize size;
+
+    @Value("${file.hot-cache.max-entry-size:8MB}")
+    private DataSize maxEntrySize;
+
+    @Value("${file.hot-cache.ttl:120s}")
+    private Duration ttl;
+
+    @Value("${file.hot-cache.evict-on-download:true}")
+    private boolean evictOnDownload;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    // Insertion order is age order, so the eldest entry is evicted first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private long bytes;
+
+    private ByteBuffer region;
+    private int[] freeBlocks = new int[0];
+    private int freeCount;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final Map<String, LongAdder> evictions = Map.of(
+            "size", new LongAdder(), "age", new LongAdder(), "download", new LongAdder());
+
+    @PostConstruct
+    public void init() {
+        if (isEnabled()) {
+            long blocks = (size.toBytes() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            if (blocks * BLOCK_SIZE > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("file.hot-cache.size must be below 2GB");
+            }
+            region = ByteBuffer.allocateDirect((int) blocks * BLOCK_SIZE);
+            freeBlocks = new int[(int) blocks];
+            for (int i = 0; i < blocks; i++) {
+                freeBlocks[i] = (int) blocks - 1 - i;
+            }
+            freeCount = (int) blocks;
+        }
+        meterRegistry.ifAvailable(registry -> {
+            FunctionCounter.builder("file.hot-cache.requests", hits, LongAdder::sum)
+                    .tag("result", "hit")
+                    .description("Downloads served from the hot result cache")
+                    .register(registry);
+            FunctionCounter.builder("file.hot-cache.requests", misses, LongAdder::sum)
+                    .tag("result", "miss")
+                    .description("Downloads of results not in the hot result cache")
+                    .register(registry);
+            FunctionCounter.builder("file.hot-cache.served", bytesServed, LongAdder::sum)
+                    .baseUnit("bytes")
+                    .description("Bytes sent from the hot result cache")
+                    .register(registry);
+            evictions.forEach((reason, count) -> FunctionCounter.builder("file.hot-cache.evictions", count, LongAdder::sum)
+                    .tag("reason", reason)
+                    .description("Results removed from the hot result cache")
+                    .register(registry));
+            Gauge.builder("file.hot-cache.hit-ratio", this, HotResultCache::hitRatio)
+                    .description("Share of downloads served from the hot result cache")
+                    .register(registry);
+            Gauge.builder("file.hot-cache.size", this, cache -> cache.getStats().bytes())
+                    .baseUnit("bytes")
+                    .description("Bytes of cached results in the hot result cache")
+                    .register(registry);
+        });
+    }
+
+    public boolean isEnabled() {
+        return size.toBytes() > 0;
+    }
+
+    /**
+     * Copies a just-published result into the cache, unless it is larger than
+     * file.hot-cache.max-entry-size or the blocks it needs are held by running downloads
+     */
+    public void put(String uuid, Path file, String clientId) {
+        if (!isEnabled()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Math.min(maxEntrySize.toBytes(), region.capacity())) {
+                return;
+            }
+            int[] blocks = reserve((int) ((length + BLOCK_SIZE - 1) / BLOCK_SIZE));
+            if (blocks == null) {
+                return;
+            }
+
+            // Filled outside the lock; the blocks belong to no entry until it is added
+            ByteBuffer[] chunks = new ByteBuffer[blocks.length];
+            long position = 0;
+            for (int i = 0; i < blocks.length; i++) {
+                int chunkLength = (int) Math.min(BLOCK_SIZE, length - position);
+                ByteBuffer chunk = region.slice(blocks[i] * BLOCK_SIZE, chunkLength);
+                while (chunk.hasRemaining()) {
+                    if (channel.read(chunk, position + chunk.position()) < 0) {
+                        free(blocks);
+                        return;
+                    }
+                }
+                chunks[i] = chunk.flip().asReadOnlyBuffer();
+                position += chunkLength;
+            }
+
+            synchronized (this) {
+                retire(entries.remove(uuid));
+                entries.put(uuid, new Entry(uuid, file.getFileName().toString(), clientId, length,
+                        blocks, chunks, System.nanoTime()));
+                bytes += length;
+            }
+        } catch (IOException e) {
+            // The file went away; the download reads it from disk instead
+            log.debug("Could not cache result {}: {}", uuid, e.getMessage());
+        }
+    }
+
+    /**
+     * The cached result, pinned until it is handed back with {@link #release}, or null;
+     * counted as a hit or a miss
+     */
+    public synchronized Entry get(String uuid) {
+        Entry entry = entries.get(uuid);
+        if (entry != null && expired(entry, System.nanoTime())) {
+            remove(uuid, "age");
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.readers++;
+        return entry;
+    }
+
+    /**
+     * Hands back an entry from {@link #get} once its download has ended
+     *
+     * @param complete whether the whole result was sent
+     */
+    public synchronized void release(Entry entry, boolean complete) {
+        entry.readers--;
+        if (complete) {
+            bytesServed.add(entry.length());
+        }
+        if (entry.retired) {
+            // Evicted or replaced while it was being read
+            if (entry.readers == 0) {
+                free(entry.blocks);
+            }
+        } else if (complete && evictOnDownload) {
+            remove(entry.uuid(), "download");
+        }
+    }
+
+    public synchronized void invalidate(String uuid) {
+        retire(entries.remove(uuid));
+    }
+
+    @Scheduled(fixedDelayString = "${file.hot-cache.sweep-interval:PT30S}")
+    public synchronized void evictExpired() {
+        long now = System.nanoTime();
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext()) {
+            Entry entry = oldest.next();
+            if (!expired(entry, now)) {
+                // Entries are in age order, so the rest are younger
+                break;
+            }
+            oldest.remove();
+            retire(entry);
+            evictions.get("age").increment();
+        }
+    }
+
+    public synchronized HotCacheStats getStats() {
+        return new HotCacheStats(entries.size(), bytes, region != null ? region.capacity() : 0,
+                hits.sum(), misses.sum(), bytesServed.sum());
+    }
+
+    private double hitRatio() {
+        long total = hits.sum() + misses.sum();
+        return total == 0 ? 0 : (double) hits.sum() / total;
+    }
+
+    private boolean expired(Entry entry, long now) {
+        return now - entry.created() > ttl.toNanos();
+    }
+
+    private void remove(String uuid, String reason) {
+        Entry entry = entries.remove(uuid);
+        if (entry != null) {
+            retire(entry);
+            evictions.get(reason).increment();
+        }
+    }
+
+    /**
+     * Takes free blocks, evicting the oldest entries while too few are free; null if the
+     * blocks of pinned entries leave too few even then
+     */
+    private synchronized int[] reserve(int count) {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (freeCount < count && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            retire(entry);
+            evictions.get("size").increment();
+        }
+        if (freeCount < count) {
+            return null;
+        }
+        int[] blocks = new int[count];
+        for (int i = 0; i < count; i++) {
+            blocks[i] = freeBlocks[--freeCount];
+        }
+        return blocks;
+    }
+
+    private synchronized void free(int[] blocks) {
+        for (int block : blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    /**
+     * Accounts for an entry leaving the map; its blocks are freed now or by its last reader
+     */
+    private void retire(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        bytes -= entry.length();
+        entry.retired = true;
+        if (entry.readers == 0) {
+            free(entry.blocks);
+        }
+    }
+
+    /**
+     * A cached result; readers take {@link #chunks()} between {@link #get} and {@link #release}
+     */
+    public static final class Entry {
+        private final String uuid;
+        private final String storedName;
+        private final String clientId;
+        private final long length;
+        private final int[] blocks;
+        private final ByteBuffer[] chunks;
+        private final long created;
+
+        // Guarded by the cache
+        private int readers;
+        private boolean retired;
+
+        private Entry(String uuid, String storedName, String clientId, long length, int[] blocks,
+                      ByteBuffer[] chunks, long created) {
+            this.uuid = uuid;
+            this.storedName = storedName;
+            this.clientId = clientId;
+            this.length = length;
+            this.blocks = blocks;
+            this.chunks = chunks;
+            this.created = created;
+        }
+
+        public String uuid() {
+            return uuid;
+        }
+
+        public String storedName() {
+            return storedName;
+        }
+
+        public String clientId() {
+            return clientId;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        long created() {
+            return created;
+        }
+
+        /**
+         * Independent read-only views of the result's blocks, in order
+         */
+        public List<ByteBuffer> chunks() {
+            List<ByteBuffer> views = new ArrayList<>(chunks.length);
+            for (ByteBuffer chunk : chunks) {
+                views.add(chunk.duplicate());
+            }
+            return views;
+        }
+    }
+
+    public record HotCacheStats(int entries, long bytes, long capacity, long hits, long misses, long bytesServed) {
+    }
+}
@@ -0,0 +1,229 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
+
+/**
+ * Heap budget for uploads and conversions.
+ *
+ * The budget (conversion.memory.budget, half the max heap by default) is split in two.
+ * A fixed share is set aside for multipart parts Tomcat keeps in memory; MultipartConfig
+ * caps the spill threshold so that all request threads together stay within it. The rest
+ * is handed out to conversions, which reserve an estimate of their parsed inputs and
+ * GenbankResult before parsing. With the {@link ConversionScheduler} enabled the reservation
+ * is taken at admission, which passes over conversions that do not fit; otherwise
+ * conversions wait here in arrival order while the budget is exhausted.
+ */
+@Service
+@Slf4j
+public class MemoryBudgetService {
+
+    @Value("${conversion.memory.budget:0B}")
+    private DataSize configuredBudget;
+
+    @Value("${conversion.memory.upload-share:0.25}")
+    private double uploadShare;
+
+    @Value("${conversion.memory.bytes-per-input-byte:8}")
+    private int bytesPerInputByte;
+
+    @Value("${conversion.memory.wait-timeout:60s}")
+    private Duration waitTimeout;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    // Waiting reservations in arrival order; only the head may take budget
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private long budget;
+    private long uploadReserve;
+    private long conversionBudget;
+
+    private long inUse;
+    private long peakInUse;
+    private long timeouts;
+
+    @PostConstruct
+    public void init() {
+        this.budget = configuredBudget.toBytes() > 0
+                ? configuredBudget.toBytes()
+                : Runtime.getRuntime().maxMemory() / 2;
+        this.uploadReserve = (long) (budget * uploadShare);
+        this.conversionBudget = budget - uploadReserve;
+        log.info("Memory budget: {} MB ({} MB for in-memory uploads, {} MB for conversions)",
+                budget >> 20, uploadReserve >> 20, conversionBudget >> 20);
+    }
+
+    /**
+     * Heap set aside for multipart parts held in memory
+     */
+    public long getUploadReserve() {
+        return uploadReserve;
+    }
+
+    /**
+     * Reserves the estimated heap cost of converting inputs of the given total size,
+     * waiting up to conversion.memory.wait-timeout.
+     */
+    public Reservation reserveForConversion(long inputBytes) {
+        return acquire(estimateForConversion(inputBytes), waitTimeout);
+    }
+
+    /**
+     * Estimated heap cost of converting inputs of the given total size
+     */
+    public long estimateForConversion(long inputBytes) {
+        return inputBytes > Long.MAX_VALUE / bytesPerInputByte
+                ? Long.MAX_VALUE
+                : inputBytes * bytesPerInputByte;
+    }
+
+    /**
+     * Whether a reservation of the given size would be granted now
+     */
+    public boolean fits(long bytes) {
+        lock.lock();
+        try {
+            return waiters.isEmpty() && inUse + clamp(bytes) <= conversionBudget;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves bytes without waiting, clamped like {@link #acquire}
+     *
+     * @param onRelease called after the reservation is returned
+     * @return the reservation, or null if it does not fit now
+     */
+    public Reservation tryAcquire(long bytes, Runnable onRelease) {
+        long amount = clamp(bytes);
+        lock.lock();
+        try {
+            if (!waiters.isEmpty() || inUse + amount > conversionBudget) {
+                return null;
+            }
+            inUse += amount;
+            peakInUse = Math.max(peakInUse, inUse);
+            return new Reservation(amount, onRelease);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves bytes from the conversion budget. A request larger than the whole budget
+     * is clamped to it, so it runs once everything else has finished rather than never.
+     *
+     * @throws ServiceUnavailableException if the budget does not free up in time
+     */
+    public Reservation acquire(long bytes, Duration timeout) {
+        long amount = clamp(bytes);
+        long remainingNanos = timeout.toNanos();
+
+        lock.lock();
+        try {
+            Waiter self = new Waiter();
+            waiters.addLast(self);
+            try {
+                while (waiters.peekFirst() != self || inUse + amount > conversionBudget) {
+                    if (remainingNanos <= 0) {
+                        timeouts++;
+                        throw new ServiceUnavailableException("Memory budget exhausted, retry later");
+                    }
+                    remainingNanos = released.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException("Interrupted while waiting for memory budget", e);
+            } finally {
+                waiters.remove(self);
+                // The next waiter may fit now that this one has left the head
+                released.signalAll();
+            }
+
+            inUse += amount;
+            peakInUse = Math.max(peakInUse, inUse);
+            return new Reservation(amount, null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public MemoryStats getStats() {
+        lock.lock();
+        try {
+            Runtime runtime = Runtime.getRuntime();
+            return new MemoryStats(budget, uploadReserve, conversionBudget, inUse, peakInUse,
+                    waiters.size(), timeouts, runtime.totalMemory() - runtime.freeMemory(), runtime.maxMemory());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long clamp(long bytes) {
+        return Math.min(Math.max(bytes, 0), conversionBudget);
+    }
+
+    private void release(long amount) {
+        lock.lock();
+        try {
+            inUse -= amount;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserved budget, returned on close
+     */
+    public final class Reservation implements AutoCloseable {
+        private final long bytes;
+        private final Runnable onRelease;
+        private boolean closed;
+
+        private Reservation(long bytes, Runnable onRelease) {
+            this.bytes = bytes;
+            this.onRelease = onRelease;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(bytes);
+                if (onRelease != null) {
+                    onRelease.run();
+                }
+            }
+        }
+    }
+
+    // Compared by identity, so equal-sized waiters stay distinct
+    private static final class Waiter {
+    }
+
+    /**
+     * Budget figures and actual heap use, in bytes
+     */
+    public record MemoryStats(long budget, long uploadReserve, long conversionBudget, long inUse,
+                              long peakInUse, int waiting, long timeouts, long heapUsed, long heapMax) {
+    }
+}
@@ -0,0 +1,488 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadataCodec;
+
+/**
+ * Off-heap metadata index for long retention windows.
+ *
+ * Entries live in an open-addressing table of fixed-width slots inside a direct buffer,
+ * keyed on the UUID's two longs. Timestamps are stored as epoch millis, client ids are
+ * interned to ints, reference counted and released with their
+ * last entry, and filenames go into an off-heap string arena. Lookups and scans read
+ * the buffers directly; {@link FileMetadata} objects are only created for returned results.
+ *
+ * Slot layout (48 bytes):
+ * <pre>
+ *   0  long uuid msb        24 long expiresAt      40 int originalFilename arena offset
+ *   8  long uuid lsb        32 int  clientId index 44 int stored file name arena offset
+ *   16 long createdAt       36 int  slot state
+ * </pre>
+ */
+public class OffHeapMetadataTable {
+
+    private static final int SLOT_SIZE = 48;
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    private static final int CREATED_AT = 16;
+    private static final int EXPIRES_AT = 24;
+    private static final int CLIENT = 32;
+    private static final int STATE = 36;
+    private static final int ORIGINAL_NAME = 40;
+    private static final int FILE_NAME = 44;
+
+    private static final int EMPTY = 0;
+    private static final int USED = 1;
+    private static final int DELETED = 2;
+
+    private static final int NONE = -1;
+    private static final double MAX_LOAD = 0.6;
+
+    // Compact the arena once at least this much of it is garbage
+    private static final int MIN_COMPACTION_GARBAGE = 1 << 20;
+
+    private final Path storageRoot;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> clientIndexes = new HashMap<>();
+    private final List<String> clientIds = new ArrayList<>();
+    private final List<Integer> clientRefs = new ArrayList<>();
+    private final Deque<Integer> freeClients = new ArrayDeque<>();
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int used;
+    private int deleted;
+
+    private ByteBuffer arena;
+    private int arenaEnd;
+    private int arenaGarbage;
+
+    public OffHeapMetadataTable(Path storageRoot, int initialCapacity) {
+        this.storageRoot = storageRoot;
+        this.capacity = Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1;
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+        this.arena = ByteBuffer.allocateDirect(capacity * 64);
+    }
+
+    public void put(FileMetadata metadata) {
+        UUID uuid = UUID.fromString(metadata.getUuid());
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(msb, lsb);
+            if (slot >= 0) {
+                releaseStrings(slot);
+                releaseClient(slots.getInt(slot * SLOT_SIZE + CLIENT));
+            } else {
+                ensureCapacity();
+                slot = insertionSlot(msb, lsb);
+                if (stateAt(slot) == DELETED) {
+                    deleted--;
+                }
+                used++;
+            }
+
+            int base = slot * SLOT_SIZE;
+            slots.putLong(base + MSB, msb);
+            slots.putLong(base + LSB, lsb);
+            slots.putLong(base + CREATED_AT, FileMetadataCodec.toEpochMillis(metadata.getCreatedAt()));
+            slots.putLong(base + EXPIRES_AT, FileMetadataCodec.toEpochMillis(metadata.getExpiresAt()));
+            slots.putInt(base + CLIENT, internClient(metadata.getClientId()));
+            slots.putInt(base + ORIGINAL_NAME, appendString(metadata.getOriginalFilename()));
+            slots.putInt(base + FILE_NAME, appendString(fileNameOf(metadata.getFilePath())));
+            slots.putInt(base + STATE, USED);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public FileMetadata get(String uuid) {
+        UUID key = parse(uuid);
+        if (key == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(key.getMostSignificantBits(), key.getLeastSignificantBits());
+            return slot >= 0 ? materialize(slot) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an entry, returning its metadata or null if it was not present
+     */
+    public FileMetadata remove(String uuid) {
+        UUID key = parse(uuid);
+        if (key == null) {
+            return null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(key.getMostSignificantBits(), key.getLeastSignificantBits());
+            if (slot < 0) {
+                return null;
+            }
+
+            FileMetadata removed = materialize(slot);
+            removeSlot(slot);
+            compactIfNeeded();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a batch of entries under a single write lock
+     */
+    public void removeAll(Collection<String> uuids) {
+        lock.writeLock().lock();
+        try {
+            for (String uuid : uuids) {
+                UUID key = parse(uuid);
+                if (key == null) {
+                    continue;
+                }
+                int slot = findSlot(key.getMostSignificantBits(), key.getLeastSignificantBits());
+                if (slot >= 0) {
+                    removeSlot(slot);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeSlot(int slot) {
+        releaseStrings(slot);
+        releaseClient(slots.getInt(slot * SLOT_SIZE + CLIENT));
+        slots.putInt(slot * SLOT_SIZE + STATE, DELETED);
+        used--;
+        deleted++;
+    }
+
+    private void compactIfNeeded() {
+        if (arenaGarbage >= MIN_COMPACTION_GARBAGE && arenaGarbage > arenaEnd / 2) {
+            rehash(capacity);
+        }
+    }
+
+    public List<FileMetadata> findExpired(LocalDateTime now) {
+        long nowMillis = FileMetadataCodec.toEpochMillis(now);
+
+        lock.readLock().lock();
+        try {
+            List<FileMetadata> result = new ArrayList<>();
+            for (int slot = 0; slot < capacity; slot++) {
+                int base = slot * SLOT_SIZE;
+                if (slots.getInt(base + STATE) == USED && slots.getLong(base + EXPIRES_AT) < nowMillis) {
+                    result.add(materialize(slot));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<FileMetadata> findByClient(String clientId) {
+        lock.readLock().lock();
+        try {
+            Integer clientIndex = clientIndexes.get(clientId);
+            if (clientIndex == null) {
+                return List.of();
+            }
+
+            List<FileMetadata> result = new ArrayList<>();
+            for (int slot = 0; slot < capacity; slot++) {
+                int base = slot * SLOT_SIZE;
+                if (slots.getInt(base + STATE) == USED && slots.getInt(base + CLIENT) == clientIndex) {
+                    result.add(materialize(slot));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<FileMetadata> findAll() {
+        lock.readLock().lock();
+        try {
+            List<FileMetadata> result = new ArrayList<>(used);
+            for (int slot = 0; slot < capacity; slot++) {
+                if (stateAt(slot) == USED) {
+                    result.add(materialize(slot));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return used;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct client ids currently interned
+     */
+    int clientCount() {
+        lock.readLock().lock();
+        try {
+            return clientIndexes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Direct memory reserved by the slot table and string arena
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) slots.capacity() + arena.capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Slot table helpers
+
+    private int findSlot(long msb, long lsb) {
+        int mask = capacity - 1;
+        for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            int base = slot * SLOT_SIZE;
+            int state = slots.getInt(base + STATE);
+            if (state == EMPTY) {
+                return NONE;
+            }
+            if (state == USED && slots.getLong(base + MSB) == msb && slots.getLong(base + LSB) == lsb) {
+                return slot;
+            }
+        }
+    }
+
+    private int insertionSlot(long msb, long lsb) {
+        int mask = capacity - 1;
+        int firstDeleted = NONE;
+        for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            int state = stateAt(slot);
+            if (state == EMPTY) {
+                return firstDeleted >= 0 ? firstDeleted : slot;
+            }
+            if (state == DELETED && firstDeleted < 0) {
+                firstDeleted = slot;
+            }
+        }
+    }
+
+    private int stateAt(int slot) {
+        return slots.getInt(slot * SLOT_SIZE + STATE);
+    }
+
+    private void ensureCapacity() {
+        if (used + deleted + 1 <= capacity * MAX_LOAD) {
+            return;
+        }
+        // Mostly tombstones: rebuild at the same size, otherwise grow
+        rehash(used + 1 > capacity * MAX_LOAD / 2 ? capacity << 1 : capacity);
+    }
+
+    /**
+     * Rebuilds the slot table at the given capacity, dropping tombstones and
+     * compacting the string arena in the same pass.
+     */
+    private void rehash(int newCapacity) {
+        ByteBuffer oldSlots = this.slots;
+        ByteBuffer oldArena = this.arena;
+        int oldCapacity = this.capacity;
+
+        this.capacity = newCapacity;
+        this.slots = ByteBuffer.allocateDirect(newCapacity * SLOT_SIZE);
+        this.arena = ByteBuffer.allocateDirect(Math.max(oldArena.capacity() / 2, arenaEnd - arenaGarbage + 1024));
+        this.arenaEnd = 0;
+        this.arenaGarbage = 0;
+        this.deleted = 0;
+
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            int base = slot * SLOT_SIZE;
+            if (oldSlots.getInt(base + STATE) != USED) {
+                continue;
+            }
+
+            long msb = oldSlots.getLong(base + MSB);
+            long lsb = oldSlots.getLong(base + LSB);
+            int target = insertionSlot(msb, lsb) * SLOT_SIZE;
+
+            slots.putLong(target + MSB, msb);
+            slots.putLong(target + LSB, lsb);
+            slots.putLong(target + CREATED_AT, oldSlots.getLong(base + CREATED_AT));
+            slots.putLong(target + EXPIRES_AT, oldSlots.getLong(base + EXPIRES_AT));
+            slots.putInt(target + CLIENT, oldSlots.getInt(base + CLIENT));
+            slots.putInt(target + ORIGINAL_NAME, appendString(readString(oldArena, oldSlots.getInt(base + ORIGINAL_NAME))));
+            slots.putInt(target + FILE_NAME, appendString(readString(oldArena, oldSlots.getInt(base + FILE_NAME))));
+            slots.putInt(target + STATE, USED);
+        }
+    }
+
+    private FileMetadata materialize(int slot) {
+        int base = slot * SLOT_SIZE;
+
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(new UUID(slots.getLong(base + MSB), slots.getLong(base + LSB)).toString());
+        metadata.setCreatedAt(FileMetadataCodec.fromEpochMillis(slots.getLong(base + CREATED_AT)));
+        metadata.setExpiresAt(FileMetadataCodec.fromEpochMillis(slots.getLong(base + EXPIRES_AT)));
+
+        int clientIndex = slots.getInt(base + CLIENT);
+        metadata.setClientId(clientIndex == NONE ? null : clientIds.get(clientIndex));
+        metadata.setOriginalFilename(readString(arena, slots.getInt(base + ORIGINAL_NAME)));
+
+        String fileName = readString(arena, slots.getInt(base + FILE_NAME));
+        metadata.setFilePath(fileName == null ? null : storageRoot.resolve(fileName).toString());
+        return metadata;
+    }
+
+    private int internClient(String clientId) {
+        if (clientId == null) {
+            return NONE;
+        }
+        Integer index = clientIndexes.get(clientId);
+        if (index != null) {
+            clientRefs.set(index, clientRefs.get(index) + 1);
+            return index;
+        }
+
+        // Reuse the index of a client whose last entry was removed
+        index = freeClients.poll();
+        if (index == null) {
+            index = clientIds.size();
+            clientIds.add(clientId);
+            clientRefs.add(1);
+        } else {
+            clientIds.set(index, clientId);
+            clientRefs.set(index, 1);
+        }
+        clientIndexes.put(clientId, index);
+        return index;
+    }
+
+    private void releaseClient(int index) {
+        if (index == NONE) {
+            return;
+        }
+        int refs = clientRefs.get(index) - 1;
+        clientRefs.set(index, refs);
+        if (refs == 0) {
+            clientIndexes.remove(clientIds.get(index));
+            clientIds.set(index, null);
+            freeClients.push(index);
+        }
+    }
+
+    // String arena helpers: each entry is an int byte length followed by UTF-8 bytes
+
+    private int appendString(String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int needed = 4 + bytes.length;
+        if ((long) arenaEnd + needed > arena.capacity()) {
+            growArena(needed);
+        }
+
+        int offset = arenaEnd;
+        arena.putInt(offset, bytes.length);
+        arena.put(offset + 4, bytes);
+        arenaEnd += needed;
+        return offset;
+    }
+
+    private void growArena(int needed) {
+        long newCapacity = Math.max((long) arena.capacity() << 1, (long) arenaEnd + needed);
+        if (newCapacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap metadata arena is full");
+        }
+
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) newCapacity);
+        ByteBuffer content = arena.duplicate();
+        content.position(0).limit(arenaEnd);
+        grown.put(content);
+        this.arena = grown;
+    }
+
+    private void releaseStrings(int slot) {
+        int base = slot * SLOT_SIZE;
+        arenaGarbage += stringSize(slots.getInt(base + ORIGINAL_NAME));
+        arenaGarbage += stringSize(slots.getInt(base + FILE_NAME));
+    }
+
+    private int stringSize(int offset) {
+        return offset == NONE ? 0 : 4 + arena.getInt(offset);
+    }
+
+    private static String readString(ByteBuffer source, int offset) {
+        if (offset == NONE) {
+            return null;
+        }
+        byte[] bytes = new byte[source.getInt(offset)];
+        source.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String fileNameOf(String filePath) {
+        if (filePath == null) {
+            return null;
+        }
+        Path fileName = Paths.get(filePath).getFileName();
+        return fileName == null ? null : fileName.toString();
+    }
+
+    private static UUID parse(String uuid) {
+        try {
+            return UUID.fromString(uuid);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
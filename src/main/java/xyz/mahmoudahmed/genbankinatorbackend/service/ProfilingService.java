@@ -0,0 +1,397 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.extern.slf4j.Slf4j;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileNotFoundException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ProfilingConflictException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
+
+/**
+ * Java Flight Recorder recordings and heap dumps for the admin endpoints.
+ *
+ * One recording exists at a time: it runs for a bounded duration with one of the JDK's
+ * settings (default, about 1% overhead, or profile), is written to a temporary file when it
+ * ends and is kept until the next one starts. Its summary is computed once from the file.
+ * Heap dumps pause the JVM for their duration, so they are off unless
+ * profiling.heap-dump.enabled is set, and never run concurrently.
+ */
+@Service
+@Slf4j
+public class ProfilingService {
+
+    // Frames of a conversion, used to attribute allocations to convertFiles and the queue workers
+    private static final String CONVERSION_FRAME = GenbankService.class.getName() + ".convertStoredFiles";
+
+    @Value("${profiling.max-duration:10m}")
+    private Duration maxDuration;
+
+    @Value("${profiling.max-size:256MB}")
+    private DataSize maxSize;
+
+    @Value("${profiling.summary.top-frames:15}")
+    private int topFrames;
+
+    @Value("${profiling.heap-dump.enabled:false}")
+    private boolean heapDumpEnabled;
+
+    private Session session;
+
+    private final AtomicBoolean dumpingHeap = new AtomicBoolean();
+
+    /**
+     * Starts a recording, replacing a finished one
+     *
+     * @param profile JFR settings name, "default" or "profile"
+     * @throws ProfilingConflictException if a recording is still running
+     */
+    public synchronized RecordingStatus start(String profile, Duration duration) {
+        if (session != null && session.isRunning()) {
+            throw new ProfilingConflictException("Recording " + session.recording.getId() + " is still running");
+        }
+        if (duration == null || duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("Duration must be positive and at most " + maxDuration);
+        }
+
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(profile);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown recording profile: " + profile);
+        }
+
+        discard();
+        try {
+            Path file = Files.createTempFile("genbankinator-", ".jfr");
+            Recording recording = new Recording(configuration);
+            recording.setName("genbankinator-admin");
+            recording.setToDisk(true);
+            recording.setMaxSize(maxSize.toBytes());
+            recording.setDuration(duration);
+            recording.setDestination(file);
+            recording.start();
+            session = new Session(recording, profile, file, Instant.now(), duration);
+            log.info("Started JFR recording {} with the {} profile for {}", recording.getId(), profile, duration);
+            return session.status();
+        } catch (IOException e) {
+            throw new ServiceUnavailableException("Could not start recording: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ends the running recording early; its data up to now is kept
+     */
+    public synchronized RecordingStatus stop(long id) {
+        Session current = find(id);
+        if (current.isRunning()) {
+            current.recording.stop();
+            log.info("Stopped JFR recording {}", id);
+        }
+        return current.status();
+    }
+
+    public synchronized RecordingStatus status(long id) {
+        return find(id).status();
+    }
+
+    public synchronized RecordingStatus current() {
+        if (session == null) {
+            throw new FileNotFoundException("No recording");
+        }
+        return session.status();
+    }
+
+    /**
+     * The file of a finished recording
+     *
+     * @throws ProfilingConflictException while it is still running
+     */
+    public synchronized Path recordingFile(long id) {
+        Session current = find(id);
+        if (current.isRunning()) {
+            throw new ProfilingConflictException("Recording " + id + " is still running");
+        }
+        if (!Files.exists(current.file)) {
+            throw new FileNotFoundException("Recording " + id + " has no data");
+        }
+        return current.file;
+    }
+
+    /**
+     * Allocation, contention and GC figures of a finished recording
+     */
+    public ProfilingSummary summary(long id) {
+        Session current;
+        Path file;
+        synchronized (this) {
+            file = recordingFile(id);
+            current = session;
+            if (current.summary != null) {
+                return current.summary;
+            }
+        }
+        // Parsed outside the lock; a concurrent request at worst parses the file twice
+        ProfilingSummary summary = summarize(current, file);
+        synchronized (this) {
+            if (session == current) {
+                current.summary = summary;
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Writes a heap dump to a temporary file, which the caller deletes
+     *
+     * @param live only objects reachable at the time of the dump
+     */
+    public Path dumpHeap(boolean live) {
+        if (!heapDumpEnabled) {
+            throw new ServiceUnavailableException("Heap dumps are disabled (profiling.heap-dump.enabled)");
+        }
+        if (!dumpingHeap.compareAndSet(false, true)) {
+            throw new ProfilingConflictException("A heap dump is already being written");
+        }
+        try {
+            Path directory = Files.createTempDirectory("genbankinator-heap-");
+            Path file = directory.resolve("heap.hprof");
+            long started = System.nanoTime();
+            ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).dumpHeap(file.toString(), live);
+            log.warn("Heap dump written in {} ms ({} MB)", (System.nanoTime() - started) / 1_000_000,
+                    Files.size(file) >> 20);
+            return file;
+        } catch (IOException e) {
+            throw new ServiceUnavailableException("Could not write heap dump: " + e.getMessage(), e);
+        } finally {
+            dumpingHeap.set(false);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        discard();
+    }
+
+    private Session find(long id) {
+        if (session == null || session.recording.getId() != id) {
+            throw new FileNotFoundException("Recording not found: " + id);
+        }
+        return session;
+    }
+
+    private void discard() {
+        if (session == null) {
+            return;
+        }
+        session.recording.close();
+        try {
+            Files.deleteIfExists(session.file);
+        } catch (IOException e) {
+            log.warn("Could not delete recording {}", session.file, e);
+        }
+        session = null;
+    }
+
+    private ProfilingSummary summarize(Session current, Path file) {
+        Map<String, long[]> allocations = new HashMap<>();
+        Map<String, long[]> conversionAllocations = new HashMap<>();
+        Map<String, long[]> contention = new HashMap<>();
+        Map<String, GcAccumulator> collections = new HashMap<>();
+        long events = 0;
+
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                events++;
+                switch (event.getEventType().getName()) {
+                    case "jdk.ObjectAllocationSample" -> {
+                        String frame = topFrame(event.getStackTrace());
+                        long weight = event.getLong("weight");
+                        add(allocations, frame, weight);
+                        if (contains(event.getStackTrace(), CONVERSION_FRAME)) {
+                            add(conversionAllocations, frame, weight);
+                        }
+                    }
+                    case "jdk.JavaMonitorEnter" -> add(contention,
+                            "monitor " + className(event, "monitorClass") + " at " + topFrame(event.getStackTrace()),
+                            event.getDuration().toNanos());
+                    case "jdk.ThreadPark" -> {
+                        String parked = className(event, "parkedClass");
+                        if (!isIdleWait(parked)) {
+                            add(contention, "park " + parked + " at " + topFrame(event.getStackTrace()),
+                                    event.getDuration().toNanos());
+                        }
+                    }
+                    case "jdk.GarbageCollection" -> collections
+                            .computeIfAbsent(event.getString("name"), name -> new GcAccumulator())
+                            .add(event.getDuration("sumOfPauses"), event.getDuration("longestPause"));
+                    default -> {
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ServiceUnavailableException("Could not read recording: " + e.getMessage(), e);
+        }
+
+        List<GcSummary> gc = new ArrayList<>();
+        collections.forEach((name, accumulator) -> gc.add(new GcSummary(name, accumulator.count,
+                accumulator.totalPause.toMillis(), accumulator.longestPause.toMillis())));
+        gc.sort(Comparator.comparingLong(GcSummary::totalPauseMillis).reversed());
+
+        return new ProfilingSummary(current.recording.getId(), current.profile, current.started,
+                current.recording.getStopTime() != null
+                        ? Duration.between(current.recording.getStartTime(), current.recording.getStopTime()).toMillis()
+                        : current.duration.toMillis(),
+                events, top(allocations), top(conversionAllocations), top(contention), gc);
+    }
+
+    private List<Hotspot> top(Map<String, long[]> totals) {
+        return totals.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[0]).reversed())
+                .limit(topFrames)
+                .map(entry -> new Hotspot(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                .toList();
+    }
+
+    private static void add(Map<String, long[]> totals, String key, long amount) {
+        long[] total = totals.computeIfAbsent(key, k -> new long[2]);
+        total[0] += amount;
+        total[1]++;
+    }
+
+    /**
+     * Parks that wait for work or a signal rather than for a lock: condition waits, idle pool
+     * threads and hand-off queues
+     */
+    private static boolean isIdleWait(String parkedClass) {
+        return parkedClass.equals("?")
+                || parkedClass.endsWith("$ConditionObject")
+                || parkedClass.startsWith("java.util.concurrent.ForkJoinPool")
+                || (parkedClass.startsWith("java.util.concurrent.") && parkedClass.contains("Queue"));
+    }
+
+    private static String className(RecordedEvent event, String field) {
+        return event.getClass(field) != null ? event.getClass(field).getName() : "?";
+    }
+
+    private static String topFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "<no stack>";
+        }
+        // Skip the JDK's own allocation and locking internals to reach application code
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return describe(frame);
+            }
+        }
+        return describe(stackTrace.getFrames().get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+
+    private static boolean contains(RecordedStackTrace stackTrace, String method) {
+        if (stackTrace == null) {
+            return false;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (method.equals(frame.getMethod().getType().getName() + "." + frame.getMethod().getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Session {
+        private final Recording recording;
+        private final String profile;
+        private final Path file;
+        private final Instant started;
+        private final Duration duration;
+        private ProfilingSummary summary;
+
+        private Session(Recording recording, String profile, Path file, Instant started, Duration duration) {
+            this.recording = recording;
+            this.profile = profile;
+            this.file = file;
+            this.started = started;
+            this.duration = duration;
+        }
+
+        private boolean isRunning() {
+            return recording.getState() == RecordingState.NEW
+                    || recording.getState() == RecordingState.DELAYED
+                    || recording.getState() == RecordingState.RUNNING;
+        }
+
+        private RecordingStatus status() {
+            long bytes = recording.getSize();
+            if (!isRunning()) {
+                bytes = file.toFile().length();
+            }
+            return new RecordingStatus(recording.getId(), profile, recording.getState().name(), started,
+                    duration.toMillis(), bytes);
+        }
+    }
+
+    private static final class GcAccumulator {
+        private long count;
+        private Duration totalPause = Duration.ZERO;
+        private Duration longestPause = Duration.ZERO;
+
+        private void add(Duration pauses, Duration longest) {
+            count++;
+            totalPause = totalPause.plus(pauses);
+            if (longest.compareTo(longestPause) > 0) {
+                longestPause = longest;
+            }
+        }
+    }
+
+    public record RecordingStatus(long id, String profile, String state, Instant started, long durationMillis,
+                                  long bytes) {
+    }
+
+    /**
+     * A frame or monitor and its total: sampled bytes for allocations, nanoseconds blocked for contention
+     */
+    public record Hotspot(String location, long total, long events) {
+    }
+
+    public record GcSummary(String collector, long collections, long totalPauseMillis, long longestPauseMillis) {
+    }
+
+    public record ProfilingSummary(long id, String profile, Instant started, long durationMillis, long events,
+                                   List<Hotspot> allocations, List<Hotspot> conversionAllocations,
+                                   List<Hotspot> contention, List<GcSummary> gc) {
+    }
+}
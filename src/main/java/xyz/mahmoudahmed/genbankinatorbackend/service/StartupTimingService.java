@@ -0,0 +1,62 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import java.lang.management.ManagementFactory;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Startup milestones measured from JVM start: context ready and first successful
+ * conversion. A conversion finishing before the ready event is the startup warm-up.
+ */
+@Service
+@Slf4j
+public class StartupTimingService {
+
+    private volatile long readyMillis = -1;
+    private volatile long firstConversionMillis = -1;
+    private volatile boolean firstConversionBeforeReady;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyMillis = uptime();
+        log.info("Application ready {} ms after JVM start", readyMillis);
+    }
+
+    /**
+     * Records a successful conversion; only the first one is kept
+     */
+    public void recordConversion() {
+        if (firstConversionMillis >= 0) {
+            return;
+        }
+        synchronized (this) {
+            if (firstConversionMillis < 0) {
+                firstConversionBeforeReady = readyMillis < 0;
+                firstConversionMillis = uptime();
+                log.info("First successful conversion {} ms after JVM start{}",
+                        firstConversionMillis, firstConversionBeforeReady ? " (warm-up)" : "");
+            }
+        }
+    }
+
+    public StartupTimes getTimes() {
+        return new StartupTimes(readyMillis >= 0 ? readyMillis : null,
+                firstConversionMillis >= 0 ? firstConversionMillis : null,
+                firstConversionBeforeReady, uptime());
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * Milliseconds since JVM start; null for milestones not reached yet
+     */
+    public record StartupTimes(Long readyMillis, Long firstConversionMillis,
+                               boolean firstConversionBeforeReady, long uptimeMillis) {
+    }
+}
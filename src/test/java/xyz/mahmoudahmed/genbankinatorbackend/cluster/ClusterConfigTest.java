@@ -0,0 +1,38 @@
+package xyz.mahmoudahmed.genbankinatorbackend.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+class ClusterConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(ClusterConfig.class);
+
+    @Test
+    void configuresRedisOnlyForTheRedisStore() {
+        runner.withPropertyValues("cluster.enabled=true", "cluster.metadata-store=redis")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(RedisConnectionFactory.class);
+                    assertThat(context.getBean(SharedMetadataStore.class)).isInstanceOf(RedisSharedMetadataStore.class);
+                });
+
+        runner.withPropertyValues("cluster.enabled=true", "cluster.metadata-store=memory",
+                        "cluster.memory-store.name=config-test")
+                .run(context -> {
+                    assertThat(context).doesNotHaveBean(RedisConnectionFactory.class);
+                    assertThat(context.getBean(SharedMetadataStore.class))
+                            .isSameAs(InMemorySharedMetadataStore.named("config-test"));
+                });
+    }
+
+    @Test
+    void configuresNothingOnASingleNode() {
+        runner.run(context -> {
+            assertThat(context).doesNotHaveBean(SharedMetadataStore.class);
+            assertThat(context).doesNotHaveBean(RedisConnectionFactory.class);
+        });
+    }
+}
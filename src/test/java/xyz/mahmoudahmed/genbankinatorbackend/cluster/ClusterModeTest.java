@@ -0,0 +1,176 @@
+package xyz.mahmoudahmed.genbankinatorbackend.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import xyz.mahmoudahmed.genbankinatorbackend.Application;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankService;
+
+/**
+ * Two nodes in one JVM on the embedded store, each with its own storage directory
+ * (cluster.storage.shared=false)
+ */
+class ClusterModeTest {
+
+    private static final String STORE = "cluster-mode-test";
+
+    @TempDir
+    static Path storage;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() {
+        nodeA = node("node-a");
+        nodeB = node("node-b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void nodesShareOneStore() {
+        assertThat(nodeA.getBean(SharedMetadataStore.class)).isSameAs(nodeB.getBean(SharedMetadataStore.class));
+        // Redis is only configured for the Redis store
+        assertThat(nodeA.getBeanNamesForType(RedisConnectionFactory.class)).isEmpty();
+        assertThat(nodeA.getBean(ClusterCoordinator.class).findOwnerUrl(metadata(UUID.randomUUID().toString(), "node-b", 1)))
+                .isEqualTo("http://node-b:8080");
+    }
+
+    @Test
+    void resultsStoredOnOneNodeAreListedOnTheOther() throws IOException {
+        GenbankService listingB = nodeB.getBean(GenbankService.class);
+        assertThat(new String(listingB.getFileListing("client-1").body(), StandardCharsets.UTF_8))
+                .doesNotContain("client-1");
+
+        String uuid = nodeA.getBean(FileStorageService.class).storeGenbankResult(result(), "sample.fasta", "client-1");
+
+        FileStorageService storageB = nodeB.getBean(FileStorageService.class);
+        assertThat(storageB.getFilesForClient("client-1")).extracting(FileMetadata::getUuid).contains(uuid);
+        assertThat(storageB.getFilesForClient("client-2")).extracting(FileMetadata::getUuid).doesNotContain(uuid);
+        // The cached listing notices the change through the store's generation
+        assertThat(new String(listingB.getFileListing("client-1").body(), StandardCharsets.UTF_8)).contains(uuid);
+
+        FileMetadata stored = storageB.getFileMetadata(uuid);
+        ClusterCoordinator coordinatorB = nodeB.getBean(ClusterCoordinator.class);
+        assertThat(stored.getOwnerNode()).isEqualTo("node-a");
+        assertThat(coordinatorB.isServedLocally(stored)).isFalse();
+        assertThat(coordinatorB.findOwnerUrl(stored)).isEqualTo("http://node-a:8080");
+    }
+
+    @Test
+    void eachNodeSweepsOnlyTheFilesItWrote() {
+        SharedMetadataStore store = nodeA.getBean(SharedMetadataStore.class);
+        FileMetadata expiredA = metadata(UUID.randomUUID().toString(), "node-a", -1);
+        FileMetadata expiredB = metadata(UUID.randomUUID().toString(), "node-b", -1);
+        store.put(expiredA);
+        store.put(expiredB);
+        store.put(metadata(UUID.randomUUID().toString(), "node-a", 1));
+
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(nodeA.getBean(FileStorageService.class).getExpiredFiles(now))
+                .extracting(FileMetadata::getUuid).containsExactly(expiredA.getUuid());
+        assertThat(nodeB.getBean(FileStorageService.class).getExpiredFiles(now))
+                .extracting(FileMetadata::getUuid).containsExactly(expiredB.getUuid());
+        // Without shared storage there is no leader: every node sweeps its own files
+        assertThat(nodeA.getBean(ClusterCoordinator.class).acquireLeadership("cleanup")).isTrue();
+        assertThat(nodeB.getBean(ClusterCoordinator.class).acquireLeadership("cleanup")).isTrue();
+    }
+
+    @Test
+    void oneNodeHoldsALease() {
+        SharedMetadataStore store = InMemorySharedMetadataStore.named("lease-test");
+        ClusterCoordinator first = sharedStorageCoordinator("node-a", store);
+        ClusterCoordinator second = sharedStorageCoordinator("node-b", store);
+
+        assertThat(first.acquireLeadership("cleanup")).isTrue();
+        assertThat(second.acquireLeadership("cleanup")).isFalse();
+        // Renewed by its holder; other tasks have their own lease
+        assertThat(first.acquireLeadership("cleanup")).isTrue();
+        assertThat(second.acquireLeadership("maintenance")).isTrue();
+        assertThat(first.acquireLeadership("maintenance")).isFalse();
+    }
+
+    @Test
+    void anExpiredLeaseIsTakenOver() {
+        SharedMetadataStore store = InMemorySharedMetadataStore.named("expiry-test");
+
+        // A lease with no time to live has expired as soon as it is taken
+        assertThat(store.tryAcquireLease("cleanup", "node-a", Duration.ZERO)).isTrue();
+        assertThat(store.tryAcquireLease("cleanup", "node-b", Duration.ofMinutes(5))).isTrue();
+        assertThat(store.tryAcquireLease("cleanup", "node-a", Duration.ofMinutes(5))).isFalse();
+    }
+
+    private static ConfigurableApplicationContext node(String nodeId) {
+        // Command line arguments, so they take precedence over application.properties
+        return new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run("--cluster.enabled=true",
+                        "--cluster.metadata-store=memory",
+                        "--cluster.memory-store.name=" + STORE,
+                        "--cluster.storage.shared=false",
+                        "--cluster.node-id=" + nodeId,
+                        "--cluster.advertised-url=http://" + nodeId + ":8080",
+                        "--file.storage.location=" + storage.resolve(nodeId),
+                        "--file.hot-cache.size=0B");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ClusterCoordinator sharedStorageCoordinator(String nodeId, SharedMetadataStore store) {
+        ObjectProvider<SharedMetadataStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(store);
+        ClusterCoordinator coordinator = new ClusterCoordinator(provider);
+        ReflectionTestUtils.setField(coordinator, "enabled", true);
+        ReflectionTestUtils.setField(coordinator, "configuredNodeId", nodeId);
+        ReflectionTestUtils.setField(coordinator, "advertisedUrl", "");
+        ReflectionTestUtils.setField(coordinator, "sharedStorage", true);
+        ReflectionTestUtils.setField(coordinator, "leaseTtl", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(coordinator, "heartbeatTtl", Duration.ofSeconds(30));
+        coordinator.init();
+        return coordinator;
+    }
+
+    private static File result() throws IOException {
+        Path result = Files.createTempFile(storage, "result", ".gb");
+        Files.writeString(result, "LOCUS       NC_1\n//\n");
+        return result.toFile();
+    }
+
+    private static FileMetadata metadata(String uuid, String ownerNode, int hoursToExpiry) {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(uuid);
+        metadata.setClientId("sweep");
+        metadata.setOriginalFilename("sample.fasta");
+        metadata.setCreatedAt(LocalDateTime.now().minusHours(2));
+        metadata.setExpiresAt(LocalDateTime.now().plusHours(hoursToExpiry));
+        metadata.setOwnerNode(ownerNode);
+        return metadata;
+    }
+}
@@ -0,0 +1,53 @@
+package xyz.mahmoudahmed.genbankinatorbackend.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.servlet.MultipartConfigElement;
+import xyz.mahmoudahmed.genbankinatorbackend.service.MemoryBudgetService;
+
+class MultipartConfigTest {
+
+    private final MultipartConfig config = new MultipartConfig();
+
+    @Test
+    void capsTheInMemoryThresholdToTheUploadShare() {
+        // 10 MB upload share over 50 threads with two file parts each
+        MultipartConfigElement element = config.multipartConfigElement(
+                properties(DataSize.ofMegabytes(1)), budget(DataSize.ofMegabytes(40)), 50);
+
+        assertThat(element.getFileSizeThreshold()).isEqualTo(DataSize.ofMegabytes(10).toBytes() / 100);
+        assertThat(element.getMaxFileSize()).isEqualTo(DataSize.ofMegabytes(20).toBytes());
+    }
+
+    @Test
+    void keepsAThresholdThatAlreadyFits() {
+        MultipartConfigElement element = config.multipartConfigElement(
+                properties(DataSize.ofKilobytes(64)), budget(DataSize.ofMegabytes(40)), 50);
+
+        assertThat(element.getFileSizeThreshold()).isEqualTo(DataSize.ofKilobytes(64).toBytes());
+    }
+
+    private static MultipartProperties properties(DataSize threshold) {
+        MultipartProperties properties = new MultipartProperties();
+        properties.setFileSizeThreshold(threshold);
+        properties.setMaxFileSize(DataSize.ofMegabytes(20));
+        return properties;
+    }
+
+    private static MemoryBudgetService budget(DataSize size) {
+        MemoryBudgetService budget = new MemoryBudgetService();
+        ReflectionTestUtils.setField(budget, "configuredBudget", size);
+        ReflectionTestUtils.setField(budget, "uploadShare", 0.25);
+        ReflectionTestUtils.setField(budget, "bytesPerInputByte", 8);
+        ReflectionTestUtils.setField(budget, "waitTimeout", Duration.ofSeconds(5));
+        budget.init();
+        return budget;
+    }
+}
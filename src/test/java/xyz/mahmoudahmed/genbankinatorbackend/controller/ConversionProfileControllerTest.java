@@ -0,0 +1,69 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import xyz.mahmoudahmed.genbankinatorbackend.config.AdminTokenInterceptor;
+
+@SpringBootTest(properties = "admin.token=" + ConversionProfileControllerTest.TOKEN)
+@AutoConfigureMockMvc
+class ConversionProfileControllerTest {
+
+    static final String TOKEN = "profile-admin";
+
+    private static final String PROFILE = """
+            {"organism": "Escherichia coli", "moleculeType": "DNA", "topology": "circular",
+             "annotationFormat": "fasta"}
+            """;
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storageLocation(DynamicPropertyRegistry registry) {
+        registry.add("file.storage.location", storage::toString);
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void onlyAdminsChangeProfiles() throws Exception {
+        mvc.perform(put("/api/v1/profiles/bacteria").contentType(MediaType.APPLICATION_JSON).content(PROFILE))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(put("/api/v1/profiles/bacteria").contentType(MediaType.APPLICATION_JSON).content(PROFILE)
+                        .header(AdminTokenInterceptor.HEADER, "guess"))
+                .andExpect(status().isUnauthorized());
+
+        mvc.perform(put("/api/v1/profiles/bacteria").contentType(MediaType.APPLICATION_JSON).content(PROFILE)
+                        .header(AdminTokenInterceptor.HEADER, TOKEN))
+                .andExpect(status().isCreated());
+
+        // Anyone may read them
+        mvc.perform(get("/api/v1/profiles/bacteria"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.request.organism").value("Escherichia coli"));
+
+        mvc.perform(delete("/api/v1/profiles/bacteria"))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(delete("/api/v1/profiles/bacteria").header(AdminTokenInterceptor.HEADER, TOKEN))
+                .andExpect(status().isNoContent());
+        mvc.perform(get("/api/v1/profiles/bacteria"))
+                .andExpect(status().isNotFound());
+    }
+}
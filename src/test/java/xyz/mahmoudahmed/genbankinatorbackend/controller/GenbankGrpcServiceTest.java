@@ -0,0 +1,244 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.google.protobuf.ByteString;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.ConversionOptions;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.ConvertHeader;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.ConvertRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.ConvertResponse;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.DownloadChunk;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.DownloadRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.grpc.v1.GenbankConverterGrpc;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "grpc.server.enabled=true",
+        "grpc.server.in-process-name=" + GenbankGrpcServiceTest.SERVER_NAME,
+        // Several chunks for a small result
+        "grpc.download.chunk-size=16B"
+})
+class GenbankGrpcServiceTest {
+
+    static final String SERVER_NAME = "genbank-grpc-test";
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storageLocation(DynamicPropertyRegistry registry) {
+        registry.add("file.storage.location", storage::toString);
+    }
+
+    @Autowired
+    private GenbankService genbankService;
+
+    private ManagedChannel channel;
+    private GenbankConverterGrpc.GenbankConverterStub stub;
+
+    @BeforeEach
+    void setUp() {
+        channel = InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build();
+        stub = GenbankConverterGrpc.newStub(channel);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void convertsChunkedInputsAndDownloadsTheResult() throws Exception {
+        Response response = new Response();
+        StreamObserver<ConvertRequest> requests = stub.convert(response);
+        requests.onNext(header("client-1", "fasta"));
+        requests.onNext(sequence(">NC_1\nATGAAA"));
+        requests.onNext(annotation(">NC_1 [gene=a] [location=1..9]\n"));
+        requests.onNext(sequence("TGA\n"));
+        requests.onCompleted();
+
+        ConvertResponse converted = response.get();
+        assertThat(converted.getDownloadUrl()).isEqualTo("/api/v1/files/" + converted.getUuid());
+
+        byte[] stored = Files.readAllBytes(genbankService.getFileByUuid(converted.getUuid()).toPath());
+        Iterator<DownloadChunk> chunks = GenbankConverterGrpc.newBlockingStub(channel)
+                .download(DownloadRequest.newBuilder().setUuid(converted.getUuid()).setClientId("client-1").build());
+
+        DownloadChunk first = chunks.next();
+        assertThat(first.getFilename()).isEqualTo("sample.gb");
+        assertThat(first.getTotalBytes()).isEqualTo(stored.length);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        first.getData().writeTo(received);
+        int count = 1;
+        while (chunks.hasNext()) {
+            DownloadChunk chunk = chunks.next();
+            assertThat(chunk.getFilename()).isEmpty();
+            chunk.getData().writeTo(received);
+            count++;
+        }
+        assertThat(received.toByteArray()).isEqualTo(stored);
+        assertThat(count).isGreaterThan(1);
+    }
+
+    @Test
+    void refusesAHeaderAfterAChunk() {
+        Response response = new Response();
+        StreamObserver<ConvertRequest> requests = stub.convert(response);
+        requests.onNext(sequence(">NC_1\nATG\n"));
+        requests.onNext(header("client-1", "fasta"));
+        requests.onCompleted();
+
+        assertThat(response.status().getCode()).isEqualTo(Status.Code.FAILED_PRECONDITION);
+    }
+
+    @Test
+    void refusesConversionsWithoutAnAnnotation() throws IOException, InterruptedException {
+        Response response = new Response();
+        StreamObserver<ConvertRequest> requests = stub.convert(response);
+        requests.onNext(header("client-1", "fasta"));
+        requests.onNext(sequence(">NC_1\nATG\n"));
+        requests.onCompleted();
+
+        assertThat(response.status().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        awaitIncomingFiles(0);
+
+        Response withoutFormat = new Response();
+        stub.convert(withoutFormat).onNext(header("client-1", null));
+        assertThat(withoutFormat.status().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+    @Test
+    void refusesDownloadsForAnotherClient() throws Exception {
+        Response response = new Response();
+        StreamObserver<ConvertRequest> requests = stub.convert(response);
+        requests.onNext(header("client-1", "fasta"));
+        requests.onNext(sequence(">NC_1\nATG\n"));
+        requests.onNext(annotation(">NC_1 [gene=a] [location=1..3]\n"));
+        requests.onCompleted();
+        String uuid = response.get().getUuid();
+
+        Iterator<DownloadChunk> chunks = GenbankConverterGrpc.newBlockingStub(channel)
+                .download(DownloadRequest.newBuilder().setUuid(uuid).setClientId("client-2").build());
+
+        assertThatThrownBy(chunks::next)
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.PERMISSION_DENIED));
+    }
+
+    @Test
+    void removesTheInputsOfACancelledConversion() throws Exception {
+        Response response = new Response();
+        ClientCallStreamObserver<ConvertRequest> requests =
+                (ClientCallStreamObserver<ConvertRequest>) stub.convert(response);
+        requests.onNext(header("client-1", "fasta"));
+        requests.onNext(sequence(">NC_1\nATG"));
+        awaitIncomingFiles(2);
+
+        requests.cancel("client gone", null);
+
+        assertThat(response.status().getCode()).isEqualTo(Status.Code.CANCELLED);
+        awaitIncomingFiles(0);
+    }
+
+    private static ConvertRequest header(String clientId, String annotationFormat) {
+        ConversionOptions.Builder options = ConversionOptions.newBuilder()
+                .setOrganism("Escherichia coli")
+                .setMoleculeType("DNA")
+                .setTopology("linear");
+        if (annotationFormat != null) {
+            options.setAnnotationFormat(annotationFormat);
+        }
+        return ConvertRequest.newBuilder()
+                .setHeader(ConvertHeader.newBuilder()
+                        .setClientId(clientId)
+                        .setSequenceFilename("sample.fasta")
+                        .setOptions(options))
+                .build();
+    }
+
+    private static ConvertRequest sequence(String text) {
+        return ConvertRequest.newBuilder().setSequenceChunk(ByteString.copyFromUtf8(text)).build();
+    }
+
+    private static ConvertRequest annotation(String text) {
+        return ConvertRequest.newBuilder().setAnnotationChunk(ByteString.copyFromUtf8(text)).build();
+    }
+
+    private static long incomingFiles() throws IOException {
+        try (Stream<Path> files = Files.list(storage.resolve("incoming"))) {
+            return files.count();
+        }
+    }
+
+    private static void awaitIncomingFiles(long expected) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (incomingFiles() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(incomingFiles()).isEqualTo(expected);
+    }
+
+    /**
+     * The single answer of a Convert call
+     */
+    private static final class Response implements StreamObserver<ConvertResponse> {
+        private final CompletableFuture<ConvertResponse> result = new CompletableFuture<>();
+
+        @Override
+        public void onNext(ConvertResponse value) {
+            result.complete(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            result.completeExceptionally(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            result.complete(null);
+        }
+
+        ConvertResponse get() throws Exception {
+            return result.get(30, TimeUnit.SECONDS);
+        }
+
+        Status status() {
+            try {
+                result.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                return Status.fromThrowable(e.getCause());
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+            throw new AssertionError("The call succeeded");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import reactor.core.publisher.Mono;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+import xyz.mahmoudahmed.genbankinatorbackend.service.DerivedFormatService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileListingService.FileListing;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankService;
+import xyz.mahmoudahmed.genbankinatorbackend.service.HotResultCache;
+
+class ReactiveFileHandlerTest {
+
+    @TempDir
+    Path directory;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final GenbankService genbankService = mock(GenbankService.class);
+    private final HotResultCache hotResultCache = mock(HotResultCache.class);
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        ReactiveFileHandler handler = new ReactiveFileHandler(fileStorageService, genbankService, hotResultCache);
+        client = WebTestClient.bindToRouterFunction(handler.routes()).build();
+    }
+
+    @Test
+    void listsTheCachedSnapshotWithItsETag() {
+        byte[] body = "[{\"uuid\":\"a\"}]".getBytes(StandardCharsets.UTF_8);
+        when(genbankService.getFileListing("client-1")).thenReturn(new FileListing(body, "\"1-2\""));
+
+        client.get().uri("/api/v1/files?clientId=client-1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1-2\"")
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(byte[].class).isEqualTo(body);
+    }
+
+    @Test
+    void answersACurrentETagWithNotModified() {
+        when(genbankService.getFileListing(null)).thenReturn(new FileListing(new byte[] {'[', ']'}, "\"1-2\""));
+
+        client.get().uri("/api/v1/files").header(HttpHeaders.IF_NONE_MATCH, "\"1-2\"").exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        client.get().uri("/api/v1/files").header(HttpHeaders.IF_NONE_MATCH, "\"1-1\"").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1-2\"");
+    }
+
+    @Test
+    void redirectsToTheNodeOwningTheResult() {
+        FileMetadata metadata = remote("a");
+        when(genbankService.findOwnerUrl(metadata)).thenReturn("http://node-2:8081");
+
+        client.get().uri("/api/v1/files/a?clientId=client-1").exchange()
+                .expectStatus().isTemporaryRedirect()
+                .expectHeader().location("http://node-2:8081/api/v1/files/a?clientId=client-1");
+
+        client.get().uri("/api/v1/files/a/records/NC_1?clientId=client-1").exchange()
+                .expectStatus().isTemporaryRedirect()
+                .expectHeader().location("http://node-2:8081/api/v1/files/a/records/NC_1?clientId=client-1");
+    }
+
+    @Test
+    void rejectsOtherClientsBeforeRedirecting() {
+        remote("a");
+
+        client.get().uri("/api/v1/files/a?clientId=client-2").exchange()
+                .expectStatus().isForbidden();
+        // The owner is not known to this node
+        client.get().uri("/api/v1/files/a").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void rejectsUnknownFormats() {
+        client.get().uri("/api/v1/files/a?format=embl").exchange()
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(hotResultCache, fileStorageService);
+    }
+
+    @Test
+    void servesDerivedFormatsInsteadOfTheHotCache() throws IOException {
+        Path derived = Files.writeString(directory.resolve("a.faa"), ">NC_1\nMK\n");
+        FileMetadata metadata = local("a");
+        when(fileStorageService.resolveFileAsync("a"))
+                .thenReturn(Mono.just(directory.resolve("a_sample.fasta")));
+        when(genbankService.getDerivedFile("a", DerivedFormatService.Format.FAA)).thenReturn(derived);
+
+        client.get().uri("/api/v1/files/a?format=FAA").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("text/x-fasta")
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"sample.faa\"")
+                .expectBody(String.class).isEqualTo(">NC_1\nMK\n");
+        verify(hotResultCache, never()).get("a");
+        verify(genbankService).isServedLocally(metadata);
+    }
+
+    @Test
+    void servesTheStoredFileForGenbankFormats() throws IOException {
+        Path stored = Files.writeString(directory.resolve("a_sample.gb"), "LOCUS       NC_1\n//\n");
+        local("a");
+        when(fileStorageService.resolveFileAsync("a")).thenReturn(Mono.just(stored));
+
+        client.get().uri("/api/v1/files/a?format=genbank").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .expectBody(String.class).isEqualTo("LOCUS       NC_1\n//\n");
+        verify(genbankService, never()).getDerivedFile(any(), any());
+    }
+
+    private FileMetadata local(String uuid) {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(uuid);
+        when(fileStorageService.getFileMetadataAsync(uuid)).thenReturn(Mono.just(metadata));
+        when(genbankService.isServedLocally(metadata)).thenReturn(true);
+        return metadata;
+    }
+
+    private FileMetadata remote(String uuid) {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(uuid);
+        metadata.setClientId("client-1");
+        metadata.setOwnerNode("node-2");
+        when(fileStorageService.getFileMetadataAsync(uuid)).thenReturn(Mono.just(metadata));
+        when(genbankService.isServedLocally(metadata)).thenReturn(false);
+        return metadata;
+    }
+}
@@ -0,0 +1,199 @@
+package xyz.mahmoudahmed.genbankinatorbackend.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileStorageException;
+import xyz.mahmoudahmed.genbankinatorbackend.scheduler.FileCleanupScheduler;
+import xyz.mahmoudahmed.genbankinatorbackend.service.FileStorageService;
+
+@SpringBootTest(properties = {
+        "file.upload.max-size=1KB",
+        "file.upload.expiry=PT1H"
+})
+@AutoConfigureMockMvc
+class UploadControllerTest {
+
+    private static final String OFFSET_CONTENT_TYPE = "application/offset+octet-stream";
+    private static final byte[] CONTENT = ">NC_1\nATGAAATGA\n".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    static Path storage;
+
+    @DynamicPropertySource
+    static void storageLocation(DynamicPropertyRegistry registry) {
+        registry.add("file.storage.location", storage::toString);
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileCleanupScheduler fileCleanupScheduler;
+
+    @Test
+    void receivesAnUploadInChunks() throws Exception {
+        String upload = create(CONTENT.length);
+
+        mvc.perform(chunk(upload, 0, CONTENT, 0, 6))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Upload-Offset", "6"));
+        mvc.perform(chunk(upload, 6, CONTENT, 6, CONTENT.length))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Upload-Offset", Integer.toString(CONTENT.length)));
+
+        assertOffset(upload, CONTENT.length);
+        Path promoted = Path.of(fileStorageService.promoteUpload(id(upload), false));
+        assertThat(Files.readAllBytes(promoted)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void refusesAChunkAtTheWrongOffset() throws Exception {
+        String upload = create(CONTENT.length);
+        mvc.perform(chunk(upload, 0, CONTENT, 0, 6)).andExpect(status().isNoContent());
+
+        // Replayed after the server already stored it
+        mvc.perform(chunk(upload, 0, CONTENT, 0, 6)).andExpect(status().isConflict());
+        mvc.perform(chunk(upload, 8, CONTENT, 8, CONTENT.length)).andExpect(status().isConflict());
+
+        assertOffset(upload, 6);
+    }
+
+    @Test
+    void discardsAChunkWhoseChecksumDoesNotMatch() throws Exception {
+        String upload = create(CONTENT.length);
+        byte[] corrupted = CONTENT.clone();
+        corrupted[3] = 'X';
+
+        mvc.perform(chunk(upload, 0, corrupted, 0, corrupted.length).header("Upload-Checksum", sha1(CONTENT)))
+                .andExpect(status().is(460));
+        assertOffset(upload, 0);
+
+        mvc.perform(chunk(upload, 0, CONTENT, 0, CONTENT.length).header("Upload-Checksum", sha1(CONTENT)))
+                .andExpect(status().isNoContent());
+        assertOffset(upload, CONTENT.length);
+
+        mvc.perform(chunk(upload, 0, CONTENT, 0, 1).header("Upload-Checksum", "crc32 AAAA"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void resumesAfterADroppedConnection() throws Exception {
+        String upload = create(CONTENT.length);
+        String id = id(upload);
+
+        // The client goes away after the first six bytes of a PATCH
+        InputStream dropped = new SequenceInputStream(new ByteArrayInputStream(CONTENT, 0, 6), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+        assertThatThrownBy(() -> fileStorageService.appendUpload(id, 0, dropped, null, null))
+                .isInstanceOf(FileStorageException.class);
+
+        assertOffset(upload, 6);
+        mvc.perform(chunk(upload, 6, CONTENT, 6, CONTENT.length))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Upload-Offset", Integer.toString(CONTENT.length)));
+    }
+
+    @Test
+    void enforcesTheMaximumSize() throws Exception {
+        mvc.perform(options("/api/v1/uploads"))
+                .andExpect(header().string("Tus-Max-Size", "1024"));
+        mvc.perform(post("/api/v1/uploads")
+                        .header("Tus-Resumable", "1.0.0")
+                        .header("Upload-Length", "1025")
+                        .header("Upload-Metadata", metadata("large.fasta")))
+                .andExpect(status().isPayloadTooLarge());
+
+        // A chunk must not run past the declared length
+        String upload = create(4);
+        mvc.perform(chunk(upload, 0, CONTENT, 0, CONTENT.length)).andExpect(status().isBadRequest());
+        assertOffset(upload, 0);
+    }
+
+    @Test
+    void sweepsUploadsThatStoppedReceivingData() throws Exception {
+        String stale = create(CONTENT.length);
+        String active = create(CONTENT.length);
+        mvc.perform(chunk(active, 0, CONTENT, 0, 6)).andExpect(status().isNoContent());
+        Path staged = storage.resolve("uploads").resolve(id(stale) + ".upload");
+        Files.setLastModifiedTime(staged, FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+
+        fileCleanupScheduler.cleanupExpiredFiles();
+
+        mvc.perform(head(stale).header("Tus-Resumable", "1.0.0")).andExpect(status().isNotFound());
+        assertOffset(active, 6);
+    }
+
+    private String create(long length) throws Exception {
+        return mvc.perform(post("/api/v1/uploads")
+                        .header("Tus-Resumable", "1.0.0")
+                        .header("Upload-Length", Long.toString(length))
+                        .header("Upload-Metadata", metadata("sample.fasta")))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+    }
+
+    private static String id(String upload) {
+        return upload.substring(upload.lastIndexOf('/') + 1);
+    }
+
+    private static MockHttpServletRequestBuilder chunk(String upload, long offset, byte[] content, int from, int to) {
+        byte[] body = new byte[to - from];
+        System.arraycopy(content, from, body, 0, body.length);
+        return patch(upload)
+                .header("Tus-Resumable", "1.0.0")
+                .header("Upload-Offset", Long.toString(offset))
+                .contentType(OFFSET_CONTENT_TYPE)
+                .content(body);
+    }
+
+    private void assertOffset(String upload, long offset) throws Exception {
+        mvc.perform(head(upload).header("Tus-Resumable", "1.0.0"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Upload-Offset", Long.toString(offset)));
+    }
+
+    private static String metadata(String filename) {
+        return "filename " + Base64.getEncoder().encodeToString(filename.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha1(byte[] content) throws Exception {
+        return "sha1 " + Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1").digest(content));
+    }
+}
@@ -0,0 +1,143 @@
+package xyz.mahmoudahmed.genbankinatorbackend.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class FileMetadataCodecTest {
+
+    @Test
+    void roundTripsEveryField() {
+        FileMetadata metadata = metadata();
+        metadata.setClientId("client-1");
+        metadata.setOriginalFilename("sample.fasta");
+        metadata.setFilePath("/storage/abc_sample.gb");
+        metadata.setOwnerNode("node-a");
+
+        FileMetadata decoded = FileMetadataCodec.decode(FileMetadataCodec.encode(metadata));
+
+        assertThat(decoded).isEqualTo(metadata);
+    }
+
+    @Test
+    void roundTripsNullFields() {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(UUID.randomUUID().toString());
+
+        FileMetadata decoded = FileMetadataCodec.decode(FileMetadataCodec.encode(metadata));
+
+        assertThat(decoded).isEqualTo(metadata);
+        assertThat(decoded.getClientId()).isNull();
+        assertThat(decoded.getCreatedAt()).isNull();
+        assertThat(decoded.getOwnerNode()).isNull();
+    }
+
+    @Test
+    void roundTripsNonAsciiFilenames() {
+        FileMetadata metadata = metadata();
+        metadata.setOriginalFilename("Séquence_ß_日本語_🧬.fasta");
+        metadata.setClientId("");
+
+        FileMetadata decoded = FileMetadataCodec.decode(FileMetadataCodec.encode(metadata));
+
+        assertThat(decoded.getOriginalFilename()).isEqualTo("Séquence_ß_日本語_🧬.fasta");
+        assertThat(decoded.getClientId()).isEmpty();
+    }
+
+    @Test
+    void keepsTimestampsToTheMillisecond() {
+        FileMetadata metadata = metadata();
+        metadata.setCreatedAt(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000));
+
+        FileMetadata decoded = FileMetadataCodec.decode(FileMetadataCodec.encode(metadata));
+
+        assertThat(decoded.getCreatedAt()).isEqualTo(metadata.getCreatedAt());
+    }
+
+    @Test
+    void readsVersionOneRecords() {
+        FileMetadata metadata = metadata();
+        metadata.setClientId("client-1");
+        metadata.setOriginalFilename("sample.fasta");
+        metadata.setFilePath("/storage/abc_sample.gb");
+
+        // A version 2 record without ownerNode is a version 1 record plus a trailing null string
+        byte[] v2 = FileMetadataCodec.encode(metadata);
+        byte[] v1 = Arrays.copyOf(v2, v2.length - 4);
+        v1[4] = 1;
+
+        FileMetadata decoded = FileMetadataCodec.decode(v1);
+
+        assertThat(decoded).isEqualTo(metadata);
+    }
+
+    @Test
+    void readsLegacyJson() {
+        String json = "{\"uuid\":\"0f8fad5b-d9cb-469f-a165-70867728950e\",\"clientId\":\"c\","
+                + "\"originalFilename\":\"a.fasta\",\"createdAt\":\"2026-01-02T03:04:05\"}";
+
+        FileMetadata decoded = FileMetadataCodec.decode(json.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(decoded.getUuid()).isEqualTo("0f8fad5b-d9cb-469f-a165-70867728950e");
+        assertThat(decoded.getCreatedAt()).isEqualTo(LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+    }
+
+    @Test
+    void rejectsBadMagic() {
+        byte[] content = FileMetadataCodec.encode(metadata());
+        content[0] = 'X';
+
+        assertThat(FileMetadataCodec.isBinary(content)).isFalse();
+        assertThatThrownBy(() -> FileMetadataCodec.decode(content)).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] content = FileMetadataCodec.encode(metadata());
+        content[4] = 3;
+
+        assertThatThrownBy(() -> FileMetadataCodec.decode(content))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+    }
+
+    @Test
+    void rejectsTruncatedInput() {
+        FileMetadata metadata = metadata();
+        metadata.setOriginalFilename("sample.fasta");
+        byte[] content = FileMetadataCodec.encode(metadata);
+
+        // Cut inside the fixed fields, inside a string, and inside a length prefix
+        for (int length : new int[] {10, content.length - 20, content.length - 2}) {
+            byte[] truncated = Arrays.copyOf(content, length);
+            assertThatThrownBy(() -> FileMetadataCodec.decode(truncated))
+                    .as("truncated to %d bytes", length)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void rejectsStringLongerThanRecord() {
+        byte[] content = FileMetadataCodec.encode(metadata());
+        // clientId length prefix follows the fixed fields
+        ByteBuffer.wrap(content).putInt(38, 1_000);
+
+        assertThatThrownBy(() -> FileMetadataCodec.decode(content))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static FileMetadata metadata() {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(UUID.randomUUID().toString());
+        metadata.setCreatedAt(LocalDateTime.of(2026, 10, 18, 12, 30, 15, 123_000_000));
+        metadata.setExpiresAt(LocalDateTime.of(2026, 10, 19, 12, 30, 15, 123_000_000));
+        return metadata;
+    }
+}
@@ -0,0 +1,159 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+class CdsTranslationServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final CdsTranslationService service = new CdsTranslationService();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        FileStorageService fileStorageService = mock(FileStorageService.class);
+        when(fileStorageService.createResultTempFile())
+                .thenAnswer(call -> Files.createTempFile(directory, "result-", ".part").toFile());
+
+        BufferPool bufferPool = new BufferPool();
+        ReflectionTestUtils.setField(bufferPool, "bufferSize", DataSize.ofKilobytes(4));
+        ReflectionTestUtils.setField(bufferPool, "poolSize", 2);
+        ReflectionTestUtils.setField(bufferPool, "meterRegistry", mock(ObjectProvider.class));
+        bufferPool.init();
+
+        ReflectionTestUtils.setField(service, "engine", "table");
+        ReflectionTestUtils.setField(service, "parallelThreshold", 2);
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(service, "bufferPool", bufferPool);
+    }
+
+    @Test
+    void handlesEveryNcbiCodeWithTheTableEngine() {
+        assertThat(service.handles(null)).isTrue();
+        assertThat(service.handles(11)).isTrue();
+        assertThat(service.handles(33)).isTrue();
+        assertThat(service.handles(7)).isFalse();
+
+        ReflectionTestUtils.setField(service, "engine", "library");
+        assertThat(service.handles(11)).isFalse();
+    }
+
+    @Test
+    void addsTranslationsAndCopiesTheRest() throws IOException {
+        File genbank = write(record("SEQ_A", """
+                     gene            1..15
+                                     /gene="abcA"
+                     CDS             1..15
+                                     /gene="abcA"
+                                     /translation="OLD"
+                     CDS             complement(join(16..24,28..33))
+                                     /transl_table=2
+                     CDS             <34..43
+                                     /codon_start=2
+                     CDS             16..24
+                                     /pseudo
+                """, "ATGGCTTGGAAATAG" + "CTATTTCCA" + "GGG" + "AGCCAT" + "A" + "TTGGCTTGG")
+                + record("SEQ_B", """
+                     CDS             1..9
+                """, "ATGTAATAG"));
+
+        assertThat(service.addTranslations(genbank, 1, false)).isTrue();
+
+        // Only a terminal stop is dropped
+        assertThat(Files.readString(genbank.toPath())).isEqualTo(record("SEQ_A", """
+                     gene            1..15
+                                     /gene="abcA"
+                     CDS             1..15
+                                     /gene="abcA"
+                                     /translation="MAWK"
+                     CDS             complement(join(16..24,28..33))
+                                     /transl_table=2
+                                     /translation="MAWK"
+                     CDS             <34..43
+                                     /codon_start=2
+                                     /translation="LAW"
+                     CDS             16..24
+                                     /pseudo
+                """, "ATGGCTTGGAAATAG" + "CTATTTCCA" + "GGG" + "AGCCAT" + "A" + "TTGGCTTGG")
+                + record("SEQ_B", """
+                     CDS             1..9
+                                     /translation="M*"
+                """, "ATGTAATAG"));
+    }
+
+    @Test
+    void wrapsLongTranslations() throws IOException {
+        String bases = "ATG" + "GCT".repeat(80) + "TAA";
+        File genbank = write(record("SEQ_A", """
+                     CDS             1..246
+                """, bases));
+
+        assertThat(service.addTranslations(genbank, 1, true)).isTrue();
+
+        String translation = "/translation=\"M" + "A".repeat(80) + "*\"";
+        assertThat(Files.readString(genbank.toPath())).contains(
+                "                     " + translation.substring(0, 58) + "\n"
+                        + "                     " + translation.substring(58) + "\n");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "     CDS             join(1..6,OTHER.1:10..15)\n",
+            "     CDS             complement(join(1..6,complement(10..15)))\n",
+            "     CDS             1..15\n                     /transl_table=7\n",
+            "     CDS             1..15\n                     /transl_table=\"x\"\n",
+            "     CDS             1..15\n                     /codon_start=4\n",
+            "     CDS             1..99\n"})
+    void leavesCdsItCannotTranslateToTheLibrary(String feature) throws IOException {
+        String content = record("SEQ_A", "     CDS             1..15\n" + feature, "ATGGCTTGGAAATAG");
+        File genbank = write(content);
+
+        assertThat(service.addTranslations(genbank, 1, false)).isFalse();
+
+        assertThat(Files.readString(genbank.toPath())).isEqualTo(content);
+        try (var files = Files.list(directory)) {
+            assertThat(files).containsExactly(genbank.toPath());
+        }
+    }
+
+    private File write(String content) throws IOException {
+        return Files.writeString(directory.resolve("result.gb"), content).toFile();
+    }
+
+    static String record(String locus, String features, String bases) {
+        StringBuilder record = new StringBuilder()
+                .append("LOCUS       ").append(locus).append("  ").append(bases.length())
+                .append(" bp    DNA     linear   UNK\n")
+                .append("DEFINITION  Test record.\n")
+                .append("FEATURES             Location/Qualifiers\n")
+                .append("     source          1..").append(bases.length()).append('\n')
+                .append(features)
+                .append("ORIGIN\n");
+        String lower = bases.toLowerCase();
+        for (int line = 0; line < lower.length(); line += 60) {
+            record.append(String.format("%9d", line + 1));
+            for (int block = line; block < Math.min(lower.length(), line + 60); block += 10) {
+                record.append(' ').append(lower, block, Math.min(lower.length(), block + 10));
+            }
+            record.append('\n');
+        }
+        return record.append("//\n").toString();
+    }
+}
@@ -0,0 +1,200 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import xyz.mahmoudahmed.converter.GenbankConverter;
+import xyz.mahmoudahmed.model.ConversionOptions;
+import xyz.mahmoudahmed.model.HeaderInfo;
+import xyz.mahmoudahmed.model.TranslationOptions;
+import xyz.mahmoudahmed.parsers.FastaAnnotationParser;
+
+/**
+ * Checks the table engine against the converter library's own translation: the same
+ * conversion is run with the library translating, then with the /translation qualifiers
+ * stripped and added again by {@link CdsTranslationService}.
+ */
+class CodonTranslatorLibraryTest {
+
+    private static final String[][] FEATURES = {
+            {"plain", "10..99", "1"},
+            {"complement_join", "complement(join(110..150,170..210))", "1"},
+            {"join_complements", "join(complement(250..280),complement(215..240))", "1"},
+            {"codon_start_2", "<5..100", "2"},
+            {"codon_start_3", "<20..>90", "3"},
+            {"partial_complement", "complement(<120..>200)", "2"},
+            {"partial_end", "301..>380", "1"},
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void matchesTheLibraryTranslation() throws Exception {
+        for (int table : new int[] {1, 2, 11, 27, 31, 33}) {
+            for (boolean includeStop : new boolean[] {false, true}) {
+                compare(table, includeStop);
+            }
+        }
+    }
+
+    private void compare(int table, boolean includeStop) throws Exception {
+        String bases = randomBases(400, table);
+        Path sequence = Files.writeString(directory.resolve("sequence.fasta"), ">SEQ_A\n" + bases + "\n");
+        StringBuilder annotation = new StringBuilder();
+        for (String[] feature : FEATURES) {
+            annotation.append('>').append(feature[0]).append(" [location=").append(feature[1])
+                    .append("] [gbkey=CDS] [codon_start=").append(feature[2]).append("]\n")
+                    .append(featureBases(bases, feature[1])).append('\n');
+        }
+        Path annotationFile = Files.writeString(directory.resolve("annotation.fasta"), annotation);
+
+        ConversionOptions options = ConversionOptions.builder()
+                .organism("Test organism")
+                .moleculeType("DNA")
+                .topology("linear")
+                .annotationFormat("fasta")
+                .headerInfo(HeaderInfo.builder().build())
+                .translationOptions(TranslationOptions.builder()
+                        .translTableNumber(table)
+                        .translateCDS(true)
+                        .includeStopCodon(includeStop)
+                        .build())
+                .build();
+        File library = directory.resolve("library.gb").toFile();
+        GenbankConverter.builder().withAnnotationParser(new FastaAnnotationParser()).build()
+                .convert(sequence.toFile(), annotationFile.toFile(), options)
+                .writeToFile(library);
+
+        Map<String, String> expected = translations(Files.readAllLines(library.toPath()));
+        assertThat(expected).as("CDS translated by the library").hasSize(FEATURES.length);
+
+        File tableFile = directory.resolve("table.gb").toFile();
+        Files.write(tableFile.toPath(), withoutTranslations(Files.readAllLines(library.toPath())));
+        assertThat(service().addTranslations(tableFile, table, includeStop)).isTrue();
+
+        assertThat(translations(Files.readAllLines(tableFile.toPath())))
+                .as("table %d, includeStop %s", table, includeStop)
+                .isEqualTo(expected);
+    }
+
+    private CdsTranslationService service() throws IOException {
+        FileStorageService fileStorageService = mock(FileStorageService.class);
+        when(fileStorageService.createResultTempFile())
+                .thenAnswer(call -> Files.createTempFile(directory, "result-", ".part").toFile());
+        BufferPool bufferPool = new BufferPool();
+        ReflectionTestUtils.setField(bufferPool, "bufferSize", DataSize.ofKilobytes(4));
+        ReflectionTestUtils.setField(bufferPool, "poolSize", 2);
+        ReflectionTestUtils.setField(bufferPool, "meterRegistry", mock(ObjectProvider.class));
+        bufferPool.init();
+
+        CdsTranslationService service = new CdsTranslationService();
+        ReflectionTestUtils.setField(service, "engine", "table");
+        ReflectionTestUtils.setField(service, "parallelThreshold", 64);
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(service, "bufferPool", bufferPool);
+        return service;
+    }
+
+    /**
+     * Random bases with an ATG at each feature start, so complete 5' ends begin with a start codon
+     */
+    private static String randomBases(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder bases = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            bases.append("ACGT".charAt(random.nextInt(4)));
+        }
+        bases.replace(9, 12, "ATG");
+        bases.replace(207, 210, "CAT");
+        bases.replace(277, 280, "CAT");
+        bases.replace(300, 303, "ATG");
+        return bases.toString();
+    }
+
+    private static String featureBases(String bases, String location) {
+        GenbankLocation parsed = GenbankLocation.parse(location);
+        long[] segments = parsed.segments();
+        StringBuilder spliced = new StringBuilder();
+        for (int i = 0; i < segments.length; i += 2) {
+            spliced.append(bases, (int) segments[i] - 1, (int) segments[i + 1]);
+        }
+        if (!parsed.complement()) {
+            return spliced.toString();
+        }
+        StringBuilder reverse = new StringBuilder(spliced.length());
+        for (int i = spliced.length() - 1; i >= 0; i--) {
+            reverse.append(switch (spliced.charAt(i)) {
+                case 'A' -> 'T';
+                case 'T' -> 'A';
+                case 'C' -> 'G';
+                default -> 'C';
+            });
+        }
+        return reverse.toString();
+    }
+
+    /**
+     * CDS location to /translation, from a GenBank feature table
+     */
+    private static Map<String, String> translations(List<String> lines) {
+        Map<String, String> translations = new LinkedHashMap<>();
+        String location = null;
+        StringBuilder translation = null;
+        for (String line : lines) {
+            boolean keyLine = line.length() > 5 && line.startsWith("     ") && line.charAt(5) != ' ';
+            String content = line.length() > 21 ? line.substring(21).trim() : "";
+            if (keyLine || line.startsWith("ORIGIN")) {
+                location = keyLine && line.substring(5, 21).trim().equals("CDS") ? content : null;
+                translation = null;
+            } else if (translation != null) {
+                translation.append(content);
+                if (content.endsWith("\"")) {
+                    translations.put(location, translation.toString());
+                    translation = null;
+                }
+            } else if (location != null && content.startsWith("/translation=\"")) {
+                translation = new StringBuilder(content);
+                if (content.length() > 14 && content.endsWith("\"")) {
+                    translations.put(location, translation.toString());
+                    translation = null;
+                }
+            }
+        }
+        return translations;
+    }
+
+    private static List<String> withoutTranslations(List<String> lines) {
+        List<String> kept = new ArrayList<>();
+        boolean skipping = false;
+        for (String line : lines) {
+            String content = line.length() > 21 ? line.substring(21) : "";
+            if (line.startsWith("                     ") && content.startsWith("/")) {
+                skipping = content.startsWith("/translation=");
+            } else if (!line.startsWith("                     ")) {
+                skipping = false;
+            }
+            if (!skipping) {
+                kept.add(line);
+            }
+        }
+        return kept;
+    }
+}
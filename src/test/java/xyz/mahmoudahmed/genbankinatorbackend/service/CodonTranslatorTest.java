@@ -0,0 +1,86 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class CodonTranslatorTest {
+
+    @Test
+    void translatesAPlainCds() {
+        assertThat(translate("ATGGCTTGGAAATAG", "1..15", 1, 1, false)).isEqualTo("MAWK");
+        assertThat(translate("ATGGCTTGGAAATAG", "1..15", 1, 1, true)).isEqualTo("MAWK*");
+        assertThat(translate("ccATGGCTTGGAAATAGcc", "3..17", 1, 1, false)).isEqualTo("MAWK");
+    }
+
+    @Test
+    void translatesComplementedJoins() {
+        // Exon 2 reverse complemented at 1..9, an intron at 10..12, exon 1 reverse complemented at 13..18
+        String sequence = "CTATTTCCA" + "GGG" + "AGCCAT";
+
+        assertThat(translate(sequence, "complement(join(1..9,13..18))", 1, 1, true)).isEqualTo("MAWK*");
+        assertThat(translate(sequence, "join(complement(13..18),complement(1..9))", 1, 1, true)).isEqualTo("MAWK*");
+        assertThat(translate("CTATTTCCAAGCCAT", "complement(1..15)", 1, 1, false)).isEqualTo("MAWK");
+    }
+
+    @Test
+    void translatesForwardJoins() {
+        assertThat(translate("ATGGC" + "AAAA" + "TTGGTAA", "join(1..5,10..16)", 1, 1, false)).isEqualTo("MAW");
+    }
+
+    @Test
+    void honoursCodonStart() {
+        assertThat(translate("A" + "TTGGCTTGG", "<1..10", 1, 2, false)).isEqualTo("LAW");
+        assertThat(translate("AC" + "TTGGCTTGG", "<1..11", 1, 3, false)).isEqualTo("LAW");
+        // The first full codon of a reverse-strand CDS is read from the high end
+        assertThat(translate("CCAAGCCAA" + "G", "complement(1..>10)", 1, 2, false)).isEqualTo("LAW");
+    }
+
+    @Test
+    void treatsPartialStartsAsInternalCodons() {
+        // TTG is an alternative start in table 1: M at a complete 5' end, L otherwise
+        assertThat(translate("TTGGCTTAA", "1..9", 1, 1, false)).isEqualTo("MA");
+        assertThat(translate("TTGGCTTAA", "<1..9", 1, 1, false)).isEqualTo("LA");
+        assertThat(translate("TTAAGCCAA", "complement(1..9)", 1, 1, false)).isEqualTo("MA");
+        assertThat(translate("TTAAGCCAA", "complement(1..>9)", 1, 1, false)).isEqualTo("LA");
+        // An incomplete last codon is dropped
+        assertThat(translate("ATGGCTTG", "1..>8", 1, 1, false)).isEqualTo("MA");
+    }
+
+    @Test
+    void marksAmbiguousCodons() {
+        assertThat(translate("ATGNNNGCRTGG", "1..12", 1, 1, false)).isEqualTo("MXXW");
+    }
+
+    @Test
+    void usesTheRequestedGeneticCode() {
+        String sequence = "ATGTAATAGTGAAGGATA";
+
+        assertThat(translate(sequence, "1..18", 1, 1, true)).isEqualTo("M***RI");
+        assertThat(translate(sequence, "1..18", 2, 1, true)).isEqualTo("M**W*M");
+        assertThat(translate(sequence, "1..18", 6, 1, true)).isEqualTo("MQQ*RI");
+        assertThat(translate(sequence, "1..18", 27, 1, true)).isEqualTo("MQQWRI");
+        assertThat(translate(sequence, "1..18", 29, 1, true)).isEqualTo("MYY*RI");
+        assertThat(translate(sequence, "1..18", 30, 1, true)).isEqualTo("MEE*RI");
+        assertThat(translate(sequence, "1..18", 31, 1, true)).isEqualTo("MEEWRI");
+        assertThat(translate(sequence, "1..18", 32, 1, true)).isEqualTo("M*W*RI");
+        assertThat(translate(sequence, "1..18", 33, 1, true)).isEqualTo("MY*WKI");
+    }
+
+    @Test
+    void tabulatesEveryNcbiCode() {
+        IntStream.of(1, 2, 3, 4, 5, 6, 9, 10, 11, 12, 13, 14, 15, 16, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30,
+                31, 32, 33).forEach(table -> assertThat(CodonTranslator.supports(table)).as("table %d", table).isTrue());
+        IntStream.of(0, 7, 8, 17, 20, 34).forEach(table -> assertThat(CodonTranslator.supports(table)).isFalse());
+    }
+
+    private static String translate(String sequence, String location, int table, int codonStart,
+                                    boolean includeStop) {
+        GenbankLocation parsed = GenbankLocation.parse(location);
+        return CodonTranslator.forTable(table).translate(sequence.getBytes(StandardCharsets.US_ASCII),
+                parsed.segments(), parsed.complement(), codonStart, parsed.partialStart(), includeStop);
+    }
+}
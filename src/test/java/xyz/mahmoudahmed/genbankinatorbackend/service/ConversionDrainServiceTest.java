@@ -0,0 +1,51 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class ConversionDrainServiceTest {
+
+    private final ConversionDrainService drain = new ConversionDrainService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(drain, "drainTimeout", Duration.ofSeconds(10));
+        drain.start();
+    }
+
+    @Test
+    void refusesAtOnceAndCallsBackWhenTheLastConversionEnds() throws InterruptedException {
+        assertThat(drain.tryBegin()).isTrue();
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        // Returns without waiting for the running conversion
+        drain.stop(stopped::countDown);
+
+        assertThat(drain.isRunning()).isFalse();
+        assertThat(drain.tryBegin()).isFalse();
+        assertThat(stopped.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        drain.end();
+        assertThat(stopped.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(drain.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void callsBackAfterTheTimeoutWhenConversionsKeepRunning() throws InterruptedException {
+        ReflectionTestUtils.setField(drain, "drainTimeout", Duration.ofMillis(100));
+        assertThat(drain.tryBegin()).isTrue();
+        CountDownLatch stopped = new CountDownLatch(1);
+
+        drain.stop(stopped::countDown);
+
+        assertThat(stopped.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(drain.getInFlightCount()).isEqualTo(1);
+    }
+}
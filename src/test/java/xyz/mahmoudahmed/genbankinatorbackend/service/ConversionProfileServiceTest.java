@@ -0,0 +1,182 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileNotFoundException;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionOptionsFactory.PreparedOptions;
+
+/**
+ * Two services on one storage directory stand in for two cluster nodes
+ */
+class ConversionProfileServiceTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    private ConversionProfileService first;
+    private ConversionProfileService second;
+
+    @BeforeEach
+    void setUp() {
+        first = service();
+        second = service();
+    }
+
+    @Test
+    void lookupsSeeChangesFromOtherNodes() {
+        first.register("bacteria", request("Escherichia coli"));
+
+        assertThat(second.getProfile("bacteria").request().getOrganism()).isEqualTo("Escherichia coli");
+
+        second.register("bacteria", request("Bacillus subtilis"));
+        assertThat(first.getProfile("bacteria").request().getOrganism()).isEqualTo("Bacillus subtilis");
+
+        // Known locally, so only a check of the file on every lookup notices the delete
+        second.delete("bacteria");
+        assertThatThrownBy(() -> first.getProfile("bacteria")).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    void savesKeepProfilesOtherNodesWrote() {
+        first.register("bacteria", request("Escherichia coli"));
+        second.register("yeast", request("Saccharomyces cerevisiae"));
+        first.register("plants", request("Arabidopsis thaliana"));
+
+        assertThat(service().getProfiles())
+                .extracting(ConversionProfileService.ConversionProfile::id)
+                .containsExactly("bacteria", "plants", "yeast");
+    }
+
+    @Test
+    void deletesProfilesOtherNodesRegistered() {
+        first.register("bacteria", request("Escherichia coli"));
+
+        second.delete("bacteria");
+
+        assertThat(service().getProfiles()).isEmpty();
+    }
+
+    @Test
+    void noticesAReplacementWithTheSameModificationTime() throws Exception {
+        first.register("bacteria", request("Escherichia coli"));
+        Path file = directory.resolve("profiles.json");
+        FileTime modified = Files.getLastModifiedTime(file);
+
+        second.register("bacteria", request("Bacillus subtilis"));
+        // As a file system with coarse timestamps would leave it
+        Files.setLastModifiedTime(file, modified);
+
+        assertThat(first.getProfile("bacteria").request().getOrganism()).isEqualTo("Bacillus subtilis");
+        assertThat(MAPPER.readTree(file.toFile()).path("version").asLong()).isEqualTo(2);
+    }
+
+    @Test
+    void readsAFileWithoutAVersion() throws Exception {
+        first.register("bacteria", request("Escherichia coli"));
+        Path file = directory.resolve("profiles.json");
+        JsonNode profiles = MAPPER.readTree(file.toFile()).path("profiles");
+        Files.writeString(file, MAPPER.writeValueAsString(profiles), StandardCharsets.UTF_8);
+
+        ConversionProfileService restarted = service();
+        assertThat(restarted.getProfile("bacteria").request().getOrganism()).isEqualTo("Escherichia coli");
+
+        restarted.register("yeast", request("Saccharomyces cerevisiae"));
+        assertThat(MAPPER.readTree(file.toFile()).path("version").asLong()).isEqualTo(1);
+        assertThat(service().getProfiles()).hasSize(2);
+    }
+
+    @Test
+    void reusesTheProfilesOptionsWhenNothingIsOverridden() {
+        first.register("bacteria", request("Escherichia coli"));
+
+        PreparedOptions once = first.resolve(profile("bacteria"));
+        PreparedOptions again = first.resolve(profile("bacteria"));
+
+        assertThat(again).isSameAs(once);
+        assertThat(once.request().getOrganism()).isEqualTo("Escherichia coli");
+    }
+
+    @Test
+    void rebuildsAndRevalidatesOverriddenOptions() {
+        first.register("bacteria", request("Escherichia coli"));
+        PreparedOptions registered = first.resolve(profile("bacteria"));
+
+        ConversionRequest overridden = profile("bacteria");
+        overridden.setTopology("linear");
+        PreparedOptions rebuilt = first.resolve(overridden);
+
+        assertThat(rebuilt).isNotSameAs(registered);
+        assertThat(rebuilt.request().getTopology()).isEqualTo("linear");
+        assertThat(rebuilt.request().getOrganism()).isEqualTo("Escherichia coli");
+        assertThat(first.resolve(profile("bacteria"))).isSameAs(registered);
+
+        ConversionRequest invalid = profile("bacteria");
+        invalid.setAnnotationFormat("embl");
+        assertThatThrownBy(() -> first.resolve(invalid))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unsupported format embl");
+    }
+
+    @Test
+    void rejectsAnUnknownProfile() {
+        assertThatThrownBy(() -> first.resolve(profile("missing")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown profile: missing");
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConversionProfileService service() {
+        ConversionOptionsFactory factory = new ConversionOptionsFactory();
+        ReflectionTestUtils.setField(factory, "gffAnnotationService", new GffAnnotationService());
+        ReflectionTestUtils.setField(factory, "cdsTranslationService", new CdsTranslationService());
+        ReflectionTestUtils.setField(factory, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+        FileStorageService storage = mock(FileStorageService.class);
+        when(storage.getStoragePath()).thenReturn(directory);
+
+        ConversionProfileService service = new ConversionProfileService();
+        ReflectionTestUtils.setField(service, "maxCount", 1000);
+        ReflectionTestUtils.setField(service, "conversionOptionsFactory", factory);
+        ReflectionTestUtils.setField(service, "fileStorageService", storage);
+        ReflectionTestUtils.setField(service, "objectMapper", MAPPER);
+        ReflectionTestUtils.setField(service, "meterRegistry", mock(ObjectProvider.class));
+        service.init();
+        return service;
+    }
+
+    private static ConversionRequest request(String organism) {
+        ConversionRequest request = new ConversionRequest();
+        request.setOrganism(organism);
+        request.setMoleculeType("DNA");
+        request.setTopology("circular");
+        request.setAnnotationFormat("fasta");
+        return request;
+    }
+
+    private static ConversionRequest profile(String profileId) {
+        ConversionRequest request = new ConversionRequest();
+        request.setProfileId(profileId);
+        return request;
+    }
+}
@@ -0,0 +1,136 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import xyz.mahmoudahmed.genbankinatorbackend.dto.ConversionRequest;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ConversionOptionsFactory.PreparedOptions;
+
+class ConversionQueueTest {
+
+    @TempDir
+    Path queuePath;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    private final GenbankService genbankService = mock(GenbankService.class);
+    private final ConversionOptionsFactory conversionOptionsFactory = mock(ConversionOptionsFactory.class);
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+
+    private ConversionRequest request;
+
+    @BeforeEach
+    void setUp() {
+        request = new ConversionRequest();
+        request.setOrganism("Homo sapiens");
+        request.setAnnotationFormat("fasta");
+
+        when(fileStorageService.getQueuePath()).thenReturn(queuePath);
+        when(fileStorageService.storeQueuedFile(any()))
+                .thenReturn(queuePath.resolve("sequence.fasta").toString(),
+                        queuePath.resolve("annotation.fasta").toString());
+        when(conversionOptionsFactory.prepare(any())).thenAnswer(call -> prepared(call.getArgument(0)));
+    }
+
+    @Test
+    void replaysUnfinishedJobOnceUnderItsUuid() throws Exception {
+        // The first instance shuts down before a worker can run the job, so no DONE record is written
+        ConversionQueue first = queue(false);
+        first.start();
+        String uuid = first.enqueue(prepared(request),
+                new MockMultipartFile("sequenceFile", "sample.fasta", null, ">seq1\nATG".getBytes()),
+                new MockMultipartFile("annotationFile", "genes.fasta", null, ">gene1\nATG".getBytes()),
+                "client-1");
+        first.stop();
+
+        ConversionQueue second = queue(true);
+        second.start();
+        verify(genbankService, timeout(5_000)).convertStoredFiles(any(),
+                eq(queuePath.resolve("sequence.fasta").toString()),
+                eq(queuePath.resolve("annotation.fasta").toString()),
+                eq("sample.fasta"), eq("client-1"), eq(uuid));
+        awaitIdle(second, uuid);
+        second.stop();
+
+        // The DONE record keeps a third start from running it again
+        ConversionQueue third = queue(true);
+        third.start();
+        assertThat(third.getStatus(uuid)).isNull();
+        third.stop();
+
+        verify(genbankService, times(1)).convertStoredFiles(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void skipsTornLastJournalLine() throws Exception {
+        ConversionQueue.QueuedJob job = new ConversionQueue.QueuedJob();
+        job.setUuid("0f8fad5b-d9cb-469f-a165-70867728950e");
+        job.setOriginalFilename("sample.fasta");
+        job.setSequencePath(queuePath.resolve("sequence.fasta").toString());
+        job.setAnnotationPath(queuePath.resolve("annotation.fasta").toString());
+        job.setRequest(request);
+        String complete = objectMapper.writeValueAsString(ConversionQueue.JournalEntry.enqueue(job));
+        Files.writeString(queuePath.resolve("journal.log"),
+                complete + "\n" + complete.substring(0, complete.length() / 2), StandardCharsets.UTF_8);
+
+        ConversionQueue queue = queue(false);
+        queue.start();
+        try {
+            assertThat(queue.getStatus(job.getUuid())).isNotNull();
+            // Compaction leaves only whole records
+            List<String> lines = Files.readAllLines(queuePath.resolve("journal.log"));
+            assertThat(lines).containsExactly(complete);
+        } finally {
+            queue.stop();
+        }
+    }
+
+    private ConversionQueue queue(boolean accepting) {
+        ConversionDrainService drainService = mock(ConversionDrainService.class);
+        when(drainService.tryBegin()).thenReturn(accepting);
+
+        ConversionQueue queue = new ConversionQueue();
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "configuredWorkers", 1);
+        ReflectionTestUtils.setField(queue, "drainTimeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(queue, "genbankService", genbankService);
+        ReflectionTestUtils.setField(queue, "conversionOptionsFactory", conversionOptionsFactory);
+        ReflectionTestUtils.setField(queue, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(queue, "conversionDrainService", drainService);
+        ReflectionTestUtils.setField(queue, "objectMapper", objectMapper);
+        return queue;
+    }
+
+    private static void awaitIdle(ConversionQueue queue, String uuid) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (queue.getStatus(uuid) != null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(queue.getStatus(uuid)).isNull();
+    }
+
+    private static PreparedOptions prepared(ConversionRequest request) {
+        return new PreparedOptions(request, null, false, false, 1, false);
+    }
+}
@@ -0,0 +1,181 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Runs on a stopped clock, so scores only change when a test advances it
+ */
+class ConversionSchedulerTest {
+
+    private static final long SMALL = 100;
+    private static final long LARGE = DataSize.ofMegabytes(10).toBytes();
+
+    private final AtomicLong now = new AtomicLong();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private ConversionScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void admitsASmallConversionAheadOfAnEarlierLargeOne() throws Exception {
+        scheduler = scheduler(1, false, DataSize.ofGigabytes(1));
+        ConversionScheduler.Permit running = scheduler.admit(SMALL, 0, "a");
+        CompletableFuture<ConversionScheduler.Permit> large = enqueue(LARGE, "a", 1);
+        CompletableFuture<ConversionScheduler.Permit> small = enqueue(SMALL, "a", 2);
+
+        running.close();
+
+        ConversionScheduler.Permit admitted = small.get(5, TimeUnit.SECONDS);
+        assertThat(large).isNotDone();
+        admitted.close();
+        assertThat(large.get(5, TimeUnit.SECONDS).getLane()).isEqualTo(ConversionScheduler.Lane.LARGE);
+    }
+
+    @Test
+    void admitsALargeConversionOnceItHasWaitedLongEnough() throws Exception {
+        scheduler = scheduler(1, false, DataSize.ofGigabytes(1));
+        ConversionScheduler.Permit running = scheduler.admit(SMALL, 0, "a");
+        CompletableFuture<ConversionScheduler.Permit> large = enqueue(LARGE, "a", 1);
+        // Aging is 1MB per second, so twenty seconds outweigh the 10MB difference in cost
+        now.addAndGet(TimeUnit.SECONDS.toNanos(20));
+        CompletableFuture<ConversionScheduler.Permit> small = enqueue(SMALL, "a", 2);
+
+        running.close();
+
+        ConversionScheduler.Permit admitted = large.get(5, TimeUnit.SECONDS);
+        assertThat(small).isNotDone();
+        admitted.close();
+        small.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void keepsSlotsForSmallerConversions() throws Exception {
+        // Two slots, at most one of them large
+        scheduler = scheduler(2, false, DataSize.ofGigabytes(1));
+        ConversionScheduler.Permit runningLarge = scheduler.admit(LARGE, 0, "a");
+        CompletableFuture<ConversionScheduler.Permit> large = enqueue(LARGE, "a", 1);
+
+        ConversionScheduler.Permit small = scheduler.admit(SMALL, 0, "a");
+        assertThat(scheduler.getStats().running()).isEqualTo(2);
+        small.close();
+
+        assertThat(scheduler.getStats().largeSlots()).isEqualTo(1);
+        assertThat(scheduler.getStats().runningLarge()).isEqualTo(1);
+        assertThat(large).isNotDone();
+        runningLarge.close();
+        large.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void favoursClientsWithFewerRunningConversions() throws Exception {
+        scheduler = scheduler(2, true, DataSize.ofGigabytes(1));
+        ConversionScheduler.Permit first = scheduler.admit(SMALL, 0, "busy");
+        ConversionScheduler.Permit second = scheduler.admit(SMALL, 0, "busy");
+        CompletableFuture<ConversionScheduler.Permit> busy = enqueue(SMALL, "busy", 1);
+        // Fifty times the cost, but its client has nothing running
+        CompletableFuture<ConversionScheduler.Permit> idle = enqueue(50 * SMALL, "idle", 2);
+
+        first.close();
+
+        idle.get(5, TimeUnit.SECONDS);
+        assertThat(busy).isNotDone();
+        second.close();
+        busy.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void passesOverConversionsWhoseReservationDoesNotFit() throws Exception {
+        scheduler = scheduler(2, false, DataSize.ofBytes(1000));
+        ConversionScheduler.Permit running = scheduler.admit(600, 0, "a");
+        // A slot is free, but 600 + 800 bytes exceed the budget
+        CompletableFuture<ConversionScheduler.Permit> waiting = enqueue(800, "a", 1);
+
+        ConversionScheduler.Permit fits = scheduler.admit(300, 0, "a");
+        assertThat(fits.getReservation().getBytes()).isEqualTo(300);
+        assertThat(waiting).isNotDone();
+
+        fits.close();
+        running.close();
+        assertThat(waiting.get(5, TimeUnit.SECONDS).getReservation().getBytes()).isEqualTo(800);
+    }
+
+    @Test
+    void holdsBackOthersForAnAgedConversionWaitingForMemory() throws Exception {
+        scheduler = scheduler(2, false, DataSize.ofBytes(1000));
+        ConversionScheduler.Permit running = scheduler.admit(600, 0, "a");
+        CompletableFuture<ConversionScheduler.Permit> aged = enqueue(800, "a", 1);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        CompletableFuture<ConversionScheduler.Permit> fits = enqueue(300, "a", 2);
+
+        running.close();
+
+        ConversionScheduler.Permit admitted = aged.get(5, TimeUnit.SECONDS);
+        assertThat(fits).isNotDone();
+        admitted.close();
+        fits.get(5, TimeUnit.SECONDS).close();
+    }
+
+    /**
+     * Starts waiting for a slot on another thread and returns once it is queued
+     */
+    private CompletableFuture<ConversionScheduler.Permit> enqueue(long inputBytes, String clientId, int waiting)
+            throws InterruptedException {
+        CompletableFuture<ConversionScheduler.Permit> permit =
+                CompletableFuture.supplyAsync(() -> scheduler.admit(inputBytes, 0, clientId), executor);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (waiting() != waiting && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(waiting()).isEqualTo(waiting);
+        return permit;
+    }
+
+    private int waiting() {
+        return scheduler.getStats().waiting().values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConversionScheduler scheduler(int concurrency, boolean fairShare, DataSize memory) {
+        MemoryBudgetService memoryBudgetService = new MemoryBudgetService();
+        ReflectionTestUtils.setField(memoryBudgetService, "configuredBudget", memory);
+        ReflectionTestUtils.setField(memoryBudgetService, "uploadShare", 0.0);
+        ReflectionTestUtils.setField(memoryBudgetService, "bytesPerInputByte", 1);
+        ReflectionTestUtils.setField(memoryBudgetService, "waitTimeout", Duration.ofSeconds(5));
+        memoryBudgetService.init();
+
+        ConversionScheduler scheduler = new ConversionScheduler();
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "configuredConcurrency", concurrency);
+        ReflectionTestUtils.setField(scheduler, "smallLaneLimit", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(scheduler, "largeLaneLimit", DataSize.ofMegabytes(8));
+        ReflectionTestUtils.setField(scheduler, "largeShare", 0.5);
+        ReflectionTestUtils.setField(scheduler, "recordCost", DataSize.ofKilobytes(16));
+        ReflectionTestUtils.setField(scheduler, "agingPerSecond", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(scheduler, "fairShare", fairShare);
+        ReflectionTestUtils.setField(scheduler, "waitTimeout", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(scheduler, "memoryBudgetService", memoryBudgetService);
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(scheduler, "clock", (LongSupplier) now::get);
+        scheduler.init();
+        return scheduler;
+    }
+}
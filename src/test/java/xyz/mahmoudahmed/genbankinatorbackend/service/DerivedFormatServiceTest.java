@@ -0,0 +1,152 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileStorageException;
+import xyz.mahmoudahmed.genbankinatorbackend.service.DerivedFormatService.Format;
+
+class DerivedFormatServiceTest {
+
+    private static final String RECORD = """
+            LOCUS       NC_1                      12 bp    DNA     linear   UNK
+            DEFINITION  Test record.
+            FEATURES             Location/Qualifiers
+                 source          1..12
+                                 /organism="Escherichia coli"
+                 gene            1..9
+                                 /gene="abc"
+                 CDS             1..9
+                                 /gene="abc"
+                                 /product="test protein"
+                                 /translation="MK"
+            ORIGIN
+                    1 atgaaatgac cc
+            //
+            """;
+
+    @TempDir
+    Path directory;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final DerivedFormatService derived = new DerivedFormatService();
+
+    private Path cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        cache = Files.createDirectory(directory.resolve("derived"));
+        when(fileStorageService.getDerivedPath()).thenReturn(cache);
+        when(fileStorageService.createDerivedTempFile())
+                .thenAnswer(call -> Files.createTempFile(cache, "derived-", ".part").toFile());
+        doAnswer(call -> Files.move(call.<Path>getArgument(0), call.<Path>getArgument(1),
+                StandardCopyOption.REPLACE_EXISTING))
+                .when(fileStorageService).moveAtomically(any(), any());
+        for (String uuid : new String[] {"a", "b", "c"}) {
+            Path result = Files.writeString(directory.resolve(uuid + "_sample.gb"), RECORD);
+            when(fileStorageService.getFileAsResource(uuid)).thenReturn(result.toFile());
+        }
+
+        ReflectionTestUtils.setField(derived, "cacheSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(derived, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(derived, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(derived, "meterRegistry", mock(ObjectProvider.class));
+        derived.init();
+    }
+
+    @Test
+    void rendersOnceAndServesFromTheCache() throws IOException {
+        Path first = derived.getDerivedFile("a", Format.FAA);
+        Path second = derived.getDerivedFile("a", Format.FAA);
+
+        assertThat(second).isEqualTo(first).isEqualTo(cache.resolve("a.faa"));
+        assertThat(Files.readString(first))
+                .isEqualTo(">lcl|NC_1_prot_1 [gene=abc] [protein=test protein] [location=1..9]\nMK\n");
+        verify(fileStorageService, times(1)).getFileAsResource("a");
+    }
+
+    @Test
+    void rendersGff3AndJson() throws IOException {
+        assertThat(Files.readString(derived.getDerivedFile("a", Format.GFF3)))
+                .startsWith("##gff-version 3\n##sequence-region NC_1 1 12\n")
+                .contains("NC_1\tGenBankinator\tCDS\t1\t9\t.\t+\t0\tID=NC_1-3;Name=abc;gbkey=CDS;gene=abc;product=test protein\n");
+        assertThat(Files.readString(derived.getDerivedFile("a", Format.JSON)))
+                .startsWith("{\"uuid\":\"a\",\"records\":[{\"locus\":\"NC_1\",\"length\":12")
+                .contains("\"type\":\"CDS\",\"location\":\"1..9\",\"start\":1,\"end\":9,\"strand\":\"+\"");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyServedVariantAndRegeneratesItOnDemand() throws IOException {
+        long size = Files.size(derived.getDerivedFile("a", Format.FAA));
+        ReflectionTestUtils.setField(derived, "cacheSize", DataSize.ofBytes(2 * size));
+        derived.getDerivedFile("b", Format.FAA);
+        makeOlder(cache.resolve("a.faa"), 2);
+
+        derived.getDerivedFile("c", Format.FAA);
+        assertThat(cachedFiles()).containsExactlyInAnyOrder("b.faa", "c.faa");
+
+        makeOlder(cache.resolve("b.faa"), 1);
+        derived.getDerivedFile("a", Format.FAA);
+        assertThat(cachedFiles()).containsExactlyInAnyOrder("a.faa", "c.faa");
+        verify(fileStorageService, times(2)).getFileAsResource("a");
+    }
+
+    @Test
+    void keepsTheVariantJustRenderedEvenIfItAloneExceedsTheCache() throws IOException {
+        derived.getDerivedFile("a", Format.FAA);
+        ReflectionTestUtils.setField(derived, "cacheSize", DataSize.ofBytes(1));
+
+        Path gff = derived.getDerivedFile("a", Format.GFF3);
+
+        assertThat(cachedFiles()).containsExactly("a.gff3");
+        // Served from the cache until something else is rendered
+        assertThat(derived.getDerivedFile("a", Format.GFF3)).isEqualTo(gff);
+        verify(fileStorageService, times(2)).getFileAsResource("a");
+    }
+
+    @Test
+    void leavesNoPartialFileWhenRenderingFails() throws IOException {
+        Files.delete(directory.resolve("a_sample.gb"));
+
+        assertThatThrownBy(() -> derived.getDerivedFile("a", Format.FAA)).isInstanceOf(FileStorageException.class);
+        assertThat(cachedFiles()).isEmpty();
+
+        // Not remembered as failed: the next request renders again
+        Files.writeString(directory.resolve("a_sample.gb"), RECORD);
+        assertThat(derived.getDerivedFile("a", Format.FAA)).exists();
+    }
+
+    private static void makeOlder(Path path, int minutes) throws IOException {
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - minutes * 60_000L));
+    }
+
+    private List<String> cachedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(cache)) {
+            return files.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+
+import xyz.mahmoudahmed.genbankinatorbackend.service.FeatureIntervalIndex.Feature;
+
+class FeatureIntervalIndexTest {
+
+    @Test
+    void ordersFeaturesByStartPerSequence() {
+        FeatureIntervalIndex index = FeatureIntervalIndex.builder()
+                .add(feature("chr1", 50, 60))
+                .add(feature("chr2", 5, 10))
+                .add(feature("chr1", 10, 100))
+                .add(feature("chr1", 10, 20))
+                .build();
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.seqIds()).containsExactly("chr1", "chr2");
+        assertThat(index.features("chr1")).extracting(Feature::start, Feature::end)
+                .containsExactly(tuple(10, 20), tuple(10, 100), tuple(50, 60));
+        assertThat(index.features("chr3")).isEmpty();
+    }
+
+    @Test
+    void findsFeaturesPastTheEndBehindShorterOnes() {
+        // The long feature starts first, so only the running maximum of the ends finds it
+        FeatureIntervalIndex index = FeatureIntervalIndex.builder()
+                .add(feature("chr1", 1, 150))
+                .add(feature("chr1", 20, 30))
+                .add(feature("chr1", 40, 100))
+                .add(feature("chr1", 90, 120))
+                .build();
+
+        assertThat(index.outOfBounds("chr1", 100)).extracting(Feature::start)
+                .containsExactly(1L, 90L);
+        assertThat(index.outOfBounds("chr1", 150)).isEmpty();
+        assertThat(index.outOfBounds("chr2", 10)).isEmpty();
+    }
+
+    private static Tuple tuple(long start, long end) {
+        return Tuple.tuple(start, end);
+    }
+
+    private static Feature feature(String seqId, long start, long end) {
+        return new Feature(seqId, "gene", start, end, '+', new long[] {start, end}, Map.of(), 0);
+    }
+}
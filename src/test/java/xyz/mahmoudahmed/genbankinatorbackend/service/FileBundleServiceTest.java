@@ -0,0 +1,177 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import xyz.mahmoudahmed.genbankinatorbackend.cluster.ClusterCoordinator;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+
+class FileBundleServiceTest {
+
+    // Longer than one buffer, so the CRC pre-pass and the copy both loop
+    private static final String RECORD = "LOCUS       NC_1\nORIGIN\n        1 atgaaatga\n//\n".repeat(8);
+
+    @TempDir
+    Path directory;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final ClusterCoordinator clusterCoordinator = mock(ClusterCoordinator.class);
+    private final Map<String, FileMetadata> stored = new LinkedHashMap<>();
+
+    private FileBundleService bundles;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        BufferPool bufferPool = new BufferPool();
+        ReflectionTestUtils.setField(bufferPool, "bufferSize", DataSize.ofBytes(64));
+        ReflectionTestUtils.setField(bufferPool, "poolSize", 4);
+        ReflectionTestUtils.setField(bufferPool, "meterRegistry", mock(ObjectProvider.class));
+        bufferPool.init();
+
+        bundles = new FileBundleService();
+        ReflectionTestUtils.setField(bundles, "compression", "stored");
+        ReflectionTestUtils.setField(bundles, "maxFiles", 500);
+        ReflectionTestUtils.setField(bundles, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(bundles, "clusterCoordinator", clusterCoordinator);
+        ReflectionTestUtils.setField(bundles, "bufferPool", bufferPool);
+
+        when(clusterCoordinator.isServedLocally(any())).thenReturn(true);
+        when(fileStorageService.getFileMetadata(any())).thenAnswer(call -> stored.get(call.<String>getArgument(0)));
+        when(fileStorageService.getFilesForClient(any())).thenAnswer(call -> stored.values().stream()
+                .filter(metadata -> metadata.getClientId().equals(call.getArgument(0)))
+                .toList());
+        when(fileStorageService.resolveFilePaths(anyCollection())).thenAnswer(call -> {
+            Map<String, Path> paths = new LinkedHashMap<>();
+            for (String uuid : call.<List<String>>getArgument(0)) {
+                Path path = directory.resolve(uuid + "_sample.gb");
+                if (Files.exists(path)) {
+                    paths.put(uuid, path);
+                }
+            }
+            return paths;
+        });
+    }
+
+    @Test
+    void storesEntriesWithTheirSizeAndChecksum() throws IOException {
+        store("a", "client-1", RECORD);
+        store("b", "client-1", "LOCUS       NC_2\n//\n");
+
+        byte[] archive = write(bundles.resolve(null, "client-1"));
+
+        List<Entry> entries = read(archive);
+        assertThat(entries).extracting(Entry::name).containsExactlyInAnyOrder("sample.gb", "sample-b.gb");
+        for (Entry entry : entries) {
+            assertThat(entry.method()).isEqualTo(ZipEntry.STORED);
+            assertThat(entry.size()).isEqualTo(entry.content().length);
+            assertThat(entry.crc()).isEqualTo(crc32(entry.content()));
+        }
+        assertThat(entries).extracting(entry -> new String(entry.content(), StandardCharsets.UTF_8))
+                .containsExactlyInAnyOrder(RECORD, "LOCUS       NC_2\n//\n");
+    }
+
+    @Test
+    void deflatesWhenConfigured() throws IOException {
+        ReflectionTestUtils.setField(bundles, "compression", "deflate");
+        store("a", "client-1", RECORD);
+
+        byte[] archive = write(bundles.resolve(List.of("a"), null));
+
+        assertThat(read(archive)).singleElement().satisfies(entry -> {
+            assertThat(entry.method()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(new String(entry.content(), StandardCharsets.UTF_8)).isEqualTo(RECORD);
+        });
+        assertThat(archive.length).isLessThan(RECORD.length());
+    }
+
+    @Test
+    void leavesOutForeignExpiredAndRemoteResults() throws IOException {
+        store("a", "client-1", RECORD);
+        store("b", "client-2", RECORD);
+        store("c", "client-1", RECORD).setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        FileMetadata remote = store("d", "client-1", RECORD);
+        when(clusterCoordinator.isServedLocally(remote)).thenReturn(false);
+
+        assertThat(bundles.resolve(List.of("a", "b", "c", "d", "missing"), "client-1"))
+                .extracting(entry -> entry.path().getFileName().toString())
+                .containsExactly("a_sample.gb");
+    }
+
+    @Test
+    void skipsFilesDeletedBeforeStreaming() throws IOException {
+        store("a", "client-1", RECORD);
+        store("b", "client-1", RECORD);
+        List<FileBundleService.BundleEntry> entries = bundles.resolve(List.of("a", "b"), null);
+
+        Files.delete(directory.resolve("a_sample.gb"));
+
+        assertThat(read(write(entries))).singleElement()
+                .satisfies(entry -> assertThat(entry.content()).hasSize(RECORD.length()));
+    }
+
+    private FileMetadata store(String uuid, String clientId, String content) throws IOException {
+        Files.writeString(directory.resolve(uuid + "_sample.gb"), content);
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(uuid);
+        metadata.setClientId(clientId);
+        metadata.setOriginalFilename("sample.fasta");
+        metadata.setCreatedAt(LocalDateTime.now());
+        metadata.setExpiresAt(LocalDateTime.now().plusHours(1));
+        stored.put(uuid, metadata);
+        return metadata;
+    }
+
+    private byte[] write(List<FileBundleService.BundleEntry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bundles.write(entries, out);
+        return out.toByteArray();
+    }
+
+    private static List<Entry> read(byte[] archive) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                byte[] content = zip.readAllBytes();
+                // Sizes and CRC of deflated entries are only known after reading them
+                entries.add(new Entry(entry.getName(), entry.getMethod(), entry.getSize(), entry.getCrc(), content));
+            }
+        }
+        return entries;
+    }
+
+    private static long crc32(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private record Entry(String name, int method, long size, long crc, byte[] content) {
+    }
+}
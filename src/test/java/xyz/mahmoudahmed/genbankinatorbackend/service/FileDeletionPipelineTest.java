@@ -0,0 +1,107 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileStorageException;
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+
+class FileDeletionPipelineTest {
+
+    @TempDir
+    Path directory;
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final FileDeletionPipeline pipeline = new FileDeletionPipeline();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(pipeline, "batchSize", 2);
+        ReflectionTestUtils.setField(pipeline, "ioThreads", 2);
+        ReflectionTestUtils.setField(pipeline, "fileStorageService", fileStorageService);
+        pipeline.init();
+
+        when(fileStorageService.unregisterFiles(anyCollection())).thenAnswer(call -> {
+            List<Path> paths = new ArrayList<>();
+            for (FileMetadata metadata : call.<Collection<FileMetadata>>getArgument(0)) {
+                paths.add(directory.resolve(metadata.getUuid() + "_sample.gb"));
+                paths.add(directory.resolve(metadata.getUuid() + ".meta"));
+            }
+            return paths;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void unregistersInBatchesAndDeletesTheirFiles() throws IOException {
+        List<FileMetadata> files = files("a", "b", "c", "d", "e");
+
+        assertThat(pipeline.deleteAll(files)).isEqualTo(5);
+
+        verify(fileStorageService, times(3)).unregisterFiles(anyCollection());
+        try (var remaining = Files.list(directory)) {
+            assertThat(remaining).isEmpty();
+        }
+    }
+
+    @Test
+    void keepsGoingAfterAFailedBatch() throws IOException {
+        List<FileMetadata> files = files("a", "b", "c", "d", "e");
+        when(fileStorageService.unregisterFiles(files.subList(2, 4)))
+                .thenThrow(new FileStorageException("store unavailable"));
+
+        assertThat(pipeline.deleteAll(files)).isEqualTo(3);
+
+        // The failed batch is still registered, so its files stay for the next sweep
+        for (String uuid : List.of("a", "b", "e")) {
+            assertThat(directory.resolve(uuid + "_sample.gb")).doesNotExist();
+        }
+        for (String uuid : List.of("c", "d")) {
+            assertThat(directory.resolve(uuid + "_sample.gb")).exists();
+            assertThat(directory.resolve(uuid + ".meta")).exists();
+        }
+    }
+
+    @Test
+    void countsUnregisteredFilesWhoseResultIsAlreadyGone() throws IOException {
+        List<FileMetadata> files = files("a", "b");
+        Files.delete(directory.resolve("a_sample.gb"));
+
+        assertThat(pipeline.deleteAll(files)).isEqualTo(2);
+        assertThat(directory.resolve("b_sample.gb")).doesNotExist();
+    }
+
+    private List<FileMetadata> files(String... uuids) throws IOException {
+        List<FileMetadata> files = new ArrayList<>();
+        for (String uuid : uuids) {
+            Files.writeString(directory.resolve(uuid + "_sample.gb"), "LOCUS       NC_1\n//\n");
+            Files.writeString(directory.resolve(uuid + ".meta"), "{}");
+            FileMetadata metadata = new FileMetadata();
+            metadata.setUuid(uuid);
+            metadata.setClientId("client-1");
+            files.add(metadata);
+        }
+        return files;
+    }
+}
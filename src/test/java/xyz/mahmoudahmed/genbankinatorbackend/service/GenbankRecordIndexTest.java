@@ -0,0 +1,139 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xyz.mahmoudahmed.genbankinatorbackend.service.GenbankRecordIndex.Entry;
+
+class GenbankRecordIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void indexesEachRecord() throws IOException {
+        String first = record("SEQ_B", "ATGC");
+        String second = record("SEQ_A", "GGCC");
+        Path genbank = write(first + second);
+
+        List<Entry> entries = GenbankRecordIndex.scan(genbank);
+
+        assertThat(entries).containsExactly(
+                new Entry("SEQ_B", 0, bytes(first)),
+                new Entry("SEQ_A", bytes(first), bytes(second)));
+        assertThat(slice(genbank, entries.get(1))).isEqualTo(second);
+    }
+
+    @Test
+    void keepsTheFirstOfDuplicateNames() throws IOException {
+        String first = record("SEQ_A", "ATGC");
+        String duplicate = record("SEQ_A", "TTTT");
+        String other = record("SEQ_B", "GGCC");
+        Path genbank = write(first + duplicate + other);
+
+        List<Entry> entries = GenbankRecordIndex.scan(genbank);
+
+        assertThat(entries).extracting(Entry::locus).containsExactly("SEQ_A", "SEQ_B");
+        assertThat(slice(genbank, entries.get(0))).isEqualTo(first);
+        assertThat(slice(genbank, entries.get(1))).isEqualTo(other);
+    }
+
+    @Test
+    void endsAnUnterminatedRecordAtTheNextOneOrTheEndOfFile() throws IOException {
+        String first = record("SEQ_A", "ATGC").replace("//\n", "");
+        String last = record("SEQ_B", "GGCC").replace("//\n", "");
+        Path genbank = write(first + last);
+
+        List<Entry> entries = GenbankRecordIndex.scan(genbank);
+
+        assertThat(entries).extracting(Entry::locus).containsExactly("SEQ_A", "SEQ_B");
+        assertThat(slice(genbank, entries.get(0))).isEqualTo(first);
+        assertThat(slice(genbank, entries.get(1))).isEqualTo(last);
+    }
+
+    @Test
+    void readsCrlfFiles() throws IOException {
+        String first = record("SEQ_A", "ATGC").replace("\n", "\r\n");
+        String second = record("SEQ_B", "GGCC").replace("\n", "\r\n");
+        Path genbank = write(first + second);
+
+        List<Entry> entries = GenbankRecordIndex.scan(genbank);
+
+        assertThat(entries).extracting(Entry::locus).containsExactly("SEQ_A", "SEQ_B");
+        assertThat(slice(genbank, entries.get(1))).isEqualTo(second);
+    }
+
+    @Test
+    void findsNonAsciiNamesInWriteOrder() throws IOException {
+        String[] loci = {"Zeta", "séq_1", "SEQ_1", "序列", "seq_1", "𝔊enome", "Ärger"};
+        StringBuilder content = new StringBuilder();
+        for (String locus : loci) {
+            content.append(record(locus, "ATGC"));
+        }
+        Path genbank = write(content.toString());
+        Path index = directory.resolve("result.idx");
+
+        List<Entry> entries = GenbankRecordIndex.scan(genbank);
+        GenbankRecordIndex.write(entries, index);
+
+        assertThat(entries).extracting(Entry::locus).containsExactly(loci);
+        String[] sorted = loci.clone();
+        Arrays.sort(sorted);
+        assertThat(GenbankRecordIndex.list(index)).extracting(Entry::locus).containsExactly(sorted);
+        for (Entry entry : entries) {
+            assertThat(GenbankRecordIndex.find(index, entry.locus())).isEqualTo(entry);
+        }
+        assertThat(slice(genbank, GenbankRecordIndex.find(index, "序列"))).startsWith("LOCUS       序列");
+        assertThat(GenbankRecordIndex.find(index, "seq_2")).isNull();
+        assertThat(GenbankRecordIndex.find(index, "")).isNull();
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path index = write("not an index");
+
+        assertThatThrownBy(() -> GenbankRecordIndex.find(index, "SEQ_A"))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void handlesAnEmptyIndex() throws IOException {
+        Path index = directory.resolve("empty.idx");
+
+        GenbankRecordIndex.write(GenbankRecordIndex.scan(write("")), index);
+
+        assertThat(GenbankRecordIndex.list(index)).isEmpty();
+        assertThat(GenbankRecordIndex.find(index, "SEQ_A")).isNull();
+    }
+
+    private static String record(String locus, String bases) {
+        return "LOCUS       " + locus + "  " + bases.length() + " bp    DNA     linear   UNK\n"
+                + "DEFINITION  Test record.\n"
+                + "ORIGIN\n"
+                + "        1 " + bases.toLowerCase() + "\n"
+                + "//\n";
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("result.gb"), content, StandardCharsets.UTF_8);
+    }
+
+    private static long bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String slice(Path genbank, Entry entry) throws IOException {
+        byte[] content = Files.readAllBytes(genbank);
+        return new String(content, (int) entry.offset(), (int) entry.length(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,148 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import xyz.mahmoudahmed.genbankinatorbackend.service.FeatureIntervalIndex.Feature;
+import xyz.mahmoudahmed.genbankinatorbackend.service.GffAnnotationService.Format;
+
+class GffAnnotationServiceTest {
+
+    // 30 bp: ATGAAA CCCGGG TTTAAA CCCGGG TTTTAA
+    private static final String SEQUENCE = ">chr1 test\nATGAAACCCGGGTTT\nAAACCCGGGTTTTAA\n";
+
+    @TempDir
+    Path directory;
+
+    private final GffAnnotationService service = new GffAnnotationService();
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(service, "featureTypes", Set.of("gene", "CDS", "exon"));
+        ReflectionTestUtils.setField(service, "maxReportedIssues", 20);
+        ReflectionTestUtils.setField(service, "fileStorageService", fileStorageService);
+        when(fileStorageService.createResultTempFile())
+                .thenAnswer(call -> Files.createTempFile(directory, "result-", ".part").toFile());
+    }
+
+    @Test
+    void namesGff3FeaturesThroughTheirParentChain() throws IOException {
+        Path gff = write("annotation.gff3", """
+                ##gff-version 3
+                chr1\t.\tgene\t1\t30\t.\t+\t.\tID=gene1;Name=abcA
+                chr1\t.\tmRNA\t1\t30\t.\t+\t.\tID=rna1;Parent=gene1
+                chr1\t.\tCDS\t13\t18\t.\t+\t0\tID=cds1;Parent=rna1
+                chr1\t.\tCDS\t1\t6\t.\t+\t0\tID=cds1;Parent=rna1;product=Abc%20protein
+                chr1\t.\tCDS\t22\t27\t.\t-\t0\tID=cds2;Parent=unknown
+                """);
+
+        FeatureIntervalIndex index = service.readFeatures(gff, Format.GFF3);
+
+        List<Feature> features = index.features("chr1");
+        // Ordered by start, then end
+        assertThat(features).extracting(Feature::type).containsExactly("CDS", "gene", "CDS");
+        Feature spliced = features.get(0);
+        assertThat(spliced.segments()).containsExactly(1, 6, 13, 18);
+        assertThat(spliced.start()).isEqualTo(1);
+        assertThat(spliced.end()).isEqualTo(18);
+        // Attributes come from the first line of the feature
+        assertThat(spliced.qualifiers()).containsEntry("gene", "abcA").doesNotContainKey("product");
+        assertThat(features.get(2).qualifiers()).isEmpty();
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void joinsGtfLinesByTranscript() throws IOException {
+        Path gtf = write("annotation.gtf", """
+                chr1\tsrc\texon\t13\t18\t.\t+\t.\tgene_id "g1"; transcript_id "t1"; gene_name "abcA";
+                chr1\tsrc\texon\t1\t6\t.\t+\t.\tgene_id "g1"; transcript_id "t1";
+                chr1\tsrc\texon\t22\t27\t.\t+\t.\tgene_id "g2"; transcript_id "t2";
+                """);
+
+        FeatureIntervalIndex index = service.readFeatures(gtf, Format.GTF);
+
+        List<Feature> features = index.features("chr1");
+        assertThat(features).hasSize(2);
+        assertThat(features.get(0).segments()).containsExactly(1, 6, 13, 18);
+        assertThat(features.get(0).qualifiers()).containsExactly(Map.entry("gene", "abcA"));
+        assertThat(features.get(1).qualifiers()).containsExactly(Map.entry("gene", "g2"));
+    }
+
+    @Test
+    void writesFeatureBasesInTheirOwnOrientation() throws IOException {
+        Path sequence = write("sequence.fasta", SEQUENCE);
+        Path gff = write("annotation.gff3", """
+                chr1\t.\tCDS\t1\t6\t.\t+\t0\tID=cds1;gene=abcA
+                chr1\t.\tCDS\t13\t18\t.\t+\t0\tID=cds1
+                chr1\t.\tCDS\t4\t9\t.\t-\t0\tID=cds2;gene=abcB
+                chr1\t.\tCDS\t25\t30\t.\t-\t0\tID=cds3;Parent=x
+                chr1\t.\tCDS\t7\t9\t.\t-\t0\tID=cds3;Parent=x
+                """);
+
+        File output = service.toFastaAnnotation(sequence.toString(), gff.toString(), "gff3");
+
+        assertThat(Files.readString(output.toPath())).isEqualTo("""
+                >chr1:1-18 [gene=abcA] [location=join(1..6,13..18)] [gbkey=CDS]
+                ATGAAATTTAAA
+                >chr1:4-9 [gene=abcB] [location=complement(4..9)] [gbkey=CDS]
+                GGGTTT
+                >chr1:7-30 [location=complement(join(7..9,25..30))] [gbkey=CDS]
+                TTAAAAGGG
+                """);
+    }
+
+    @Test
+    void rejectsFeaturesPastTheSequenceEnd() throws IOException {
+        Path sequence = write("sequence.fasta", SEQUENCE);
+        Path gff = write("annotation.gff3", """
+                chr1\t.\tgene\t1\t30\t.\t+\t.\tID=gene1
+                chr1\t.\tCDS\t25\t31\t.\t+\t0\tID=cds1
+                chr2\t.\tgene\t1\t10\t.\t+\t.\tID=gene2
+                """);
+
+        assertThatThrownBy(() -> service.toFastaAnnotation(sequence.toString(), gff.toString(), "gff3"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2: CDS 25..31 runs past the end of 'chr1' (30 bp)")
+                .hasMessageContaining("sequence 'chr2' which is not in the sequence file");
+        try (var files = Files.list(directory)) {
+            assertThat(files).noneMatch(path -> path.getFileName().toString().startsWith("result-"));
+        }
+    }
+
+    @Test
+    void rejectsMalformedLines() throws IOException {
+        Path columns = write("columns.gff3", "chr1\t.\tgene\t1\t30\n");
+        Path reversed = write("reversed.gff3", "chr1\t.\tgene\t30\t1\t.\t+\t.\tID=gene1\n");
+        Path strands = write("strands.gff3", """
+                chr1\t.\tCDS\t1\t6\t.\t+\t0\tID=cds1
+                chr1\t.\tCDS\t13\t18\t.\t-\t0\tID=cds1
+                """);
+
+        assertThatThrownBy(() -> service.readFeatures(columns, Format.GFF3))
+                .hasMessageContaining("expected 9 tab-separated columns");
+        assertThatThrownBy(() -> service.readFeatures(reversed, Format.GFF3))
+                .hasMessageContaining("start 30 is after end 1");
+        assertThatThrownBy(() -> service.readFeatures(strands, Format.GFF3))
+                .hasMessageContaining("must share sequence and strand");
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+}
@@ -0,0 +1,139 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+class HotResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final HotResultCache cache = new HotResultCache();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Four 64KB blocks
+        ReflectionTestUtils.setField(cache, "size", DataSize.ofKilobytes(256));
+        ReflectionTestUtils.setField(cache, "maxEntrySize", DataSize.ofKilobytes(192));
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(cache, "evictOnDownload", true);
+        ReflectionTestUtils.setField(cache, "meterRegistry", mock(ObjectProvider.class));
+        cache.init();
+    }
+
+    @Test
+    void servesTheCachedBytes() throws IOException {
+        byte[] content = bytes(150_000, 1);
+        cache.put("a", write("a_result.gb", content), "client-1");
+
+        HotResultCache.Entry entry = cache.get("a");
+
+        assertThat(entry.storedName()).isEqualTo("a_result.gb");
+        assertThat(entry.clientId()).isEqualTo("client-1");
+        assertThat(entry.length()).isEqualTo(content.length);
+        assertThat(read(entry)).isEqualTo(content);
+        // Each reader gets its own views
+        assertThat(read(entry)).isEqualTo(content);
+
+        cache.release(entry, true);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getStats().bytesServed()).isEqualTo(content.length);
+    }
+
+    @Test
+    void evictsTheOldestWhenTheRegionIsFull() throws IOException {
+        cache.put("a", write("a.gb", bytes(100_000, 1)), null);
+        cache.put("b", write("b.gb", bytes(100_000, 2)), null);
+        cache.put("c", write("c.gb", bytes(100_000, 3)), null);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(read(cache.get("c"))).isEqualTo(bytes(100_000, 3));
+        assertThat(cache.getStats().capacity()).isEqualTo(256 * 1024);
+        assertThat(cache.getStats().bytes()).isEqualTo(200_000);
+    }
+
+    @Test
+    void keepsPinnedBlocksUntilReleased() throws IOException {
+        byte[] first = bytes(100_000, 1);
+        cache.put("a", write("a.gb", first), null);
+        HotResultCache.Entry pinned = cache.get("a");
+
+        // Evicts the pinned entry from the map, but its two blocks stay in use
+        cache.put("b", write("b.gb", bytes(190_000, 2)), null);
+        assertThat(cache.get("b")).isNull();
+        cache.put("c", write("c.gb", bytes(100_000, 3)), null);
+        HotResultCache.Entry other = cache.get("c");
+        assertThat(other).isNotNull();
+
+        assertThat(read(pinned)).isEqualTo(first);
+        cache.release(pinned, false);
+        cache.release(other, false);
+
+        // With the blocks back a large entry fits again
+        cache.put("b", write("b.gb", bytes(190_000, 2)), null);
+        assertThat(read(cache.get("b"))).isEqualTo(bytes(190_000, 2));
+    }
+
+    @Test
+    void skipsResultsAboveTheEntryLimit() throws IOException {
+        cache.put("a", write("a.gb", bytes(200_000, 1)), null);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getStats().entries()).isZero();
+    }
+
+    @Test
+    void cachesEmptyResults() throws IOException {
+        cache.put("a", write("a.gb", new byte[0]), null);
+
+        HotResultCache.Entry entry = cache.get("a");
+        assertThat(entry.length()).isZero();
+        assertThat(entry.chunks()).isEmpty();
+    }
+
+    @Test
+    void invalidatesEntries() throws IOException {
+        cache.put("a", write("a.gb", bytes(1_000, 1)), null);
+
+        cache.invalidate("a");
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getStats().bytes()).isZero();
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(directory.resolve(name), content);
+    }
+
+    private static byte[] bytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] read(HotResultCache.Entry entry) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (ByteBuffer chunk : entry.chunks()) {
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            out.writeBytes(bytes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
+
+class MemoryBudgetServiceTest {
+
+    private final MemoryBudgetService budget = new MemoryBudgetService();
+
+    @BeforeEach
+    void setUp() {
+        // 100 bytes for in-memory uploads, 300 for conversions
+        ReflectionTestUtils.setField(budget, "configuredBudget", DataSize.ofBytes(400));
+        ReflectionTestUtils.setField(budget, "uploadShare", 0.25);
+        ReflectionTestUtils.setField(budget, "bytesPerInputByte", 8);
+        ReflectionTestUtils.setField(budget, "waitTimeout", Duration.ofSeconds(5));
+        budget.init();
+    }
+
+    @Test
+    void splitsTheBudget() {
+        MemoryBudgetService.MemoryStats stats = budget.getStats();
+
+        assertThat(budget.getUploadReserve()).isEqualTo(100);
+        assertThat(stats.budget()).isEqualTo(400);
+        assertThat(stats.conversionBudget()).isEqualTo(300);
+    }
+
+    @Test
+    void accountsForReservationsUntilTheyAreReleased() {
+        MemoryBudgetService.Reservation first = budget.acquire(100, Duration.ZERO);
+        MemoryBudgetService.Reservation second = budget.reserveForConversion(10);
+
+        assertThat(second.getBytes()).isEqualTo(80);
+        assertThat(budget.getStats().inUse()).isEqualTo(180);
+
+        first.close();
+        first.close();
+        assertThat(budget.getStats().inUse()).isEqualTo(80);
+        second.close();
+        assertThat(budget.getStats().inUse()).isZero();
+        assertThat(budget.getStats().peakInUse()).isEqualTo(180);
+    }
+
+    @Test
+    void clampsRequestsLargerThanTheBudget() throws Exception {
+        MemoryBudgetService.Reservation small = budget.acquire(1, Duration.ZERO);
+
+        // Larger than everything: runs alone once the rest has finished
+        CompletableFuture<MemoryBudgetService.Reservation> oversized =
+                CompletableFuture.supplyAsync(() -> budget.reserveForConversion(1_000_000));
+        awaitWaiting(1);
+        assertThat(oversized).isNotDone();
+
+        small.close();
+        MemoryBudgetService.Reservation reservation = oversized.get(5, TimeUnit.SECONDS);
+        assertThat(reservation.getBytes()).isEqualTo(300);
+        assertThat(budget.getStats().inUse()).isEqualTo(300);
+
+        assertThat(budget.acquire(-5, Duration.ZERO).getBytes()).isZero();
+        reservation.close();
+    }
+
+    @Test
+    void givesUpAfterTheTimeout() {
+        try (MemoryBudgetService.Reservation held = budget.acquire(250, Duration.ZERO)) {
+            assertThatThrownBy(() -> budget.acquire(100, Duration.ofMillis(50)))
+                    .isInstanceOf(ServiceUnavailableException.class);
+
+            MemoryBudgetService.MemoryStats stats = budget.getStats();
+            assertThat(stats.timeouts()).isEqualTo(1);
+            assertThat(stats.waiting()).isZero();
+            assertThat(stats.inUse()).isEqualTo(250);
+        }
+        assertThat(budget.acquire(100, Duration.ZERO).getBytes()).isEqualTo(100);
+    }
+
+    private void awaitWaiting(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (budget.getStats().waiting() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(budget.getStats().waiting()).isEqualTo(expected);
+    }
+}
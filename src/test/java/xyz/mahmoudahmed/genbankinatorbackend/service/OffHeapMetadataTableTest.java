@@ -0,0 +1,164 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import xyz.mahmoudahmed.genbankinatorbackend.model.FileMetadata;
+
+class OffHeapMetadataTableTest {
+
+    private static final Path ROOT = Path.of("/storage");
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 12, 0);
+
+    private final OffHeapMetadataTable table = new OffHeapMetadataTable(ROOT, 16);
+
+    @Test
+    void insertsAndReadsBack() {
+        FileMetadata metadata = metadata(UUID.randomUUID(), "client-1", "sample.fasta");
+
+        table.put(metadata);
+
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.get(metadata.getUuid())).isEqualTo(metadata);
+        assertThat(table.get(UUID.randomUUID().toString())).isNull();
+        assertThat(table.get("not-a-uuid")).isNull();
+    }
+
+    @Test
+    void overwritesInPlace() {
+        UUID uuid = UUID.randomUUID();
+        table.put(metadata(uuid, "client-1", "first.fasta"));
+        FileMetadata replacement = metadata(uuid, "client-2", "second.fasta");
+
+        table.put(replacement);
+
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.get(uuid.toString())).isEqualTo(replacement);
+        assertThat(table.findByClient("client-1")).isEmpty();
+        assertThat(table.findByClient("client-2")).containsExactly(replacement);
+    }
+
+    @Test
+    void removesEntries() {
+        FileMetadata metadata = metadata(UUID.randomUUID(), "client-1", "sample.fasta");
+        table.put(metadata);
+
+        assertThat(table.remove(metadata.getUuid())).isEqualTo(metadata);
+        assertThat(table.remove(metadata.getUuid())).isNull();
+        assertThat(table.get(metadata.getUuid())).isNull();
+        assertThat(table.size()).isZero();
+    }
+
+    @Test
+    void keepsProbeChainAcrossTombstones() {
+        // Equal halves hash alike, so these share one probe chain
+        FileMetadata first = metadata(new UUID(1, 1), "client-1", "a.fasta");
+        FileMetadata second = metadata(new UUID(2, 2), "client-1", "b.fasta");
+        FileMetadata third = metadata(new UUID(3, 3), "client-1", "c.fasta");
+        table.put(first);
+        table.put(second);
+        table.put(third);
+
+        table.remove(second.getUuid());
+
+        assertThat(table.get(first.getUuid())).isEqualTo(first);
+        assertThat(table.get(third.getUuid())).isEqualTo(third);
+
+        // Reinserting past the tombstone must not duplicate an entry further down the chain
+        FileMetadata replacement = metadata(new UUID(3, 3), "client-2", "d.fasta");
+        table.put(second);
+        table.put(replacement);
+
+        assertThat(table.size()).isEqualTo(3);
+        assertThat(table.get(third.getUuid())).isEqualTo(replacement);
+        assertThat(table.findAll()).containsExactlyInAnyOrder(first, second, replacement);
+    }
+
+    @Test
+    void resizesUnderCollisions() {
+        long before = table.offHeapBytes();
+        List<FileMetadata> inserted = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            FileMetadata metadata = metadata(new UUID(i, i), "client-" + (i % 7), "file-" + i + ".fasta");
+            inserted.add(metadata);
+            table.put(metadata);
+        }
+        for (int i = 0; i < 500; i += 2) {
+            table.remove(inserted.get(i).getUuid());
+        }
+
+        assertThat(table.size()).isEqualTo(250);
+        assertThat(table.offHeapBytes()).isGreaterThan(before);
+        for (int i = 0; i < 500; i++) {
+            FileMetadata metadata = inserted.get(i);
+            assertThat(table.get(metadata.getUuid())).isEqualTo(i % 2 == 0 ? null : metadata);
+        }
+    }
+
+    @Test
+    void findsExpiredAndByClient() {
+        FileMetadata expired = metadata(UUID.randomUUID(), "client-1", "old.fasta");
+        expired.setExpiresAt(NOW.minusMinutes(1));
+        FileMetadata live = metadata(UUID.randomUUID(), "client-2", "new.fasta");
+        table.put(expired);
+        table.put(live);
+
+        assertThat(table.findExpired(NOW)).containsExactly(expired);
+        assertThat(table.findByClient("client-2")).containsExactly(live);
+        assertThat(table.findByClient("unknown")).isEmpty();
+    }
+
+    @Test
+    void releasesClientIdsWithTheirLastEntry() {
+        FileMetadata first = metadata(UUID.randomUUID(), "client-1", "a.fasta");
+        FileMetadata second = metadata(UUID.randomUUID(), "client-1", "b.fasta");
+        FileMetadata other = metadata(UUID.randomUUID(), "client-2", "c.fasta");
+        table.put(first);
+        table.put(second);
+        table.put(other);
+        assertThat(table.clientCount()).isEqualTo(2);
+
+        table.remove(first.getUuid());
+        assertThat(table.clientCount()).isEqualTo(2);
+
+        table.removeAll(List.of(second.getUuid()));
+        assertThat(table.clientCount()).isEqualTo(1);
+        assertThat(table.findByClient("client-1")).isEmpty();
+
+        // A new client takes the freed index without disturbing the remaining one
+        FileMetadata reused = metadata(UUID.randomUUID(), "client-3", "d.fasta");
+        table.put(reused);
+        assertThat(table.findByClient("client-3")).containsExactly(reused);
+        assertThat(table.findByClient("client-2")).containsExactly(other);
+        assertThat(table.clientCount()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsNullFields() {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(UUID.randomUUID().toString());
+
+        table.put(metadata);
+
+        assertThat(table.get(metadata.getUuid())).isEqualTo(metadata);
+        assertThat(table.clientCount()).isZero();
+    }
+
+    private static FileMetadata metadata(UUID uuid, String clientId, String originalFilename) {
+        FileMetadata metadata = new FileMetadata();
+        metadata.setUuid(uuid.toString());
+        metadata.setClientId(clientId);
+        metadata.setOriginalFilename(originalFilename);
+        metadata.setCreatedAt(NOW);
+        metadata.setExpiresAt(NOW.plusDays(1));
+        metadata.setFilePath(ROOT.resolve(uuid + "_" + originalFilename.replace(".fasta", ".gb")).toString());
+        return metadata;
+    }
+}
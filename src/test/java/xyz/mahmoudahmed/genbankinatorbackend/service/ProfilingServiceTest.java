@@ -0,0 +1,89 @@
+package xyz.mahmoudahmed.genbankinatorbackend.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import xyz.mahmoudahmed.genbankinatorbackend.exception.FileNotFoundException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ProfilingConflictException;
+import xyz.mahmoudahmed.genbankinatorbackend.exception.ServiceUnavailableException;
+import xyz.mahmoudahmed.genbankinatorbackend.service.ProfilingService.RecordingStatus;
+
+class ProfilingServiceTest {
+
+    private final ProfilingService profiling = new ProfilingService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(profiling, "maxDuration", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(profiling, "maxSize", DataSize.ofMegabytes(64));
+        ReflectionTestUtils.setField(profiling, "topFrames", 5);
+        ReflectionTestUtils.setField(profiling, "heapDumpEnabled", false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        profiling.shutdown();
+    }
+
+    @Test
+    void recordsUntilStoppedAndSummarisesOnce() {
+        RecordingStatus started = profiling.start("default", Duration.ofMinutes(5));
+        assertThat(started.state()).isEqualTo("RUNNING");
+        assertThatThrownBy(() -> profiling.start("default", Duration.ofMinutes(1)))
+                .isInstanceOf(ProfilingConflictException.class);
+        assertThatThrownBy(() -> profiling.recordingFile(started.id()))
+                .isInstanceOf(ProfilingConflictException.class);
+
+        RecordingStatus stopped = profiling.stop(started.id());
+
+        // Written to its destination and closed by JFR
+        assertThat(stopped.state()).isEqualTo("CLOSED");
+        assertThat(stopped.bytes()).isPositive();
+        assertThat(profiling.recordingFile(started.id())).exists();
+        ProfilingService.ProfilingSummary summary = profiling.summary(started.id());
+        assertThat(summary.events()).isPositive();
+        assertThat(summary.profile()).isEqualTo("default");
+        assertThat(summary.allocations()).hasSizeLessThanOrEqualTo(5);
+        assertThat(profiling.summary(started.id())).isSameAs(summary);
+    }
+
+    @Test
+    void replacesAFinishedRecordingAndItsFile() {
+        long first = profiling.start("default", Duration.ofMinutes(1)).id();
+        profiling.stop(first);
+        Path file = profiling.recordingFile(first);
+
+        long second = profiling.start("profile", Duration.ofMinutes(1)).id();
+
+        assertThat(Files.exists(file)).isFalse();
+        assertThatThrownBy(() -> profiling.status(first)).isInstanceOf(FileNotFoundException.class);
+        assertThat(profiling.current().id()).isEqualTo(second);
+        assertThat(profiling.current().profile()).isEqualTo("profile");
+    }
+
+    @Test
+    void refusesInvalidRequests() {
+        assertThatThrownBy(() -> profiling.current()).isInstanceOf(FileNotFoundException.class);
+        assertThatThrownBy(() -> profiling.start("default", Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> profiling.start("default", Duration.ofMinutes(11)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> profiling.start("no-such-profile", Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void refusesHeapDumpsUnlessEnabled() {
+        assertThatThrownBy(() -> profiling.dumpHeap(true)).isInstanceOf(ServiceUnavailableException.class);
+    }
+}